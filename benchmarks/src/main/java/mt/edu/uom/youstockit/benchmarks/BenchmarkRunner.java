@@ -0,0 +1,37 @@
+package mt.edu.uom.youstockit.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+// Runs the benchmarks with the GC profiler, so that every result comes with its allocation rate (gc.alloc.rate.norm is
+// the number of bytes allocated per operation)
+// Takes the usual JMH command line options, e.g. "java -jar target/benchmarks.jar CatalogueBenchmark -p size=1000"
+public class BenchmarkRunner
+{
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException
+    {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        // Listing the benchmarks or profilers (-l, -lp, -lprof, -lrf) and showing help (-h) are left to JMH's own
+        // main function, since Runner.run would run every benchmark instead
+        if(commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams() ||
+                commandLine.shouldListProfilers() || commandLine.shouldListResultFormats())
+        {
+            Main.main(args);
+            return;
+        }
+
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
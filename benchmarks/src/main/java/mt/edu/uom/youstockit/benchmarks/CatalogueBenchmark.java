@@ -0,0 +1,87 @@
+package mt.edu.uom.youstockit.benchmarks;
+
+import mt.edu.uom.youstockit.ordering.ProductCatalogue;
+import mt.edu.uom.youstockit.ordering.StockItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Measures looking up items in each type of catalogue
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class CatalogueBenchmark
+{
+    // Number of random ids looked up in turn (must be a power of two)
+    private static final int NUM_IDS = 1 << 16;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"ProductCatalogue", "ConcurrentProductCatalogue", "PrimitiveProductCatalogue"})
+    public String type;
+
+    private ProductCatalogue catalogue;
+    private int[] ids;
+    private int next;
+    // Category names, created up front so that building them is not measured
+    private String[] categories;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        catalogue = Catalogues.create(type, size);
+        ids = Catalogues.randomIds(size, NUM_IDS, 42);
+        categories = new String[Catalogues.NUM_CATEGORIES];
+        for(int i = 0; i < categories.length; i++)
+        {
+            categories[i] = Catalogues.categoryOf(i);
+        }
+    }
+
+    @Benchmark
+    public StockItem getById()
+    {
+        return catalogue.getById(nextId());
+    }
+
+    // Every category holds 1% of the items, so this mostly measures copying them into a list
+    @Benchmark
+    public List<StockItem> getByCategory()
+    {
+        return catalogue.getByCategory(nextCategory());
+    }
+
+    @Benchmark
+    public int countByCategory()
+    {
+        return catalogue.countByCategory(nextCategory());
+    }
+
+    // Helper function which returns the next random id to look up
+    private int nextId()
+    {
+        return ids[next++ & (NUM_IDS - 1)];
+    }
+
+    // Helper function which returns the category of the next random id
+    private String nextCategory()
+    {
+        return categories[nextId() % Catalogues.NUM_CATEGORIES];
+    }
+}
@@ -0,0 +1,90 @@
+package mt.edu.uom.youstockit.benchmarks;
+
+import mt.edu.uom.youstockit.ordering.ConcurrentProductCatalogue;
+import mt.edu.uom.youstockit.ordering.PrimitiveProductCatalogue;
+import mt.edu.uom.youstockit.ordering.ProductCatalogue;
+import mt.edu.uom.youstockit.ordering.StockItem;
+
+import java.util.Random;
+
+// Builds the catalogues used by the benchmarks
+final class Catalogues
+{
+    // Number of categories the items are spread over
+    static final int NUM_CATEGORIES = 100;
+    // Items are given enough stock to never run out while being sold to, and are never restocked
+    static final int INITIAL_QUANTITY = Integer.MAX_VALUE / 2;
+
+    private Catalogues()
+    {
+    }
+
+    // Creates a catalogue of the given type ("ProductCatalogue", "ConcurrentProductCatalogue" or
+    // "PrimitiveProductCatalogue") holding items with ids from 0 to size - 1
+    static ProductCatalogue create(String type, int size)
+    {
+        ProductCatalogue catalogue;
+        switch (type)
+        {
+            case "ProductCatalogue":
+                catalogue = new ProductCatalogue();
+                break;
+            case "ConcurrentProductCatalogue":
+                catalogue = new ConcurrentProductCatalogue();
+                break;
+            case "PrimitiveProductCatalogue":
+                catalogue = new PrimitiveProductCatalogue();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown catalogue type " + type);
+        }
+
+        for(int id = 0; id < size; id++)
+        {
+            catalogue.add(createItem(id));
+        }
+        return catalogue;
+    }
+
+    // Returns the name of the category an item with the given id is in
+    static String categoryOf(int id)
+    {
+        return "Category" + (id % NUM_CATEGORIES);
+    }
+
+    // Returns ids picked at random from 0 to size - 1, so that lookups do not go through the catalogue in order
+    // Note: the number of ids must be a power of two, so that benchmarks can cycle through them with a mask
+    static int[] randomIds(int size, int numIds, long seed)
+    {
+        Random random = new Random(seed);
+        int[] ids = new int[numIds];
+        for(int i = 0; i < numIds; i++)
+        {
+            ids[i] = random.nextInt(size);
+        }
+        return ids;
+    }
+
+    // Puts every item back in stock, so that long benchmark runs never sell out
+    static void restock(ProductCatalogue catalogue)
+    {
+        for(StockItem item : catalogue)
+        {
+            item.setQuantity(INITIAL_QUANTITY);
+        }
+    }
+
+    // Helper function which creates an item which is never restocked, since its minimum order quantity is 0
+    private static StockItem createItem(int id)
+    {
+        StockItem item = new StockItem(id);
+        item.setName("Item" + id);
+        item.setCategory(categoryOf(id));
+        item.setDescription("Benchmark item");
+        item.setMinimumOrderQuantity(0);
+        item.setQuantity(INITIAL_QUANTITY);
+        item.setOrderAmount(10);
+        item.setBuySellPricesCents(100, 150);
+        return item;
+    }
+}
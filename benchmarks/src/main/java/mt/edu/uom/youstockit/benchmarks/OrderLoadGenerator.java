@@ -0,0 +1,333 @@
+package mt.edu.uom.youstockit.benchmarks;
+
+import mt.edu.uom.youstockit.ordering.ConcurrentProductCatalogue;
+import mt.edu.uom.youstockit.ordering.FacadeResponse;
+import mt.edu.uom.youstockit.ordering.OrderingFacade;
+import mt.edu.uom.youstockit.ordering.ProductCatalogue;
+import mt.edu.uom.youstockit.ordering.ResponseStatus;
+import mt.edu.uom.youstockit.ordering.StockItem;
+import mt.edu.uom.youstockit.ordering.StockOrderer;
+import mt.edu.uom.youstockit.services.ServiceLocator;
+import mt.edu.uom.youstockit.services.email.EmailSenderDummy;
+import mt.edu.uom.youstockit.supplier.ExponentialBackoffRetryPolicy;
+import mt.edu.uom.youstockit.supplier.Supplier;
+import mt.edu.uom.youstockit.supplier.SupplierErrorCode;
+import mt.edu.uom.youstockit.supplier.SupplierServerAsyncAdapter;
+import mt.edu.uom.youstockit.supplier.SupplierServerSimulator;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drives the ordering facade with customer orders from many threads, against simulated suppliers, and reports the
+// throughput and latency of orders together with how often the suppliers were called.
+// Settings are given as name=value arguments, e.g.
+//     java -cp target/benchmarks.jar mt.edu.uom.youstockit.benchmarks.OrderLoadGenerator threads=16 seconds=60
+// See DEFAULTS for the settings and their default values.
+public class OrderLoadGenerator
+{
+    private static final String[][] DEFAULTS = {
+            // Number of customer threads placing orders, and how long to place orders for
+            {"threads", "8"},
+            {"seconds", "30"},
+            {"warmupSeconds", "5"},
+            // Number of items in the catalogue and suppliers they are spread over
+            {"items", "100000"},
+            {"suppliers", "10"},
+            // Most items bought by a single order
+            {"maxBuyQuantity", "5"},
+            // Stock of each item at the start, restock threshold (minimum order quantity) and amount restocked
+            {"initialQuantity", "200"},
+            {"minimumOrderQuantity", "50"},
+            {"orderAmount", "200"},
+            // Supplier latency (median in milliseconds, and spread) and failure and partial fill rates
+            {"supplierLatencyMillis", "50"},
+            {"supplierLatencySpread", "0.5"},
+            {"supplierFailureRate", "0.05"},
+            {"supplierOutOfStockRate", "0.01"},
+            {"supplierPartialFillRate", "0.1"},
+            // Seed used for orders and supplier responses, so that runs can be repeated
+            {"seed", "42"}
+    };
+
+    // Most latency samples kept per thread (later samples replace random earlier ones, so that all are represented)
+    private static final int MAX_SAMPLES_PER_THREAD = 1 << 20;
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        Map<String, String> settings = parseSettings(args);
+        int numThreads = Integer.parseInt(settings.get("threads"));
+        long seconds = Long.parseLong(settings.get("seconds"));
+        long warmupSeconds = Long.parseLong(settings.get("warmupSeconds"));
+        int numItems = Integer.parseInt(settings.get("items"));
+        int maxBuyQuantity = Integer.parseInt(settings.get("maxBuyQuantity"));
+        long seed = Long.parseLong(settings.get("seed"));
+
+        ServiceLocator.getInstance().registerService("EmailSender", new EmailSenderDummy());
+        ScheduledExecutorService supplierScheduler = Executors.newScheduledThreadPool(2);
+        SupplierServerSimulator[] simulators = createSuppliers(settings, supplierScheduler, seed);
+        ProductCatalogue catalogue = createCatalogue(settings, simulators);
+
+        // Restock quickly, so that a run sees many retries
+        StockOrderer stockOrderer = new StockOrderer(Executors.newScheduledThreadPool(4),
+                SupplierServerAsyncAdapter.newBoundedExecutor(StockOrderer.DEFAULT_SUPPLIER_CALL_THREADS,
+                        StockOrderer.DEFAULT_SUPPLIER_CALL_QUEUE_CAPACITY),
+                new ExponentialBackoffRetryPolicy(4, 10, 1000, 10000, 5000),
+                StockOrderer.DEFAULT_MAX_BATCH_SIZE, StockOrderer.DEFAULT_BATCH_WINDOW_MILLIS);
+        ConcurrentMap<SupplierErrorCode, LongAdder> restocks = new ConcurrentHashMap<>();
+        stockOrderer.addRestockListener((item, result) ->
+                restocks.computeIfAbsent(result, errorCode -> new LongAdder()).increment());
+        OrderingFacade orderingFacade = new OrderingFacade(stockOrderer, catalogue, new ConcurrentProductCatalogue());
+
+        System.out.println("Placing orders on " + numThreads + " threads for " + seconds + " seconds (after " +
+                warmupSeconds + " seconds of warmup) with settings " + settings);
+
+        // Customers place orders until the end of the run, only recording orders placed after the warmup
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(seconds);
+        Customer[] customers = new Customer[numThreads];
+        CountDownLatch finished = new CountDownLatch(numThreads);
+        for(int t = 0; t < numThreads; t++)
+        {
+            customers[t] = new Customer(orderingFacade, numItems, maxBuyQuantity, seed + t, measureStart, end,
+                    finished);
+            Thread thread = new Thread(customers[t], "customer-" + t);
+            thread.start();
+        }
+        finished.await();
+
+        stockOrderer.shutdown();
+        supplierScheduler.shutdownNow();
+        report(customers, simulators, restocks, TimeUnit.NANOSECONDS.toSeconds(end - measureStart));
+    }
+
+    // Helper function which reads the settings from the arguments, using the defaults for any which are not given
+    private static Map<String, String> parseSettings(String[] args)
+    {
+        Map<String, String> settings = new LinkedHashMap<>();
+        for(String[] setting : DEFAULTS)
+        {
+            settings.put(setting[0], setting[1]);
+        }
+        for(String arg : args)
+        {
+            int separator = arg.indexOf('=');
+            if(separator < 0 || !settings.containsKey(arg.substring(0, separator)))
+            {
+                throw new IllegalArgumentException("Unknown setting " + arg);
+            }
+            settings.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return settings;
+    }
+
+    // Helper function which creates a simulated server for every supplier
+    private static SupplierServerSimulator[] createSuppliers(Map<String, String> settings,
+                                                             ScheduledExecutorService scheduler, long seed)
+    {
+        SupplierServerSimulator[] simulators = new SupplierServerSimulator[Integer.parseInt(settings.get("suppliers"))];
+        for(int i = 0; i < simulators.length; i++)
+        {
+            simulators[i] = new SupplierServerSimulator(scheduler, seed + i);
+            simulators[i].setLatency(Long.parseLong(settings.get("supplierLatencyMillis")),
+                    Double.parseDouble(settings.get("supplierLatencySpread")));
+            simulators[i].setFailureRate(Double.parseDouble(settings.get("supplierFailureRate")));
+            simulators[i].setItemOutcomeRates(0, Double.parseDouble(settings.get("supplierOutOfStockRate")),
+                    Double.parseDouble(settings.get("supplierPartialFillRate")));
+        }
+        return simulators;
+    }
+
+    // Helper function which creates the catalogue, spreading the items over the suppliers
+    private static ProductCatalogue createCatalogue(Map<String, String> settings, SupplierServerSimulator[] simulators)
+    {
+        Supplier[] suppliers = new Supplier[simulators.length];
+        for(int i = 0; i < suppliers.length; i++)
+        {
+            suppliers[i] = new Supplier();
+            suppliers[i].id = i;
+            suppliers[i].name = "Supplier" + i;
+            suppliers[i].supplierServer = simulators[i];
+        }
+
+        ProductCatalogue catalogue = new ConcurrentProductCatalogue();
+        int numItems = Integer.parseInt(settings.get("items"));
+        for(int id = 0; id < numItems; id++)
+        {
+            StockItem item = new StockItem(id);
+            item.setName("Item" + id);
+            item.setCategory(Catalogues.categoryOf(id));
+            item.setMinimumOrderQuantity(Integer.parseInt(settings.get("minimumOrderQuantity")));
+            item.setQuantity(Integer.parseInt(settings.get("initialQuantity")));
+            item.setOrderAmount(Integer.parseInt(settings.get("orderAmount")));
+            item.setBuySellPricesCents(100, 150);
+            item.setSupplier(suppliers[id % suppliers.length]);
+            catalogue.add(item);
+        }
+        return catalogue;
+    }
+
+    // Helper function which prints the results of a run
+    private static void report(Customer[] customers, SupplierServerSimulator[] simulators,
+                               Map<SupplierErrorCode, LongAdder> restocks, long seconds)
+    {
+        long numOrders = 0;
+        Map<ResponseStatus, Long> statuses = new EnumMap<>(ResponseStatus.class);
+        int numSamples = 0;
+        for(Customer customer : customers)
+        {
+            numOrders += customer.numOrders;
+            for(ResponseStatus status : ResponseStatus.values())
+            {
+                long count = customer.statusCounts[status.ordinal()];
+                if(count > 0)
+                {
+                    statuses.merge(status, count, Long::sum);
+                }
+            }
+            numSamples += customer.numSamples();
+        }
+
+        // Latencies from all threads are merged and sorted to find the percentiles
+        long[] latencies = new long[numSamples];
+        int offset = 0;
+        for(Customer customer : customers)
+        {
+            System.arraycopy(customer.samples, 0, latencies, offset, customer.numSamples());
+            offset += customer.numSamples();
+        }
+        Arrays.sort(latencies);
+
+        System.out.println();
+        System.out.printf("Orders:              %d (%.0f orders/sec)%n", numOrders, (double) numOrders / seconds);
+        System.out.println("Responses:           " + statuses);
+        System.out.printf("Latency (us):        p50=%.1f p99=%.1f p999=%.1f max=%.1f%n",
+                percentile(latencies, 0.5) / 1000.0, percentile(latencies, 0.99) / 1000.0,
+                percentile(latencies, 0.999) / 1000.0, percentile(latencies, 1) / 1000.0);
+
+        long numCalls = 0;
+        long numFailedCalls = 0;
+        long numItemsOrdered = 0;
+        long quantityRequested = 0;
+        long quantityDelivered = 0;
+        for(SupplierServerSimulator simulator : simulators)
+        {
+            numCalls += simulator.getNumCalls();
+            numFailedCalls += simulator.getNumFailedCalls();
+            numItemsOrdered += simulator.getNumItemsOrdered();
+            quantityRequested += simulator.getQuantityRequested();
+            quantityDelivered += simulator.getQuantityDelivered();
+        }
+        System.out.printf("Supplier calls:      %d (%d failed, %.1f items per call)%n", numCalls, numFailedCalls,
+                numCalls == 0 ? 0.0 : (double) numItemsOrdered / numCalls);
+        System.out.println("Quantity restocked:  " + quantityDelivered + " of " + quantityRequested + " requested");
+        System.out.println("Restocks completed:  " + restocks);
+    }
+
+    // Helper function which returns a percentile of sorted latencies (0 if there are none)
+    private static long percentile(long[] sortedLatencies, double percentile)
+    {
+        if(sortedLatencies.length == 0)
+        {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+    }
+
+    // Places random orders on its own thread, recording the response and latency of each order
+    private static class Customer implements Runnable
+    {
+        private final OrderingFacade orderingFacade;
+        private final int numItems;
+        private final int maxBuyQuantity;
+        private final Random random;
+        private final long measureStart;
+        private final long end;
+        private final CountDownLatch finished;
+
+        // Results, read once the thread has finished
+        long numOrders;
+        final long[] statusCounts;
+        // Latency of orders in nanoseconds (a random sample once there are too many to keep)
+        final long[] samples;
+
+        Customer(OrderingFacade orderingFacade, int numItems, int maxBuyQuantity, long seed, long measureStart,
+                 long end, CountDownLatch finished)
+        {
+            this.orderingFacade = orderingFacade;
+            this.numItems = numItems;
+            this.maxBuyQuantity = maxBuyQuantity;
+            this.random = new Random(seed);
+            this.measureStart = measureStart;
+            this.end = end;
+            this.finished = finished;
+            this.statusCounts = new long[ResponseStatus.values().length];
+            this.samples = new long[MAX_SAMPLES_PER_THREAD];
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while(true)
+                {
+                    int id = random.nextInt(numItems);
+                    int buyQuantity = 1 + random.nextInt(maxBuyQuantity);
+
+                    long orderStart = System.nanoTime();
+                    FacadeResponse response = orderingFacade.placeOrder(id, buyQuantity);
+                    long orderEnd = System.nanoTime();
+
+                    if(orderEnd >= end)
+                    {
+                        return;
+                    }
+                    if(orderStart >= measureStart)
+                    {
+                        record(response, orderEnd - orderStart);
+                    }
+                }
+            }
+            finally
+            {
+                finished.countDown();
+            }
+        }
+
+        int numSamples()
+        {
+            return (int) Math.min(numOrders, samples.length);
+        }
+
+        // Helper function which records an order, keeping a uniform random sample of latencies (reservoir sampling)
+        private void record(FacadeResponse response, long latencyNanos)
+        {
+            statusCounts[response.status.ordinal()]++;
+            if(numOrders < samples.length)
+            {
+                samples[(int) numOrders] = latencyNanos;
+            }
+            else
+            {
+                long index = (long) (random.nextDouble() * (numOrders + 1));
+                if(index < samples.length)
+                {
+                    samples[(int) index] = latencyNanos;
+                }
+            }
+            numOrders++;
+        }
+    }
+}
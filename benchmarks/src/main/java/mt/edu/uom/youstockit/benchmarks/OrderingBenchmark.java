@@ -0,0 +1,145 @@
+package mt.edu.uom.youstockit.benchmarks;
+
+import mt.edu.uom.youstockit.ordering.FacadeResponse;
+import mt.edu.uom.youstockit.ordering.OrderingFacade;
+import mt.edu.uom.youstockit.ordering.ProductCatalogue;
+import mt.edu.uom.youstockit.ordering.StockOrderer;
+import mt.edu.uom.youstockit.services.ServiceLocator;
+import mt.edu.uom.youstockit.services.email.EmailSenderDummy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Measures selling items through the facade and the stock orderer, on one thread and on several threads at once
+// Items are never restocked, so only the order thread's work is measured
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class OrderingBenchmark
+{
+    // Number of random ids each thread orders in turn (must be a power of two)
+    private static final int NUM_IDS = 1 << 16;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"ConcurrentProductCatalogue", "PrimitiveProductCatalogue"})
+    public String type;
+
+    private ProductCatalogue catalogue;
+    private StockOrderer stockOrderer;
+    private OrderingFacade orderingFacade;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        ServiceLocator.getInstance().registerService("EmailSender", new EmailSenderDummy());
+        catalogue = Catalogues.create(type, size);
+        stockOrderer = new StockOrderer();
+        orderingFacade = new OrderingFacade(stockOrderer, catalogue, Catalogues.create(type, 0));
+    }
+
+    // Puts the stock back before every iteration, so that no benchmark run can sell out
+    @Setup(Level.Iteration)
+    public void restock()
+    {
+        Catalogues.restock(catalogue);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown()
+    {
+        stockOrderer.shutdown();
+    }
+
+    // Ids ordered by a single benchmark thread
+    @State(Scope.Thread)
+    public static class Orders
+    {
+        // Every thread is given its own seed, so that threads order different items
+        private static final AtomicLong seeds = new AtomicLong();
+
+        private int[] ids;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setup(OrderingBenchmark benchmark)
+        {
+            ids = Catalogues.randomIds(benchmark.size, NUM_IDS, seeds.incrementAndGet());
+        }
+
+        int nextId()
+        {
+            return ids[next++ & (NUM_IDS - 1)];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public FacadeResponse placeOrder(Orders orders)
+    {
+        return orderingFacade.placeOrder(orders.nextId(), 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public FacadeResponse placeOrder4Threads(Orders orders)
+    {
+        return orderingFacade.placeOrder(orders.nextId(), 1);
+    }
+
+    // All threads sell the same item, which measures contention on its quantity and sales counters
+    @Benchmark
+    @Threads(4)
+    public FacadeResponse placeOrderSameItem4Threads()
+    {
+        return orderingFacade.placeOrder(0, 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean processOrder(Orders orders)
+    {
+        return stockOrderer.processOrder(catalogue.getById(orders.nextId()), 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean processOrder4Threads(Orders orders)
+    {
+        return stockOrderer.processOrder(catalogue.getById(orders.nextId()), 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double calculateProfit()
+    {
+        return orderingFacade.calculateProfit();
+    }
+
+    // Every thread sells an item and then reads the profit, so reads compete with the sales being recorded
+    @Benchmark
+    @Threads(4)
+    public double calculateProfitWhileSelling(Orders orders)
+    {
+        orderingFacade.placeOrder(orders.nextId(), 1);
+        return orderingFacade.calculateProfit();
+    }
+}
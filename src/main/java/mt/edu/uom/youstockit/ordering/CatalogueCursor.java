@@ -0,0 +1,41 @@
+package mt.edu.uom.youstockit.ordering;
+
+// Position in the items of a catalogue, used to go through a catalogue one page at a time (see ProductCatalogue.getPage)
+// A cursor remembers the last item of the previous page, so that the next page starts right after it even if items
+// were added or removed in the meantime. If that item was removed, the next page starts after the other items which
+// were returned before it instead, which may skip or repeat items if items before it were also added or removed.
+public final class CatalogueCursor
+{
+    // Cursor of the first page
+    public static final CatalogueCursor START = new CatalogueCursor(0, 0);
+
+    // Id of the last item returned so far, and number of items returned so far
+    private final int lastId;
+    private final int offset;
+
+    // Note: cursors can be created from their values, so that they can be passed around as text (e.g. in a link)
+    public CatalogueCursor(int lastId, int offset)
+    {
+        if(offset < 0)
+        {
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        this.lastId = lastId;
+        this.offset = offset;
+    }
+
+    public int getLastId()
+    {
+        return lastId;
+    }
+
+    public int getOffset()
+    {
+        return offset;
+    }
+
+    public boolean isStart()
+    {
+        return offset == 0;
+    }
+}
@@ -0,0 +1,24 @@
+package mt.edu.uom.youstockit.ordering;
+
+// Listener told about every change to a product catalogue and the items in it (e.g. to persist the changes)
+// Note: methods are called on the thread making the change, after the change has been made
+public interface CatalogueListener
+{
+    void itemAdded(StockItem item);
+
+    void itemRemoved(StockItem item);
+
+    // Called when an attribute of an item other than its quantity changes (e.g. its name or prices)
+    void itemChanged(StockItem item, ItemAttribute attribute);
+
+    // Called when the quantity of an item is set, together with the quantity it replaced
+    // Note: both quantities are read in the same atomic step as the change, so the difference between them is exactly
+    // what the change did to the stock, even if items were sold at the same time
+    void quantitySet(StockItem item, int oldQuantity, int quantity);
+
+    // Called when items are added to the stock of an item (e.g. by a restock)
+    void quantityAdded(StockItem item, int amount);
+
+    // Called when an item is sold, which also takes the items sold out of stock
+    void itemSold(StockItem item, int quantity, long profitCents);
+}
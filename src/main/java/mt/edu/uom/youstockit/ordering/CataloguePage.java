@@ -0,0 +1,22 @@
+package mt.edu.uom.youstockit.ordering;
+
+import java.util.List;
+
+// Items in one page of a catalogue, together with the cursor used to get the next page
+public class CataloguePage
+{
+    public final List<StockItem> items;
+    // Cursor of the next page, or null if there are no more items
+    public final CatalogueCursor next;
+
+    public CataloguePage(List<StockItem> items, CatalogueCursor next)
+    {
+        this.items = items;
+        this.next = next;
+    }
+
+    public boolean hasNext()
+    {
+        return next != null;
+    }
+}
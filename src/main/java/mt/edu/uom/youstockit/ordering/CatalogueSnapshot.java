@@ -0,0 +1,199 @@
+package mt.edu.uom.youstockit.ordering;
+
+import mt.edu.uom.youstockit.util.PersistentLongMap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Point-in-time view of the items in a catalogue, which does not change when the catalogue changes.
+// Which items are in the snapshot, their order and the categories they are listed under are fixed when the snapshot is
+// taken, but the items themselves are shared with the catalogue, so their values (e.g. quantity) are always current.
+// Snapshots are immutable and made of persistent maps, so a change to a catalogue creates a new snapshot which shares
+// almost all of its structure with the previous one. This lets ConcurrentProductCatalogue hand out snapshots in O(1).
+public final class CatalogueSnapshot implements Iterable<StockItem>
+{
+    static final CatalogueSnapshot EMPTY = new CatalogueSnapshot(PersistentLongMap.<StockItem>empty(),
+            PersistentLongMap.<Entry>empty(), PersistentLongMap.<PersistentLongMap<StockItem>>empty());
+
+    // Items indexed by their position in the order they were added
+    private final PersistentLongMap<StockItem> byPosition;
+    // Position and category of each item, indexed by id (as an unsigned number, since keys must not be negative)
+    private final PersistentLongMap<Entry> byId;
+    // Items of each category indexed by position, indexed by category id + 1 (so that NO_CATEGORY is 0)
+    private final PersistentLongMap<PersistentLongMap<StockItem>> byCategory;
+
+    private CatalogueSnapshot(PersistentLongMap<StockItem> byPosition, PersistentLongMap<Entry> byId,
+                              PersistentLongMap<PersistentLongMap<StockItem>> byCategory)
+    {
+        this.byPosition = byPosition;
+        this.byId = byId;
+        this.byCategory = byCategory;
+    }
+
+    public int size()
+    {
+        return byPosition.size();
+    }
+
+    public List<StockItem> getAll()
+    {
+        List<StockItem> result = new ArrayList<>(byPosition.size());
+        for(StockItem item : byPosition)
+        {
+            result.add(item);
+        }
+        return result;
+    }
+
+    public List<StockItem> getByCategory(String category)
+    {
+        PersistentLongMap<StockItem> categoryItems = categoryItems(category);
+        List<StockItem> result = new ArrayList<>(categoryItems.size());
+        for(StockItem item : categoryItems)
+        {
+            result.add(item);
+        }
+        return result;
+    }
+
+    public int countByCategory(String category)
+    {
+        return categoryItems(category).size();
+    }
+
+    public StockItem getById(int id)
+    {
+        Entry entry = byId.get(idKey(id));
+        return entry == null ? null : byPosition.get(entry.position);
+    }
+
+    @Override
+    public Iterator<StockItem> iterator()
+    {
+        return byPosition.iterator();
+    }
+
+    @Override
+    public Spliterator<StockItem> spliterator()
+    {
+        return Spliterators.spliterator(iterator(), byPosition.size(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    public Stream<StockItem> stream()
+    {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    // Get a page of the items in this snapshot, so that every page comes from the same point in time
+    public CataloguePage getPage(CatalogueCursor cursor, int pageSize)
+    {
+        return ProductCatalogue.page(this, cursor.isStart() ? iterator() : iteratorAfter(cursor.getLastId()), cursor,
+                pageSize);
+    }
+
+    // Iterates over the items added after the item with the given id, or returns null if it is not in the snapshot
+    Iterator<StockItem> iteratorAfter(int id)
+    {
+        Entry entry = byId.get(idKey(id));
+        return entry == null ? null : byPosition.iteratorFrom(entry.position + 1);
+    }
+
+    // The following functions return a new snapshot with a change made to this one
+
+    CatalogueSnapshot withAdded(StockItem item, long position)
+    {
+        Entry entry = new Entry(position, item.getDictionaryCategory());
+        long categoryKey = categoryKey(entry.category);
+        return new CatalogueSnapshot(byPosition.put(position, item), byId.put(idKey(item.getId()), entry),
+                byCategory.put(categoryKey, categoryItems(categoryKey).put(position, item)));
+    }
+
+    CatalogueSnapshot withRemoved(int id)
+    {
+        Entry entry = byId.get(idKey(id));
+        if(entry == null)
+        {
+            return this;
+        }
+        return new CatalogueSnapshot(byPosition.remove(entry.position), byId.remove(idKey(id)),
+                withoutItem(byCategory, entry));
+    }
+
+    CatalogueSnapshot withCategory(int id, CategoryDictionary.Category category)
+    {
+        Entry entry = byId.get(idKey(id));
+        if(entry == null || entry.category == category)
+        {
+            return this;
+        }
+
+        Entry newEntry = new Entry(entry.position, category);
+        PersistentLongMap<PersistentLongMap<StockItem>> newByCategory = withoutItem(byCategory, entry);
+        long categoryKey = categoryKey(category);
+        PersistentLongMap<StockItem> categoryItems = newByCategory.get(categoryKey);
+        if(categoryItems == null)
+        {
+            categoryItems = PersistentLongMap.empty();
+        }
+        newByCategory = newByCategory.put(categoryKey, categoryItems.put(entry.position,
+                byPosition.get(entry.position)));
+        return new CatalogueSnapshot(byPosition, byId.put(idKey(id), newEntry), newByCategory);
+    }
+
+    // Helper function which removes an item from the index of its category, dropping the category if it is left empty
+    private static PersistentLongMap<PersistentLongMap<StockItem>> withoutItem(
+            PersistentLongMap<PersistentLongMap<StockItem>> byCategory, Entry entry)
+    {
+        long categoryKey = categoryKey(entry.category);
+        PersistentLongMap<StockItem> categoryItems = byCategory.get(categoryKey).remove(entry.position);
+        return categoryItems.isEmpty() ? byCategory.remove(categoryKey) : byCategory.put(categoryKey, categoryItems);
+    }
+
+    // Helper function which returns the items of a category by name (an empty map if there are none)
+    private PersistentLongMap<StockItem> categoryItems(String category)
+    {
+        int categoryId = CategoryDictionary.getInstance().find(category);
+        if(categoryId == CategoryDictionary.UNKNOWN_CATEGORY)
+        {
+            return PersistentLongMap.empty();
+        }
+        return categoryItems(categoryId + 1L);
+    }
+
+    private PersistentLongMap<StockItem> categoryItems(long categoryKey)
+    {
+        PersistentLongMap<StockItem> categoryItems = byCategory.get(categoryKey);
+        return categoryItems == null ? PersistentLongMap.<StockItem>empty() : categoryItems;
+    }
+
+    private static long idKey(int id)
+    {
+        return id & 0xFFFFFFFFL;
+    }
+
+    private static long categoryKey(CategoryDictionary.Category category)
+    {
+        return category == null ? 0 : category.getId() + 1L;
+    }
+
+    // Position of an item in the order items were added, and the category it is listed under
+    // Note: the entry holds the category itself, so that its id cannot be given to another category while the
+    // snapshot lists items under it
+    private static final class Entry
+    {
+        final long position;
+        final CategoryDictionary.Category category;
+
+        Entry(long position, CategoryDictionary.Category category)
+        {
+            this.position = position;
+            this.category = category;
+        }
+    }
+}
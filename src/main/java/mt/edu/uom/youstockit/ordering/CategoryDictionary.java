@@ -0,0 +1,156 @@
+package mt.edu.uom.youstockit.ordering;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Dictionary giving every category name a small int id, shared by all stock items.
+// Items hold the dictionary's single Category object for their category, so a category used by a million items is
+// stored as a single string, and catalogues can index and compare categories as ints instead of calling String.equals.
+// The dictionary only keeps categories which are still in use: it refers to each Category weakly, so once no item
+// (or catalogue snapshot) holds a category any more the category is forgotten and its id is given to the next new
+// category. The dictionary therefore never holds more categories than are in use at once, and categories do not
+// build up as catalogues are loaded and thrown away.
+// Note: ids are only valid while their category is in use, so categories are still saved to disk by name
+public final class CategoryDictionary
+{
+    // Id of the category of items which do not have one (a null category)
+    public static final int NO_CATEGORY = -1;
+    // Returned when looking up a category which is not in use
+    public static final int UNKNOWN_CATEGORY = -2;
+
+    // Singleton instance shared by all items
+    // Note: it is shared rather than kept per catalogue, since an item can be in several catalogues at once (e.g.
+    // moving to the discontinued items) and is usually given its category before it is added to any of them
+    // Note: it is created eagerly since items are created on many threads
+    private static final CategoryDictionary instance = new CategoryDictionary();
+
+    // Category of each category name which is in use
+    private final ConcurrentMap<String, CategoryReference> categories;
+    // Categories which are no longer in use, whose ids can be given out again
+    private final ReferenceQueue<Category> unusedCategories;
+    // Ids given back by unused categories (guarded by this)
+    private int[] freeIds;
+    private int numFreeIds;
+    // Next id which has never been given out (guarded by this)
+    private int nextId;
+
+    private CategoryDictionary()
+    {
+        categories = new ConcurrentHashMap<>();
+        unusedCategories = new ReferenceQueue<>();
+        freeIds = new int[16];
+    }
+
+    public static CategoryDictionary getInstance()
+    {
+        return instance;
+    }
+
+    // Returns the category with a given name, giving it an id if it is not in use (null for a null name)
+    // Note: the id stays the same for as long as the returned category is held
+    public Category categoryOf(String name)
+    {
+        if(name == null)
+        {
+            return null;
+        }
+
+        CategoryReference reference = categories.get(name);
+        Category category = reference == null ? null : reference.get();
+        return category != null ? category : addCategory(name);
+    }
+
+    // Returns the id of a category without adding it, or UNKNOWN_CATEGORY if it is not in use
+    // Note: used by queries, so that looking up categories which do not exist does not fill up the dictionary
+    public int find(String name)
+    {
+        if(name == null)
+        {
+            return NO_CATEGORY;
+        }
+
+        CategoryReference reference = categories.get(name);
+        Category category = reference == null ? null : reference.get();
+        return category == null ? UNKNOWN_CATEGORY : category.getId();
+    }
+
+    // Returns the number of categories which are in use
+    // Note: categories which are no longer held may be counted until they are given back
+    public int size()
+    {
+        return categories.size();
+    }
+
+    // Helper function which gives a category name an unused id, unless another thread added it first
+    private synchronized Category addCategory(String name)
+    {
+        giveBackUnusedIds();
+        CategoryReference reference = categories.get(name);
+        Category category = reference == null ? null : reference.get();
+        if(category != null)
+        {
+            return category;
+        }
+
+        int id = numFreeIds > 0 ? freeIds[--numFreeIds] : nextId++;
+        category = new Category(name, id);
+        categories.put(name, new CategoryReference(category, unusedCategories));
+        return category;
+    }
+
+    // Helper function which forgets the categories which are no longer held and keeps their ids to be given out again
+    private void giveBackUnusedIds()
+    {
+        CategoryReference reference;
+        while((reference = (CategoryReference) unusedCategories.poll()) != null)
+        {
+            // The name may already have been given a new category, which must be kept
+            categories.remove(reference.name, reference);
+            if(numFreeIds == freeIds.length)
+            {
+                freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+            }
+            freeIds[numFreeIds++] = reference.id;
+        }
+    }
+
+    // A category name together with its id, shared by every item with the category
+    public static final class Category
+    {
+        private final String name;
+        private final int id;
+
+        private Category(String name, int id)
+        {
+            this.name = name;
+            this.id = id;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public int getId()
+        {
+            return id;
+        }
+    }
+
+    // Weak reference to a category, which keeps the name and id so that they can be given back once it is cleared
+    private static final class CategoryReference extends WeakReference<Category>
+    {
+        final String name;
+        final int id;
+
+        CategoryReference(Category category, ReferenceQueue<Category> queue)
+        {
+            super(category, queue);
+            this.name = category.name;
+            this.id = category.id;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package mt.edu.uom.youstockit.ordering;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Product catalogue which can be used by many threads at the same time.
+// Reads never take a lock. Writes to the catalogue (adding and removing items, and category changes) take a single
+// lock, so they happen one at a time.
+// Besides the id index, the catalogue keeps an up to date snapshot of its items (see CatalogueSnapshot). Every write
+// publishes a new snapshot which shares most of its structure with the previous one, so snapshot() is O(1), and lists,
+// iterators and pages are read from a single snapshot, which means they never see a write half way through.
+// Note: since every write replaces the same snapshot, writes to different items could not run in parallel even with
+// finer grained locks; they would only retry against each other. Orders do not write to the catalogue (they change
+// the items in it), so the single lock does not slow down ordering.
+// Note: the id index uses boxed keys since it relies on ConcurrentHashMap for lock-free lookups
+public class ConcurrentProductCatalogue extends ProductCatalogue
+{
+    // Stock items indexed by id
+    private final ConcurrentMap<Integer, Entry> items;
+    // Latest snapshot of the catalogue, replaced (never changed) by every write while holding the write lock
+    private volatile CatalogueSnapshot currentSnapshot;
+    // Counter used to give each added item its position in the insertion order
+    private final AtomicLong insertionCounter;
+    // Lock guarding writes to the catalogue
+    private final Object writeLock;
+
+    public ConcurrentProductCatalogue()
+    {
+        items = new ConcurrentHashMap<>();
+        currentSnapshot = CatalogueSnapshot.EMPTY;
+        insertionCounter = new AtomicLong();
+        writeLock = new Object();
+    }
+
+    @Override
+    public boolean add(StockItem item)
+    {
+        int id = item.getId();
+        synchronized(writeLock)
+        {
+            // If an item with the same id is already in the catalogue, do not add the new item
+            if(items.containsKey(id))
+            {
+                return false;
+            }
+
+            // Report the item before it can be found, so that the listener hears about it before any sale of it
+            itemAdded(item);
+            // Ask the item to report any changes so that the snapshot lists it under the right category
+            // Note: this is done before the item can be found so that no change made by an order is missed. Category
+            // changes reported before the entry exists wait for this lock, and then find the entry.
+            item.addCatalogue(this);
+
+            Entry entry = new Entry(item, insertionCounter.getAndIncrement());
+            currentSnapshot = currentSnapshot.withAdded(item, entry.position);
+            items.put(id, entry);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean remove(int id)
+    {
+        Entry entry;
+        synchronized(writeLock)
+        {
+            entry = items.remove(id);
+            if(entry == null)
+            {
+                return false;
+            }
+
+            currentSnapshot = currentSnapshot.withRemoved(id);
+            itemRemoved(entry.item);
+        }
+
+        entry.item.removeCatalogue(this);
+        return true;
+    }
+
+    @Override
+    public List<StockItem> getAll()
+    {
+        return currentSnapshot.getAll();
+    }
+
+    @Override
+    public List<StockItem> getByCategory(String category)
+    {
+        return currentSnapshot.getByCategory(category);
+    }
+
+    @Override
+    public int countByCategory(String category)
+    {
+        return currentSnapshot.countByCategory(category);
+    }
+
+    @Override
+    public StockItem getById(int id)
+    {
+        Entry entry = items.get(id);
+        return entry == null ? null : entry.item;
+    }
+
+    @Override
+    public int size()
+    {
+        return items.size();
+    }
+
+    // Returns the latest snapshot without copying anything
+    @Override
+    public CatalogueSnapshot snapshot()
+    {
+        return currentSnapshot;
+    }
+
+    // Iterators go through the snapshot taken when they are created, so they never throw a
+    // ConcurrentModificationException and do not see changes made while iterating
+    @Override
+    public Iterator<StockItem> iterator()
+    {
+        return currentSnapshot.iterator();
+    }
+
+    @Override
+    public Spliterator<StockItem> spliterator()
+    {
+        return currentSnapshot.spliterator();
+    }
+
+    @Override
+    Iterator<StockItem> iteratorAfter(int id)
+    {
+        return currentSnapshot.iteratorAfter(id);
+    }
+
+    @Override
+    void categoryChanged(StockItem item, int oldCategoryId)
+    {
+        synchronized(writeLock)
+        {
+            Entry entry = items.get(item.getId());
+            // Ignore items which have since been removed from the catalogue
+            if(entry == null || entry.item != item)
+            {
+                return;
+            }
+
+            // List the item under its current category rather than moving it from "oldCategoryId", since concurrent
+            // category changes might report their old categories out of order
+            currentSnapshot = currentSnapshot.withCategory(item.getId(), item.getDictionaryCategory());
+        }
+    }
+
+    // Stores an item together with its position in the insertion order
+    private static class Entry
+    {
+        final StockItem item;
+        final long position;
+
+        Entry(StockItem item, long position)
+        {
+            this.item = item;
+            this.position = position;
+        }
+    }
+}
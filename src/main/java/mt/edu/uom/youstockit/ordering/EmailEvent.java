@@ -0,0 +1,59 @@
+package mt.edu.uom.youstockit.ordering;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import mt.edu.uom.youstockit.services.email.EmailSender;
+import mt.edu.uom.youstockit.supplier.Supplier;
+
+// Flight recorder event for an email sent to the manager or to a supplier, lasting as long as the email sender took
+@Name("youstockit.Email")
+@Label("Email")
+@Category({"YouStockIt", "Email"})
+@Description("Email sent to the manager or to a supplier")
+@StackTrace(false)
+final class EmailEvent extends jdk.jfr.Event
+{
+    @Label("Recipient")
+    @Description("Either \"manager\" or \"supplier\"")
+    String recipient;
+
+    @Label("Item Id")
+    int itemId;
+
+    @Label("Supplier Id")
+    @Description("Id of the supplier emailed, or -1 for emails to the manager")
+    int supplierId;
+
+    // Sends an email to the manager about an item, recording how long it took
+    static void sendToManager(EmailSender emailSender, int itemId, String message)
+    {
+        EmailEvent event = new EmailEvent();
+        event.begin();
+        emailSender.sendEmailToManager(message);
+        if(event.shouldCommit())
+        {
+            event.recipient = "manager";
+            event.itemId = itemId;
+            event.supplierId = -1;
+            event.commit();
+        }
+    }
+
+    // Sends an email to a supplier about an item, recording how long it took
+    static void sendToSupplier(EmailSender emailSender, Supplier supplier, int itemId, String message)
+    {
+        EmailEvent event = new EmailEvent();
+        event.begin();
+        emailSender.sendEmailToSupplier(supplier, message);
+        if(event.shouldCommit())
+        {
+            event.recipient = "supplier";
+            event.itemId = itemId;
+            event.supplierId = supplier.id;
+            event.commit();
+        }
+    }
+}
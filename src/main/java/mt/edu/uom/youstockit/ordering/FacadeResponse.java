@@ -1,16 +1,69 @@
 package mt.edu.uom.youstockit.ordering;
 
+import java.util.Locale;
+
 // This class is returned by some methods the "OrderingFacade" class to report if an operation was successful or not
+// Responses are immutable and only store a status with up to two numbers, so the message describing a response is
+// only built if it is asked for. Common responses which do not need any numbers are shared.
+// Note: responses for unknown items are not shared, since their message and getItemId() report the id which was
+// asked for. Each one is only a small object without a message, and is only created on a failed lookup.
 public class FacadeResponse
 {
+    public static final FacadeResponse ORDER_PLACED = new FacadeResponse(ResponseStatus.ORDER_PLACED);
+    public static final FacadeResponse ORDER_PLACED_ITEM_DISCONTINUED =
+            new FacadeResponse(ResponseStatus.ORDER_PLACED_ITEM_DISCONTINUED);
+    public static final FacadeResponse OUT_OF_STOCK = new FacadeResponse(ResponseStatus.OUT_OF_STOCK);
+    public static final FacadeResponse NO_ITEMS_ORDERED = new FacadeResponse(ResponseStatus.NO_ITEMS_ORDERED);
+    public static final FacadeResponse ITEM_DELETED = new FacadeResponse(ResponseStatus.ITEM_DELETED);
+    public static final FacadeResponse ITEM_DELETED_MANAGER_NOTIFIED =
+            new FacadeResponse(ResponseStatus.ITEM_DELETED_MANAGER_NOTIFIED);
+
     // Has the operation succeeded?
-    public boolean succeeded;
-    // Description of what occurred (e.g reason of failure)
-    public String message;
+    public final boolean succeeded;
+    // What occurred (e.g reason of failure)
+    public final ResponseStatus status;
+    // Id of the item the response is about, if any
+    private final int itemId;
+    // Quantity available or number of items, depending on the status
+    private final int amount;
+
+    public FacadeResponse(ResponseStatus status)
+    {
+        this(status, 0, 0);
+    }
+
+    public FacadeResponse(ResponseStatus status, int itemId)
+    {
+        this(status, itemId, 0);
+    }
+
+    public FacadeResponse(ResponseStatus status, int itemId, int amount)
+    {
+        this.succeeded = status.succeeded;
+        this.status = status;
+        this.itemId = itemId;
+        this.amount = amount;
+    }
+
+    public int getItemId()
+    {
+        return itemId;
+    }
+
+    public int getAmount()
+    {
+        return amount;
+    }
+
+    // Description of what occurred, built from the status each time it is called
+    public String getMessage()
+    {
+        return String.format(Locale.ROOT, status.messageFormat, itemId, amount);
+    }
 
-    public FacadeResponse(boolean succeeded, String message)
+    @Override
+    public String toString()
     {
-        this.succeeded = succeeded;
-        this.message = message;
+        return getMessage();
     }
 }
@@ -0,0 +1,15 @@
+package mt.edu.uom.youstockit.ordering;
+
+// Attributes of a stock item other than its quantity and sales, used to tell catalogue listeners which attribute of
+// an item changed
+public enum ItemAttribute
+{
+    NAME,
+    CATEGORY,
+    DESCRIPTION,
+    MINIMUM_ORDER_QUANTITY,
+    ORDER_AMOUNT,
+    SUPPLIER,
+    // The buying and selling prices, which are always set together
+    PRICES
+}
@@ -0,0 +1,334 @@
+package mt.edu.uom.youstockit.ordering;
+
+import mt.edu.uom.youstockit.persistence.ColumnarCatalogueFile;
+import mt.edu.uom.youstockit.supplier.Supplier;
+import mt.edu.uom.youstockit.util.Money;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+// Product catalogue which serves the items in a columnar catalogue file without loading them up front.
+// A stock item is only built from the file the first time it is asked for, and is then kept so that changes made to
+// it are not lost. Items added after the file is opened are kept by the base catalogue, after the items in the file.
+// Category queries only go through the rows which the file lists for the category, without building their items.
+// Note: like ProductCatalogue, adding and removing items is not thread-safe, but items can be looked up and ordered
+// from several threads at once (an item asked for by two threads at once is only built once)
+public class MappedProductCatalogue extends ProductCatalogue implements Closeable
+{
+    private final ColumnarCatalogueFile file;
+    // Used to find the supplier with the id stored in the file (may return null)
+    private final IntFunction<Supplier> suppliers;
+    // Items which have been built from the file, by row (null if the row has not been built yet)
+    private final AtomicReferenceArray<StockItem> loadedItems;
+    // Rows of the file whose items have been removed from the catalogue
+    private final BitSet removedRows;
+    // Rows of the file whose items have changed category since they were built, so that they may no longer be in the
+    // category the file lists them under
+    private final BitSet movedRows;
+
+    public MappedProductCatalogue(ColumnarCatalogueFile file, IntFunction<Supplier> suppliers)
+    {
+        this.file = file;
+        this.suppliers = suppliers;
+        this.loadedItems = new AtomicReferenceArray<>(file.getNumRows());
+        this.removedRows = new BitSet();
+        this.movedRows = new BitSet();
+    }
+
+    // Opens a columnar catalogue file and serves its items
+    public static MappedProductCatalogue open(Path path, IntFunction<Supplier> suppliers) throws IOException
+    {
+        return new MappedProductCatalogue(ColumnarCatalogueFile.open(path), suppliers);
+    }
+
+    @Override
+    public boolean add(StockItem item)
+    {
+        // Ids of items in the file are taken, unless the item in the file was removed
+        if(liveRow(item.getId()) >= 0)
+        {
+            return false;
+        }
+        return super.add(item);
+    }
+
+    @Override
+    public boolean remove(int id)
+    {
+        int row = liveRow(id);
+        if(row < 0)
+        {
+            return super.remove(id);
+        }
+
+        // The listener needs the item being removed, so build it if it was never asked for
+        StockItem item = itemAt(row);
+        removedRows.set(row);
+        movedRows.clear(row);
+        loadedItems.set(row, null);
+        item.removeCatalogue(this);
+        itemRemoved(item);
+        return true;
+    }
+
+    @Override
+    public List<StockItem> getAll()
+    {
+        // Items in the file come first, in the order in which they were written
+        List<StockItem> result = new ArrayList<>(file.getNumRows());
+        for(int row = 0; row < loadedItems.length(); row++)
+        {
+            if(!removedRows.get(row))
+            {
+                result.add(itemAt(row));
+            }
+        }
+        result.addAll(super.getAll());
+        return result;
+    }
+
+    @Override
+    public List<StockItem> getByCategory(String category)
+    {
+        int categoryId = CategoryDictionary.getInstance().find(category);
+        int categoryIndex = file.findCategory(category);
+        List<StockItem> result = new ArrayList<>();
+        if(categoryIndex != ColumnarCatalogueFile.UNKNOWN_CATEGORY)
+        {
+            int numRows = file.getNumCategoryRows(categoryIndex);
+            for(int i = 0; i < numRows; i++)
+            {
+                int row = file.getCategoryRow(categoryIndex, i);
+                if(stillInCategory(row, categoryId))
+                {
+                    result.add(itemAt(row));
+                }
+            }
+        }
+        for(int row = movedRows.nextSetBit(0); row >= 0; row = movedRows.nextSetBit(row + 1))
+        {
+            if(movedIntoCategory(row, categoryId, categoryIndex))
+            {
+                result.add(loadedItems.get(row));
+            }
+        }
+        result.addAll(super.getByCategory(category));
+        return result;
+    }
+
+    @Override
+    public int countByCategory(String category)
+    {
+        int categoryId = CategoryDictionary.getInstance().find(category);
+        int categoryIndex = file.findCategory(category);
+        int count = 0;
+        if(categoryIndex != ColumnarCatalogueFile.UNKNOWN_CATEGORY)
+        {
+            int numRows = file.getNumCategoryRows(categoryIndex);
+            for(int i = 0; i < numRows; i++)
+            {
+                if(stillInCategory(file.getCategoryRow(categoryIndex, i), categoryId))
+                {
+                    count++;
+                }
+            }
+        }
+        for(int row = movedRows.nextSetBit(0); row >= 0; row = movedRows.nextSetBit(row + 1))
+        {
+            if(movedIntoCategory(row, categoryId, categoryIndex))
+            {
+                count++;
+            }
+        }
+        return count + super.countByCategory(category);
+    }
+
+    @Override
+    public StockItem getById(int id)
+    {
+        int row = liveRow(id);
+        return row >= 0 ? itemAt(row) : super.getById(id);
+    }
+
+    @Override
+    public int size()
+    {
+        return loadedItems.length() - removedRows.cardinality() + super.size();
+    }
+
+    // Adds up the profit column of the file instead of building every item
+    @Override
+    public long getTotalProfitCents()
+    {
+        long total = 0;
+        for(int row = removedRows.nextClearBit(0); row < loadedItems.length(); row = removedRows.nextClearBit(row + 1))
+        {
+            StockItem item = loadedItems.get(row);
+            total = Money.add(total, item != null ? item.getProfitCents() : file.getProfitCents(row));
+        }
+        // Items added after the file was opened
+        Iterator<StockItem> addedItems = super.iterator();
+        while(addedItems.hasNext())
+        {
+            total = Money.add(total, addedItems.next().getProfitCents());
+        }
+        return total;
+    }
+
+    // Closes the file, after which items which were not read from it yet can no longer be read
+    @Override
+    public void close() throws IOException
+    {
+        file.close();
+    }
+
+    // Iterates over the items in the file, building each one as it is reached, followed by the items added later
+    @Override
+    public Iterator<StockItem> iterator()
+    {
+        return new RowIterator(0);
+    }
+
+    @Override
+    Iterator<StockItem> iteratorAfter(int id)
+    {
+        int row = liveRow(id);
+        return row >= 0 ? new RowIterator(row + 1) : super.iteratorAfter(id);
+    }
+
+    @Override
+    void categoryChanged(StockItem item, int oldCategoryId)
+    {
+        // Items from the file are not indexed by category, since the file lists the rows of each category instead
+        int row = liveRow(item.getId());
+        if(row < 0 || loadedItems.get(row) != item)
+        {
+            super.categoryChanged(item, oldCategoryId);
+        }
+        else
+        {
+            movedRows.set(row);
+        }
+    }
+
+    // Helper function which returns the row of the file holding an item which is still in the catalogue, or -1
+    private int liveRow(int id)
+    {
+        int row = file.findRow(id);
+        return row >= 0 && !removedRows.get(row) ? row : -1;
+    }
+
+    // Helper function which checks if the item in a row which the file lists under a category is still in it
+    // Items which have not been built yet cannot have changed category since the file was written
+    private boolean stillInCategory(int row, int categoryId)
+    {
+        if(removedRows.get(row))
+        {
+            return false;
+        }
+        StockItem item = loadedItems.get(row);
+        return item == null || item.getCategoryId() == categoryId;
+    }
+
+    // Helper function which checks if the item in a row has moved into a category which the file does not list it
+    // under (the category is given both as an id in the category dictionary and as an index in the file)
+    private boolean movedIntoCategory(int row, int categoryId, int categoryIndex)
+    {
+        StockItem item = loadedItems.get(row);
+        return !removedRows.get(row) && item != null && item.getCategoryId() == categoryId &&
+                file.getCategoryIndex(row) != categoryIndex;
+    }
+
+    // Iterates over the rows of the file from a given row onwards, skipping removed items, and then over the items
+    // which were added after the file was opened
+    private class RowIterator implements Iterator<StockItem>
+    {
+        private int nextRow;
+        private Iterator<StockItem> addedItems;
+
+        RowIterator(int firstRow)
+        {
+            nextRow = removedRows.nextClearBit(firstRow);
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if(nextRow < loadedItems.length())
+            {
+                return true;
+            }
+            if(addedItems == null)
+            {
+                addedItems = MappedProductCatalogue.super.iterator();
+            }
+            return addedItems.hasNext();
+        }
+
+        @Override
+        public StockItem next()
+        {
+            if(!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            if(nextRow < loadedItems.length())
+            {
+                StockItem item = itemAt(nextRow);
+                nextRow = removedRows.nextClearBit(nextRow + 1);
+                return item;
+            }
+            return addedItems.next();
+        }
+    }
+
+    // Helper function which returns the item in a row, building it from the file the first time
+    private StockItem itemAt(int row)
+    {
+        StockItem item = loadedItems.get(row);
+        if(item == null)
+        {
+            item = new StockItem(file.getId(row));
+            String name = file.getName(row);
+            if(name != null)
+            {
+                item.setName(name);
+            }
+            item.setCategory(file.getCategory(row));
+            String description = file.getDescription(row);
+            if(description != null)
+            {
+                item.setDescription(description);
+            }
+            // Values which were never set are stored as -1 or 0, which the setters leave unset
+            item.setQuantity(file.getQuantity(row));
+            item.setMinimumOrderQuantity(file.getMinimumOrderQuantity(row));
+            item.setOrderAmount(file.getOrderAmount(row));
+            int supplierId = file.getSupplierId(row);
+            if(supplierId != ColumnarCatalogueFile.NO_SUPPLIER)
+            {
+                item.setSupplier(suppliers.apply(supplierId));
+            }
+            item.setBuySellPricesCents(file.getBuyingPriceCents(row), file.getSellingPriceCents(row));
+            item.restoreSales(file.getNumTimesSold(row), file.getProfitCents(row));
+
+            // The item was already in the catalogue, so it is not reported to the listener as a new item
+            // Note: the catalogue is added before the item is shared, so that no change to it goes unreported
+            item.addCatalogue(this);
+            // If another thread built the item first, use its item, so that the stock is not split between two items
+            if(!loadedItems.compareAndSet(row, null, item))
+            {
+                item = loadedItems.get(row);
+            }
+        }
+        return item;
+    }
+}
@@ -0,0 +1,40 @@
+package mt.edu.uom.youstockit.ordering;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight recorder event for an order processed by the stock orderer (see StockOrderer.processOrder)
+// Each item in a batch of orders gets its own event, with the same duration (see StockOrderer.processOrders)
+// Note: events are only filled in if they will be recorded, so they cost next to nothing while recording is disabled
+@Name("youstockit.Order")
+@Label("Order")
+@Category({"YouStockIt", "Ordering"})
+@Description("Order for an item, taken out of stock by the stock orderer")
+@StackTrace(false)
+final class OrderEvent extends jdk.jfr.Event
+{
+    @Label("Item Id")
+    int itemId;
+
+    @Label("Supplier Id")
+    @Description("Id of the item's supplier, or -1 if it does not have one")
+    int supplierId;
+
+    @Label("Quantity")
+    int quantity;
+
+    @Label("Items In Batch")
+    @Description("Number of different items ordered together, which are taken out of stock all or nothing")
+    int itemsInBatch;
+
+    @Label("Succeeded")
+    @Description("Whether the items were in stock and taken out of stock (for every item in the batch)")
+    boolean succeeded;
+
+    @Label("Restock Started")
+    @Description("Whether the order left the item below its minimum order quantity, starting a restock")
+    boolean restockStarted;
+}
@@ -2,131 +2,329 @@ package mt.edu.uom.youstockit.ordering;
 
 import mt.edu.uom.youstockit.services.email.EmailSender;
 import mt.edu.uom.youstockit.services.ServiceLocator;
+import mt.edu.uom.youstockit.services.metrics.Counter;
+import mt.edu.uom.youstockit.services.metrics.Histogram;
+import mt.edu.uom.youstockit.services.metrics.MetricsRegistry;
+import mt.edu.uom.youstockit.util.IntLinkedHashMap;
 
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
 
 public class OrderingFacade
 {
-    private StockOrderer stockOrderer;
-    private ProductCatalogue availableItems;
-    private ProductCatalogue discontinuedItems;
+    private final StockOrderer stockOrderer;
+    private final ProductCatalogue availableItems;
+    private final ProductCatalogue discontinuedItems;
+    // Items whose restock finished since the facade was last used, which should be discontinued if they are sold out
+    // (the supplier might have replied that it no longer sells the item, in which case it stops being restocked)
+    // Note: restocks finish on the stock orderer's threads, so the items are discontinued by the next call to the
+    // facade instead, since the catalogues might not be thread-safe
+    private final Queue<StockItem> restockedItems;
 
     // Email sender is private since it is configured from the service locator
-    private EmailSender emailSender;
+    private final EmailSender emailSender;
+    // Time taken to place orders, and number of responses of each status
+    private final Histogram orderLatency;
+    private final Counter[] responseCounters;
 
     public OrderingFacade(StockOrderer stockOrderer, ProductCatalogue availableItems, ProductCatalogue discontinuedItems)
     {
         this.stockOrderer = stockOrderer;
         this.availableItems = availableItems;
         this.discontinuedItems = discontinuedItems;
+        this.restockedItems = new ConcurrentLinkedQueue<>();
+        // Each restock adds its item once when it is over, however many orders were placed while it was running
+        stockOrderer.addRestockListener((stockItem, result) -> restockedItems.add(stockItem));
+
+        // Count the profit already made from items restored from storage, since deleting an item takes its profit
+        // away from the total
+        ProfitAccumulator profitAccumulator = stockOrderer.getProfitAccumulator();
+        profitAccumulator.restoreCatalogue(availableItems);
+        profitAccumulator.restoreCatalogue(discontinuedItems);
 
         // Get email sender service
         ServiceLocator serviceLocator = ServiceLocator.getInstance();
         emailSender = (EmailSender) serviceLocator.findService("EmailSender");
+
+        // Look up the metrics once, so that recording them does not look them up by name
+        MetricsRegistry metrics = MetricsRegistry.find();
+        orderLatency = metrics.histogram("youstockit_order_latency_nanoseconds");
+        responseCounters = new Counter[ResponseStatus.values().length];
+        for(ResponseStatus status : ResponseStatus.values())
+        {
+            responseCounters[status.ordinal()] = metrics.counter("youstockit_facade_responses_total", "status",
+                    status.name());
+        }
+        metrics.gauge("youstockit_catalogue_items", "catalogue", "available", availableItems::size);
+        metrics.gauge("youstockit_catalogue_items", "catalogue", "discontinued", discontinuedItems::size);
     }
 
     // Order an item from the catalogue
     public FacadeResponse placeOrder(int id, int buyAmount)
+    {
+        discontinueRestockedItems();
+        long start = System.nanoTime();
+        FacadeResponse response = orderItem(id, buyAmount);
+        orderLatency.recordSince(start);
+        return countResponse(response);
+    }
+
+    // Order several items from the catalogue at once, e.g. a shopping cart or a bulk feed of orders
+    // ids[i] is ordered buyAmounts[i] times. Either every order is placed, or none are.
+    // Orders for the same id are added together, and each item is restocked at most once for the whole batch.
+    public FacadeResponse placeOrders(int[] ids, int[] buyAmounts)
+    {
+        discontinueRestockedItems();
+        long start = System.nanoTime();
+        FacadeResponse response = orderItems(ids, buyAmounts);
+        orderLatency.recordSince(start);
+        return countResponse(response);
+    }
+
+    // Helper function which places an order for an item
+    private FacadeResponse orderItem(int id, int buyAmount)
     {
         // Search for stock item in product catalogue
         StockItem stockItem = availableItems.getById(id);
         // If stock item does not exist, return an error message
         if(stockItem == null)
         {
-            return new FacadeResponse(false, "Stock item with ID " + id + " does not exist.");
+            return new FacadeResponse(ResponseStatus.ITEM_NOT_FOUND, id);
         }
 
-        // If order is placed successfully, return a success message
+        // If order is placed successfully, return a success response
         if(stockOrderer.processOrder(stockItem, buyAmount))
         {
-            String responseMessage = "Order placed successfully.";
-
-            // If the item is out of stock should not be restocked,
-            if(stockItem.getMinimumOrderQuantity() == 0 && stockItem.getQuantity() == 0)
+            if(discontinueIfSoldOut(stockItem))
             {
-                // delete it from the catalogue of items being sold,
-                responseMessage += "\nItem has gone out of stock, removing from catalogue...";
-                availableItems.remove(stockItem.getId());
-                // and add it to the catalogue of discontinued items
-                discontinuedItems.add(stockItem);
+                return FacadeResponse.ORDER_PLACED_ITEM_DISCONTINUED;
             }
-            return new FacadeResponse(true, responseMessage);
+            return FacadeResponse.ORDER_PLACED;
         }
         // If processOrder returns false then the requested quantity is either invalid, or not available in stock
         else
         {
             if(stockItem.getQuantity() == 0)
             {
-                return new FacadeResponse(false, "Requested quantity is invalid. Item is out of " +
-                        "stock.");
+                return FacadeResponse.OUT_OF_STOCK;
             }
             else
             {
-                return new FacadeResponse(false, "Requested quantity is invalid. Must be between 1 " +
-                        "and " + stockItem.getQuantity() + " (inclusive).");
+                return new FacadeResponse(ResponseStatus.QUANTITY_NOT_AVAILABLE, id, stockItem.getQuantity());
             }
         }
     }
 
+    // Helper function which places the orders of a batch, all or nothing
+    private FacadeResponse orderItems(int[] ids, int[] buyAmounts)
+    {
+        if(ids.length != buyAmounts.length)
+        {
+            throw new IllegalArgumentException("Got " + ids.length + " ids but " + buyAmounts.length + " amounts");
+        }
+        if(ids.length == 0)
+        {
+            return FacadeResponse.NO_ITEMS_ORDERED;
+        }
+
+        // Look up each distinct id once, adding up the amounts ordered for the same id
+        IntLinkedHashMap<CartLine> lines = new IntLinkedHashMap<>(ids.length);
+        for(int i = 0; i < ids.length; i++)
+        {
+            CartLine line = lines.get(ids[i]);
+            if(line == null)
+            {
+                StockItem stockItem = availableItems.getById(ids[i]);
+                if(stockItem == null)
+                {
+                    return new FacadeResponse(ResponseStatus.ITEM_NOT_FOUND, ids[i]);
+                }
+                line = new CartLine(stockItem);
+                lines.put(ids[i], line);
+            }
+
+            // Each amount must be positive on its own, so that a negative amount cannot cancel out another one
+            if(buyAmounts[i] <= 0 || buyAmounts[i] > Integer.MAX_VALUE - line.buyAmount)
+            {
+                return new FacadeResponse(ResponseStatus.ITEM_QUANTITY_INVALID, ids[i]);
+            }
+            line.buyAmount += buyAmounts[i];
+        }
+
+        StockItem[] stockItems = new StockItem[lines.size()];
+        int[] totalAmounts = new int[lines.size()];
+        int index = 0;
+        for(CartLine line : lines)
+        {
+            stockItems[index] = line.stockItem;
+            totalAmounts[index] = line.buyAmount;
+            index++;
+        }
+
+        int failed = stockOrderer.processOrders(stockItems, totalAmounts);
+        // If any order could not be fulfilled, none of the items were taken out of stock
+        if(failed >= 0)
+        {
+            StockItem stockItem = stockItems[failed];
+            if(stockItem.getQuantity() == 0)
+            {
+                return new FacadeResponse(ResponseStatus.ITEM_OUT_OF_STOCK, stockItem.getId());
+            }
+            else
+            {
+                return new FacadeResponse(ResponseStatus.ITEM_QUANTITY_NOT_AVAILABLE, stockItem.getId(),
+                        stockItem.getQuantity());
+            }
+        }
+
+        int numDiscontinued = 0;
+        for(StockItem stockItem : stockItems)
+        {
+            if(discontinueIfSoldOut(stockItem))
+            {
+                numDiscontinued++;
+            }
+        }
+        if(numDiscontinued > 0)
+        {
+            return new FacadeResponse(ResponseStatus.ORDERS_PLACED_ITEMS_DISCONTINUED, 0, numDiscontinued);
+        }
+        return FacadeResponse.ORDER_PLACED;
+    }
+
     // Add an item to the product catalogue of available items
     public void addItem(StockItem stockItem)
     {
-        availableItems.add(stockItem);
+        discontinueRestockedItems();
+        // The item may already have made a profit (e.g. if it was restored from storage)
+        if(availableItems.add(stockItem))
+        {
+            stockOrderer.getProfitAccumulator().restoreItem(stockItem);
+        }
     }
 
     // Delete an item from the product catalogue of available items
     public FacadeResponse deleteItem(int id)
+    {
+        discontinueRestockedItems();
+        return countResponse(removeItem(id));
+    }
+
+    // Helper function which deletes an item, emailing the manager if it was still in stock
+    private FacadeResponse removeItem(int id)
     {
         // Find item to delete
-        StockItem stockItem = availableItems.getById(1);
+        StockItem stockItem = availableItems.getById(id);
 
-        // If item is not found, return failure message
+        // If item is not found, return failure response
         if(stockItem == null)
         {
-            return new FacadeResponse(false, "Stock item with ID " + id + " does not exist.");
+            return new FacadeResponse(ResponseStatus.ITEM_NOT_FOUND, id);
         }
 
-        // If the stock item exists, delete it
+        // If the stock item exists, delete it, and stop counting the profit made from it
         availableItems.remove(id);
-        String responseMessage = "Deleted item from catalogue";
+        stockOrderer.getProfitAccumulator().removeItem(stockItem);
 
         // If there are items in stock, email the manager about the deletion
         if(stockItem.getQuantity() > 0)
         {
-            emailSender.sendEmailToManager("Item with id " + id + " was deleted from the product catalogue.");
-            responseMessage += " and notified manager via email.";
+            EmailEvent.sendToManager(emailSender, id, "Item with id " + id + " was deleted from the product " +
+                    "catalogue.");
+            return FacadeResponse.ITEM_DELETED_MANAGER_NOTIFIED;
         }
 
-        return new FacadeResponse(false, responseMessage);
+        return FacadeResponse.ITEM_DELETED;
     }
 
     // Calculate profits for current session
+    // Note: the profit is kept up to date as orders are processed (including the profit made from discontinued items)
     public double calculateProfit()
     {
-        // Get all stock items, both ones that are still available and those that are discontinued
-        List<StockItem> items = availableItems.getAll();
-        items.addAll(discontinuedItems.getAll());
+        return stockOrderer.getProfitAccumulator().getTotalProfit();
+    }
+
+    // Calculate profits for current session, in cents
+    public long calculateProfitCents()
+    {
+        return stockOrderer.getProfitAccumulator().getTotalProfitCents();
+    }
+
+    // Helper function which counts a response by its status, and returns it
+    private FacadeResponse countResponse(FacadeResponse response)
+    {
+        responseCounters[response.status.ordinal()].increment();
+        return response;
+    }
 
-        double totalProfit = 0.0;
-        // Add up the profits for each item
-        for (StockItem item : items)
+    // Helper function which moves an item to the catalogue of discontinued items if it is out of stock and should
+    // not be restocked. Returns true if the item was discontinued.
+    private boolean discontinueIfSoldOut(StockItem stockItem)
+    {
+        if(stockItem.getMinimumOrderQuantity() == 0 && stockItem.getQuantity() == 0)
         {
-            double profitPerItem = item.getSellingPrice() - item.getBuyingPrice();
-            totalProfit += profitPerItem * item.getNumTimesSold();
+            // Delete it from the catalogue of items being sold, and add it to the catalogue of discontinued items
+            // Note: if concurrent orders both empty the item, the second add is ignored since the id is a duplicate
+            availableItems.remove(stockItem.getId());
+            discontinuedItems.add(stockItem);
+            return true;
         }
+        return false;
+    }
 
-        return totalProfit;
+    // Helper function which discontinues the items restocked since the facade was last used, if they are sold out
+    private void discontinueRestockedItems()
+    {
+        StockItem stockItem;
+        while((stockItem = restockedItems.poll()) != null)
+        {
+            // Skip items which were discontinued or deleted in the meantime
+            if(stockItem.equals(availableItems.getById(stockItem.getId())))
+            {
+                discontinueIfSoldOut(stockItem);
+            }
+        }
     }
 
     // Get all items available for order
     public List<StockItem> getAvailableItems()
     {
+        discontinueRestockedItems();
         return availableItems.getAll();
     }
 
     // Get all items available for order in a specific category
     public List<StockItem> getAvailableItems(String category)
     {
+        discontinueRestockedItems();
         return availableItems.getByCategory(category);
     }
+
+    // Get a page of the items available for order (starting from CatalogueCursor.START)
+    public CataloguePage getAvailableItems(CatalogueCursor cursor, int pageSize)
+    {
+        discontinueRestockedItems();
+        return availableItems.getPage(cursor, pageSize);
+    }
+
+    // Stream the items available for order without copying them into a list
+    public Stream<StockItem> streamAvailableItems()
+    {
+        discontinueRestockedItems();
+        return availableItems.stream();
+    }
+
+    // An item in a batch of orders, together with the total amount ordered
+    private static class CartLine
+    {
+        final StockItem stockItem;
+        int buyAmount;
+
+        CartLine(StockItem stockItem)
+        {
+            this.stockItem = stockItem;
+        }
+    }
 }
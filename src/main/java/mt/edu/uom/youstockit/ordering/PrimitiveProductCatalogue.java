@@ -0,0 +1,752 @@
+package mt.edu.uom.youstockit.ordering;
+
+import mt.edu.uom.youstockit.supplier.Supplier;
+import mt.edu.uom.youstockit.util.IntIntHashMap;
+import mt.edu.uom.youstockit.util.IntLinkedHashMap;
+import mt.edu.uom.youstockit.util.Money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Product catalogue which stores the values of its items in parallel arrays instead of one object per item.
+// Every item is given a slot, and its values are stored at that slot in one array per field (numbers are stored in
+// primitive arrays). The arrays are split into fixed-size pages which never move, so growing the catalogue only
+// allocates a new page. With millions of items, this keeps a handful of large arrays on the heap rather than
+// millions of small objects, which the garbage collector no longer has to go through one by one.
+// Items are indexed by id in a map from ids to slots, and by category in a list of slots per category, which is
+// linked through the pages, so neither index holds an object per item either.
+// Items returned by this catalogue are lightweight views of a slot, created when they are asked for and thrown away
+// by the caller, so they never live long enough to be seen by a full collection. The same item may be returned as
+// different objects, but views of the same slot are equal.
+// Adding an item copies its values into a slot, after which changes must be made through the items returned by the
+// catalogue (changes made to the item which was added are not seen). Slots of removed items are not reused, so that
+// views of a removed item (e.g. one moved to the discontinued items) keep working like an item which is not in any
+// catalogue.
+// Note: like ProductCatalogue, adding and removing items is not thread-safe, but items can be changed and ordered
+// from several threads at once
+public class PrimitiveProductCatalogue extends ProductCatalogue
+{
+    // Number of slots in each page (a power of two, so that slots can be split into a page and an index by shifting)
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    // Marks the end of the list of slots of a category
+    private static final int NO_SLOT = -1;
+
+    // Slot of each item in the catalogue, indexed by id
+    private final IntIntHashMap slots;
+    // First and last slot of the items of each category, indexed by category id
+    private final IntLinkedHashMap<CategorySlots> categories;
+    private Page[] pages;
+    // Number of slots used so far, including the slots of removed items
+    private int numSlots;
+
+    public PrimitiveProductCatalogue()
+    {
+        slots = new IntIntHashMap();
+        categories = new IntLinkedHashMap<>();
+        pages = new Page[0];
+    }
+
+    // Add a new stock item, copying its values into a new slot
+    @Override
+    public boolean add(StockItem item)
+    {
+        // If item has a unique id, add it to the catalogue and return true, otherwise return false
+        if(slots.get(item.getId()) != IntIntHashMap.NO_VALUE)
+        {
+            return false;
+        }
+
+        int slot = numSlots;
+        if((slot >>> PAGE_SHIFT) == pages.length)
+        {
+            pages = Arrays.copyOf(pages, pages.length + 1);
+            pages[pages.length - 1] = new Page(pages.length - 1);
+        }
+        Page page = pages[slot >>> PAGE_SHIFT];
+        int index = slot & (PAGE_SIZE - 1);
+        page.store(index, item);
+        numSlots++;
+        slots.putIfAbsent(item.getId(), slot);
+        addToCategory(slot, item.getCategoryId());
+
+        itemAdded(new SlotItem(this, page, index, item.getId()));
+        return true;
+    }
+
+    @Override
+    public boolean remove(int id)
+    {
+        int slot = slots.remove(id);
+        if(slot == IntIntHashMap.NO_VALUE)
+        {
+            return false;
+        }
+
+        Page page = pages[slot >>> PAGE_SHIFT];
+        int index = slot & (PAGE_SIZE - 1);
+        page.removed[index] = true;
+        removeFromCategory(slot, page.categoryIdAt(index));
+        itemRemoved(new SlotItem(this, page, index, id));
+        return true;
+    }
+
+    @Override
+    public List<StockItem> getAll()
+    {
+        // Slots are never reused, so going through them in order returns items in the order they were added
+        List<StockItem> result = new ArrayList<>(slots.size());
+        for(StockItem item : this)
+        {
+            result.add(item);
+        }
+        return result;
+    }
+
+    // Get all items with a specific category, by following the list of slots of the category
+    @Override
+    public List<StockItem> getByCategory(String category)
+    {
+        CategorySlots categorySlots = categorySlots(category);
+        if(categorySlots == null)
+        {
+            return new ArrayList<>();
+        }
+
+        List<StockItem> result = new ArrayList<>(categorySlots.size);
+        for(int slot = categorySlots.first; slot != NO_SLOT; )
+        {
+            Page page = pages[slot >>> PAGE_SHIFT];
+            int index = slot & (PAGE_SIZE - 1);
+            result.add(new SlotItem(this, page, index, page.ids[index]));
+            slot = page.nextInCategory[index];
+        }
+        return result;
+    }
+
+    @Override
+    public int countByCategory(String category)
+    {
+        CategorySlots categorySlots = categorySlots(category);
+        return categorySlots == null ? 0 : categorySlots.size;
+    }
+
+    @Override
+    public StockItem getById(int id)
+    {
+        int slot = slots.get(id);
+        if(slot == IntIntHashMap.NO_VALUE)
+        {
+            return null;
+        }
+        return new SlotItem(this, pages[slot >>> PAGE_SHIFT], slot & (PAGE_SIZE - 1), id);
+    }
+
+    @Override
+    public int size()
+    {
+        return slots.size();
+    }
+
+    // Adds up the profit array of each page instead of creating a view of every item
+    @Override
+    public long getTotalProfitCents()
+    {
+        long total = 0;
+        for(int slot = 0; slot < numSlots; slot++)
+        {
+            Page page = pages[slot >>> PAGE_SHIFT];
+            int index = slot & (PAGE_SIZE - 1);
+            if(!page.removed[index])
+            {
+                total = Money.add(total, page.profitsCents.get(index));
+            }
+        }
+        return total;
+    }
+
+    // Iterates over the items in the order they were added, creating a view of each item as it is reached
+    // Note: items added while iterating are not returned, since the number of slots is read when iterating starts
+    @Override
+    public Iterator<StockItem> iterator()
+    {
+        return new SlotIterator(0);
+    }
+
+    @Override
+    Iterator<StockItem> iteratorAfter(int id)
+    {
+        int slot = slots.get(id);
+        return slot == IntIntHashMap.NO_VALUE ? null : new SlotIterator(slot + 1);
+    }
+
+    // Only views of this catalogue's slots are in it, and they move themselves between categories (see SlotItem)
+    @Override
+    void categoryChanged(StockItem item, int oldCategoryId)
+    {
+    }
+
+    // Helper function which moves the item in a slot from the list of one category to another
+    private void moveToCategory(int slot, int oldCategoryId, int categoryId)
+    {
+        if(oldCategoryId != categoryId)
+        {
+            removeFromCategory(slot, oldCategoryId);
+            addToCategory(slot, categoryId);
+        }
+    }
+
+    // Helper function which returns the slot of an index in a page
+    private int slotOf(Page page, int index)
+    {
+        return (page.number << PAGE_SHIFT) | index;
+    }
+
+    // Helper function which returns the slots of a category by name, or null if no item has the category
+    private CategorySlots categorySlots(String category)
+    {
+        int categoryId = CategoryDictionary.getInstance().find(category);
+        return categoryId == CategoryDictionary.UNKNOWN_CATEGORY ? null : categories.get(categoryId);
+    }
+
+    // Helper function which adds a slot to the end of the list of slots of a category
+    private void addToCategory(int slot, int categoryId)
+    {
+        CategorySlots categorySlots = categories.get(categoryId);
+        if(categorySlots == null)
+        {
+            categorySlots = new CategorySlots();
+            categories.put(categoryId, categorySlots);
+        }
+
+        Page page = pages[slot >>> PAGE_SHIFT];
+        int index = slot & (PAGE_SIZE - 1);
+        page.previousInCategory[index] = categorySlots.last;
+        page.nextInCategory[index] = NO_SLOT;
+        if(categorySlots.last == NO_SLOT)
+        {
+            categorySlots.first = slot;
+        }
+        else
+        {
+            pages[categorySlots.last >>> PAGE_SHIFT].nextInCategory[categorySlots.last & (PAGE_SIZE - 1)] = slot;
+        }
+        categorySlots.last = slot;
+        categorySlots.size++;
+    }
+
+    // Helper function which takes a slot out of the list of slots of a category
+    private void removeFromCategory(int slot, int categoryId)
+    {
+        CategorySlots categorySlots = categories.get(categoryId);
+        Page page = pages[slot >>> PAGE_SHIFT];
+        int index = slot & (PAGE_SIZE - 1);
+        int previous = page.previousInCategory[index];
+        int next = page.nextInCategory[index];
+
+        if(previous == NO_SLOT)
+        {
+            categorySlots.first = next;
+        }
+        else
+        {
+            pages[previous >>> PAGE_SHIFT].nextInCategory[previous & (PAGE_SIZE - 1)] = next;
+        }
+        if(next == NO_SLOT)
+        {
+            categorySlots.last = previous;
+        }
+        else
+        {
+            pages[next >>> PAGE_SHIFT].previousInCategory[next & (PAGE_SIZE - 1)] = previous;
+        }
+
+        // Drop empty categories so that the index does not keep growing with unused categories
+        categorySlots.size--;
+        if(categorySlots.size == 0)
+        {
+            categories.remove(categoryId);
+        }
+    }
+
+    // Iterates over the items in the slots from a given slot onwards, skipping removed items
+    private class SlotIterator implements Iterator<StockItem>
+    {
+        private final Page[] iteratedPages = pages;
+        private final int end = numSlots;
+        private int next;
+
+        SlotIterator(int first)
+        {
+            next = first;
+            skipRemoved();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next < end;
+        }
+
+        @Override
+        public StockItem next()
+        {
+            if(next >= end)
+            {
+                throw new NoSuchElementException();
+            }
+
+            Page page = iteratedPages[next >>> PAGE_SHIFT];
+            int index = next & (PAGE_SIZE - 1);
+            StockItem item = new SlotItem(PrimitiveProductCatalogue.this, page, index, page.ids[index]);
+            next++;
+            skipRemoved();
+            return item;
+        }
+
+        private void skipRemoved()
+        {
+            while(next < end && iteratedPages[next >>> PAGE_SHIFT].removed[next & (PAGE_SIZE - 1)])
+            {
+                next++;
+            }
+        }
+    }
+
+    // First and last slot in the list of slots of a category, and the number of slots in it
+    private static final class CategorySlots
+    {
+        int first = NO_SLOT;
+        int last = NO_SLOT;
+        int size;
+    }
+
+    // Values of PAGE_SIZE consecutive slots, stored in one array per field
+    // Note: values which are updated by orders (quantity, number sold and profit) are stored in atomic arrays, the
+    // other values are written without synchronization, just like the fields of a StockItem
+    private static final class Page
+    {
+        // Position of this page in the catalogue's pages
+        final int number;
+        final int[] ids = new int[PAGE_SIZE];
+        final String[] names = new String[PAGE_SIZE];
+        final CategoryDictionary.Category[] categories = new CategoryDictionary.Category[PAGE_SIZE];
+        final String[] descriptions = new String[PAGE_SIZE];
+        final int[] minimumOrderQuantities = new int[PAGE_SIZE];
+        final AtomicIntegerArray quantities = new AtomicIntegerArray(PAGE_SIZE);
+        final int[] orderAmounts = new int[PAGE_SIZE];
+        final Supplier[] suppliers = new Supplier[PAGE_SIZE];
+        final long[] buyingPricesCents = new long[PAGE_SIZE];
+        final long[] sellingPricesCents = new long[PAGE_SIZE];
+        final AtomicLongArray numTimesSold = new AtomicLongArray(PAGE_SIZE);
+        final AtomicLongArray profitsCents = new AtomicLongArray(PAGE_SIZE);
+        final boolean[] removed = new boolean[PAGE_SIZE];
+        // Previous and next slot in the list of slots of the category of each slot (NO_SLOT at either end)
+        final int[] previousInCategory = new int[PAGE_SIZE];
+        final int[] nextInCategory = new int[PAGE_SIZE];
+
+        Page(int number)
+        {
+            this.number = number;
+        }
+
+        // Copies the values of an item into a slot of this page
+        void store(int index, StockItem item)
+        {
+            ids[index] = item.getId();
+            names[index] = item.getName();
+            categories[index] = item.getDictionaryCategory();
+            descriptions[index] = item.getDescription();
+            minimumOrderQuantities[index] = item.getMinimumOrderQuantity();
+            quantities.set(index, item.getQuantity());
+            orderAmounts[index] = item.getOrderAmount();
+            suppliers[index] = item.getSupplier();
+            buyingPricesCents[index] = item.getBuyingPriceCents();
+            sellingPricesCents[index] = item.getSellingPriceCents();
+            numTimesSold.set(index, item.getNumTimesSold());
+            profitsCents.set(index, item.getProfitCents());
+        }
+
+        int categoryIdAt(int index)
+        {
+            CategoryDictionary.Category category = categories[index];
+            return category == null ? CategoryDictionary.NO_CATEGORY : category.getId();
+        }
+    }
+
+    // Stock item which reads and writes its values in a slot of a page instead of in its own fields
+    // Every public function of StockItem which reads or writes a value is overridden, so the fields inherited from
+    // StockItem are never used (apart from the id, and the other catalogues the view was added to). Views use the
+    // StockItem constructor which allocates nothing, so creating one is a single small allocation which dies young.
+    private static final class SlotItem extends StockItem
+    {
+        private final PrimitiveProductCatalogue owner;
+        private final Page page;
+        private final int index;
+
+        SlotItem(PrimitiveProductCatalogue owner, Page page, int index, int id)
+        {
+            super(id, null);
+            this.owner = owner;
+            this.page = page;
+            this.index = index;
+        }
+
+        @Override
+        public boolean setName(String name)
+        {
+            // Name should be between 5 and 100 characters
+            boolean validName = name.length() >= 5 && name.length() <= 100;
+
+            if(validName)
+            {
+                page.names[index] = name;
+                attributeChanged(ItemAttribute.NAME);
+            }
+            return validName;
+        }
+
+        @Override
+        public String getName()
+        {
+            return page.names[index];
+        }
+
+        @Override
+        public void setCategory(String category)
+        {
+            int oldCategoryId = getCategoryId();
+            page.categories[index] = CategoryDictionary.getInstance().categoryOf(category);
+            categoryChanged(oldCategoryId);
+        }
+
+        @Override
+        public String getCategory()
+        {
+            CategoryDictionary.Category category = page.categories[index];
+            return category == null ? null : category.getName();
+        }
+
+        @Override
+        public int getCategoryId()
+        {
+            CategoryDictionary.Category category = page.categories[index];
+            return category == null ? CategoryDictionary.NO_CATEGORY : category.getId();
+        }
+
+        @Override
+        CategoryDictionary.Category getDictionaryCategory()
+        {
+            return page.categories[index];
+        }
+
+        @Override
+        public boolean setDescription(String desc)
+        {
+            // Description can be up to 500 characters long
+            boolean validDesc = desc.length() <= 500;
+
+            if(validDesc)
+            {
+                page.descriptions[index] = desc;
+                attributeChanged(ItemAttribute.DESCRIPTION);
+            }
+            return validDesc;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return page.descriptions[index];
+        }
+
+        @Override
+        public boolean setMinimumOrderQuantity(int quantity)
+        {
+            // Minimum order quantity must be at least 0
+            boolean valid = quantity >= 0;
+
+            if(valid)
+            {
+                page.minimumOrderQuantities[index] = quantity;
+                attributeChanged(ItemAttribute.MINIMUM_ORDER_QUANTITY);
+            }
+            return valid;
+        }
+
+        @Override
+        public int getMinimumOrderQuantity()
+        {
+            return page.minimumOrderQuantities[index];
+        }
+
+        @Override
+        public boolean setQuantity(int quantity)
+        {
+            // Quantity must be at least 0 (it can be set to be less than the minimum order quantity)
+            boolean valid = quantity >= 0;
+
+            if(valid)
+            {
+                int oldQuantity = page.quantities.getAndSet(index, quantity);
+                quantitySet(oldQuantity, quantity);
+            }
+            return valid;
+        }
+
+        @Override
+        public int getQuantity()
+        {
+            return page.quantities.get(index);
+        }
+
+        @Override
+        public int reserveQuantity(int amount)
+        {
+            if(amount <= 0)
+            {
+                return -1;
+            }
+
+            // Retry until no other thread changes the quantity between reading and updating it
+            while(true)
+            {
+                int owned = page.quantities.get(index);
+                if(owned < amount)
+                {
+                    return -1;
+                }
+                if(page.quantities.compareAndSet(index, owned, owned - amount))
+                {
+                    return owned - amount;
+                }
+            }
+        }
+
+        @Override
+        public int addQuantity(int amount)
+        {
+            int newQuantity = page.quantities.addAndGet(index, amount);
+            quantityAdded(amount);
+            return newQuantity;
+        }
+
+        @Override
+        void releaseQuantity(int amount)
+        {
+            page.quantities.addAndGet(index, amount);
+        }
+
+        @Override
+        public boolean setOrderAmount(int amount)
+        {
+            // Order amount must be at least 1
+            boolean valid = amount >= 1;
+
+            if(valid)
+            {
+                page.orderAmounts[index] = amount;
+                attributeChanged(ItemAttribute.ORDER_AMOUNT);
+            }
+            return valid;
+        }
+
+        @Override
+        public int getOrderAmount()
+        {
+            return page.orderAmounts[index];
+        }
+
+        @Override
+        public void setSupplier(Supplier supplier)
+        {
+            page.suppliers[index] = supplier;
+            attributeChanged(ItemAttribute.SUPPLIER);
+        }
+
+        @Override
+        public Supplier getSupplier()
+        {
+            return page.suppliers[index];
+        }
+
+        @Override
+        public boolean setBuySellPricesCents(long buyingPriceCents, long sellingPriceCents)
+        {
+            // Both buying price and selling prices must be larger than zero, and the selling price must be larger than
+            // or equal to the buying price.
+            boolean valid = buyingPriceCents > 0 && sellingPriceCents >= buyingPriceCents;
+
+            if(valid)
+            {
+                page.buyingPricesCents[index] = buyingPriceCents;
+                page.sellingPricesCents[index] = sellingPriceCents;
+                attributeChanged(ItemAttribute.PRICES);
+            }
+            return valid;
+        }
+
+        @Override
+        public double getBuyingPrice()
+        {
+            return Money.toDouble(page.buyingPricesCents[index]);
+        }
+
+        @Override
+        public double getSellingPrice()
+        {
+            return Money.toDouble(page.sellingPricesCents[index]);
+        }
+
+        @Override
+        public long getBuyingPriceCents()
+        {
+            return page.buyingPricesCents[index];
+        }
+
+        @Override
+        public long getSellingPriceCents()
+        {
+            return page.sellingPricesCents[index];
+        }
+
+        @Override
+        public void incrementNumTimesSold(int numTimesSold)
+        {
+            page.numTimesSold.addAndGet(index, numTimesSold);
+        }
+
+        @Override
+        public int getNumTimesSold()
+        {
+            return (int) page.numTimesSold.get(index);
+        }
+
+        @Override
+        public double getProfit()
+        {
+            return Money.toDouble(page.profitsCents.get(index));
+        }
+
+        @Override
+        public long getProfitCents()
+        {
+            return page.profitsCents.get(index);
+        }
+
+        @Override
+        void recordSale(int quantity, long profitCents)
+        {
+            addProfitCents(profitCents);
+            sold(quantity, profitCents);
+        }
+
+        @Override
+        public void restoreSales(long numTimesSold, long profitCents)
+        {
+            page.numTimesSold.addAndGet(index, numTimesSold);
+            addProfitCents(profitCents);
+        }
+
+        @Override
+        long resetProfitCents()
+        {
+            return page.profitsCents.getAndSet(index, 0);
+        }
+
+        // Views of the same slot are the same item, even though lookups return a new view each time
+        @Override
+        public boolean equals(Object other)
+        {
+            if(!(other instanceof SlotItem))
+            {
+                return false;
+            }
+            SlotItem otherItem = (SlotItem) other;
+            return page == otherItem.page && index == otherItem.index;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return getId();
+        }
+
+        // The following functions tell the owning catalogue about a change (unless the item was removed from it),
+        // and then any other catalogues this view was added to
+
+        @Override
+        void attributeChanged(ItemAttribute attribute)
+        {
+            if(!isRemoved())
+            {
+                owner.itemChanged(this, attribute);
+            }
+            super.attributeChanged(attribute);
+        }
+
+        @Override
+        void categoryChanged(int oldCategoryId)
+        {
+            if(!isRemoved())
+            {
+                owner.moveToCategory(owner.slotOf(page, index), oldCategoryId, getCategoryId());
+                owner.itemChanged(this, ItemAttribute.CATEGORY);
+            }
+            super.categoryChanged(oldCategoryId);
+        }
+
+        @Override
+        void quantitySet(int oldQuantity, int quantity)
+        {
+            if(!isRemoved())
+            {
+                owner.quantitySet(this, oldQuantity, quantity);
+            }
+            super.quantitySet(oldQuantity, quantity);
+        }
+
+        @Override
+        void quantityAdded(int amount)
+        {
+            if(!isRemoved())
+            {
+                owner.quantityAdded(this, amount);
+            }
+            super.quantityAdded(amount);
+        }
+
+        @Override
+        void sold(int quantity, long profitCents)
+        {
+            if(!isRemoved())
+            {
+                owner.itemSold(this, quantity, profitCents);
+            }
+            super.sold(quantity, profitCents);
+        }
+
+        private boolean isRemoved()
+        {
+            return page.removed[index];
+        }
+
+        // Helper function which adds to the profit in the slot, throwing an ArithmeticException if it overflows
+        private void addProfitCents(long amount)
+        {
+            while(true)
+            {
+                long current = page.profitsCents.get(index);
+                if(page.profitsCents.compareAndSet(index, current, Math.addExact(current, amount)))
+                {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,70 +1,303 @@
 package mt.edu.uom.youstockit.ordering;
 
+import mt.edu.uom.youstockit.util.IntLinkedHashMap;
+import mt.edu.uom.youstockit.util.Money;
+
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class ProductCatalogue
+public class ProductCatalogue implements Iterable<StockItem>
 {
-    // List of stock items
-    private List<StockItem> items;
+    // Stock items indexed by id (iterating over the index returns items in the order they were added)
+    private IntLinkedHashMap<StockItem> items;
+    // Secondary index grouping the items in the catalogue by category id
+    private IntLinkedHashMap<IntLinkedHashMap<StockItem>> categories;
+    // Optional listener told about every change to the catalogue and its items
+    private volatile CatalogueListener listener;
 
     public ProductCatalogue()
     {
-        items = new ArrayList<>();
+        items = new IntLinkedHashMap<>();
+        categories = new IntLinkedHashMap<>();
     }
 
     // Add new stock item
     public boolean add(StockItem item)
     {
-        // If item has a unique id, add it to the list and return true
-        if(getById(item.getId()) == null)
-        {
-            items.add(item);
-            return true;
-        }
-        // otherwise return false
-        else
+        // If item has a unique id, add it to the catalogue and return true, otherwise return false
+        if(items.putIfAbsent(item.getId(), item) != null)
         {
             return false;
         }
+
+        addToCategory(item, item.getCategoryId());
+        itemAdded(item);
+        // Ask the item to report any changes so that the category index stays up to date
+        item.addCatalogue(this);
+        return true;
     }
 
     // Add delete stock item with a given ID
     // Returns true if item with given ID was found and deleted and false otherwise
     public boolean remove(int id)
     {
-        // Search for item with given id
-        StockItem item = getById(id);
-        boolean isFound = item != null;
-
-        // If item is found, delete it
-        if(isFound)
+        StockItem item = items.remove(id);
+        if(item == null)
         {
-            items.removeIf(stockItem -> stockItem.getId() == id);
+            return false;
         }
 
-        return isFound;
+        removeFromCategory(item, item.getCategoryId());
+        item.removeCatalogue(this);
+        itemRemoved(item);
+        return true;
     }
 
     // Get all stock items
     public List<StockItem> getAll()
     {
-        // Note: the arraylist is cloned to prevent accidental changes to the original list in the catalogue
-        return new ArrayList<>(items);
+        // Note: a new list is returned to prevent accidental changes to the items in the catalogue
+        List<StockItem> result = new ArrayList<>(items.size());
+        for(StockItem item : items)
+        {
+            result.add(item);
+        }
+        return result;
     }
 
     // Get all items with a specific category
     public List<StockItem> getByCategory(String category)
     {
-        return items.stream().filter(stockItem -> stockItem.getCategory().equals(category))
-                .collect(Collectors.toList());
+        IntLinkedHashMap<StockItem> categoryItems = categoryItems(category);
+        if(categoryItems == null)
+        {
+            return new ArrayList<>();
+        }
+
+        List<StockItem> result = new ArrayList<>(categoryItems.size());
+        for(StockItem item : categoryItems)
+        {
+            result.add(item);
+        }
+        return result;
+    }
+
+    // Get the number of items with a specific category without building a list of the items
+    public int countByCategory(String category)
+    {
+        IntLinkedHashMap<StockItem> categoryItems = categoryItems(category);
+        return categoryItems == null ? 0 : categoryItems.size();
     }
 
     public StockItem getById(int id)
     {
-        // Get the first item with the given id (or null if no item is found)
-        return items.stream().filter(stockItem -> stockItem.getId() == id)
-                .findFirst().orElse(null);
+        // Get the item with the given id (or null if no item is found)
+        return items.get(id);
+    }
+
+    // Get the number of items in the catalogue without building a list of the items
+    public int size()
+    {
+        return items.size();
+    }
+
+    // Get the profit made so far from the items in the catalogue (e.g. restored from storage), in cents
+    public long getTotalProfitCents()
+    {
+        long total = 0;
+        for(StockItem item : this)
+        {
+            total = Money.add(total, item.getProfitCents());
+        }
+        return total;
+    }
+
+    // Iterates over the items in the order they were added, without copying them into a list first
+    // Note: changing the catalogue while iterating over it throws a ConcurrentModificationException
+    @Override
+    public Iterator<StockItem> iterator()
+    {
+        return items.iterator();
+    }
+
+    @Override
+    public Spliterator<StockItem> spliterator()
+    {
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    // Streams the items in the order they were added (e.g. to export them), without copying them into a list first
+    public Stream<StockItem> stream()
+    {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    // Get a page of at most pageSize items, starting at a cursor (CatalogueCursor.START for the first page)
+    // Only the items in the page are copied, and the next page is found without going through the items before it
+    public CataloguePage getPage(CatalogueCursor cursor, int pageSize)
+    {
+        return page(this, cursor.isStart() ? iterator() : iteratorAfter(cursor.getLastId()), cursor, pageSize);
+    }
+
+    // Take a snapshot of the items in the catalogue, which does not change when the catalogue changes
+    // Note: this copies every item into the snapshot, while ConcurrentProductCatalogue keeps one up to date instead
+    public CatalogueSnapshot snapshot()
+    {
+        CatalogueSnapshot snapshot = CatalogueSnapshot.EMPTY;
+        long position = 0;
+        for(StockItem item : this)
+        {
+            snapshot = snapshot.withAdded(item, position++);
+        }
+        return snapshot;
+    }
+
+    public void setListener(CatalogueListener listener)
+    {
+        this.listener = listener;
+    }
+
+    // Helper function which reads a page of items, given the items in a catalogue (or snapshot) and an iterator
+    // starting after the cursor (null if the last item of the previous page is no longer there)
+    static CataloguePage page(Iterable<StockItem> items, Iterator<StockItem> iterator, CatalogueCursor cursor,
+                              int pageSize)
+    {
+        if(pageSize < 1)
+        {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+
+        if(iterator == null)
+        {
+            // The last item of the previous page was removed, so skip the other items which were returned before
+            iterator = items.iterator();
+            for(int i = 0; i < cursor.getOffset() - 1 && iterator.hasNext(); i++)
+            {
+                iterator.next();
+            }
+        }
+
+        List<StockItem> page = new ArrayList<>(pageSize);
+        while(page.size() < pageSize && iterator.hasNext())
+        {
+            page.add(iterator.next());
+        }
+        if(page.isEmpty() || !iterator.hasNext())
+        {
+            return new CataloguePage(page, null);
+        }
+        StockItem last = page.get(page.size() - 1);
+        return new CataloguePage(page, new CatalogueCursor(last.getId(), cursor.getOffset() + page.size()));
+    }
+
+    // Iterates over the items added after the item with the given id, or returns null if that item is not in the
+    // catalogue (used to find the next page without going through the items before it)
+    Iterator<StockItem> iteratorAfter(int id)
+    {
+        return items.iteratorAfter(id);
+    }
+
+    // Called by stock items in this catalogue whenever their category changes
+    void categoryChanged(StockItem item, int oldCategoryId)
+    {
+        removeFromCategory(item, oldCategoryId);
+        addToCategory(item, item.getCategoryId());
+    }
+
+    // The following functions pass changes on to the listener, if there is one
+    // Note: they are called by stock items in this catalogue, and by subclasses when items are added or removed
+
+    void itemAdded(StockItem item)
+    {
+        CatalogueListener currentListener = listener;
+        if(currentListener != null)
+        {
+            currentListener.itemAdded(item);
+        }
+    }
+
+    void itemRemoved(StockItem item)
+    {
+        CatalogueListener currentListener = listener;
+        if(currentListener != null)
+        {
+            currentListener.itemRemoved(item);
+        }
+    }
+
+    void itemChanged(StockItem item, ItemAttribute attribute)
+    {
+        CatalogueListener currentListener = listener;
+        if(currentListener != null)
+        {
+            currentListener.itemChanged(item, attribute);
+        }
+    }
+
+    void quantitySet(StockItem item, int oldQuantity, int quantity)
+    {
+        CatalogueListener currentListener = listener;
+        if(currentListener != null)
+        {
+            currentListener.quantitySet(item, oldQuantity, quantity);
+        }
+    }
+
+    void quantityAdded(StockItem item, int amount)
+    {
+        CatalogueListener currentListener = listener;
+        if(currentListener != null)
+        {
+            currentListener.quantityAdded(item, amount);
+        }
+    }
+
+    void itemSold(StockItem item, int quantity, long profitCents)
+    {
+        CatalogueListener currentListener = listener;
+        if(currentListener != null)
+        {
+            currentListener.itemSold(item, quantity, profitCents);
+        }
+    }
+
+    // Helper function which returns the index of a category by name, or null if no item has the category
+    private IntLinkedHashMap<StockItem> categoryItems(String category)
+    {
+        int categoryId = CategoryDictionary.getInstance().find(category);
+        return categoryId == CategoryDictionary.UNKNOWN_CATEGORY ? null : categories.get(categoryId);
+    }
+
+    // Helper function which adds an item to the index of a category
+    private void addToCategory(StockItem item, int categoryId)
+    {
+        IntLinkedHashMap<StockItem> categoryItems = categories.get(categoryId);
+        if(categoryItems == null)
+        {
+            categoryItems = new IntLinkedHashMap<>();
+            categories.put(categoryId, categoryItems);
+        }
+        categoryItems.put(item.getId(), item);
+    }
+
+    // Helper function which removes an item from the index of a category
+    private void removeFromCategory(StockItem item, int categoryId)
+    {
+        IntLinkedHashMap<StockItem> categoryItems = categories.get(categoryId);
+        if(categoryItems != null)
+        {
+            categoryItems.remove(item.getId());
+            // Drop empty categories so that the index does not keep growing with unused categories
+            if(categoryItems.isEmpty())
+            {
+                categories.remove(categoryId);
+            }
+        }
     }
 }
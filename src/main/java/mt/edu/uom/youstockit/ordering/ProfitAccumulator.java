@@ -0,0 +1,97 @@
+package mt.edu.uom.youstockit.ordering;
+
+import mt.edu.uom.youstockit.util.Money;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Keeps a running total of the profit made from sales, so that the total can be read without going through every
+// item in the catalogues. The total is kept in cents, so it is exact and adding to it does not allocate.
+// To stop orders on different threads from contending on a single counter, the total is split into several cells
+// and each thread adds to the cell picked by its thread id. Unlike a LongAdder, every addition is overflow-checked.
+public class ProfitAccumulator
+{
+    // Number of longs between two cells, so that each cell sits on its own cache line
+    private static final int PADDING = 8;
+    // Upper bound on the number of cells, which is rounded up to a power of two from the number of processors
+    private static final int MAX_CELLS = 64;
+
+    // Cell i is stored at index i * PADDING
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    public ProfitAccumulator()
+    {
+        int numCells = 1;
+        while(numCells < Runtime.getRuntime().availableProcessors() && numCells < MAX_CELLS)
+        {
+            numCells <<= 1;
+        }
+        cells = new AtomicLongArray(numCells * PADDING);
+        mask = numCells - 1;
+    }
+
+    // Records the profit made from selling a quantity of an item at its current prices
+    // Throws an ArithmeticException if the profit does not fit in a long
+    public void recordSale(StockItem item, int quantity)
+    {
+        long margin = Money.subtract(item.getSellingPriceCents(), item.getBuyingPriceCents());
+        long profit = Money.multiply(margin, quantity);
+        item.recordSale(quantity, profit);
+        add(profit);
+    }
+
+    // Adds the profit already made from an item which was loaded from storage
+    public void restoreItem(StockItem item)
+    {
+        add(item.getProfitCents());
+    }
+
+    // Adds the profit already made from every item in a catalogue which was loaded from storage
+    public void restoreCatalogue(ProductCatalogue catalogue)
+    {
+        add(catalogue.getTotalProfitCents());
+    }
+
+    // Removes the profit made from an item which was deleted from the catalogues
+    public void removeItem(StockItem item)
+    {
+        // The item's profit is reset so that deleting the same item again does not remove its profit twice
+        add(-item.resetProfitCents());
+    }
+
+    public long getTotalProfitCents()
+    {
+        long total = 0;
+        for(int i = 0; i < cells.length(); i += PADDING)
+        {
+            total = Money.add(total, cells.get(i));
+        }
+        return total;
+    }
+
+    public double getTotalProfit()
+    {
+        return Money.toDouble(getTotalProfitCents());
+    }
+
+    // Helper function which adds an amount to the cell belonging to the current thread
+    private void add(long amount)
+    {
+        int index = cellFor(Thread.currentThread().getId()) * PADDING;
+        while(true)
+        {
+            long current = cells.get(index);
+            if(cells.compareAndSet(index, current, Money.add(current, amount)))
+            {
+                return;
+            }
+        }
+    }
+
+    // Helper function which spreads the bits of a thread id so that consecutive ids use different cells
+    private int cellFor(long threadId)
+    {
+        long hash = threadId * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+}
@@ -0,0 +1,37 @@
+package mt.edu.uom.youstockit.ordering;
+
+// Outcome of an operation of the "OrderingFacade" class
+// Each status has a message template, which is only filled in when the message of a response is needed. The templates
+// refer to the item id of the response as %1$d and to its amount as %2$d.
+public enum ResponseStatus
+{
+    // Orders
+    ORDER_PLACED(true, "Order placed successfully."),
+    ORDER_PLACED_ITEM_DISCONTINUED(true, "Order placed successfully.\nItem has gone out of stock, removing from " +
+            "catalogue..."),
+    ITEM_NOT_FOUND(false, "Stock item with ID %1$d does not exist."),
+    OUT_OF_STOCK(false, "Requested quantity is invalid. Item is out of stock."),
+    QUANTITY_NOT_AVAILABLE(false, "Requested quantity is invalid. Must be between 1 and %2$d (inclusive)."),
+
+    // Batches of orders, where the amount of ORDERS_PLACED_ITEMS_DISCONTINUED is the number of items discontinued
+    NO_ITEMS_ORDERED(false, "No items were ordered."),
+    ORDERS_PLACED_ITEMS_DISCONTINUED(true, "Order placed successfully.\n%2$d item(s) went out of stock, removing " +
+            "from catalogue..."),
+    ITEM_QUANTITY_INVALID(false, "Requested quantity of item with ID %1$d is invalid."),
+    ITEM_OUT_OF_STOCK(false, "Requested quantity of item with ID %1$d is invalid. Item is out of stock."),
+    ITEM_QUANTITY_NOT_AVAILABLE(false, "Requested quantity of item with ID %1$d is invalid. Must be between 1 and " +
+            "%2$d (inclusive)."),
+
+    // Deletions
+    ITEM_DELETED(true, "Deleted item from catalogue"),
+    ITEM_DELETED_MANAGER_NOTIFIED(true, "Deleted item from catalogue and notified manager via email.");
+
+    public final boolean succeeded;
+    final String messageFormat;
+
+    ResponseStatus(boolean succeeded, String messageFormat)
+    {
+        this.succeeded = succeeded;
+        this.messageFormat = messageFormat;
+    }
+}
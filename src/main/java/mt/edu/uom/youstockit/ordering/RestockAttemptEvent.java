@@ -0,0 +1,35 @@
+package mt.edu.uom.youstockit.ordering;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight recorder event for a single attempt to restock an item, lasting from the call to the supplier's server
+// until its response (items restocked together in one call each get their own event, with the same duration)
+@Name("youstockit.RestockAttempt")
+@Label("Restock Attempt")
+@Category({"YouStockIt", "Restocking"})
+@Description("Call to a supplier's server to restock an item")
+@StackTrace(false)
+final class RestockAttemptEvent extends jdk.jfr.Event
+{
+    @Label("Item Id")
+    int itemId;
+
+    @Label("Supplier Id")
+    int supplierId;
+
+    @Label("Attempt")
+    @Description("Number of the attempt, starting from 1")
+    int attempt;
+
+    @Label("Items In Call")
+    @Description("Number of items restocked by the same call")
+    int itemsInCall;
+
+    @Label("Error Code")
+    @Description("Error code returned by the supplier, or the exception thrown if the call failed unexpectedly")
+    String errorCode;
+}
@@ -0,0 +1,10 @@
+package mt.edu.uom.youstockit.ordering;
+
+import mt.edu.uom.youstockit.supplier.SupplierErrorCode;
+
+// Interface used to be notified when the stock orderer finishes trying to restock an item in the background
+public interface RestockListener
+{
+    // Called once the restock is over, with the last error code returned by the supplier
+    void restockCompleted(StockItem item, SupplierErrorCode result);
+}
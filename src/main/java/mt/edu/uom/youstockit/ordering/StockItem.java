@@ -1,23 +1,54 @@
 package mt.edu.uom.youstockit.ordering;
 
 import mt.edu.uom.youstockit.supplier.Supplier;
+import mt.edu.uom.youstockit.util.Money;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 
 public class StockItem
 {
+    // Used to atomically compare-and-set the quantity field without wrapping it in an AtomicInteger
+    private static final AtomicIntegerFieldUpdater<StockItem> QUANTITY =
+            AtomicIntegerFieldUpdater.newUpdater(StockItem.class, "quantity");
+    // Used to atomically update the profit field
+    private static final AtomicLongFieldUpdater<StockItem> PROFIT_CENTS =
+            AtomicLongFieldUpdater.newUpdater(StockItem.class, "profitCents");
+    // Gives each category name an id, so that items with the same category share a single string
+    private static final CategoryDictionary CATEGORIES = CategoryDictionary.getInstance();
+
     // Id of stock item - set only once
     private int id;
     private String name;
-    private String category;
+    // Category from the category dictionary (null if the item has no category)
+    // Note: holding the category keeps its id from being given to another category
+    private volatile CategoryDictionary.Category category;
     private String description;
     private int minimumOrderQty;
-    private int quantity;
+    // Note: quantity is volatile so that it can be updated atomically using compare-and-set
+    private volatile int quantity;
     private int orderAmount;
     private Supplier supplier;
-    private double buyingPrice;
-    private double sellingPrice;
-    private int numTimesSold;
+    // Prices are stored in cents so that profit calculations are exact
+    private long buyingPriceCents;
+    private long sellingPriceCents;
+    // Number of items sold, kept in a LongAdder so that concurrent sales of a popular item do not contend
+    private final LongAdder numTimesSold;
+    // Profit (in cents) made from the sales of this item, at the prices the item had when it was sold
+    private volatile long profitCents;
+    // Catalogues containing this item, which need to be told when the category changes
+    // Note: the array is replaced rather than modified, so that it can be read without locking
+    private volatile ProductCatalogue[] catalogues;
 
     public StockItem(int id)
+    {
+        this(id, new LongAdder());
+    }
+
+    // Used by subclasses which store their values elsewhere, and so pass null instead of allocating a counter
+    StockItem(int id, LongAdder numTimesSold)
     {
         // Set id
         this.id = id;
@@ -26,6 +57,7 @@ public class StockItem
         minimumOrderQty = -1;
         quantity = -1;
         orderAmount = -1;
+        this.numTimesSold = numTimesSold;
     }
 
     public int getId()
@@ -41,6 +73,7 @@ public class StockItem
         if(validName)
         {
             this.name = name;
+            attributeChanged(ItemAttribute.NAME);
         }
         // Return true if name change was successful
         return validName;
@@ -53,10 +86,25 @@ public class StockItem
 
     public void setCategory(String category)
     {
-        this.category = category;
+        int oldCategoryId = getCategoryId();
+        this.category = CATEGORIES.categoryOf(category);
+        categoryChanged(oldCategoryId);
     }
 
     public String getCategory()
+    {
+        CategoryDictionary.Category currentCategory = category;
+        return currentCategory == null ? null : currentCategory.getName();
+    }
+
+    public int getCategoryId()
+    {
+        CategoryDictionary.Category currentCategory = category;
+        return currentCategory == null ? CategoryDictionary.NO_CATEGORY : currentCategory.getId();
+    }
+
+    // Returns the category from the category dictionary (null if the item has no category)
+    CategoryDictionary.Category getDictionaryCategory()
     {
         return category;
     }
@@ -69,6 +117,7 @@ public class StockItem
         if(validDesc)
         {
             this.description = desc;
+            attributeChanged(ItemAttribute.DESCRIPTION);
         }
         // Return true if description change was successful
         return validDesc;
@@ -87,6 +136,7 @@ public class StockItem
         if(valid)
         {
             this.minimumOrderQty = quantity;
+            attributeChanged(ItemAttribute.MINIMUM_ORDER_QUANTITY);
         }
         // Return true if change was successful
         return valid;
@@ -104,7 +154,10 @@ public class StockItem
 
         if(valid)
         {
-            this.quantity = quantity;
+            // The quantity is swapped atomically, so that the quantity replaced is known even if orders are reserving
+            // items at the same time
+            int oldQuantity = QUANTITY.getAndSet(this, quantity);
+            quantitySet(oldQuantity, quantity);
         }
         // Return true if change was successful
         return valid;
@@ -115,6 +168,45 @@ public class StockItem
         return quantity;
     }
 
+    // Atomically removes an amount of items from the stock, as long as there are enough items in stock
+    // Returns the quantity left in stock, or -1 if the amount is not positive or there are not enough items
+    public int reserveQuantity(int amount)
+    {
+        if(amount <= 0)
+        {
+            return -1;
+        }
+
+        // Retry until no other thread changes the quantity between reading and updating it
+        while(true)
+        {
+            int owned = quantity;
+            if(owned < amount)
+            {
+                return -1;
+            }
+            if(QUANTITY.compareAndSet(this, owned, owned - amount))
+            {
+                return owned - amount;
+            }
+        }
+    }
+
+    // Atomically adds an amount of items to the stock, returning the new quantity
+    public int addQuantity(int amount)
+    {
+        int newQuantity = QUANTITY.addAndGet(this, amount);
+        quantityAdded(amount);
+        return newQuantity;
+    }
+
+    // Puts back items which were reserved for an order that did not go through
+    // Unlike addQuantity, catalogues are not told since the reservation was never reported to them
+    void releaseQuantity(int amount)
+    {
+        QUANTITY.addAndGet(this, amount);
+    }
+
     public boolean setOrderAmount(int amount)
     {
         // Order amount must be at least 1
@@ -123,6 +215,7 @@ public class StockItem
         if(valid)
         {
             this.orderAmount = amount;
+            attributeChanged(ItemAttribute.ORDER_AMOUNT);
         }
         // Return true if change was successful
         return valid;
@@ -136,6 +229,7 @@ public class StockItem
     public void setSupplier(Supplier supplier)
     {
         this.supplier = supplier;
+        attributeChanged(ItemAttribute.SUPPLIER);
     }
 
     public Supplier getSupplier()
@@ -143,16 +237,24 @@ public class StockItem
         return supplier;
     }
 
+    // Sets the prices in euros (the cents version has a different name, so that whole numbers are never taken as cents)
     public boolean setBuySellPrices(double buyingPrice, double sellingPrice)
+    {
+        // Prices given as doubles are rounded to the nearest cent
+        return setBuySellPricesCents(Money.fromDouble(buyingPrice), Money.fromDouble(sellingPrice));
+    }
+
+    public boolean setBuySellPricesCents(long buyingPriceCents, long sellingPriceCents)
     {
         // Both buying price and selling prices must be larger than zero, and the selling price must be larger than or
         // equal to the buying price.
-        boolean valid = buyingPrice > 0.0 && sellingPrice >= buyingPrice;
+        boolean valid = buyingPriceCents > 0 && sellingPriceCents >= buyingPriceCents;
 
         if(valid)
         {
-            this.buyingPrice = buyingPrice;
-            this.sellingPrice = sellingPrice;
+            this.buyingPriceCents = buyingPriceCents;
+            this.sellingPriceCents = sellingPriceCents;
+            attributeChanged(ItemAttribute.PRICES);
         }
         // Return true if change was successful
         return valid;
@@ -160,21 +262,183 @@ public class StockItem
 
     public double getBuyingPrice()
     {
-        return buyingPrice;
+        return Money.toDouble(buyingPriceCents);
     }
 
     public double getSellingPrice()
     {
-        return sellingPrice;
+        return Money.toDouble(sellingPriceCents);
+    }
+
+    public long getBuyingPriceCents()
+    {
+        return buyingPriceCents;
+    }
+
+    public long getSellingPriceCents()
+    {
+        return sellingPriceCents;
     }
 
     public void incrementNumTimesSold(int numTimesSold)
     {
-        this.numTimesSold += numTimesSold;
+        this.numTimesSold.add(numTimesSold);
     }
 
     public int getNumTimesSold()
     {
-        return numTimesSold;
+        return (int) numTimesSold.sum();
+    }
+
+    public double getProfit()
+    {
+        return Money.toDouble(profitCents);
+    }
+
+    public long getProfitCents()
+    {
+        return profitCents;
+    }
+
+    // Called by the profit accumulator when this item is sold
+    // Throws an ArithmeticException if the profit no longer fits in a long
+    void recordSale(int quantity, long profitCents)
+    {
+        addProfitCents(profitCents);
+        sold(quantity, profitCents);
+    }
+
+    // Used when an item is loaded from storage, to add the sales made before it was saved
+    public void restoreSales(long numTimesSold, long profitCents)
+    {
+        this.numTimesSold.add(numTimesSold);
+        addProfitCents(profitCents);
+    }
+
+    private void addProfitCents(long amount)
+    {
+        while(true)
+        {
+            long current = profitCents;
+            if(PROFIT_CENTS.compareAndSet(this, current, Math.addExact(current, amount)))
+            {
+                return;
+            }
+        }
+    }
+
+    // Called by the profit accumulator when this item is deleted, returning the profit made before the reset
+    long resetProfitCents()
+    {
+        return PROFIT_CENTS.getAndSet(this, 0);
+    }
+
+    // The following functions tell the catalogues containing this item about a change to it
+    // Note: they are also called by subclasses which store their values elsewhere, after storing a new value
+
+    void attributeChanged(ItemAttribute attribute)
+    {
+        ProductCatalogue[] currentCatalogues = catalogues;
+        if(currentCatalogues != null)
+        {
+            for(ProductCatalogue catalogue : currentCatalogues)
+            {
+                catalogue.itemChanged(this, attribute);
+            }
+        }
+    }
+
+    void categoryChanged(int oldCategoryId)
+    {
+        // Update the category index of every catalogue containing this item
+        ProductCatalogue[] currentCatalogues = catalogues;
+        if(currentCatalogues != null)
+        {
+            for(ProductCatalogue catalogue : currentCatalogues)
+            {
+                catalogue.categoryChanged(this, oldCategoryId);
+                catalogue.itemChanged(this, ItemAttribute.CATEGORY);
+            }
+        }
+    }
+
+    void quantitySet(int oldQuantity, int quantity)
+    {
+        ProductCatalogue[] currentCatalogues = catalogues;
+        if(currentCatalogues != null)
+        {
+            for(ProductCatalogue catalogue : currentCatalogues)
+            {
+                catalogue.quantitySet(this, oldQuantity, quantity);
+            }
+        }
+    }
+
+    void quantityAdded(int amount)
+    {
+        ProductCatalogue[] currentCatalogues = catalogues;
+        if(currentCatalogues != null)
+        {
+            for(ProductCatalogue catalogue : currentCatalogues)
+            {
+                catalogue.quantityAdded(this, amount);
+            }
+        }
+    }
+
+    void sold(int quantity, long profitCents)
+    {
+        ProductCatalogue[] currentCatalogues = catalogues;
+        if(currentCatalogues != null)
+        {
+            for(ProductCatalogue catalogue : currentCatalogues)
+            {
+                catalogue.itemSold(this, quantity, profitCents);
+            }
+        }
+    }
+
+    // Called by a product catalogue when this item is added to it
+    synchronized void addCatalogue(ProductCatalogue catalogue)
+    {
+        if(catalogues == null)
+        {
+            catalogues = new ProductCatalogue[] {catalogue};
+        }
+        else
+        {
+            ProductCatalogue[] newCatalogues = Arrays.copyOf(catalogues, catalogues.length + 1);
+            newCatalogues[catalogues.length] = catalogue;
+            catalogues = newCatalogues;
+        }
+    }
+
+    // Called by a product catalogue when this item is removed from it
+    synchronized void removeCatalogue(ProductCatalogue catalogue)
+    {
+        if(catalogues == null)
+        {
+            return;
+        }
+
+        for(int i = 0; i < catalogues.length; i++)
+        {
+            if(catalogues[i] == catalogue)
+            {
+                if(catalogues.length == 1)
+                {
+                    catalogues = null;
+                }
+                else
+                {
+                    // Copy every catalogue except the one being removed
+                    ProductCatalogue[] newCatalogues = new ProductCatalogue[catalogues.length - 1];
+                    System.arraycopy(catalogues, 0, newCatalogues, 0, i);
+                    System.arraycopy(catalogues, i + 1, newCatalogues, i, catalogues.length - i - 1);
+                    catalogues = newCatalogues;
+                }
+                return;
+            }
+        }
     }
-}
+}
\ No newline at end of file
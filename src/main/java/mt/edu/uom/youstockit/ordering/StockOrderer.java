@@ -3,107 +3,737 @@ package mt.edu.uom.youstockit.ordering;
 import mt.edu.uom.youstockit.supplier.ItemOrder;
 import mt.edu.uom.youstockit.services.email.EmailSender;
 import mt.edu.uom.youstockit.services.ServiceLocator;
+import mt.edu.uom.youstockit.services.metrics.Counter;
+import mt.edu.uom.youstockit.services.metrics.Histogram;
+import mt.edu.uom.youstockit.services.metrics.MetricsRegistry;
+import mt.edu.uom.youstockit.supplier.AsyncSupplierServer;
+import mt.edu.uom.youstockit.supplier.CircuitBreaker;
+import mt.edu.uom.youstockit.supplier.CircuitBreakerState;
+import mt.edu.uom.youstockit.supplier.FixedDelayRetryPolicy;
+import mt.edu.uom.youstockit.supplier.RetryPolicy;
 import mt.edu.uom.youstockit.supplier.Supplier;
+import mt.edu.uom.youstockit.supplier.SupplierErrorCode;
 import mt.edu.uom.youstockit.supplier.SupplierResponse;
+import mt.edu.uom.youstockit.supplier.SupplierServer;
+import mt.edu.uom.youstockit.supplier.SupplierServerAsyncAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class StockOrderer
 {
+    // By default, the supplier's server is contacted at most 4 times, waiting 5 seconds between attempts
+    public static final int DEFAULT_MAX_ATTEMPTS = 4;
+    public static final long DEFAULT_RETRY_DELAY_MILLIS = 5000;
+    // By default, a supplier's server is given 30 seconds to respond to an order before the attempt is abandoned
+    public static final long DEFAULT_CALL_TIMEOUT_MILLIS = 30000;
+    // By default, at most 16 calls to synchronous supplier servers are made at the same time, and up to 1000 more calls
+    // can wait for a free thread
+    public static final int DEFAULT_SUPPLIER_CALL_THREADS = 16;
+    public static final int DEFAULT_SUPPLIER_CALL_QUEUE_CAPACITY = 1000;
+    // By default, restocks for the same supplier are sent together if they are requested within 10 milliseconds of
+    // each other, up to 50 items per order
+    public static final int DEFAULT_MAX_BATCH_SIZE = 50;
+    public static final long DEFAULT_BATCH_WINDOW_MILLIS = 10;
+    // By default, orders to a supplier are held back for 30 seconds after 5 failed calls in a row
+    public static final int DEFAULT_BREAKER_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_BREAKER_OPEN_MILLIS = 30000;
+
     private final EmailSender emailSender;
+    // Executor on which restocks (and the delays between their attempts) are run, so that orders do not wait for them
+    private final ScheduledExecutorService scheduler;
+    // Bounded executor on which calls to synchronous supplier servers are made (asynchronous servers do not need it)
+    private final ExecutorService supplierCallExecutor;
+    // Decides how long to wait between attempts, how many attempts to make and how long each attempt may take
+    private final RetryPolicy retryPolicy;
+    private final int maxBatchSize;
+    private final long batchWindowMillis;
+    // Restocks waiting to be sent to each supplier
+    private final ConcurrentMap<Supplier, SupplierBatch> batches;
+    // Restocks which have not finished yet, indexed by item id (at most one restock per item is in progress)
+    private final ConcurrentMap<Integer, Restock> restocksInProgress;
+    // Circuit breakers guarding the calls to each supplier's server, indexed by supplier id
+    private final ConcurrentMap<Integer, CircuitBreaker> circuitBreakers;
+    private volatile int breakerFailureThreshold;
+    private volatile long breakerOpenMillis;
+    // Running total of the profit made from the orders processed by this stock orderer
+    private final ProfitAccumulator profitAccumulator;
+    // Listeners notified when a restock is over (replaced by a copy when a listener is added)
+    private volatile RestockListener[] restockListeners;
+
+    // Metrics about sales and restocks (metrics about each supplier are kept by its SupplierBatch)
+    private final MetricsRegistry metrics;
+    private final Counter sales;
+    private final Counter rejectedSales;
+    private final Counter unitsSold;
+    private final Counter restocksStarted;
+    private final Counter[] restocksCompleted;
+    private final Counter restocksFailed;
+    private final Counter retries;
+    private final Histogram restockDuration;
 
     public StockOrderer()
     {
+        this(createDefaultScheduler(), DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_DELAY_MILLIS);
+    }
+
+    public StockOrderer(ScheduledExecutorService scheduler, int maxAttempts, long retryDelayMillis)
+    {
+        this(scheduler, maxAttempts, retryDelayMillis, DEFAULT_MAX_BATCH_SIZE, DEFAULT_BATCH_WINDOW_MILLIS);
+    }
+
+    public StockOrderer(ScheduledExecutorService scheduler, int maxAttempts, long retryDelayMillis, int maxBatchSize,
+                        long batchWindowMillis)
+    {
+        this(scheduler, new FixedDelayRetryPolicy(maxAttempts, retryDelayMillis, DEFAULT_CALL_TIMEOUT_MILLIS),
+                maxBatchSize, batchWindowMillis);
+    }
+
+    public StockOrderer(ScheduledExecutorService scheduler, RetryPolicy retryPolicy, int maxBatchSize,
+                        long batchWindowMillis)
+    {
+        this(scheduler, SupplierServerAsyncAdapter.newBoundedExecutor(DEFAULT_SUPPLIER_CALL_THREADS,
+                DEFAULT_SUPPLIER_CALL_QUEUE_CAPACITY), retryPolicy, maxBatchSize, batchWindowMillis);
+    }
+
+    public StockOrderer(ScheduledExecutorService scheduler, ExecutorService supplierCallExecutor,
+                        RetryPolicy retryPolicy, int maxBatchSize, long batchWindowMillis)
+    {
+        if(maxBatchSize < 1 || batchWindowMillis < 0)
+        {
+            throw new IllegalArgumentException("Batches must hold at least one item and the window cannot be negative");
+        }
+
         // Find email sender service
         ServiceLocator serviceLocator = ServiceLocator.getInstance();
         this.emailSender = (EmailSender) serviceLocator.findService("EmailSender");
+
+        this.scheduler = scheduler;
+        this.supplierCallExecutor = supplierCallExecutor;
+        this.retryPolicy = retryPolicy;
+        this.maxBatchSize = maxBatchSize;
+        this.batchWindowMillis = batchWindowMillis;
+        this.batches = new ConcurrentHashMap<>();
+        this.restocksInProgress = new ConcurrentHashMap<>();
+        this.circuitBreakers = new ConcurrentHashMap<>();
+        this.breakerFailureThreshold = DEFAULT_BREAKER_FAILURE_THRESHOLD;
+        this.breakerOpenMillis = DEFAULT_BREAKER_OPEN_MILLIS;
+        this.profitAccumulator = new ProfitAccumulator();
+        this.restockListeners = new RestockListener[0];
+
+        // Look up the metrics once, so that recording them does not look them up by name
+        this.metrics = MetricsRegistry.find();
+        this.sales = metrics.counter("youstockit_sales_total");
+        this.rejectedSales = metrics.counter("youstockit_sales_rejected_total");
+        this.unitsSold = metrics.counter("youstockit_units_sold_total");
+        this.restocksStarted = metrics.counter("youstockit_restocks_started_total");
+        this.restocksCompleted = new Counter[SupplierErrorCode.values().length];
+        for(SupplierErrorCode errorCode : SupplierErrorCode.values())
+        {
+            restocksCompleted[errorCode.ordinal()] = metrics.counter("youstockit_restocks_completed_total", "result",
+                    errorCode.name());
+        }
+        this.restocksFailed = metrics.counter("youstockit_restocks_failed_total");
+        this.retries = metrics.counter("youstockit_supplier_retries_total");
+        this.restockDuration = metrics.histogram("youstockit_restock_duration_nanoseconds");
+        metrics.gauge("youstockit_restocks_in_progress", restocksInProgress::size);
+    }
+
+    public ProfitAccumulator getProfitAccumulator()
+    {
+        return profitAccumulator;
+    }
+
+    // Adds a listener which is notified once each restock is over
+    public synchronized void addRestockListener(RestockListener restockListener)
+    {
+        RestockListener[] newListeners = Arrays.copyOf(restockListeners, restockListeners.length + 1);
+        newListeners[restockListeners.length] = restockListener;
+        restockListeners = newListeners;
+    }
+
+    // Sets how many failed calls in a row open a supplier's circuit breaker, and how long the breaker stays open
+    // Note: this only affects circuit breakers created after the call, so it should be called before placing orders
+    public void setCircuitBreakerSettings(int failureThreshold, long openDurationMillis)
+    {
+        this.breakerFailureThreshold = failureThreshold;
+        this.breakerOpenMillis = openDurationMillis;
+    }
+
+    // Returns the state of the circuit breaker guarding calls to a supplier (for monitoring)
+    public CircuitBreakerState getCircuitBreakerState(int supplierId)
+    {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(supplierId);
+        return circuitBreaker == null ? CircuitBreakerState.CLOSED : circuitBreaker.getState();
     }
 
     // Function used to handle stock ordering automatically
     // Note: this function returns true when the amount of requested stock is valid and available and false otherwise
     public boolean processOrder(StockItem item, int buyQuantity)
     {
-        int ownedQuantity = item.getQuantity();
-        // If order quantity is 0 or less or if there are not enough items to fulfill the order, then abort the order
-        if(buyQuantity <= 0 || ownedQuantity < buyQuantity)
+        OrderEvent event = new OrderEvent();
+        event.begin();
+
+        // Atomically take the items out of stock (this fails if the quantity is invalid or not enough items are in
+        // stock), so that concurrent orders for the same item can never sell more items than there are in stock
+        int remainingQuantity = item.reserveQuantity(buyQuantity);
+        if(remainingQuantity < 0)
         {
+            rejectedSales.increment();
+            commitOrderEvent(event, item, buyQuantity, 1, false, false);
             return false;
         }
 
-        // Update item quantity and number of times sold after successful order
-        item.setQuantity(ownedQuantity - buyQuantity);
+        // Update number of times sold and the profit made after successful order
         item.incrementNumTimesSold(buyQuantity);
+        profitAccumulator.recordSale(item, buyQuantity);
+        sales.increment();
+        unitsSold.add(buyQuantity);
 
-        if(item.getQuantity() < item.getMinimumOrderQuantity())
+        // Restocking happens in the background, so the order does not wait for the supplier
+        boolean restock = remainingQuantity < item.getMinimumOrderQuantity();
+        if(restock)
         {
             orderMore(item);
         }
 
+        commitOrderEvent(event, item, buyQuantity, 1, true, restock);
         return true;
     }
 
-    // This helper function orders more of an object if the quantity goes below a certain number
-    private void orderMore(StockItem item)
+    // Processes several orders at once, all or nothing: either every item is taken out of stock, or none are
+    // items[i] is ordered buyQuantities[i] times, and each item should appear only once
+    // Returns -1 if the orders were processed, otherwise the index of the first order which could not be fulfilled
+    public int processOrders(StockItem[] items, int[] buyQuantities)
     {
-        Supplier supplier = item.getSupplier();
+        OrderEvent[] events = new OrderEvent[items.length];
+        for(int i = 0; i < items.length; i++)
+        {
+            events[i] = new OrderEvent();
+            events[i].begin();
+        }
+
+        // Take every item out of stock, keeping the remaining quantities to decide which items to restock
+        int[] remainingQuantities = new int[items.length];
+        for(int i = 0; i < items.length; i++)
+        {
+            remainingQuantities[i] = items[i].reserveQuantity(buyQuantities[i]);
+            if(remainingQuantities[i] < 0)
+            {
+                // Put back the items already reserved
+                // Note: other orders may briefly see the lower quantities and be rejected, but can never oversell
+                for(int j = 0; j < i; j++)
+                {
+                    items[j].releaseQuantity(buyQuantities[j]);
+                }
+                rejectedSales.increment();
+                // None of the items were sold, including the ones which were in stock
+                for(int j = 0; j < items.length; j++)
+                {
+                    commitOrderEvent(events[j], items[j], buyQuantities[j], items.length, false, false);
+                }
+                return i;
+            }
+        }
 
-        int tries = 0;
-        boolean retry = true;
+        // Every item was reserved, so record the sales
+        for(int i = 0; i < items.length; i++)
+        {
+            items[i].incrementNumTimesSold(buyQuantities[i]);
+            profitAccumulator.recordSale(items[i], buyQuantities[i]);
+            unitsSold.add(buyQuantities[i]);
+        }
+        sales.add(items.length);
 
-        // Try to order from the supplier's server 4 times at most
-        while(retry && tries < 4)
+        // Restock each item at most once for the whole batch, after all sales are recorded, and record each order
+        for(int i = 0; i < items.length; i++)
         {
-            ItemOrder[] orders = new ItemOrder[1];
-            orders[0] = new ItemOrder(item.getId(), item.getOrderAmount());
-            SupplierResponse[] response = supplier.supplierServer.orderItems(orders);
-            // Update the number of attempts
-            tries++;
+            boolean restock = remainingQuantities[i] < items[i].getMinimumOrderQuantity();
+            if(restock)
+            {
+                orderMore(items[i]);
+            }
+            commitOrderEvent(events[i], items[i], buyQuantities[i], items.length, true, restock);
+        }
+
+        return -1;
+    }
 
-            // Handle supplier response
-            switch (response[0].errorCode)
+    // Orders more of an item from its supplier in the background
+    // Returns a future which completes with the last error code returned by the supplier once the restock is over
+    // Note: if the item is already being restocked, no new order is made and the restock in progress is returned
+    public CompletableFuture<SupplierErrorCode> orderMore(StockItem item)
+    {
+        // Most calls for an item which is already being restocked find the restock without allocating anything
+        Restock inProgress = restocksInProgress.get(item.getId());
+        if(inProgress != null)
+        {
+            return inProgress.result;
+        }
+        Restock restock = new Restock(item);
+        inProgress = restocksInProgress.putIfAbsent(item.getId(), restock);
+        if(inProgress != null)
+        {
+            return inProgress.result;
+        }
+        restocksStarted.increment();
+        // Make sure the restock stops being tracked even if it fails unexpectedly
+        restock.result.whenComplete((errorCode, exception) -> {
+            restocksInProgress.remove(item.getId(), restock);
+            restockDuration.recordSince(restock.startNanos);
+            if(exception == null)
+            {
+                restocksCompleted[errorCode.ordinal()].increment();
+            }
+            else
             {
-                case COMMUNICATION_ERROR:
+                restocksFailed.increment();
+            }
+        });
+
+        if(item.getSupplier() == null)
+        {
+            restock.result.completeExceptionally(new IllegalStateException("Item " + item.getId() +
+                    " does not have a supplier"));
+        }
+        else
+        {
+            addToBatch(restock);
+        }
+        return restock.result;
+    }
+
+    // Returns the restock in progress for an item, or null if the item is not being restocked
+    // Note: a restock stops being in progress only once it has updated the item, so if this returns null, any restock
+    // started before the call has already updated the item
+    public CompletableFuture<SupplierErrorCode> getRestockInProgress(StockItem item)
+    {
+        Restock restock = restocksInProgress.get(item.getId());
+        return restock == null ? null : restock.result;
+    }
+
+    // Stops the background restocking threads (restocks which are still waiting to be sent are abandoned)
+    public void shutdown()
+    {
+        scheduler.shutdownNow();
+        supplierCallExecutor.shutdownNow();
+    }
+
+    // Helper function which adds a restock to the batch of orders waiting to be sent to the item's supplier
+    private void addToBatch(Restock restock)
+    {
+        Supplier supplier = restock.item.getSupplier();
+        SupplierBatch batch = batches.computeIfAbsent(supplier, SupplierBatch::new);
+        batch.add(restock);
+    }
+
+    // Helper function which returns the circuit breaker for a supplier, creating it if it does not exist yet
+    private CircuitBreaker circuitBreakerFor(Supplier supplier)
+    {
+        return circuitBreakers.computeIfAbsent(supplier.id,
+                id -> new CircuitBreaker(breakerFailureThreshold, breakerOpenMillis));
+    }
+
+    // Helper function which sends a batch of restocks to a supplier's server as a single order, in a generation of the
+    // supplier's circuit breaker in which the call was allowed
+    private void sendOrder(SupplierBatch batch, List<Restock> restocks, CircuitBreaker circuitBreaker,
+                           long breakerGeneration)
+    {
+        Supplier supplier = batch.supplier;
+        ItemOrder[] orders = new ItemOrder[restocks.size()];
+        for(int i = 0; i < orders.length; i++)
+        {
+            Restock restock = restocks.get(i);
+            orders[i] = new ItemOrder(restock.item.getId(), restock.item.getOrderAmount());
+            restock.attemptEvent = new RestockAttemptEvent();
+            restock.attemptEvent.begin();
+        }
+
+        batch.calls.increment();
+        long callStart = System.nanoTime();
+
+        // Order the items without waiting for the response, so that many orders can be in progress at the same time
+        CompletableFuture<SupplierResponse[]> call = new CompletableFuture<>();
+        CompletableFuture<SupplierResponse[]> serverCall = null;
+        try
+        {
+            serverCall = batch.asyncServer().orderItemsAsync(orders);
+            serverCall.whenComplete((response, exception) -> {
+                if(exception == null)
                 {
-                    // If this is not the final try, wait for 5 seconds before trying again
-                    if(tries < 4)
-                    {
-                        try
-                        {
-                            Thread.sleep(5000);
-                        } catch (InterruptedException e)
-                        {
-                            // If waiting fails, abort order
-                            retry = false;
-                        }
-                    }
-                    // If this was the final attempt, send an email to the supplier
-                    else
-                    {
-                        emailSender.sendEmailToSupplier(supplier, "YouStockIt system was unable to connect " +
-                                "to your stock server.");
-                    }
-                } break;
-
-                case ITEM_NOT_FOUND:
+                    call.complete(response);
+                }
+                else
                 {
-                    // If item is not found in supplier's stock, set minimum order quantity to zero
-                    item.setMinimumOrderQuantity(0);
-                    retry = false;
-                } break;
+                    call.completeExceptionally(exception);
+                }
+            });
+        }
+        catch (RuntimeException e)
+        {
+            call.completeExceptionally(e);
+        }
+
+        // Abandon the call if the supplier's server does not respond before the deadline, cancelling it so that a hung
+        // server does not keep holding one of the threads used to call suppliers
+        CompletableFuture<SupplierResponse[]> abandonedCall = serverCall;
+        ScheduledFuture<?> deadline = scheduler.schedule(() -> {
+            if(call.completeExceptionally(new TimeoutException("Supplier server did not respond in time")) &&
+                    abandonedCall != null)
+            {
+                abandonedCall.cancel(true);
+            }
+        }, retryPolicy.getCallTimeoutMillis(), TimeUnit.MILLISECONDS);
+
+        call.whenComplete((response, exception) -> {
+            deadline.cancel(false);
+            batch.callLatency.recordSince(callStart);
+            handleCallResult(batch, restocks, orders, response, exception, circuitBreaker, breakerGeneration);
+        });
+    }
 
-                case OUT_OF_STOCK:
+    // Helper function which handles the outcome of a call to a supplier's server
+    private void handleCallResult(SupplierBatch batch, List<Restock> restocks, ItemOrder[] orders,
+                                  SupplierResponse[] response, Throwable exception, CircuitBreaker circuitBreaker,
+                                  long breakerGeneration)
+    {
+        Supplier supplier = batch.supplier;
+        Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+        boolean unreachable = cause instanceof TimeoutException || cause instanceof RejectedExecutionException;
+        if(unreachable)
+        {
+            // A supplier which is too slow to respond, or which cannot be called since too many calls are already in
+            // progress, is treated the same as one which cannot be reached
+            // Note: if the supplier still processes the abandoned order, the items will be ordered again on retry
+            response = new SupplierResponse[orders.length];
+            for(int i = 0; i < orders.length; i++)
+            {
+                response[i] = new SupplierResponse(orders[i].quantity, 0, SupplierErrorCode.COMMUNICATION_ERROR);
+            }
+        }
+        else if(cause == null && (response == null || response.length < orders.length))
+        {
+            cause = new IllegalStateException("Supplier server did not respond to every item in the order");
+        }
+
+        if(cause != null && !unreachable)
+        {
+            batch.callFailures.increment();
+            circuitBreaker.recordFailure(breakerGeneration);
+            // If the supplier's server fails unexpectedly, abort all restocks in the order
+            for(Restock restock : restocks)
+            {
+                commitAttemptEvent(restock, supplier, restocks.size(), cause.toString());
+                restock.result.completeExceptionally(cause);
+            }
+            return;
+        }
+
+        // The call only counts as a failure if the supplier could not be reached for any of the items
+        boolean reachedSupplier = false;
+        for(int i = 0; i < restocks.size(); i++)
+        {
+            if(response[i].errorCode != SupplierErrorCode.COMMUNICATION_ERROR)
+            {
+                reachedSupplier = true;
+                break;
+            }
+        }
+        if(reachedSupplier)
+        {
+            circuitBreaker.recordSuccess(breakerGeneration);
+        }
+        else
+        {
+            batch.callFailures.increment();
+            circuitBreaker.recordFailure(breakerGeneration);
+        }
+
+        // The supplier responds to every item in the same order that the items were ordered
+        for(int i = 0; i < restocks.size(); i++)
+        {
+            Restock restock = restocks.get(i);
+            commitAttemptEvent(restock, supplier, restocks.size(), response[i].errorCode.name());
+            try
+            {
+                handleResponse(restock, response[i]);
+            }
+            catch (RuntimeException e)
+            {
+                // If handling the response fails (e.g. an email cannot be sent), only abort the affected restock
+                restock.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    // This helper function handles the supplier's response to an attempt to restock an item
+    private void handleResponse(Restock restock, SupplierResponse response)
+    {
+        StockItem item = restock.item;
+        Supplier supplier = item.getSupplier();
+
+        // Handle supplier response
+        switch (response.errorCode)
+        {
+            case COMMUNICATION_ERROR:
+            {
+                // If the retry policy allows another try, try again after waiting for the delay it gives
+                long delay = retryPolicy.nextDelayMillis(restock.attempt, System.currentTimeMillis() -
+                        restock.startTime);
+                if(delay >= 0)
                 {
-                    // Send an email to the manager, and continue to run code in SUCCESS case
-                    emailSender.sendEmailToManager("YouStockIt failed to restock item \"" + item.getName() +
-                            "\" with id " + item.getId() + " since the supplier has run out of stock.");
+                    retries.increment();
+                    restock.attempt++;
+                    scheduler.schedule(() -> addToBatch(restock), delay, TimeUnit.MILLISECONDS);
+                    return;
                 }
-                case SUCCESS:
+                // If this was the final attempt, send an email to the supplier
+                else
                 {
-                    // Add the items given to us by the supplier to the stock
-                    int newQuantity = item.getQuantity() + response[0].actualQuantity;
-                    item.setQuantity(newQuantity);
-                    // Stop trying to communicate to the supplier
-                    retry = false;
-                } break;
+                    EmailEvent.sendToSupplier(emailSender, supplier, item.getId(), "YouStockIt system was unable " +
+                            "to connect to your stock server.");
+                }
+            } break;
+
+            case ITEM_NOT_FOUND:
+            {
+                // If item is not found in supplier's stock, set minimum order quantity to zero
+                item.setMinimumOrderQuantity(0);
+            } break;
+
+            case OUT_OF_STOCK:
+            {
+                // Send an email to the manager, and continue to run code in SUCCESS case
+                EmailEvent.sendToManager(emailSender, item.getId(), "YouStockIt failed to restock item \"" +
+                        item.getName() + "\" with id " + item.getId() + " since the supplier has run out of stock.");
+            }
+            case SUCCESS:
+            {
+                // Add the items given to us by the supplier to the stock
+                item.addQuantity(response.actualQuantity);
+            } break;
+        }
+
+        completeRestock(restock, response.errorCode);
+    }
+
+    // Helper function which reports that a restock is over
+    private void completeRestock(Restock restock, SupplierErrorCode errorCode)
+    {
+        // Stop tracking the restock before reporting it, so that any later shortfall starts a new restock
+        restocksInProgress.remove(restock.item.getId(), restock);
+
+        for(RestockListener listener : restockListeners)
+        {
+            listener.restockCompleted(restock.item, errorCode);
+        }
+        restock.result.complete(errorCode);
+    }
+
+    // Helper function which records an order in the flight recorder, if it is recording orders
+    private static void commitOrderEvent(OrderEvent event, StockItem item, int quantity, int itemsInBatch,
+                                         boolean succeeded, boolean restockStarted)
+    {
+        if(event.shouldCommit())
+        {
+            Supplier supplier = item.getSupplier();
+            event.itemId = item.getId();
+            event.supplierId = supplier == null ? -1 : supplier.id;
+            event.quantity = quantity;
+            event.itemsInBatch = itemsInBatch;
+            event.succeeded = succeeded;
+            event.restockStarted = restockStarted;
+            event.commit();
+        }
+    }
+
+    // Helper function which records the end of an attempt to restock an item in the flight recorder
+    private static void commitAttemptEvent(Restock restock, Supplier supplier, int itemsInCall, String errorCode)
+    {
+        RestockAttemptEvent event = restock.attemptEvent;
+        restock.attemptEvent = null;
+        if(event != null && event.shouldCommit())
+        {
+            event.itemId = restock.item.getId();
+            event.supplierId = supplier.id;
+            event.attempt = restock.attempt;
+            event.itemsInCall = itemsInCall;
+            event.errorCode = errorCode;
+            event.commit();
+        }
+    }
+
+    // Helper function which creates the executor used when none is given
+    private static ScheduledExecutorService createDefaultScheduler()
+    {
+        return Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(),
+                daemonThreadFactory("stock-orderer-restock"));
+    }
+
+    // Helper function which creates daemon threads, so that pending restocks do not stop the application from exiting
+    private static ThreadFactory daemonThreadFactory(String name)
+    {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Keeps track of an item being restocked
+    private static class Restock
+    {
+        final StockItem item;
+        final CompletableFuture<SupplierErrorCode> result;
+        // Time at which the restock started, used to limit the total time spent retrying
+        final long startTime;
+        // Time at which the restock started according to System.nanoTime(), used to measure how long it took
+        final long startNanos;
+        // Number of the attempt which is about to be made (only changed by the thread handling the restock)
+        int attempt;
+        // Flight recorder event for the attempt in progress (null between attempts)
+        RestockAttemptEvent attemptEvent;
+
+        Restock(StockItem item)
+        {
+            this.item = item;
+            this.result = new CompletableFuture<>();
+            this.startTime = System.currentTimeMillis();
+            this.startNanos = System.nanoTime();
+            this.attempt = 1;
+        }
+    }
+
+    // Collects the restocks for a single supplier, and sends them as one order once the batch is full or the batch
+    // window has passed since the first restock was added
+    private class SupplierBatch
+    {
+        private final Supplier supplier;
+        private List<Restock> pending;
+        private boolean sendScheduled;
+        // Adapter used to call the supplier's server if it is synchronous, and the server it was created for
+        private SupplierServerAsyncAdapter adapter;
+        private SupplierServer adaptedServer;
+        // Metrics about the calls made to the supplier's server (failures include calls which did not reach it)
+        final Counter calls;
+        final Counter callFailures;
+        final Counter callsHeldBack;
+        final Histogram callLatency;
+
+        SupplierBatch(Supplier supplier)
+        {
+            this.supplier = supplier;
+            this.pending = new ArrayList<>();
+
+            // Look up the metrics once, so that calling the supplier does not look them up by name
+            String supplierLabel = String.valueOf(supplier.id);
+            this.calls = metrics.counter("youstockit_supplier_calls_total", "supplier", supplierLabel);
+            this.callFailures = metrics.counter("youstockit_supplier_call_failures_total", "supplier", supplierLabel);
+            this.callsHeldBack = metrics.counter("youstockit_supplier_calls_held_back_total", "supplier",
+                    supplierLabel);
+            this.callLatency = metrics.histogram("youstockit_supplier_call_latency_nanoseconds", "supplier",
+                    supplierLabel);
+        }
+
+        synchronized void add(Restock restock)
+        {
+            pending.add(restock);
+
+            // Send the batch straight away once it is full, otherwise wait for more restocks until the window passes
+            if(pending.size() >= maxBatchSize)
+            {
+                scheduler.execute(this::send);
+                sendScheduled = true;
+            }
+            else if(!sendScheduled)
+            {
+                scheduler.schedule(this::send, batchWindowMillis, TimeUnit.MILLISECONDS);
+                sendScheduled = true;
+            }
+        }
+
+        void send()
+        {
+            List<Restock> restocks = takeBatch();
+            if(restocks.isEmpty())
+            {
+                return;
+            }
+
+            // While the supplier's circuit breaker is open, hold the restocks back instead of calling the server
+            CircuitBreaker circuitBreaker = circuitBreakerFor(supplier);
+            long breakerGeneration = circuitBreaker.allowRequest();
+            if(breakerGeneration != CircuitBreaker.NOT_ALLOWED)
+            {
+                sendOrder(this, restocks, circuitBreaker, breakerGeneration);
+            }
+            else
+            {
+                callsHeldBack.increment();
+                holdBack(restocks, circuitBreaker.getRetryDelayMillis());
+            }
+        }
+
+        // Returns an asynchronous view of the supplier's server
+        // Synchronous servers are called on the bounded executor, through an adapter which is only created again if
+        // the supplier's server is replaced
+        synchronized AsyncSupplierServer asyncServer()
+        {
+            SupplierServer server = supplier.supplierServer;
+            if(server instanceof AsyncSupplierServer)
+            {
+                return (AsyncSupplierServer) server;
+            }
+            if(adapter == null || adaptedServer != server)
+            {
+                adapter = new SupplierServerAsyncAdapter(server, supplierCallExecutor);
+                adaptedServer = server;
+            }
+            return adapter;
+        }
+
+        // Puts restocks back at the front of the batch, and tries to send them again after a delay
+        private synchronized void holdBack(List<Restock> restocks, long delay)
+        {
+            restocks.addAll(pending);
+            pending = restocks;
+            if(!sendScheduled)
+            {
+                scheduler.schedule(this::send, delay, TimeUnit.MILLISECONDS);
+                sendScheduled = true;
+            }
+        }
+
+        // Removes up to a full batch of restocks, scheduling another send if more restocks are left over
+        private synchronized List<Restock> takeBatch()
+        {
+            List<Restock> restocks;
+            if(pending.size() <= maxBatchSize)
+            {
+                restocks = pending;
+                pending = new ArrayList<>();
+                sendScheduled = false;
+            }
+            else
+            {
+                restocks = new ArrayList<>(pending.subList(0, maxBatchSize));
+                pending = new ArrayList<>(pending.subList(maxBatchSize, pending.size()));
+                scheduler.execute(this::send);
             }
+            return restocks;
         }
     }
 }
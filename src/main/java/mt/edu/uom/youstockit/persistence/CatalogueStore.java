@@ -0,0 +1,388 @@
+package mt.edu.uom.youstockit.persistence;
+
+import mt.edu.uom.youstockit.ordering.CatalogueListener;
+import mt.edu.uom.youstockit.ordering.ItemAttribute;
+import mt.edu.uom.youstockit.ordering.ProductCatalogue;
+import mt.edu.uom.youstockit.ordering.StockItem;
+import mt.edu.uom.youstockit.supplier.Supplier;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+// Keeps the contents of a product catalogue on disk, so that stock levels and sales survive a restart.
+// Every change to the catalogue and its items is appended to a write-ahead log. Every so often the log is compacted
+// into a snapshot: the closed log segments are replayed on top of the previous snapshot into a separate catalogue,
+// which is written as the new snapshot before the segments are deleted. Since snapshots are built from the log rather
+// than from the live catalogue, taking one never has to stop orders from being processed.
+// When a store is opened, the last snapshot is loaded into the catalogue and the log written after it is replayed.
+public class CatalogueStore implements CatalogueListener, Closeable
+{
+    // By default, the log is compacted into a snapshot every minute
+    public static final long DEFAULT_CHECKPOINT_INTERVAL_MILLIS = 60000;
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SNAPSHOT_TEMP_FILE = "snapshot.bin.tmp";
+    // Snapshot header: magic number ("YSSN"), version, last log segment included, and number of items
+    private static final int SNAPSHOT_MAGIC = 0x5953534E;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_SIZE = 4 + 4 + 8 + 4;
+
+    private final Path directory;
+    private final ProductCatalogue catalogue;
+    private final WriteAheadLog log;
+    // If true, changes other than sales wait until they are on disk before returning
+    private final boolean waitForSync;
+    private final ScheduledExecutorService checkpointScheduler;
+    // Last log segment included in the snapshot (guarded by this)
+    private long snapshotSegment;
+    // Set if a scheduled checkpoint fails, and thrown when the store is closed
+    private volatile IOException checkpointFailure;
+
+    private CatalogueStore(Path directory, ProductCatalogue catalogue, WriteAheadLog log, boolean waitForSync,
+                           long snapshotSegment, long checkpointIntervalMillis)
+    {
+        this.directory = directory;
+        this.catalogue = catalogue;
+        this.log = log;
+        this.waitForSync = waitForSync;
+        this.snapshotSegment = snapshotSegment;
+
+        if(checkpointIntervalMillis > 0)
+        {
+            checkpointScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "catalogue-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checkpointScheduler.scheduleWithFixedDelay(this::scheduledCheckpoint, checkpointIntervalMillis,
+                    checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        else
+        {
+            checkpointScheduler = null;
+        }
+    }
+
+    // Loads the catalogue stored in a directory into an empty catalogue, and starts recording its changes
+    // Suppliers are not stored, so "suppliers" is used to find the supplier with a given id (it may return null)
+    public static CatalogueStore open(Path directory, ProductCatalogue catalogue, IntFunction<Supplier> suppliers)
+            throws IOException
+    {
+        return open(directory, catalogue, suppliers, true, DEFAULT_CHECKPOINT_INTERVAL_MILLIS);
+    }
+
+    // If "waitForSync" is false, changes do not wait for the disk, and the changes made in the last moments before a
+    // crash may be lost. Sales never wait for the disk (see "itemSold"), whatever "waitForSync" is set to.
+    // If "checkpointIntervalMillis" is not positive, snapshots are only taken by "checkpoint".
+    public static CatalogueStore open(Path directory, ProductCatalogue catalogue, IntFunction<Supplier> suppliers,
+                                      boolean waitForSync, long checkpointIntervalMillis) throws IOException
+    {
+        Files.createDirectories(directory);
+
+        long snapshotSegment = readSnapshot(directory, catalogue, suppliers);
+        long lastSegment = snapshotSegment;
+        for(long segment : WriteAheadLog.listSegments(directory))
+        {
+            if(segment > snapshotSegment)
+            {
+                replaySegment(directory, segment, catalogue, suppliers);
+                lastSegment = segment;
+            }
+        }
+
+        // Never append to an existing segment, since it might end with a record cut short by a crash
+        WriteAheadLog log = new WriteAheadLog(directory, lastSegment + 1);
+        CatalogueStore store = new CatalogueStore(directory, catalogue, log, waitForSync, snapshotSegment,
+                checkpointIntervalMillis);
+        catalogue.setListener(store);
+        return store;
+    }
+
+    // Compacts the log written so far into a new snapshot
+    public synchronized void checkpoint() throws IOException
+    {
+        long lastClosed = log.roll();
+
+        // Rebuild the catalogue from the previous snapshot and the closed segments
+        // Note: suppliers are only needed for their ids, so placeholders are used instead of the real suppliers
+        ProductCatalogue compacted = new ProductCatalogue();
+        IntFunction<Supplier> placeholders = CatalogueStore::placeholderSupplier;
+        readSnapshot(directory, compacted, placeholders);
+        List<Long> segments = WriteAheadLog.listSegments(directory);
+        for(long segment : segments)
+        {
+            if(segment > snapshotSegment && segment <= lastClosed)
+            {
+                replaySegment(directory, segment, compacted, placeholders);
+            }
+        }
+
+        writeSnapshot(compacted, lastClosed);
+        snapshotSegment = lastClosed;
+
+        // The segments are now part of the snapshot, so they are not needed any more
+        for(long segment : segments)
+        {
+            if(segment <= lastClosed)
+            {
+                Files.deleteIfExists(WriteAheadLog.segmentPath(directory, segment));
+            }
+        }
+    }
+
+    // Waits until every change recorded so far is on disk
+    public void sync()
+    {
+        log.sync(log.getAppendedSequence());
+    }
+
+    // Stops recording changes, and writes the changes recorded so far to disk
+    @Override
+    public void close() throws IOException
+    {
+        catalogue.setListener(null);
+        if(checkpointScheduler != null)
+        {
+            checkpointScheduler.shutdownNow();
+        }
+        // Wait for a checkpoint in progress to finish before closing the log
+        synchronized(this)
+        {
+            log.close();
+        }
+
+        if(checkpointFailure != null)
+        {
+            throw checkpointFailure;
+        }
+    }
+
+    @Override
+    public void itemAdded(StockItem item)
+    {
+        written(log.appendItem(item));
+    }
+
+    @Override
+    public void itemRemoved(StockItem item)
+    {
+        written(log.append(RecordType.REMOVE, item.getId()));
+    }
+
+    // Only the attribute which changed is logged
+    @Override
+    public void itemChanged(StockItem item, ItemAttribute attribute)
+    {
+        written(log.appendAttribute(item, attribute));
+    }
+
+    // Setting the quantity is logged as the amount it added to the stock, rather than as the new quantity
+    // Note: sales are logged after their items were taken out of stock, so a sale made while the quantity was being set
+    // can be logged on either side of it. Since the log then only holds amounts added and taken away, replaying it in
+    // any order gives the same quantity.
+    @Override
+    public void quantitySet(StockItem item, int oldQuantity, int quantity)
+    {
+        written(log.append(RecordType.ADD_QUANTITY, item.getId(), quantity - oldQuantity));
+    }
+
+    @Override
+    public void quantityAdded(StockItem item, int amount)
+    {
+        written(log.append(RecordType.ADD_QUANTITY, item.getId(), amount));
+    }
+
+    // Sales are not waited for, so that orders never block on the disk. The log's writer thread forces every record
+    // appended while it was writing the previous batch in one go, so a sale is on disk as soon as the batch it joined
+    // is written. Callers who need to know that the sales made so far are on disk can call "sync".
+    @Override
+    public void itemSold(StockItem item, int quantity, long profitCents)
+    {
+        log.appendSale(item.getId(), quantity, profitCents);
+    }
+
+    // Helper function which waits for a record to reach the disk, if needed
+    private void written(long sequence)
+    {
+        if(waitForSync)
+        {
+            log.sync(sequence);
+        }
+    }
+
+    // Helper function run by the checkpoint scheduler
+    private void scheduledCheckpoint()
+    {
+        try
+        {
+            checkpoint();
+        }
+        catch (IOException e)
+        {
+            // Keep recording changes in the log, which is still complete, and report the failure on close
+            checkpointFailure = e;
+        }
+        catch (IllegalStateException e)
+        {
+            // The log was closed while the checkpoint was waiting for it
+        }
+    }
+
+    // Helper function which writes a snapshot of a catalogue, replacing the previous snapshot only once it is complete
+    private void writeSnapshot(ProductCatalogue compacted, long lastSegment) throws IOException
+    {
+        Path tempFile = directory.resolve(SNAPSHOT_TEMP_FILE);
+        List<StockItem> items = compacted.getAll();
+        CRC32 crc = new CRC32();
+        RecordCodec.ItemEncoder encoder = new RecordCodec.ItemEncoder();
+
+        try(FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(WriteAheadLog.DEFAULT_BUFFER_SIZE);
+            buffer.putInt(SNAPSHOT_MAGIC);
+            buffer.putInt(SNAPSHOT_VERSION);
+            buffer.putLong(lastSegment);
+            buffer.putInt(items.size());
+
+            for(StockItem item : items)
+            {
+                int payloadSize = encoder.prepare(item, null);
+                int frameSize = payloadSize + RecordCodec.FRAME_OVERHEAD;
+                if(buffer.remaining() < frameSize)
+                {
+                    writeFully(channel, buffer);
+                    if(buffer.capacity() < frameSize)
+                    {
+                        buffer = ByteBuffer.allocate(frameSize);
+                    }
+                }
+                int start = RecordCodec.beginFrame(buffer, RecordType.ADD, payloadSize);
+                encoder.encode(buffer);
+                RecordCodec.endFrame(buffer, start, crc);
+            }
+            writeFully(channel, buffer);
+            channel.force(true);
+        }
+
+        Files.move(tempFile, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        WriteAheadLog.syncDirectory(directory);
+    }
+
+    // Helper function which loads the snapshot in a directory (if there is one) into a catalogue
+    // Returns the last log segment included in the snapshot, or 0 if there is no snapshot
+    private static long readSnapshot(Path directory, ProductCatalogue target, IntFunction<Supplier> suppliers)
+            throws IOException
+    {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if(!Files.exists(file))
+        {
+            return 0;
+        }
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        if(data.remaining() < SNAPSHOT_HEADER_SIZE || data.getInt() != SNAPSHOT_MAGIC)
+        {
+            throw new IOException("Not a catalogue snapshot: " + file);
+        }
+        int version = data.getInt();
+        if(version != SNAPSHOT_VERSION)
+        {
+            throw new IOException("Unsupported catalogue snapshot version " + version + ": " + file);
+        }
+        long lastSegment = data.getLong();
+        int numItems = data.getInt();
+
+        int numRead = RecordCodec.readFrames(data, (type, payload) -> target.add(RecordCodec.decodeItem(payload,
+                suppliers)));
+        // Snapshots are replaced atomically, so a snapshot with missing items has been damaged
+        if(numRead != numItems)
+        {
+            throw new IOException("Catalogue snapshot is damaged, found " + numRead + " of " + numItems +
+                    " items: " + file);
+        }
+        return lastSegment;
+    }
+
+    // Helper function which applies the records in a log segment to a catalogue
+    // Note: replay stops at the first damaged record, which can only be the last one written before a crash
+    private static void replaySegment(Path directory, long segment, ProductCatalogue target,
+                                      IntFunction<Supplier> suppliers) throws IOException
+    {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(WriteAheadLog.segmentPath(directory, segment)));
+        RecordCodec.readFrames(data, (type, payload) -> apply(type, payload, target, suppliers));
+    }
+
+    // Helper function which applies a single log record to a catalogue
+    private static void apply(RecordType type, ByteBuffer payload, ProductCatalogue target,
+                              IntFunction<Supplier> suppliers)
+    {
+        if(type == RecordType.ADD)
+        {
+            target.add(RecordCodec.decodeItem(payload, suppliers));
+            return;
+        }
+
+        int id = payload.getInt();
+        if(type == RecordType.REMOVE)
+        {
+            target.remove(id);
+            return;
+        }
+
+        // Ignore changes to items which are not in the catalogue (e.g. a sale which raced with the item's removal)
+        StockItem item = target.getById(id);
+        if(item == null)
+        {
+            return;
+        }
+
+        switch (type)
+        {
+            case ATTRIBUTE:
+                RecordCodec.decodeAttribute(payload, item, suppliers);
+                break;
+
+            case ADD_QUANTITY:
+                item.addQuantity(payload.getInt());
+                break;
+
+            case SALE:
+            {
+                int quantity = payload.getInt();
+                item.addQuantity(-quantity);
+                item.restoreSales(quantity, payload.getLong());
+            } break;
+        }
+    }
+
+    private static Supplier placeholderSupplier(int id)
+    {
+        Supplier supplier = new Supplier();
+        supplier.id = id;
+        return supplier;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,626 @@
+package mt.edu.uom.youstockit.persistence;
+
+import mt.edu.uom.youstockit.ordering.StockItem;
+import mt.edu.uom.youstockit.supplier.Supplier;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Catalogue file which stores each field of the items in its own column, so that it can be read through a
+// MappedByteBuffer without building any objects. An item is identified by its row, and a hash index section maps item
+// ids to rows. Names and descriptions are stored once each in a string table, and the name and description columns
+// hold indices into the table. Categories are stored in a separate, much smaller, category table which is read when
+// the file is opened, together with the rows of each category, so finding the items in a category never goes through
+// the other rows.
+// File layout (all numbers big-endian):
+//   header:        magic, version, number of rows, number of strings, index capacity, number of categories,
+//                  followed by padding
+//   long columns:  buying price, selling price, number of times sold, profit (cents)
+//   int columns:   id, quantity, minimum order quantity, order amount, supplier id, name, category, description
+//   hash index:    row + 1 for each slot (0 marks an empty slot), using linear probing
+//   category rows: start of the rows of each category in the row list, followed by the start of the rows without a
+//                  category and the end of the list, followed by the row list (rows grouped by category)
+//   string table:  offset of each string (plus the end of the last one)
+//   category table: offset of each category (plus the end of the last one)
+//   followed by the UTF-8 bytes of the strings, and then those of the categories
+// Note: since a MappedByteBuffer holds at most 2 GB, files are limited to about 28 million items
+public class ColumnarCatalogueFile implements Closeable
+{
+    // Stored in the supplier column of items without a supplier, and in string columns for null strings
+    public static final int NO_SUPPLIER = Integer.MIN_VALUE;
+    public static final int NO_STRING = -1;
+    // Returned by "findCategory" for categories which no item in the file has
+    public static final int UNKNOWN_CATEGORY = -2;
+
+    // "YSCC"
+    private static final int MAGIC = 0x59534343;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int NUM_LONG_COLUMNS = 4;
+    private static final int NUM_INT_COLUMNS = 8;
+    // Each row takes at least this many bytes (its columns, its place in the category rows, and two index slots), which
+    // limits the number of rows which fit in a file
+    private static final int MAX_ROWS = (Integer.MAX_VALUE - HEADER_SIZE) /
+            (NUM_LONG_COLUMNS * 8 + NUM_INT_COLUMNS * 4 + 4 + 2 * 4);
+    // Size of the buffer files are written through
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    // Long columns
+    private static final int BUYING_PRICE = 0;
+    private static final int SELLING_PRICE = 1;
+    private static final int NUM_TIMES_SOLD = 2;
+    private static final int PROFIT = 3;
+    // Int columns
+    private static final int ID = 0;
+    private static final int QUANTITY = 1;
+    private static final int MINIMUM_ORDER_QUANTITY = 2;
+    private static final int ORDER_AMOUNT = 3;
+    private static final int SUPPLIER = 4;
+    private static final int NAME = 5;
+    private static final int CATEGORY = 6;
+    private static final int DESCRIPTION = 7;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final int numRows;
+    private final int numStrings;
+    private final int indexCapacity;
+    private final int numCategories;
+    // Offsets of the sections of the file
+    private final int intColumnsOffset;
+    private final int indexOffset;
+    private final int categoryRowStartsOffset;
+    private final int categoryRowsOffset;
+    private final int stringOffsetsOffset;
+    private final int categoryOffsetsOffset;
+    private final int stringDataOffset;
+    // Categories by index, and index of each category, read when the file is opened
+    private final String[] categories;
+    private final Map<String, Integer> categoryIndices;
+
+    private ColumnarCatalogueFile(FileChannel channel, MappedByteBuffer data) throws IOException
+    {
+        this.channel = channel;
+        this.data = data;
+
+        if(data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC)
+        {
+            throw new IOException("Not a columnar catalogue file");
+        }
+        if(data.getInt(4) != VERSION)
+        {
+            throw new IOException("Unsupported columnar catalogue version " + data.getInt(4));
+        }
+        numRows = data.getInt(8);
+        numStrings = data.getInt(12);
+        indexCapacity = data.getInt(16);
+        numCategories = data.getInt(20);
+
+        long stringDataStart = HEADER_SIZE + (long) NUM_LONG_COLUMNS * 8 * numRows +
+                (long) NUM_INT_COLUMNS * 4 * numRows + 4L * indexCapacity + 4L * (numCategories + 2) + 4L * numRows +
+                4L * (numStrings + 1) + 4L * (numCategories + 1);
+        if(numRows < 0 || numStrings < 0 || indexCapacity < 0 || numCategories < 0 ||
+                stringDataStart > data.capacity())
+        {
+            throw new IOException("Columnar catalogue file is cut short");
+        }
+        intColumnsOffset = HEADER_SIZE + NUM_LONG_COLUMNS * 8 * numRows;
+        indexOffset = intColumnsOffset + NUM_INT_COLUMNS * 4 * numRows;
+        categoryRowStartsOffset = indexOffset + 4 * indexCapacity;
+        categoryRowsOffset = categoryRowStartsOffset + 4 * (numCategories + 2);
+        stringOffsetsOffset = categoryRowsOffset + 4 * numRows;
+        categoryOffsetsOffset = stringOffsetsOffset + 4 * (numStrings + 1);
+        stringDataOffset = (int) stringDataStart;
+        if((long) stringDataOffset + stringOffset(numStrings) + categoryOffset(numCategories) > data.capacity())
+        {
+            throw new IOException("Columnar catalogue file is cut short");
+        }
+
+        // There are few categories, so they are read once here rather than every time they are looked for
+        categories = new String[numCategories];
+        categoryIndices = new HashMap<>();
+        int categoryDataOffset = stringDataOffset + stringOffset(numStrings);
+        for(int index = 0; index < numCategories; index++)
+        {
+            categories[index] = readString(categoryDataOffset + categoryOffset(index),
+                    categoryOffset(index + 1) - categoryOffset(index));
+            categoryIndices.put(categories[index], index);
+        }
+    }
+
+    // Opens a file by mapping it into memory, which reads nothing but the header
+    public static ColumnarCatalogueFile open(Path file) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try
+        {
+            return new ColumnarCatalogueFile(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Writes the given items to a file, replacing the file only once it is complete
+    // The file is written column by column through a small buffer, so it is never built in memory as a whole
+    // Throws an IllegalArgumentException if two of the items have the same id
+    public static void write(Path file, List<StockItem> items) throws IOException
+    {
+        int numRows = items.size();
+        if(numRows > MAX_ROWS)
+        {
+            throw new IOException("Too many items for a columnar catalogue file");
+        }
+
+        // Build the hash index from id to row + 1 first, which finds duplicate ids before anything is written
+        int[] ids = new int[numRows];
+        int indexCapacity = indexCapacityFor(numRows);
+        int[] index = new int[indexCapacity];
+        for(int row = 0; row < numRows; row++)
+        {
+            int id = items.get(row).getId();
+            ids[row] = id;
+            int slot = slotFor(id, indexCapacity);
+            while(index[slot] != 0)
+            {
+                if(ids[index[slot] - 1] == id)
+                {
+                    throw new IllegalArgumentException("Two items have the id " + id);
+                }
+                slot = (slot + 1) & (indexCapacity - 1);
+            }
+            index[slot] = row + 1;
+        }
+
+        // Build the string and category tables, storing each distinct string once
+        Map<String, Integer> stringIndices = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        Map<String, Integer> categoryIndices = new HashMap<>();
+        List<byte[]> categories = new ArrayList<>();
+        int[][] stringColumns = new int[3][numRows];
+        for(int row = 0; row < numRows; row++)
+        {
+            StockItem item = items.get(row);
+            stringColumns[0][row] = internString(item.getName(), stringIndices, strings);
+            stringColumns[1][row] = internString(item.getCategory(), categoryIndices, categories);
+            stringColumns[2][row] = internString(item.getDescription(), stringIndices, strings);
+        }
+        long stringBytes = 0;
+        for(byte[] string : strings)
+        {
+            stringBytes += string.length;
+        }
+        for(byte[] category : categories)
+        {
+            stringBytes += category.length;
+        }
+
+        // Group the rows by category, with the rows without a category last
+        int numCategories = categories.size();
+        int[] categoryRowStarts = new int[numCategories + 2];
+        for(int categoryIndex : stringColumns[1])
+        {
+            categoryRowStarts[(categoryIndex == NO_STRING ? numCategories : categoryIndex) + 1]++;
+        }
+        for(int group = 1; group < categoryRowStarts.length; group++)
+        {
+            categoryRowStarts[group] += categoryRowStarts[group - 1];
+        }
+        int[] categoryRows = new int[numRows];
+        int[] nextCategoryRow = Arrays.copyOf(categoryRowStarts, numCategories + 1);
+        for(int row = 0; row < numRows; row++)
+        {
+            int categoryIndex = stringColumns[1][row];
+            categoryRows[nextCategoryRow[categoryIndex == NO_STRING ? numCategories : categoryIndex]++] = row;
+        }
+
+        long size = HEADER_SIZE + (long) NUM_LONG_COLUMNS * 8 * numRows + (long) NUM_INT_COLUMNS * 4 * numRows +
+                4L * indexCapacity + 4L * (numCategories + 2) + 4L * numRows + 4L * (strings.size() + 1) +
+                4L * (numCategories + 1) + stringBytes;
+        if(size > Integer.MAX_VALUE)
+        {
+            throw new IOException("Too many items for a columnar catalogue file");
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            FileOutput output = new FileOutput(channel);
+            output.putInt(MAGIC);
+            output.putInt(VERSION);
+            output.putInt(numRows);
+            output.putInt(strings.size());
+            output.putInt(indexCapacity);
+            output.putInt(numCategories);
+            output.putZeros(HEADER_SIZE - 6 * 4);
+
+            for(StockItem item : items)
+            {
+                output.putLong(item.getBuyingPriceCents());
+            }
+            for(StockItem item : items)
+            {
+                output.putLong(item.getSellingPriceCents());
+            }
+            for(StockItem item : items)
+            {
+                output.putLong(item.getNumTimesSold());
+            }
+            for(StockItem item : items)
+            {
+                output.putLong(item.getProfitCents());
+            }
+
+            output.putInts(ids);
+            for(StockItem item : items)
+            {
+                output.putInt(item.getQuantity());
+            }
+            for(StockItem item : items)
+            {
+                output.putInt(item.getMinimumOrderQuantity());
+            }
+            for(StockItem item : items)
+            {
+                output.putInt(item.getOrderAmount());
+            }
+            for(StockItem item : items)
+            {
+                Supplier supplier = item.getSupplier();
+                output.putInt(supplier == null ? NO_SUPPLIER : supplier.id);
+            }
+            for(int[] column : stringColumns)
+            {
+                output.putInts(column);
+            }
+
+            output.putInts(index);
+            output.putInts(categoryRowStarts);
+            output.putInts(categoryRows);
+
+            // String and category tables
+            putStringOffsets(output, strings);
+            putStringOffsets(output, categories);
+            for(byte[] string : strings)
+            {
+                output.putBytes(string);
+            }
+            for(byte[] category : categories)
+            {
+                output.putBytes(category);
+            }
+
+            output.flush();
+            channel.force(true);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public int getNumRows()
+    {
+        return numRows;
+    }
+
+    // Returns the row holding the item with the given id, or -1 if there is no such item
+    public int findRow(int id)
+    {
+        if(numRows == 0)
+        {
+            return -1;
+        }
+
+        int slot = slotFor(id, indexCapacity);
+        while(true)
+        {
+            int rowPlusOne = data.getInt(indexOffset + 4 * slot);
+            if(rowPlusOne == 0)
+            {
+                return -1;
+            }
+            if(getId(rowPlusOne - 1) == id)
+            {
+                return rowPlusOne - 1;
+            }
+            slot = (slot + 1) & (indexCapacity - 1);
+        }
+    }
+
+    public int getId(int row)
+    {
+        return intColumn(ID, row);
+    }
+
+    public int getQuantity(int row)
+    {
+        return intColumn(QUANTITY, row);
+    }
+
+    public int getMinimumOrderQuantity(int row)
+    {
+        return intColumn(MINIMUM_ORDER_QUANTITY, row);
+    }
+
+    public int getOrderAmount(int row)
+    {
+        return intColumn(ORDER_AMOUNT, row);
+    }
+
+    // Returns the id of the supplier of an item, or NO_SUPPLIER
+    public int getSupplierId(int row)
+    {
+        return intColumn(SUPPLIER, row);
+    }
+
+    public long getBuyingPriceCents(int row)
+    {
+        return longColumn(BUYING_PRICE, row);
+    }
+
+    public long getSellingPriceCents(int row)
+    {
+        return longColumn(SELLING_PRICE, row);
+    }
+
+    public long getNumTimesSold(int row)
+    {
+        return longColumn(NUM_TIMES_SOLD, row);
+    }
+
+    public long getProfitCents(int row)
+    {
+        return longColumn(PROFIT, row);
+    }
+
+    public String getName(int row)
+    {
+        return getString(intColumn(NAME, row));
+    }
+
+    public String getDescription(int row)
+    {
+        return getString(intColumn(DESCRIPTION, row));
+    }
+
+    public String getCategory(int row)
+    {
+        int index = getCategoryIndex(row);
+        return index == NO_STRING ? null : categories[index];
+    }
+
+    // Returns the index of an item's category in the category table, or NO_STRING if it has no category
+    public int getCategoryIndex(int row)
+    {
+        return intColumn(CATEGORY, row);
+    }
+
+    // Returns the index of a category in the category table, NO_STRING for items without a category, or
+    // UNKNOWN_CATEGORY if no item in the file has the category
+    public int findCategory(String category)
+    {
+        if(category == null)
+        {
+            return NO_STRING;
+        }
+        Integer index = categoryIndices.get(category);
+        return index == null ? UNKNOWN_CATEGORY : index;
+    }
+
+    // Returns the number of rows of the items in a category (given by its index, or NO_STRING for items without a
+    // category)
+    public int getNumCategoryRows(int categoryIndex)
+    {
+        int group = categoryGroup(categoryIndex);
+        return categoryRowStart(group + 1) - categoryRowStart(group);
+    }
+
+    // Returns one of the rows of the items in a category, which are in ascending order
+    public int getCategoryRow(int categoryIndex, int i)
+    {
+        return data.getInt(categoryRowsOffset + 4 * (categoryRowStart(categoryGroup(categoryIndex)) + i));
+    }
+
+    public String getString(int index)
+    {
+        if(index == NO_STRING)
+        {
+            return null;
+        }
+
+        int start = stringOffset(index);
+        return readString(stringDataOffset + start, stringOffset(index + 1) - start);
+    }
+
+    // Closes the file
+    // Note: the mapping itself stays valid until it is garbage collected, so values can still be read
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    private int intColumn(int column, int row)
+    {
+        return data.getInt(intColumnsOffset + 4 * (column * numRows + row));
+    }
+
+    private long longColumn(int column, int row)
+    {
+        return data.getLong(HEADER_SIZE + 8 * (column * numRows + row));
+    }
+
+    private int stringOffset(int index)
+    {
+        return data.getInt(stringOffsetsOffset + 4 * index);
+    }
+
+    private int categoryOffset(int index)
+    {
+        return data.getInt(categoryOffsetsOffset + 4 * index);
+    }
+
+    private int categoryRowStart(int group)
+    {
+        return data.getInt(categoryRowStartsOffset + 4 * group);
+    }
+
+    // Helper function which returns the group of rows holding a category, where items without a category come after
+    // the categories in the table
+    private int categoryGroup(int categoryIndex)
+    {
+        return categoryIndex == NO_STRING ? numCategories : categoryIndex;
+    }
+
+    // Helper function which builds a string from the UTF-8 bytes at an offset of the file
+    private String readString(int offset, int length)
+    {
+        byte[] bytes = new byte[length];
+        for(int i = 0; i < length; i++)
+        {
+            bytes[i] = data.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Helper function which adds a string to the string table (if it is not there yet), returning its index
+    private static int internString(String value, Map<String, Integer> indices, List<byte[]> strings)
+    {
+        if(value == null)
+        {
+            return NO_STRING;
+        }
+
+        Integer index = indices.get(value);
+        if(index == null)
+        {
+            index = strings.size();
+            indices.put(value, index);
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return index;
+    }
+
+    // Helper function which writes the offset of each string in a table, followed by the end of the last string
+    private static void putStringOffsets(FileOutput output, List<byte[]> strings) throws IOException
+    {
+        int offset = 0;
+        for(byte[] string : strings)
+        {
+            output.putInt(offset);
+            offset += string.length;
+        }
+        output.putInt(offset);
+    }
+
+    // Helper function which returns a power of two with room for twice the number of rows
+    // Note: the number of rows is at most MAX_ROWS, so the capacity cannot overflow
+    private static int indexCapacityFor(int numRows)
+    {
+        int capacity = 1;
+        while(capacity < 2L * numRows)
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // Helper function which spreads the bits of an id so that sequential ids do not cluster together
+    private static int slotFor(int id, int capacity)
+    {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (capacity - 1);
+    }
+
+    // Writes numbers and bytes to a file through a small buffer, which is written out each time it fills up
+    private static final class FileOutput
+    {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        FileOutput(FileChannel channel)
+        {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        }
+
+        void putInt(int value) throws IOException
+        {
+            makeRoom(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException
+        {
+            makeRoom(8);
+            buffer.putLong(value);
+        }
+
+        void putInts(int[] values) throws IOException
+        {
+            for(int value : values)
+            {
+                putInt(value);
+            }
+        }
+
+        void putBytes(byte[] bytes) throws IOException
+        {
+            int offset = 0;
+            while(offset < bytes.length)
+            {
+                makeRoom(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void putZeros(int numBytes) throws IOException
+        {
+            for(int i = 0; i < numBytes; i++)
+            {
+                makeRoom(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        // Writes out whatever is left in the buffer
+        void flush() throws IOException
+        {
+            buffer.flip();
+            while(buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void makeRoom(int size) throws IOException
+        {
+            if(buffer.remaining() < size)
+            {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package mt.edu.uom.youstockit.persistence;
+
+import mt.edu.uom.youstockit.ordering.ItemAttribute;
+import mt.edu.uom.youstockit.ordering.StockItem;
+import mt.edu.uom.youstockit.supplier.Supplier;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+// Helper functions which read and write the records stored in the write-ahead log and in snapshots.
+// Each record is stored in a frame made of its length (int), its type (byte), its payload, and a CRC32 checksum of
+// the type and payload (int). A frame which is cut short or whose checksum does not match marks the end of the valid
+// records, e.g. after a crash in the middle of a write.
+final class RecordCodec
+{
+    // Bytes taken by a frame on top of its payload
+    static final int FRAME_OVERHEAD = 4 + 1 + 4;
+    // Length written for null strings
+    private static final int NULL_STRING = -1;
+    // Attributes by the code written for them in ATTRIBUTE records, and codes by attribute
+    // Note: the codes are written to disk, so existing codes must never change
+    private static final ItemAttribute[] ATTRIBUTES_BY_CODE = {null, ItemAttribute.NAME, ItemAttribute.CATEGORY,
+            ItemAttribute.DESCRIPTION, ItemAttribute.MINIMUM_ORDER_QUANTITY, ItemAttribute.ORDER_AMOUNT,
+            ItemAttribute.SUPPLIER, ItemAttribute.PRICES};
+    private static final byte[] ATTRIBUTE_CODES = new byte[ItemAttribute.values().length];
+
+    static
+    {
+        for(int code = 1; code < ATTRIBUTES_BY_CODE.length; code++)
+        {
+            ATTRIBUTE_CODES[ATTRIBUTES_BY_CODE[code].ordinal()] = (byte) code;
+        }
+    }
+
+    // Called for each valid record found by "readFrames"
+    interface RecordHandler
+    {
+        void apply(RecordType type, ByteBuffer payload);
+    }
+
+    private RecordCodec()
+    {
+    }
+
+    // Writes the header of a frame, returning the position at which the frame starts
+    static int beginFrame(ByteBuffer buffer, RecordType type, int payloadSize)
+    {
+        int start = buffer.position();
+        buffer.putInt(1 + payloadSize);
+        buffer.put(type.code);
+        return start;
+    }
+
+    // Writes the checksum of a frame once its payload has been written
+    // Note: the buffer must be backed by an array
+    static void endFrame(ByteBuffer buffer, int start, CRC32 crc)
+    {
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + start + 4, buffer.position() - start - 4);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    // Passes every valid record in the data to a handler, stopping at the first invalid frame
+    // Returns the number of records read
+    static int readFrames(ByteBuffer data, RecordHandler handler)
+    {
+        CRC32 crc = new CRC32();
+        int count = 0;
+        while(data.remaining() >= FRAME_OVERHEAD)
+        {
+            int start = data.position();
+            int length = data.getInt(start);
+            if(length < 1 || length > data.remaining() - FRAME_OVERHEAD + 1)
+            {
+                break;
+            }
+
+            // Check the checksum of the type and payload before reading them
+            ByteBuffer body = data.duplicate();
+            body.limit(start + 4 + length);
+            body.position(start + 4);
+            crc.reset();
+            crc.update(body);
+            if((int) crc.getValue() != data.getInt(start + 4 + length))
+            {
+                break;
+            }
+
+            RecordType type = RecordType.fromCode(data.get(start + 4));
+            if(type == null)
+            {
+                break;
+            }
+
+            body.position(start + 5);
+            handler.apply(type, body.slice());
+            data.position(start + 4 + length + 4);
+            count++;
+        }
+        return count;
+    }
+
+    // Decodes an item encoded with its quantity and sales
+    static StockItem decodeItem(ByteBuffer payload, IntFunction<Supplier> suppliers)
+    {
+        StockItem item = new StockItem(payload.getInt());
+        decodeAttributes(payload, item, suppliers);
+
+        int quantity = payload.getInt();
+        if(quantity >= 0)
+        {
+            item.setQuantity(quantity);
+        }
+        item.restoreSales(payload.getLong(), payload.getLong());
+        return item;
+    }
+
+    // Decodes the value of a single attribute into an existing item, once the id has been read
+    static void decodeAttribute(ByteBuffer payload, StockItem item, IntFunction<Supplier> suppliers)
+    {
+        byte code = payload.get();
+        if(code < 1 || code >= ATTRIBUTES_BY_CODE.length)
+        {
+            return;
+        }
+
+        switch (ATTRIBUTES_BY_CODE[code])
+        {
+            case NAME:
+                item.setName(getString(payload));
+                break;
+
+            case CATEGORY:
+                item.setCategory(getString(payload));
+                break;
+
+            case DESCRIPTION:
+                item.setDescription(getString(payload));
+                break;
+
+            case MINIMUM_ORDER_QUANTITY:
+                item.setMinimumOrderQuantity(payload.getInt());
+                break;
+
+            case ORDER_AMOUNT:
+                item.setOrderAmount(payload.getInt());
+                break;
+
+            case SUPPLIER:
+            {
+                boolean hasSupplier = payload.get() != 0;
+                int supplierId = payload.getInt();
+                item.setSupplier(hasSupplier ? suppliers.apply(supplierId) : null);
+            } break;
+
+            case PRICES:
+                item.setBuySellPricesCents(payload.getLong(), payload.getLong());
+                break;
+        }
+    }
+
+    // Helper function which decodes the attributes of an item into an item, once the id has been read
+    // Note: values which were never set are left unset, since the setters reject them
+    private static void decodeAttributes(ByteBuffer payload, StockItem item, IntFunction<Supplier> suppliers)
+    {
+        String name = getString(payload);
+        String category = getString(payload);
+        String description = getString(payload);
+        if(name != null)
+        {
+            item.setName(name);
+        }
+        item.setCategory(category);
+        if(description != null)
+        {
+            item.setDescription(description);
+        }
+        item.setMinimumOrderQuantity(payload.getInt());
+        item.setOrderAmount(payload.getInt());
+        boolean hasSupplier = payload.get() != 0;
+        int supplierId = payload.getInt();
+        item.setSupplier(hasSupplier ? suppliers.apply(supplierId) : null);
+        item.setBuySellPricesCents(payload.getLong(), payload.getLong());
+    }
+
+    // Helper function which returns the number of bytes taken by a string, without encoding it
+    private static int stringSize(String value)
+    {
+        return 4 + (value == null ? 0 : utf8Size(value));
+    }
+
+    // Helper function which writes a string as its length in bytes followed by its UTF-8 bytes
+    private static void putString(ByteBuffer buffer, String value)
+    {
+        if(value == null)
+        {
+            buffer.putInt(NULL_STRING);
+        }
+        else
+        {
+            // The length is filled in once the string has been written, so that it is only gone through once
+            int start = buffer.position();
+            buffer.putInt(0);
+            putUtf8(buffer, value);
+            buffer.putInt(start, buffer.position() - start - 4);
+        }
+    }
+
+    // Helper function which returns the number of bytes a string takes in UTF-8
+    // Note: unpaired surrogates take one byte, since they are written as '?' like String.getBytes does
+    private static int utf8Size(String value)
+    {
+        int size = 0;
+        for(int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if(c < 0x80)
+            {
+                size += 1;
+            }
+            else if(c < 0x800)
+            {
+                size += 2;
+            }
+            else if(isSurrogatePair(value, i))
+            {
+                size += 4;
+                i++;
+            }
+            else if(Character.isSurrogate(c))
+            {
+                size += 1;
+            }
+            else
+            {
+                size += 3;
+            }
+        }
+        return size;
+    }
+
+    // Helper function which writes the UTF-8 bytes of a string straight into a buffer, giving the same bytes as
+    // String.getBytes without copying them into an array first
+    private static void putUtf8(ByteBuffer buffer, String value)
+    {
+        for(int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if(c < 0x80)
+            {
+                buffer.put((byte) c);
+            }
+            else if(c < 0x800)
+            {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+            else if(isSurrogatePair(value, i))
+            {
+                int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                i++;
+            }
+            else if(Character.isSurrogate(c))
+            {
+                buffer.put((byte) '?');
+            }
+            else
+            {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static boolean isSurrogatePair(String value, int index)
+    {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length() &&
+                Character.isLowSurrogate(value.charAt(index + 1));
+    }
+
+    private static String getString(ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+        if(length == NULL_STRING)
+        {
+            return null;
+        }
+
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    // Encodes records about an item straight into a buffer (e.g. the buffer of the write-ahead log), so that the
+    // payload is never built in an array of its own first.
+    // "prepare" reads the values of the item which are written with a variable size and returns the size of the
+    // payload, and "encode" then writes the payload using those values, so that it has the size which was returned
+    // even if the item is changed in between.
+    // Note: an encoder is not thread-safe, and only holds on to the item until it is encoded
+    static final class ItemEncoder
+    {
+        private StockItem item;
+        // Attribute being encoded, or null if the whole item is being encoded
+        private ItemAttribute attribute;
+        private String name;
+        private String category;
+        private String description;
+
+        // Prepares to encode the whole of an item (id, attributes, quantity and sales), or only one of its
+        // attributes (id, attribute code and value) if "attribute" is not null. Returns the size of the payload.
+        int prepare(StockItem item, ItemAttribute attribute)
+        {
+            this.item = item;
+            this.attribute = attribute;
+            name = attribute == null || attribute == ItemAttribute.NAME ? item.getName() : null;
+            category = attribute == null || attribute == ItemAttribute.CATEGORY ? item.getCategory() : null;
+            description = attribute == null || attribute == ItemAttribute.DESCRIPTION ? item.getDescription() : null;
+
+            if(attribute == null)
+            {
+                return 4 + stringSize(name) + stringSize(category) + stringSize(description) + 4 + 4 + 1 + 4 + 8 +
+                        8 + 4 + 8 + 8;
+            }
+
+            int valueSize;
+            switch (attribute)
+            {
+                case NAME:
+                    valueSize = stringSize(name);
+                    break;
+
+                case CATEGORY:
+                    valueSize = stringSize(category);
+                    break;
+
+                case DESCRIPTION:
+                    valueSize = stringSize(description);
+                    break;
+
+                case SUPPLIER:
+                    valueSize = 1 + 4;
+                    break;
+
+                case PRICES:
+                    valueSize = 8 + 8;
+                    break;
+
+                default:
+                    valueSize = 4;
+            }
+            return 4 + 1 + valueSize;
+        }
+
+        // Writes the payload which was prepared last
+        void encode(ByteBuffer buffer)
+        {
+            buffer.putInt(item.getId());
+            if(attribute == null)
+            {
+                putString(buffer, name);
+                putString(buffer, category);
+                putString(buffer, description);
+                buffer.putInt(item.getMinimumOrderQuantity());
+                buffer.putInt(item.getOrderAmount());
+                putSupplier(buffer, item.getSupplier());
+                buffer.putLong(item.getBuyingPriceCents());
+                buffer.putLong(item.getSellingPriceCents());
+                buffer.putInt(item.getQuantity());
+                buffer.putLong(item.getNumTimesSold());
+                buffer.putLong(item.getProfitCents());
+            }
+            else
+            {
+                buffer.put(ATTRIBUTE_CODES[attribute.ordinal()]);
+                switch (attribute)
+                {
+                    case NAME:
+                        putString(buffer, name);
+                        break;
+
+                    case CATEGORY:
+                        putString(buffer, category);
+                        break;
+
+                    case DESCRIPTION:
+                        putString(buffer, description);
+                        break;
+
+                    case MINIMUM_ORDER_QUANTITY:
+                        buffer.putInt(item.getMinimumOrderQuantity());
+                        break;
+
+                    case ORDER_AMOUNT:
+                        buffer.putInt(item.getOrderAmount());
+                        break;
+
+                    case SUPPLIER:
+                        putSupplier(buffer, item.getSupplier());
+                        break;
+
+                    case PRICES:
+                        buffer.putLong(item.getBuyingPriceCents());
+                        buffer.putLong(item.getSellingPriceCents());
+                        break;
+                }
+            }
+
+            item = null;
+            name = null;
+            category = null;
+            description = null;
+        }
+
+        private static void putSupplier(ByteBuffer buffer, Supplier supplier)
+        {
+            buffer.put((byte) (supplier == null ? 0 : 1));
+            buffer.putInt(supplier == null ? 0 : supplier.id);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package mt.edu.uom.youstockit.persistence;
+
+// Types of records stored in the write-ahead log and in snapshots
+// Note: the codes are written to disk, so existing codes must never change
+public enum RecordType
+{
+    // Full image of an item, including its quantity and sales
+    ADD(1),
+    REMOVE(2),
+    // A single attribute of an item which was changed, without the attributes which stayed the same
+    ATTRIBUTE(3),
+    // Items added to (or taken away from) the stock of an item, e.g. by a restock or by setting the quantity
+    ADD_QUANTITY(4),
+    // Items sold, together with the profit made from them
+    SALE(5);
+
+    private static final RecordType[] BY_CODE = new RecordType[6];
+
+    static
+    {
+        for(RecordType type : values())
+        {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    public final byte code;
+
+    RecordType(int code)
+    {
+        this.code = (byte) code;
+    }
+
+    // Returns the record type with the given code, or null if the code is unknown
+    public static RecordType fromCode(byte code)
+    {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,412 @@
+package mt.edu.uom.youstockit.persistence;
+
+import mt.edu.uom.youstockit.ordering.ItemAttribute;
+import mt.edu.uom.youstockit.ordering.StockItem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Append-only log of changes, split into numbered segment files (wal-<segment>.log) in a directory.
+// Records are appended to an in-memory buffer, and a background writer thread writes them to disk. While the writer
+// is writing (and forcing) one buffer to disk, new records go into the other buffer, so each write and each
+// FileChannel.force covers every record appended since the previous one. This way, many threads appending at the
+// same time share the cost of forcing the log to disk (group commit).
+// Each record is given a sequence number, and callers who need a record to be durable wait for it using "sync".
+public class WriteAheadLog implements Closeable
+{
+    // By default, each of the two buffers holds 1 MB of records, and a segment is closed once it reaches 64 MB
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 64L << 20;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    // Used to compute checksums and to encode items while appending (guarded by this)
+    private final CRC32 crc;
+    private final RecordCodec.ItemEncoder encoder;
+    private final Thread writer;
+
+    // Buffer records are appended to, and buffer being written to disk by the writer thread
+    private ByteBuffer active;
+    private ByteBuffer flushing;
+    // Segment being written to, and the channel writing it (only used by the writer thread once it is started)
+    private long segment;
+    private FileChannel channel;
+    private long segmentBytes;
+    // Sequence numbers of the last record appended and of the last record forced to disk
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean rollRequested;
+    private boolean closed;
+    // Set if the writer thread fails to write to disk, after which the log cannot be used any more
+    private IOException failure;
+
+    // Creates a log which starts writing to the given segment (which must not exist yet)
+    public WriteAheadLog(Path directory, long firstSegment) throws IOException
+    {
+        this(directory, firstSegment, DEFAULT_BUFFER_SIZE, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    public WriteAheadLog(Path directory, long firstSegment, int bufferSize, long maxSegmentBytes) throws IOException
+    {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.crc = new CRC32();
+        this.encoder = new RecordCodec.ItemEncoder();
+        this.active = ByteBuffer.allocate(bufferSize);
+        this.flushing = ByteBuffer.allocate(bufferSize);
+        this.segment = firstSegment;
+        this.channel = openSegment(firstSegment);
+
+        writer = new Thread(this::writeLoop, "write-ahead-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Appends a record holding the whole of an item, including its quantity and sales, returning its sequence number
+    public synchronized long appendItem(StockItem item)
+    {
+        return appendEncoded(RecordType.ADD, item, null);
+    }
+
+    // Appends a record holding the new value of one attribute of an item
+    public synchronized long appendAttribute(StockItem item, ItemAttribute attribute)
+    {
+        return appendEncoded(RecordType.ATTRIBUTE, item, attribute);
+    }
+
+    // Appends a record made of an item id
+    public synchronized long append(RecordType type, int id)
+    {
+        int start = RecordCodec.beginFrame(reserve(4), type, 4);
+        active.putInt(id);
+        return finishAppend(start);
+    }
+
+    // Appends a record made of an item id and a number (e.g. a quantity)
+    public synchronized long append(RecordType type, int id, int value)
+    {
+        int start = RecordCodec.beginFrame(reserve(8), type, 8);
+        active.putInt(id);
+        active.putInt(value);
+        return finishAppend(start);
+    }
+
+    public synchronized long appendSale(int id, int quantity, long profitCents)
+    {
+        int start = RecordCodec.beginFrame(reserve(16), RecordType.SALE, 16);
+        active.putInt(id);
+        active.putInt(quantity);
+        active.putLong(profitCents);
+        return finishAppend(start);
+    }
+
+    // Returns the sequence number of the last record appended
+    public synchronized long getAppendedSequence()
+    {
+        return appendedSequence;
+    }
+
+    // Waits until the record with the given sequence number (and every record before it) has been forced to disk
+    public synchronized void sync(long sequence)
+    {
+        boolean interrupted = false;
+        while(durableSequence < sequence && failure == null)
+        {
+            interrupted |= awaitChange();
+        }
+        restoreInterrupt(interrupted);
+        checkFailure();
+    }
+
+    // Closes the current segment and starts writing to the next one, once the records appended so far are written
+    // Returns the number of the segment which was closed, so that it (and every segment before it) can be compacted
+    public synchronized long roll()
+    {
+        checkOpen();
+        long nextSegment = segment + 1;
+        rollRequested = true;
+        notifyAll();
+        boolean interrupted = false;
+        while(segment < nextSegment && failure == null && !closed)
+        {
+            interrupted |= awaitChange();
+        }
+        restoreInterrupt(interrupted);
+        // The log may have been closed (or have failed) before the writer got to the request
+        if(segment < nextSegment)
+        {
+            checkOpen();
+        }
+        return nextSegment - 1;
+    }
+
+    // Writes every record appended so far to disk and stops the writer thread
+    @Override
+    public void close() throws IOException
+    {
+        synchronized(this)
+        {
+            if(closed)
+            {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+
+        boolean interrupted = false;
+        while(writer.isAlive())
+        {
+            try
+            {
+                writer.join();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        restoreInterrupt(interrupted);
+
+        channel.close();
+        synchronized(this)
+        {
+            if(failure != null)
+            {
+                throw failure;
+            }
+        }
+    }
+
+    // Returns the numbers of the segments in a directory, in ascending order
+    public static List<Long> listSegments(Path directory) throws IOException
+    {
+        List<Long> segments = new ArrayList<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX))
+        {
+            for(Path file : files)
+            {
+                String name = file.getFileName().toString();
+                try
+                {
+                    segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                }
+                catch (NumberFormatException e)
+                {
+                    // Not a segment written by this class
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    public static Path segmentPath(Path directory, long segment)
+    {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    // Forces a directory to disk, so that files created in (or removed from) it are not lost after a crash
+    static void syncDirectory(Path directory)
+    {
+        try(FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
+        catch (IOException e)
+        {
+            // Some platforms (e.g. Windows) do not allow directories to be opened, in which case this is not needed
+        }
+    }
+
+    // Helper function which makes room for a record in the active buffer, returning the buffer
+    private ByteBuffer reserve(int payloadSize)
+    {
+        checkOpen();
+        int frameSize = payloadSize + RecordCodec.FRAME_OVERHEAD;
+        boolean interrupted = false;
+        while(active.remaining() < frameSize)
+        {
+            // Records larger than a buffer are given a buffer of their own
+            if(active.position() == 0)
+            {
+                active = ByteBuffer.allocate(frameSize);
+                break;
+            }
+
+            // Otherwise wait for the writer to swap the buffers
+            notifyAll();
+            interrupted |= awaitChange();
+            checkOpen();
+        }
+        restoreInterrupt(interrupted);
+        return active;
+    }
+
+    // Helper function which appends a record about an item, encoding it straight into the active buffer
+    private long appendEncoded(RecordType type, StockItem item, ItemAttribute attribute)
+    {
+        // Making room may wait for the writer, which lets other threads use the encoder, so the item is prepared
+        // again until there is room for it
+        int payloadSize = encoder.prepare(item, attribute);
+        while(active.remaining() < payloadSize + RecordCodec.FRAME_OVERHEAD)
+        {
+            reserve(payloadSize);
+            payloadSize = encoder.prepare(item, attribute);
+        }
+        checkOpen();
+
+        int start = RecordCodec.beginFrame(active, type, payloadSize);
+        encoder.encode(active);
+        return finishAppend(start);
+    }
+
+    // Helper function which completes the record being appended and wakes up the writer
+    private long finishAppend(int start)
+    {
+        RecordCodec.endFrame(active, start, crc);
+        appendedSequence++;
+        notifyAll();
+        return appendedSequence;
+    }
+
+    // Loop run by the writer thread, which writes a buffer to disk each time records are appended
+    private void writeLoop()
+    {
+        while(true)
+        {
+            ByteBuffer batch;
+            long batchSequence;
+            boolean roll;
+            synchronized(this)
+            {
+                while(active.position() == 0 && !rollRequested && !closed)
+                {
+                    awaitChange();
+                }
+                if(closed && active.position() == 0)
+                {
+                    return;
+                }
+
+                // Swap the buffers, so that records can be appended while this batch is written
+                batch = active;
+                active = flushing;
+                flushing = batch;
+                batchSequence = appendedSequence;
+                roll = rollRequested;
+                rollRequested = false;
+                notifyAll();
+            }
+
+            long newSegment = -1;
+            try
+            {
+                batch.flip();
+                if(batch.hasRemaining())
+                {
+                    segmentBytes += batch.remaining();
+                    while(batch.hasRemaining())
+                    {
+                        channel.write(batch);
+                    }
+                    // A single force makes every record in the batch durable
+                    channel.force(false);
+                }
+                batch.clear();
+
+                if(roll || segmentBytes >= maxSegmentBytes)
+                {
+                    channel.close();
+                    newSegment = segment + 1;
+                    channel = openSegment(newSegment);
+                    segmentBytes = 0;
+                }
+            }
+            catch (IOException e)
+            {
+                synchronized(this)
+                {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized(this)
+            {
+                durableSequence = batchSequence;
+                if(newSegment >= 0)
+                {
+                    segment = newSegment;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Helper function which creates a new segment file
+    private FileChannel openSegment(long number) throws IOException
+    {
+        FileChannel newChannel = FileChannel.open(segmentPath(directory, number), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        syncDirectory(directory);
+        return newChannel;
+    }
+
+    // Helper function which waits to be notified of a change (must be called while holding the lock)
+    // Returns true if the thread was interrupted while waiting
+    // Note: interrupts are remembered rather than thrown, since giving up half way through an append is not possible
+    private boolean awaitChange()
+    {
+        try
+        {
+            wait();
+            return false;
+        }
+        catch (InterruptedException e)
+        {
+            return true;
+        }
+    }
+
+    private static void restoreInterrupt(boolean interrupted)
+    {
+        if(interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkOpen()
+    {
+        checkFailure();
+        if(closed)
+        {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+    }
+
+    private void checkFailure()
+    {
+        if(failure != null)
+        {
+            throw new UncheckedIOException("Write-ahead log could not be written", failure);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package mt.edu.uom.youstockit.services.email;
+
+import mt.edu.uom.youstockit.supplier.Supplier;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Email sender which queues emails and sends them on a background thread, so that orders never wait for a slow mail
+// server. Emails to the same recipient which are queued within a short window of each other are sent as a single
+// digest email, so that a burst of restock failures does not flood the manager's (or a supplier's) inbox.
+// The queue is bounded: once it is full, new emails are handled according to the overflow policy.
+// Note: emails to suppliers are grouped by Supplier object, and are sent through the wrapped email sender
+public class AsyncEmailSender implements EmailSender
+{
+    // By default, up to 1000 emails can wait to be sent, and emails queued within a second of each other are merged
+    // into digests of at most 100 messages
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    public static final long DEFAULT_DIGEST_WINDOW_MILLIS = 1000;
+    public static final int DEFAULT_MAX_DIGEST_SIZE = 100;
+
+    // How often the background thread checks whether it was shut down while waiting for emails
+    private static final long SHUTDOWN_CHECK_MILLIS = 100;
+
+    private final EmailSender emailSender;
+    private final BlockingQueue<Email> queue;
+    private final long digestWindowMillis;
+    private final int maxDigestSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread senderThread;
+    private volatile boolean shutdown;
+
+    // Statistics about the emails handled by this sender
+    private final LongAdder numQueued;
+    private final LongAdder numDropped;
+    private final LongAdder numSent;
+    private final LongAdder numFailed;
+
+    public AsyncEmailSender(EmailSender emailSender)
+    {
+        this(emailSender, DEFAULT_QUEUE_CAPACITY, DEFAULT_DIGEST_WINDOW_MILLIS, DEFAULT_MAX_DIGEST_SIZE,
+                OverflowPolicy.BLOCK);
+    }
+
+    public AsyncEmailSender(EmailSender emailSender, int queueCapacity, long digestWindowMillis, int maxDigestSize,
+                            OverflowPolicy overflowPolicy)
+    {
+        if(queueCapacity < 1 || digestWindowMillis < 0 || maxDigestSize < 1)
+        {
+            throw new IllegalArgumentException("Invalid email sender settings");
+        }
+
+        this.emailSender = emailSender;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.digestWindowMillis = digestWindowMillis;
+        this.maxDigestSize = maxDigestSize;
+        this.overflowPolicy = overflowPolicy;
+        this.numQueued = new LongAdder();
+        this.numDropped = new LongAdder();
+        this.numSent = new LongAdder();
+        this.numFailed = new LongAdder();
+
+        // The thread is a daemon so that emails which are still queued do not stop the application from exiting
+        this.senderThread = new Thread(this::run, "async-email-sender");
+        this.senderThread.setDaemon(true);
+        this.senderThread.start();
+    }
+
+    @Override
+    public void sendEmailToSupplier(Supplier supplier, String message)
+    {
+        enqueue(new Email(supplier, message));
+    }
+
+    @Override
+    public void sendEmailToManager(String message)
+    {
+        enqueue(new Email(null, message));
+    }
+
+    // Stops the background thread once every queued email has been sent
+    // Emails sent after this are sent straight away on the caller's thread
+    public void shutdown()
+    {
+        shutdown = true;
+    }
+
+    // Waits for the background thread to send the queued emails after a shutdown
+    // Returns true if it finished before the timeout
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        senderThread.join(Math.max(1, unit.toMillis(timeout)));
+        return !senderThread.isAlive();
+    }
+
+    // Number of emails waiting to be sent
+    public int getQueueSize()
+    {
+        return queue.size();
+    }
+
+    public long getNumQueued()
+    {
+        return numQueued.sum();
+    }
+
+    // Number of emails dropped because the queue was full
+    public long getNumDropped()
+    {
+        return numDropped.sum();
+    }
+
+    // Number of emails sent through the wrapped email sender (a digest counts as one email)
+    public long getNumSent()
+    {
+        return numSent.sum();
+    }
+
+    // Number of emails which the wrapped email sender failed to send
+    public long getNumFailed()
+    {
+        return numFailed.sum();
+    }
+
+    // Helper function which adds an email to the queue, applying the overflow policy if the queue is full
+    private void enqueue(Email email)
+    {
+        if(shutdown)
+        {
+            send(email.supplier, email.message);
+            return;
+        }
+
+        if(!queue.offer(email))
+        {
+            switch (overflowPolicy)
+            {
+                case BLOCK:
+                {
+                    try
+                    {
+                        queue.put(email);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        // Keep the interrupt for the caller, and give up on the email
+                        Thread.currentThread().interrupt();
+                        numDropped.increment();
+                        return;
+                    }
+                } break;
+
+                case DROP_NEWEST:
+                {
+                    numDropped.increment();
+                    return;
+                }
+
+                case DROP_OLDEST:
+                {
+                    while(!queue.offer(email))
+                    {
+                        if(queue.poll() != null)
+                        {
+                            numDropped.increment();
+                        }
+                    }
+                } break;
+
+                case SEND_ON_CALLER:
+                {
+                    send(email.supplier, email.message);
+                    return;
+                }
+            }
+        }
+        numQueued.increment();
+
+        // If the background thread was shut down while the email was being queued, it may have already finished, so
+        // send anything left in the queue from here instead
+        if(shutdown && !senderThread.isAlive())
+        {
+            List<Email> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            sendDigests(remaining);
+        }
+    }
+
+    // Helper function run by the background thread, which sends the queued emails until it is shut down
+    private void run()
+    {
+        List<Email> batch = new ArrayList<>();
+        while(!shutdown || !queue.isEmpty())
+        {
+            try
+            {
+                Email first = queue.poll(SHUTDOWN_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                if(first == null)
+                {
+                    continue;
+                }
+                batch.add(first);
+
+                // Wait for more emails until the window since the first one has passed, or the batch is full
+                // Note: after a shutdown, the emails which are already queued are sent without waiting
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(digestWindowMillis);
+                while(batch.size() < maxDigestSize && !shutdown)
+                {
+                    long remaining = deadline - System.nanoTime();
+                    if(remaining <= 0)
+                    {
+                        break;
+                    }
+                    Email email = queue.poll(Math.min(remaining,
+                            TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_CHECK_MILLIS)), TimeUnit.NANOSECONDS);
+                    if(email != null)
+                    {
+                        batch.add(email);
+                    }
+                }
+                queue.drainTo(batch, maxDigestSize - batch.size());
+            }
+            catch (InterruptedException e)
+            {
+                // Nobody else interrupts this thread, so treat it as a shutdown
+                shutdown = true;
+            }
+
+            sendDigests(batch);
+            batch.clear();
+        }
+    }
+
+    // Helper function which groups emails by recipient, and sends each recipient's emails as one email
+    private void sendDigests(List<Email> emails)
+    {
+        List<String> managerMessages = new ArrayList<>();
+        // Emails to each supplier, in the order the suppliers were first emailed
+        Map<Supplier, List<String>> supplierMessages = new LinkedHashMap<>();
+        for(Email email : emails)
+        {
+            if(email.supplier == null)
+            {
+                managerMessages.add(email.message);
+            }
+            else
+            {
+                supplierMessages.computeIfAbsent(email.supplier, supplier -> new ArrayList<>()).add(email.message);
+            }
+        }
+
+        if(!managerMessages.isEmpty())
+        {
+            send(null, digest(managerMessages));
+        }
+        for(Map.Entry<Supplier, List<String>> entry : supplierMessages.entrySet())
+        {
+            send(entry.getKey(), digest(entry.getValue()));
+        }
+    }
+
+    // Helper function which sends an email through the wrapped email sender (to the manager if supplier is null)
+    private void send(Supplier supplier, String message)
+    {
+        try
+        {
+            if(supplier == null)
+            {
+                emailSender.sendEmailToManager(message);
+            }
+            else
+            {
+                emailSender.sendEmailToSupplier(supplier, message);
+            }
+            numSent.increment();
+        }
+        catch (RuntimeException e)
+        {
+            // A failed email must not stop the emails after it from being sent
+            numFailed.increment();
+        }
+    }
+
+    // Helper function which merges several messages into the body of a single email
+    // A single message is sent as it is
+    static String digest(List<String> messages)
+    {
+        if(messages.size() == 1)
+        {
+            return messages.get(0);
+        }
+
+        StringBuilder digest = new StringBuilder();
+        digest.append("YouStockIt has ").append(messages.size()).append(" notifications for you:\n");
+        for(String message : messages)
+        {
+            digest.append("\n- ").append(message);
+        }
+        return digest.toString();
+    }
+
+    // Email waiting to be sent, to a supplier or to the manager (if supplier is null)
+    private static class Email
+    {
+        final Supplier supplier;
+        final String message;
+
+        Email(Supplier supplier, String message)
+        {
+            this.supplier = supplier;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package mt.edu.uom.youstockit.services.email;
+
+// What an AsyncEmailSender does with an email when its queue is full
+public enum OverflowPolicy
+{
+    // Wait until there is room in the queue (slows down the caller, but never loses an email)
+    BLOCK,
+    // Drop the new email
+    DROP_NEWEST,
+    // Drop the oldest email waiting in the queue to make room for the new one
+    DROP_OLDEST,
+    // Send the new email straight away on the caller's thread, as if there were no queue
+    SEND_ON_CALLER
+}
@@ -0,0 +1,30 @@
+package mt.edu.uom.youstockit.services.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Count of events which only goes up (e.g. orders placed)
+// Note: a LongAdder is used so that threads counting at the same time do not contend on a single value
+public final class Counter
+{
+    private final LongAdder count;
+
+    Counter()
+    {
+        count = new LongAdder();
+    }
+
+    public void increment()
+    {
+        count.increment();
+    }
+
+    public void add(long amount)
+    {
+        count.add(amount);
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+}
@@ -0,0 +1,8 @@
+package mt.edu.uom.youstockit.services.metrics;
+
+// Value which can go up and down (e.g. the number of items in a catalogue), read whenever a snapshot is taken
+// Note: gauges are called by the thread taking the snapshot, so they must be cheap and thread-safe
+public interface Gauge
+{
+    long getValue();
+}
@@ -0,0 +1,93 @@
+package mt.edu.uom.youstockit.services.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Distribution of recorded values (e.g. latencies in nanoseconds), from which percentiles can be read.
+// Values are counted in buckets whose width grows with the value, like HdrHistogram: every power of two is split into
+// 8 buckets, so a percentile is never more than 12.5% away from the true value, whether values are 100ns or 10s.
+// This needs less than 500 buckets for all non-negative longs, and recording a value only increments one bucket
+// without locking.
+public final class Histogram
+{
+    // Number of bits of a value (after its highest bit) used to pick its bucket within its power of two
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int NUM_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    Histogram()
+    {
+        buckets = new AtomicLongArray(NUM_BUCKETS);
+        sum = new LongAdder();
+        max = new AtomicLong();
+    }
+
+    // Records a value (negative values are recorded as 0)
+    public void record(long value)
+    {
+        if(value < 0)
+        {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketOf(value));
+        sum.add(value);
+
+        long currentMax = max.get();
+        while(value > currentMax && !max.compareAndSet(currentMax, value))
+        {
+            currentMax = max.get();
+        }
+    }
+
+    // Records the time since a call to System.nanoTime()
+    public void recordSince(long startNanos)
+    {
+        record(System.nanoTime() - startNanos);
+    }
+
+    // Copies the current counts of the histogram
+    // Note: values recorded while copying may or may not be included
+    public HistogramSnapshot snapshot()
+    {
+        long[] counts = new long[NUM_BUCKETS];
+        long count = 0;
+        for(int i = 0; i < NUM_BUCKETS; i++)
+        {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        return new HistogramSnapshot(counts, count, sum.sum(), max.get());
+    }
+
+    // Returns the index of the bucket a value is counted in
+    // Values below 16 have a bucket each, while larger values share a bucket with values which have the same highest
+    // bit and the same 3 bits after it
+    static int bucketOf(long value)
+    {
+        if(value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int highestBit = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (highestBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // Returns the largest value counted in a bucket
+    static long highestValueIn(int bucket)
+    {
+        if(bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        int highestBit = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int shift = highestBit - SUB_BUCKET_BITS;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
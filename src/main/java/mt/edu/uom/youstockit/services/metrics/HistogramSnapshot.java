@@ -0,0 +1,66 @@
+package mt.edu.uom.youstockit.services.metrics;
+
+// Counts of a histogram at a point in time
+public final class HistogramSnapshot
+{
+    private final long[] buckets;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] buckets, long count, long sum, long max)
+    {
+        this.buckets = buckets;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    // Number of values recorded
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getSum()
+    {
+        return sum;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    public double getMean()
+    {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    // Returns a value which the given fraction of recorded values (e.g. 0.99) are less than or equal to
+    // The value is the top of the bucket the percentile falls in (but never more than the largest value recorded)
+    // Returns 0 if no values were recorded
+    public long getPercentile(double fraction)
+    {
+        if(fraction < 0 || fraction > 1)
+        {
+            throw new IllegalArgumentException("Percentiles must be between 0 and 1");
+        }
+        if(count == 0)
+        {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for(int i = 0; i < buckets.length; i++)
+        {
+            seen += buckets[i];
+            if(seen >= rank)
+            {
+                return Math.min(Histogram.highestValueIn(i), max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,98 @@
+package mt.edu.uom.youstockit.services.metrics;
+
+import mt.edu.uom.youstockit.services.ServiceLocator;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Directory of the counters, gauges and histograms kept by the system, by name.
+// Names follow Prometheus conventions, and may have a single label, e.g. supplier_calls_total{supplier="3"}.
+// Looking up a metric by name allocates the name, so classes should look their metrics up once and keep them, except
+// for metrics looked up on slow paths (e.g. once per call to a supplier). Recording a value never takes a lock.
+public class MetricsRegistry
+{
+    // Registry used by classes when none is registered with the service locator, shared so that they all record into
+    // the same registry and a gauge registered twice under the same name replaces the previous one
+    private static final MetricsRegistry SHARED_REGISTRY = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Counter> counters;
+    private final ConcurrentMap<String, Gauge> gauges;
+    private final ConcurrentMap<String, Histogram> histograms;
+
+    public MetricsRegistry()
+    {
+        counters = new ConcurrentHashMap<>();
+        gauges = new ConcurrentHashMap<>();
+        histograms = new ConcurrentHashMap<>();
+    }
+
+    // Returns the registry registered with the service locator as "MetricsRegistry", or a single shared registry if
+    // there is none, so that classes can always record metrics
+    public static MetricsRegistry find()
+    {
+        MetricsRegistry registry = (MetricsRegistry) ServiceLocator.getInstance().findService("MetricsRegistry");
+        return registry == null ? SHARED_REGISTRY : registry;
+    }
+
+    // Returns the counter with the given name, creating it if it does not exist yet
+    public Counter counter(String name)
+    {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    public Counter counter(String name, String labelName, String labelValue)
+    {
+        return counter(labelled(name, labelName, labelValue));
+    }
+
+    // Returns the histogram with the given name, creating it if it does not exist yet
+    public Histogram histogram(String name)
+    {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    public Histogram histogram(String name, String labelName, String labelValue)
+    {
+        return histogram(labelled(name, labelName, labelValue));
+    }
+
+    // Registers a gauge, replacing any gauge with the same name
+    public void gauge(String name, Gauge gauge)
+    {
+        gauges.put(name, gauge);
+    }
+
+    public void gauge(String name, String labelName, String labelValue, Gauge gauge)
+    {
+        gauge(labelled(name, labelName, labelValue), gauge);
+    }
+
+    // Reads every metric, sorted by name
+    public MetricsSnapshot snapshot()
+    {
+        Map<String, Long> counterValues = new TreeMap<>();
+        for(Map.Entry<String, Counter> entry : counters.entrySet())
+        {
+            counterValues.put(entry.getKey(), entry.getValue().getCount());
+        }
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        for(Map.Entry<String, Gauge> entry : gauges.entrySet())
+        {
+            gaugeValues.put(entry.getKey(), entry.getValue().getValue());
+        }
+        Map<String, HistogramSnapshot> histogramValues = new TreeMap<>();
+        for(Map.Entry<String, Histogram> entry : histograms.entrySet())
+        {
+            histogramValues.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return new MetricsSnapshot(counterValues, gaugeValues, histogramValues);
+    }
+
+    // Helper function which adds a label to the name of a metric
+    private static String labelled(String name, String labelName, String labelValue)
+    {
+        return name + "{" + labelName + "=\"" + labelValue + "\"}";
+    }
+}
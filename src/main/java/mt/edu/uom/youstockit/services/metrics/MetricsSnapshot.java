@@ -0,0 +1,47 @@
+package mt.edu.uom.youstockit.services.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+// Values of every metric in a registry at a point in time, sorted by name
+public final class MetricsSnapshot
+{
+    private final Map<String, Long> counters;
+    private final Map<String, Long> gauges;
+    private final Map<String, HistogramSnapshot> histograms;
+
+    MetricsSnapshot(Map<String, Long> counters, Map<String, Long> gauges, Map<String, HistogramSnapshot> histograms)
+    {
+        this.counters = Collections.unmodifiableMap(counters);
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.histograms = Collections.unmodifiableMap(histograms);
+    }
+
+    public Map<String, Long> getCounters()
+    {
+        return counters;
+    }
+
+    public Map<String, Long> getGauges()
+    {
+        return gauges;
+    }
+
+    public Map<String, HistogramSnapshot> getHistograms()
+    {
+        return histograms;
+    }
+
+    // Returns the value of a counter (0 if it does not exist)
+    public long getCounter(String name)
+    {
+        Long value = counters.get(name);
+        return value == null ? 0 : value;
+    }
+
+    // Returns the snapshot of a histogram (null if it does not exist)
+    public HistogramSnapshot getHistogram(String name)
+    {
+        return histograms.get(name);
+    }
+}
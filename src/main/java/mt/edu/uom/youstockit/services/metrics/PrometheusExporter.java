@@ -0,0 +1,132 @@
+package mt.edu.uom.youstockit.services.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Writes metrics in the Prometheus text format, either to a file (e.g. read by the node exporter's textfile collector)
+// or over HTTP for Prometheus to scrape.
+// Histograms are written as summaries with the 50th, 90th, 99th and 99.9th percentiles, since Prometheus would store
+// every one of their hundreds of buckets as a separate series.
+public final class PrometheusExporter
+{
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private PrometheusExporter()
+    {
+    }
+
+    // Writes the metrics in a snapshot to a writer
+    public static void write(MetricsSnapshot snapshot, Writer writer) throws IOException
+    {
+        // Metrics with labels share the type line of their name, which must only be written once
+        Set<String> typesWritten = new HashSet<>();
+
+        for(Map.Entry<String, Long> counter : snapshot.getCounters().entrySet())
+        {
+            writeType(writer, counter.getKey(), "counter", typesWritten);
+            writer.write(counter.getKey() + " " + counter.getValue() + "\n");
+        }
+        for(Map.Entry<String, Long> gauge : snapshot.getGauges().entrySet())
+        {
+            writeType(writer, gauge.getKey(), "gauge", typesWritten);
+            writer.write(gauge.getKey() + " " + gauge.getValue() + "\n");
+        }
+        for(Map.Entry<String, HistogramSnapshot> histogram : snapshot.getHistograms().entrySet())
+        {
+            String name = baseName(histogram.getKey());
+            String labels = labels(histogram.getKey());
+            HistogramSnapshot values = histogram.getValue();
+
+            writeType(writer, name, "summary", typesWritten);
+            for(double quantile : QUANTILES)
+            {
+                String quantileLabels = labels.isEmpty() ? "" : labels + ",";
+                writer.write(name + "{" + quantileLabels + "quantile=\"" + quantile + "\"} " +
+                        values.getPercentile(quantile) + "\n");
+            }
+            String suffixLabels = labels.isEmpty() ? "" : "{" + labels + "}";
+            writer.write(name + "_sum" + suffixLabels + " " + values.getSum() + "\n");
+            writer.write(name + "_count" + suffixLabels + " " + values.getCount() + "\n");
+        }
+    }
+
+    // Returns the metrics in a snapshot as text
+    public static String toText(MetricsSnapshot snapshot)
+    {
+        StringWriter writer = new StringWriter();
+        try
+        {
+            write(snapshot, writer);
+        }
+        catch (IOException e)
+        {
+            // A StringWriter never fails
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    // Writes the current metrics to a file, replacing the previous file only once the new one is complete (so that a
+    // collector never reads half a file)
+    public static void writeToFile(MetricsRegistry registry, Path file) throws IOException
+    {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tempFile, toText(registry.snapshot()).getBytes(StandardCharsets.UTF_8));
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Starts an HTTP server which returns the current metrics on /metrics
+    // Note: the server runs on a single background thread, and must be stopped by the caller
+    public static HttpServer startServer(MetricsRegistry registry, InetSocketAddress address) throws IOException
+    {
+        HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = toText(registry.snapshot()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try(OutputStream output = exchange.getResponseBody())
+            {
+                output.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    // Helper function which writes the type of a metric, unless it was already written for another label
+    private static void writeType(Writer writer, String name, String type, Set<String> typesWritten)
+            throws IOException
+    {
+        String baseName = baseName(name);
+        if(typesWritten.add(baseName))
+        {
+            writer.write("# TYPE " + baseName + " " + type + "\n");
+        }
+    }
+
+    // Helper function which returns the name of a metric without its labels
+    private static String baseName(String name)
+    {
+        int labelsStart = name.indexOf('{');
+        return labelsStart < 0 ? name : name.substring(0, labelsStart);
+    }
+
+    // Helper function which returns the labels of a metric without the braces (an empty string if it has none)
+    private static String labels(String name)
+    {
+        int labelsStart = name.indexOf('{');
+        return labelsStart < 0 ? "" : name.substring(labelsStart + 1, name.length() - 1);
+    }
+}
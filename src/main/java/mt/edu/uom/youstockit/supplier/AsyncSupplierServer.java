@@ -0,0 +1,17 @@
+package mt.edu.uom.youstockit.supplier;
+
+import java.util.concurrent.CompletableFuture;
+
+// Supplier server which can take orders without blocking the calling thread
+public interface AsyncSupplierServer extends SupplierServer
+{
+    // Method used to order items, returning a future which completes with the supplier's responses
+    CompletableFuture<SupplierResponse[]> orderItemsAsync(ItemOrder[] orders);
+
+    // Synchronous orders wait for the asynchronous order to complete
+    @Override
+    default SupplierResponse[] orderItems(ItemOrder[] orders)
+    {
+        return orderItemsAsync(orders).join();
+    }
+}
@@ -0,0 +1,143 @@
+package mt.edu.uom.youstockit.supplier;
+
+import java.util.function.LongSupplier;
+
+// Circuit breaker guarding the calls made to a supplier's server.
+// After a number of consecutive failed calls the breaker opens, and no calls are allowed until the open period is
+// over. The breaker then becomes half-open and allows a single trial call, which closes the breaker if it succeeds or
+// opens it again if it fails.
+// Every call is given the generation of the breaker when it is allowed, which changes each time the breaker changes
+// state. The outcome of a call which was allowed before the last change is ignored, so that a slow call made before
+// the breaker opened cannot close it again, or end the half-open trial in place of the trial call.
+public class CircuitBreaker
+{
+    // Returned by allowRequest when a call may not be made
+    public static final long NOT_ALLOWED = -1;
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    // Returns the current time in milliseconds (can be replaced while testing)
+    private final LongSupplier clock;
+
+    private volatile CircuitBreakerState state;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInProgress;
+    // Increased each time the state changes
+    private long generation;
+
+    public CircuitBreaker(int failureThreshold, long openDurationMillis)
+    {
+        this(failureThreshold, openDurationMillis, System::currentTimeMillis);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openDurationMillis, LongSupplier clock)
+    {
+        if(failureThreshold < 1 || openDurationMillis < 0)
+        {
+            throw new IllegalArgumentException("Failure threshold must be at least 1 and open duration cannot be " +
+                    "negative");
+        }
+
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.clock = clock;
+        this.state = CircuitBreakerState.CLOSED;
+    }
+
+    // Returns the generation in which a call to the supplier's server may be made now, or NOT_ALLOWED if it may not
+    // Note: when a call is allowed, its outcome must be reported by passing the generation to recordSuccess or
+    // recordFailure
+    public synchronized long allowRequest()
+    {
+        switch (state)
+        {
+            case CLOSED:
+            {
+                return generation;
+            }
+
+            case OPEN:
+            {
+                // Once the open period is over, let a single trial call through
+                if(clock.getAsLong() - openedAt < openDurationMillis)
+                {
+                    return NOT_ALLOWED;
+                }
+                changeState(CircuitBreakerState.HALF_OPEN);
+                trialInProgress = true;
+                return generation;
+            }
+
+            case HALF_OPEN:
+            default:
+            {
+                // Only one trial call is allowed at a time
+                if(trialInProgress)
+                {
+                    return NOT_ALLOWED;
+                }
+                trialInProgress = true;
+                return generation;
+            }
+        }
+    }
+
+    // Reports that a call to the supplier's server, allowed in the given generation, succeeded
+    public synchronized void recordSuccess(long callGeneration)
+    {
+        if(callGeneration != generation)
+        {
+            return;
+        }
+
+        consecutiveFailures = 0;
+        trialInProgress = false;
+        if(state != CircuitBreakerState.CLOSED)
+        {
+            changeState(CircuitBreakerState.CLOSED);
+        }
+    }
+
+    // Reports that a call to the supplier's server, allowed in the given generation, failed
+    public synchronized void recordFailure(long callGeneration)
+    {
+        if(callGeneration != generation)
+        {
+            return;
+        }
+
+        consecutiveFailures++;
+        trialInProgress = false;
+
+        // A failed trial call opens the breaker again straight away
+        if(state == CircuitBreakerState.HALF_OPEN || consecutiveFailures >= failureThreshold)
+        {
+            changeState(CircuitBreakerState.OPEN);
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    // Returns how long a call that was not allowed should wait before asking again
+    public synchronized long getRetryDelayMillis()
+    {
+        if(state == CircuitBreakerState.OPEN)
+        {
+            return Math.max(1, openedAt + openDurationMillis - clock.getAsLong());
+        }
+        // While a trial call is in progress, check back after a fraction of the open period
+        return Math.max(1, openDurationMillis / 10);
+    }
+
+    public CircuitBreakerState getState()
+    {
+        return state;
+    }
+
+    // Helper function which changes the state, so that calls allowed before the change are no longer reported
+    private void changeState(CircuitBreakerState newState)
+    {
+        state = newState;
+        generation++;
+    }
+}
@@ -0,0 +1,11 @@
+package mt.edu.uom.youstockit.supplier;
+
+public enum CircuitBreakerState
+{
+    // Calls to the supplier's server are allowed
+    CLOSED,
+    // The supplier's server has failed too many times in a row, so calls are held back until the open period is over
+    OPEN,
+    // The open period is over, and a single trial call is allowed to check if the server has recovered
+    HALF_OPEN
+}
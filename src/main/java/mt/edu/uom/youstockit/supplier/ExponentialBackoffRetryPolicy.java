@@ -0,0 +1,81 @@
+package mt.edu.uom.youstockit.supplier;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Retry policy which doubles the maximum delay after every failed attempt, and picks a random delay between zero and
+// that maximum ("full jitter"). Randomising the delay stops restocks which failed at the same time from all retrying
+// at the same time, which would overwhelm a supplier's server that is just recovering.
+public class ExponentialBackoffRetryPolicy implements RetryPolicy
+{
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long maxElapsedMillis;
+    private final long callTimeoutMillis;
+    // Random number generator used for the jitter (null means the current thread's generator is used)
+    private final Random random;
+
+    public ExponentialBackoffRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                                         long maxElapsedMillis, long callTimeoutMillis)
+    {
+        this(maxAttempts, baseDelayMillis, maxDelayMillis, maxElapsedMillis, callTimeoutMillis, null);
+    }
+
+    public ExponentialBackoffRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                                         long maxElapsedMillis, long callTimeoutMillis, Random random)
+    {
+        if(maxAttempts < 1 || baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis || maxElapsedMillis < 0 ||
+                callTimeoutMillis < 1)
+        {
+            throw new IllegalArgumentException("Invalid retry policy settings");
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxElapsedMillis = maxElapsedMillis;
+        this.callTimeoutMillis = callTimeoutMillis;
+        this.random = random;
+    }
+
+    @Override
+    public long nextDelayMillis(int failedAttempts, long elapsedMillis)
+    {
+        if(failedAttempts >= maxAttempts)
+        {
+            return -1;
+        }
+
+        // The delay cap doubles with every failed attempt (shifting is limited to avoid overflowing)
+        long cap = baseDelayMillis << Math.min(Math.max(failedAttempts - 1, 0), 30);
+        if(cap > maxDelayMillis || cap < 0)
+        {
+            cap = maxDelayMillis;
+        }
+        long delay = cap == 0 ? 0 : nextLong(cap + 1);
+
+        // Give up if waiting would go past the maximum time allowed for all attempts
+        if(elapsedMillis + delay > maxElapsedMillis)
+        {
+            return -1;
+        }
+        return delay;
+    }
+
+    @Override
+    public long getCallTimeoutMillis()
+    {
+        return callTimeoutMillis;
+    }
+
+    // Helper function which returns a random number from 0 (inclusive) to bound (exclusive)
+    private long nextLong(long bound)
+    {
+        if(random == null)
+        {
+            return ThreadLocalRandom.current().nextLong(bound);
+        }
+        return (long) (random.nextDouble() * bound);
+    }
+}
@@ -0,0 +1,34 @@
+package mt.edu.uom.youstockit.supplier;
+
+// Retry policy which waits the same amount of time before every retry
+public class FixedDelayRetryPolicy implements RetryPolicy
+{
+    private final int maxAttempts;
+    private final long delayMillis;
+    private final long callTimeoutMillis;
+
+    public FixedDelayRetryPolicy(int maxAttempts, long delayMillis, long callTimeoutMillis)
+    {
+        if(maxAttempts < 1 || delayMillis < 0 || callTimeoutMillis < 1)
+        {
+            throw new IllegalArgumentException("There must be at least one attempt, the delay cannot be negative and " +
+                    "the call timeout must be positive");
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.delayMillis = delayMillis;
+        this.callTimeoutMillis = callTimeoutMillis;
+    }
+
+    @Override
+    public long nextDelayMillis(int failedAttempts, long elapsedMillis)
+    {
+        return failedAttempts < maxAttempts ? delayMillis : -1;
+    }
+
+    @Override
+    public long getCallTimeoutMillis()
+    {
+        return callTimeoutMillis;
+    }
+}
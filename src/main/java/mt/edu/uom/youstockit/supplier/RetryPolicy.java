@@ -0,0 +1,12 @@
+package mt.edu.uom.youstockit.supplier;
+
+// Decides how calls to a supplier's server are retried when the server cannot be reached
+public interface RetryPolicy
+{
+    // Returns how long to wait before the next attempt, or -1 if no more attempts should be made
+    // "failedAttempts" is the number of attempts made so far, and "elapsedMillis" is the time since the first attempt
+    long nextDelayMillis(int failedAttempts, long elapsedMillis);
+
+    // Returns how long to wait for the supplier's server to respond to a single call before giving up on it
+    long getCallTimeoutMillis();
+}
@@ -0,0 +1,88 @@
+package mt.edu.uom.youstockit.supplier;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Adapter which lets a synchronous supplier server (e.g. SupplierServerMock) be used asynchronously, by making the
+// calls on an executor. The executor should be bounded, so that a slow server cannot tie up an unlimited number of
+// threads: once the executor is full, orders fail straight away with a RejectedExecutionException.
+// Cancelling the future returned for an order interrupts the call (or takes it off the executor's queue if it has not
+// started yet), so that an abandoned call to a hung server gives its thread back.
+public class SupplierServerAsyncAdapter implements AsyncSupplierServer
+{
+    private final SupplierServer server;
+    private final Executor executor;
+
+    public SupplierServerAsyncAdapter(SupplierServer server, Executor executor)
+    {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<SupplierResponse[]> orderItemsAsync(ItemOrder[] orders)
+    {
+        CompletableFuture<SupplierResponse[]> result = new CompletableFuture<>();
+        FutureTask<Void> call = new FutureTask<>(() -> {
+            try
+            {
+                result.complete(server.orderItems(orders));
+            }
+            catch (Throwable e)
+            {
+                result.completeExceptionally(e);
+            }
+        }, null);
+
+        try
+        {
+            executor.execute(call);
+        }
+        catch (RejectedExecutionException e)
+        {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        result.whenComplete((response, exception) -> {
+            if(result.isCancelled())
+            {
+                call.cancel(true);
+                // Free the call's place in the queue straight away if it has not started yet
+                if(executor instanceof ThreadPoolExecutor)
+                {
+                    ((ThreadPoolExecutor) executor).remove(call);
+                }
+            }
+        });
+        return result;
+    }
+
+    // Synchronous orders are passed straight to the wrapped server
+    @Override
+    public SupplierResponse[] orderItems(ItemOrder[] orders)
+    {
+        return server.orderItems(orders);
+    }
+
+    // Creates an executor with a fixed number of daemon threads and a bounded queue of waiting calls, which rejects
+    // calls once the queue is full
+    public static ExecutorService newBoundedExecutor(int numThreads, int queueCapacity)
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "supplier-server-call");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Let idle threads stop, so that unused suppliers do not keep threads alive
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
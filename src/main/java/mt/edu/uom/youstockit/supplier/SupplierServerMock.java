@@ -28,7 +28,8 @@ public class SupplierServerMock implements SupplierServer
         currentResponseIndex = 0;
     }
 
-    public SupplierResponse[] orderItems(ItemOrder[] orders)
+    // Note: synchronized since the stock orderer may call the server from several threads
+    public synchronized SupplierResponse[] orderItems(ItemOrder[] orders)
     {
         // Store the time at which the method got called
         long now = System.currentTimeMillis();
@@ -48,19 +49,29 @@ public class SupplierServerMock implements SupplierServer
         ItemOrder order = orders[0];
         if(order != null)
         {
-            // If the supplier only needs to output success responses, generate them dynamically based on order
+            // If the supplier only needs to output success responses, generate them dynamically based on the orders
             if(alwaysSuccess)
             {
-                response = new SupplierResponse[1];
-                response[0] = new SupplierResponse(order.quantity, order.quantity, SupplierErrorCode.SUCCESS);
+                response = new SupplierResponse[orders.length];
+                for(int i = 0; i < orders.length; i++)
+                {
+                    response[i] = new SupplierResponse(orders[i].quantity, orders[i].quantity,
+                            SupplierErrorCode.SUCCESS);
+                }
             }
             // Else if the response list is not empty, return the next pre-canned response in the list
             // Note: If the end of list is reached, this keeps outputting last response
             else if(!serverResponses.isEmpty())
             {
-                response = serverResponses.get(currentResponseIndex);
-                // Set amount of requested items from order
-                response[0].requestedQuantity = order.quantity;
+                // The pre-canned response is given for every item in the order
+                SupplierResponse cannedResponse = serverResponses.get(currentResponseIndex)[0];
+                response = new SupplierResponse[orders.length];
+                for(int i = 0; i < orders.length; i++)
+                {
+                    // Set amount of requested items from order
+                    response[i] = new SupplierResponse(orders[i].quantity, cannedResponse.actualQuantity,
+                            cannedResponse.errorCode);
+                }
                 if(currentResponseIndex < serverResponses.size()-1)
                 {
                     currentResponseIndex++;
@@ -86,12 +97,12 @@ public class SupplierServerMock implements SupplierServer
         alwaysSuccess = true;
     }
 
-    public int getNumTimesOrderItems()
+    public synchronized int getNumTimesOrderItems()
     {
         return numTimesOrderItems;
     }
 
-    public List<Long> getTimesBetweenCalls()
+    public synchronized List<Long> getTimesBetweenCalls()
     {
         return timesBetweenCalls;
     }
@@ -0,0 +1,188 @@
+package mt.edu.uom.youstockit.supplier;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Supplier server which behaves like a real one for load and capacity tests, without contacting a supplier.
+// Every call takes a random amount of time to respond, drawn from a log-normal distribution (most calls take about
+// the median latency, while a few take much longer, like real network calls). Calls can fail as a whole, and each item
+// in an order can be filled in full, filled in part, be out of stock or not be found, with the configured rates.
+// Random choices come from a seeded generator, so the same sequence of calls always gets the same responses.
+// By default every item is filled in full straight away.
+public class SupplierServerSimulator implements AsyncSupplierServer
+{
+    // Executor used to complete responses once their latency has passed
+    private final ScheduledExecutorService scheduler;
+    private final Random random;
+
+    private volatile long medianLatencyMillis;
+    // Standard deviation of the logarithm of the latency (0 means every call takes exactly the median latency)
+    private volatile double latencySpread;
+    // Probability that a whole call fails with a communication error
+    private volatile double failureRate;
+    // Probabilities that an item is not found, is out of stock, or is only partly filled
+    private volatile double itemNotFoundRate;
+    private volatile double outOfStockRate;
+    private volatile double partialFillRate;
+
+    // Statistics about the calls made to the simulator
+    private final LongAdder numCalls;
+    private final LongAdder numFailedCalls;
+    private final LongAdder numItemsOrdered;
+    private final LongAdder quantityRequested;
+    private final LongAdder quantityDelivered;
+
+    public SupplierServerSimulator(ScheduledExecutorService scheduler, long seed)
+    {
+        this.scheduler = scheduler;
+        this.random = new Random(seed);
+        this.numCalls = new LongAdder();
+        this.numFailedCalls = new LongAdder();
+        this.numItemsOrdered = new LongAdder();
+        this.quantityRequested = new LongAdder();
+        this.quantityDelivered = new LongAdder();
+    }
+
+    // Sets how long calls take to respond: the median latency, and how spread out latencies are around it
+    // e.g. with a spread of 0.5, about 1.5% of calls take more than 3 times the median latency
+    public void setLatency(long medianLatencyMillis, double latencySpread)
+    {
+        if(medianLatencyMillis < 0 || latencySpread < 0)
+        {
+            throw new IllegalArgumentException("Latency settings cannot be negative");
+        }
+        this.medianLatencyMillis = medianLatencyMillis;
+        this.latencySpread = latencySpread;
+    }
+
+    // Sets the probability that a call fails, in which case every item in it gets a communication error
+    public void setFailureRate(double failureRate)
+    {
+        checkRate(failureRate);
+        this.failureRate = failureRate;
+    }
+
+    // Sets the probabilities of the outcomes of each item in a call which does not fail (the rest are filled in full)
+    // Partly filled items are reported as out of stock, with less than the requested quantity delivered
+    public void setItemOutcomeRates(double itemNotFoundRate, double outOfStockRate, double partialFillRate)
+    {
+        checkRate(itemNotFoundRate);
+        checkRate(outOfStockRate);
+        checkRate(partialFillRate);
+        checkRate(itemNotFoundRate + outOfStockRate + partialFillRate);
+        this.itemNotFoundRate = itemNotFoundRate;
+        this.outOfStockRate = outOfStockRate;
+        this.partialFillRate = partialFillRate;
+    }
+
+    @Override
+    public CompletableFuture<SupplierResponse[]> orderItemsAsync(ItemOrder[] orders)
+    {
+        SupplierResponse[] response = new SupplierResponse[orders.length];
+        long latencyMillis;
+        // Draw all random choices for a call together, so that concurrent calls cannot interleave their draws
+        synchronized(random)
+        {
+            latencyMillis = nextLatencyMillis();
+            boolean failed = random.nextDouble() < failureRate;
+            for(int i = 0; i < orders.length; i++)
+            {
+                response[i] = failed ? new SupplierResponse(orders[i].quantity, 0,
+                        SupplierErrorCode.COMMUNICATION_ERROR) : nextItemResponse(orders[i]);
+            }
+            if(failed)
+            {
+                numFailedCalls.increment();
+            }
+        }
+
+        numCalls.increment();
+        numItemsOrdered.add(orders.length);
+        for(int i = 0; i < orders.length; i++)
+        {
+            quantityRequested.add(orders[i].quantity);
+            quantityDelivered.add(response[i].actualQuantity);
+        }
+
+        CompletableFuture<SupplierResponse[]> result = new CompletableFuture<>();
+        if(latencyMillis == 0)
+        {
+            result.complete(response);
+        }
+        else
+        {
+            scheduler.schedule(() -> result.complete(response), latencyMillis, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    public long getNumCalls()
+    {
+        return numCalls.sum();
+    }
+
+    public long getNumFailedCalls()
+    {
+        return numFailedCalls.sum();
+    }
+
+    public long getNumItemsOrdered()
+    {
+        return numItemsOrdered.sum();
+    }
+
+    public long getQuantityRequested()
+    {
+        return quantityRequested.sum();
+    }
+
+    public long getQuantityDelivered()
+    {
+        return quantityDelivered.sum();
+    }
+
+    // Helper function which draws the latency of a call
+    private long nextLatencyMillis()
+    {
+        if(medianLatencyMillis == 0)
+        {
+            return 0;
+        }
+        return Math.round(medianLatencyMillis * Math.exp(latencySpread * random.nextGaussian()));
+    }
+
+    // Helper function which draws the supplier's response to a single item
+    private SupplierResponse nextItemResponse(ItemOrder order)
+    {
+        double outcome = random.nextDouble();
+        if(outcome < itemNotFoundRate)
+        {
+            return new SupplierResponse(order.quantity, 0, SupplierErrorCode.ITEM_NOT_FOUND);
+        }
+        outcome -= itemNotFoundRate;
+        if(outcome < outOfStockRate)
+        {
+            return new SupplierResponse(order.quantity, 0, SupplierErrorCode.OUT_OF_STOCK);
+        }
+        outcome -= outOfStockRate;
+        if(outcome < partialFillRate && order.quantity > 1)
+        {
+            // Deliver at least one item, but fewer than requested
+            return new SupplierResponse(order.quantity, 1 + random.nextInt(order.quantity - 1),
+                    SupplierErrorCode.OUT_OF_STOCK);
+        }
+        return new SupplierResponse(order.quantity, order.quantity, SupplierErrorCode.SUCCESS);
+    }
+
+    // Helper function which checks that a rate is a probability
+    private static void checkRate(double rate)
+    {
+        if(!(rate >= 0 && rate <= 1))
+        {
+            throw new IllegalArgumentException("Rates must be between 0 and 1");
+        }
+    }
+}
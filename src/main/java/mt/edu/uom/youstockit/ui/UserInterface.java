@@ -4,17 +4,27 @@ import mt.edu.uom.youstockit.ordering.*;
 import mt.edu.uom.youstockit.services.ServiceLocator;
 import mt.edu.uom.youstockit.services.email.EmailSender;
 import mt.edu.uom.youstockit.services.email.EmailSenderDummy;
+import mt.edu.uom.youstockit.services.metrics.MetricsRegistry;
+import mt.edu.uom.youstockit.services.metrics.PrometheusExporter;
 import mt.edu.uom.youstockit.supplier.Supplier;
 import mt.edu.uom.youstockit.supplier.SupplierErrorCode;
 import mt.edu.uom.youstockit.supplier.SupplierServer;
 import mt.edu.uom.youstockit.supplier.SupplierServerMock;
+import mt.edu.uom.youstockit.util.Money;
 
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
 
 public class UserInterface
 {
+    // Port on which the metrics are served to Prometheus
+    private static final int METRICS_PORT = 9464;
+
     public static void main(String[] args)
     {
         // Represents the action chosen by the user from the menu
@@ -30,6 +40,11 @@ public class UserInterface
         ServiceLocator serviceLocator = ServiceLocator.getInstance();
         serviceLocator.registerService("EmailSender", emailSender);
 
+        // Setup metrics, which are recorded by the ordering system and served on http://localhost:9464/metrics
+        MetricsRegistry metrics = new MetricsRegistry();
+        serviceLocator.registerService("MetricsRegistry", metrics);
+        HttpServer metricsServer = startMetricsServer(metrics);
+
         // Setup ordering system
         StockOrderer stockOrderer = new StockOrderer();
         ProductCatalogue availableItems = new ProductCatalogue();
@@ -160,9 +175,9 @@ public class UserInterface
                     valid = false;
                     while(!valid)
                     {
-                        double buyingPrice = getPriceInput("Input buying price");
-                        double sellingPrice = getPriceInput("Input selling price");
-                        valid = item.setBuySellPrices(buyingPrice, sellingPrice);
+                        long buyingPrice = getPriceInput("Input buying price");
+                        long sellingPrice = getPriceInput("Input selling price");
+                        valid = item.setBuySellPricesCents(buyingPrice, sellingPrice);
                         if(!valid)
                         {
                             System.out.println("Selling price must be larger than buying price.");
@@ -181,7 +196,7 @@ public class UserInterface
                     int idToDelete = getIntInput("Input ID of item to delete");
                     // Try to delete the item with the given ID, and output response message
                     FacadeResponse response = orderingFacade.deleteItem(idToDelete);
-                    System.out.println(response.message);
+                    System.out.println(response.getMessage());
                 } break;
 
                 // Place customer order
@@ -192,20 +207,40 @@ public class UserInterface
                     int quantity = getIntInput("Input order quantity");
                     // Try to place the order, and output response message
                     FacadeResponse response = orderingFacade.placeOrder(id,quantity);
-                    System.out.println(response.message);
+                    System.out.println(response.getMessage());
                 } break;
 
                 // Calculate profit
                 case 6:
                 {
                     // Ask user to input id of item to order, and quantity
-                    double totalProfit = orderingFacade.calculateProfit();
-                    System.out.println("Total profit: " + totalProfit);
+                    long totalProfit = orderingFacade.calculateProfitCents();
+                    System.out.println("Total profit: " + Money.format(totalProfit));
                 } break;
             }
 
         } while (menuChoice != 7);
 
+        // Stop serving metrics, since the server's thread would otherwise keep the program running
+        if(metricsServer != null)
+        {
+            metricsServer.stop(0);
+        }
+    }
+
+    // Helper function which serves metrics over HTTP, returning null if the server cannot be started (e.g. if the
+    // port is taken), in which case metrics are still recorded but not served
+    private static HttpServer startMetricsServer(MetricsRegistry metrics)
+    {
+        try
+        {
+            return PrometheusExporter.startServer(metrics, new InetSocketAddress("localhost", METRICS_PORT));
+        }
+        catch (IOException e)
+        {
+            System.out.println("Could not serve metrics on port " + METRICS_PORT + ": " + e.getMessage());
+            return null;
+        }
     }
 
     // Mock four supplier servers all of which always give the same output
@@ -234,7 +269,8 @@ public class UserInterface
         for(int i = 0; i < servers.length; i++)
         {
             suppliers[i] = new Supplier();
-            suppliers[i].id = 1;
+            // Note: suppliers need unique ids since each supplier's server is guarded by its own circuit breaker
+            suppliers[i].id = i + 1;
             suppliers[i].name = supplierNames[i];
             suppliers[i].supplierServer = servers[i];
         }
@@ -319,28 +355,29 @@ public class UserInterface
         return input;
     }
 
-    // Gets a price input from the user
-    public static double getPriceInput(String prompt)
+    // Gets a price input from the user, in cents
+    public static long getPriceInput(String prompt)
     {
         // Create scanner to get user input
         Scanner sc = new Scanner(System.in);
         // User input
-        double input = 0;
+        long input = 0;
         // Initially assume input is invalid
         boolean valid = false;
-        // Keep asking user for input until a valid integer is parsed
+        // Keep asking user for input until a valid price is parsed
         do
         {
             try
             {
                 System.out.print(prompt + ": ");
-                input = sc.nextDouble();
+                // Parse the price exactly, truncating it to 2 decimal places
+                input = Money.parse(sc.next());
                 // Price must be positive
                 valid = input > 0;
             }
-            catch (InputMismatchException e)
+            catch (NumberFormatException e)
             {
-                // If input is not a valid integer, clear standard input and display an error message
+                // If input is not a valid price, clear the rest of the line
                 sc.nextLine();
             }
 
@@ -351,8 +388,7 @@ public class UserInterface
             }
         } while (!valid);
 
-        // Truncate input to 2 decimal places
-        return Math.floor(input * 100.0) / 100.0;
+        return input;
     }
 
     // Get a string input by the user
@@ -0,0 +1,185 @@
+package mt.edu.uom.youstockit.util;
+
+import java.util.Arrays;
+
+// Hash map from primitive int keys to primitive int values.
+// Like IntLinkedHashMap, entries are stored in parallel arrays using open addressing (linear probing), but since no
+// insertion order is kept, each entry only takes two ints and no objects are allocated per entry.
+// Note: negative values are not supported since an empty slot is marked by a value of -1.
+public class IntIntHashMap
+{
+    // Returned when a key is not in the map
+    public static final int NO_VALUE = -1;
+
+    // Smallest number of slots allocated by the map
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public IntIntHashMap()
+    {
+        this(MIN_CAPACITY);
+    }
+
+    public IntIntHashMap(int expectedSize)
+    {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    // Returns the value mapped to a key, or NO_VALUE if the key is not in the map
+    public int get(int key)
+    {
+        int slot = findSlot(key);
+        return slot == NO_VALUE ? NO_VALUE : values[slot];
+    }
+
+    // Maps a key to a value only if the key is not in the map yet
+    // Returns the value already in the map, or NO_VALUE if the new value was added
+    public int putIfAbsent(int key, int value)
+    {
+        if(value < 0)
+        {
+            throw new IllegalArgumentException("IntIntHashMap does not support negative values");
+        }
+
+        int slot = indexFor(key);
+        while(values[slot] != NO_VALUE)
+        {
+            if(keys[slot] == key)
+            {
+                return values[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+
+        // Keep the load factor at or below 0.5 so that probe sequences stay short
+        if(size * 2 > keys.length)
+        {
+            resize(keys.length * 2);
+        }
+        return NO_VALUE;
+    }
+
+    // Removes a key from the map, returning its value (or NO_VALUE if the key was not in the map)
+    public int remove(int key)
+    {
+        int slot = findSlot(key);
+        if(slot == NO_VALUE)
+        {
+            return NO_VALUE;
+        }
+
+        int removed = values[slot];
+        values[slot] = NO_VALUE;
+        size--;
+
+        // Shift back any entries in the same probe sequence so that lookups do not stop at the new gap
+        closeGap(slot);
+        return removed;
+    }
+
+    // Helper function which returns the slot holding a key, or NO_VALUE if the key is not in the map
+    private int findSlot(int key)
+    {
+        int mask = keys.length - 1;
+        int slot = indexFor(key);
+        while(values[slot] != NO_VALUE)
+        {
+            if(keys[slot] == key)
+            {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    // Helper function implementing backward shift deletion for linear probing (see IntLinkedHashMap)
+    private void closeGap(int gap)
+    {
+        int mask = keys.length - 1;
+        int slot = gap;
+        while(true)
+        {
+            slot = (slot + 1) & mask;
+            if(values[slot] == NO_VALUE)
+            {
+                return;
+            }
+
+            int ideal = indexFor(keys[slot]);
+            boolean canMove = gap <= slot ? (ideal <= gap || ideal > slot) : (ideal <= gap && ideal > slot);
+            if(canMove)
+            {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                values[slot] = NO_VALUE;
+                gap = slot;
+            }
+        }
+    }
+
+    // Helper function which rehashes all entries into larger arrays
+    private void resize(int newCapacity)
+    {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+
+        int mask = newCapacity - 1;
+        for(int i = 0; i < oldKeys.length; i++)
+        {
+            if(oldValues[i] != NO_VALUE)
+            {
+                int slot = indexFor(oldKeys[i]);
+                while(values[slot] != NO_VALUE)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+    }
+
+    // Helper function which spreads the bits of a key so that sequential ids do not cluster together
+    private int indexFor(int key)
+    {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (keys.length - 1);
+    }
+
+    // Helper function which returns the smallest power of two with enough room for the given number of entries
+    private static int capacityFor(int expectedSize)
+    {
+        int capacity = MIN_CAPACITY;
+        while(capacity < expectedSize * 2 && capacity < (1 << 30))
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
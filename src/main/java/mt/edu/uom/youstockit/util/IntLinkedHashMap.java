@@ -0,0 +1,381 @@
+package mt.edu.uom.youstockit.util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Hash map with primitive int keys which remembers the order in which keys were inserted.
+// Entries are stored in parallel arrays using open addressing (linear probing), so no Integer objects or entry nodes
+// are allocated. A doubly linked list made of slot indices keeps track of insertion order, which means that lookup,
+// insertion and removal are all constant time while iteration still returns values in the order they were added.
+// Note: null values are not supported since an empty slot is marked by a null value.
+public class IntLinkedHashMap<V> implements Iterable<V>
+{
+    // Smallest number of slots allocated by the map
+    private static final int MIN_CAPACITY = 16;
+    // Marks the end of the insertion order list
+    private static final int NONE = -1;
+
+    // Parallel arrays storing the entries of the map
+    private int[] keys;
+    private Object[] values;
+    // Slot indices of the previous and next entries in insertion order
+    private int[] before;
+    private int[] after;
+    // Slot indices of the oldest and newest entries
+    private int head;
+    private int tail;
+
+    private int size;
+    // Number of structural changes, used to detect modifications during iteration
+    private int modCount;
+
+    public IntLinkedHashMap()
+    {
+        this(MIN_CAPACITY);
+    }
+
+    public IntLinkedHashMap(int expectedSize)
+    {
+        allocate(capacityFor(expectedSize));
+        head = NONE;
+        tail = NONE;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key)
+    {
+        return findSlot(key) != NONE;
+    }
+
+    // Returns the value mapped to a key, or null if the key is not in the map
+    @SuppressWarnings("unchecked")
+    public V get(int key)
+    {
+        int slot = findSlot(key);
+        return slot == NONE ? null : (V) values[slot];
+    }
+
+    // Maps a key to a value, returning the previous value (or null if there was none)
+    // Note: replacing the value of an existing key does not change its position in the insertion order
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value)
+    {
+        if(value == null)
+        {
+            throw new NullPointerException("IntLinkedHashMap does not support null values");
+        }
+
+        int slot = indexFor(key);
+        while(values[slot] != null)
+        {
+            // If the key is already in the map, replace its value
+            if(keys[slot] == key)
+            {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        insertAt(slot, key, value);
+        return null;
+    }
+
+    // Maps a key to a value only if the key is not in the map yet
+    // Returns the value already in the map, or null if the new value was added
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(int key, V value)
+    {
+        if(value == null)
+        {
+            throw new NullPointerException("IntLinkedHashMap does not support null values");
+        }
+
+        int slot = indexFor(key);
+        while(values[slot] != null)
+        {
+            if(keys[slot] == key)
+            {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        insertAt(slot, key, value);
+        return null;
+    }
+
+    // Removes a key from the map, returning its value (or null if the key was not in the map)
+    @SuppressWarnings("unchecked")
+    public V remove(int key)
+    {
+        int slot = findSlot(key);
+        if(slot == NONE)
+        {
+            return null;
+        }
+
+        V removed = (V) values[slot];
+        unlink(slot);
+        values[slot] = null;
+        size--;
+        modCount++;
+
+        // Shift back any entries in the same probe sequence so that lookups do not stop at the new gap
+        closeGap(slot);
+        return removed;
+    }
+
+    public void clear()
+    {
+        allocate(MIN_CAPACITY);
+        head = NONE;
+        tail = NONE;
+        size = 0;
+        modCount++;
+    }
+
+    // Iterates over values in insertion order
+    @Override
+    public Iterator<V> iterator()
+    {
+        return iteratorFrom(head);
+    }
+
+    // Iterates over the values inserted after the given key (in insertion order)
+    // Returns null if the key is not in the map
+    public Iterator<V> iteratorAfter(int key)
+    {
+        int slot = findSlot(key);
+        return slot == NONE ? null : iteratorFrom(after[slot]);
+    }
+
+    // Helper function which iterates over values in insertion order, starting from the given slot
+    private Iterator<V> iteratorFrom(int first)
+    {
+        return new Iterator<V>()
+        {
+            private int next = first;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next != NONE;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next()
+            {
+                if(modCount != expectedModCount)
+                {
+                    throw new ConcurrentModificationException();
+                }
+                if(next == NONE)
+                {
+                    throw new NoSuchElementException();
+                }
+
+                V value = (V) values[next];
+                next = after[next];
+                return value;
+            }
+        };
+    }
+
+    // Helper function which returns the slot holding a key, or NONE if the key is not in the map
+    private int findSlot(int key)
+    {
+        int mask = keys.length - 1;
+        int slot = indexFor(key);
+        while(values[slot] != null)
+        {
+            if(keys[slot] == key)
+            {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    // Helper function which stores a new entry in a free slot and appends it to the insertion order list
+    private void insertAt(int slot, int key, V value)
+    {
+        keys[slot] = key;
+        values[slot] = value;
+        before[slot] = tail;
+        after[slot] = NONE;
+        if(tail == NONE)
+        {
+            head = slot;
+        }
+        else
+        {
+            after[tail] = slot;
+        }
+        tail = slot;
+        size++;
+        modCount++;
+
+        // Keep the load factor at or below 0.5 so that probe sequences stay short
+        if(size * 2 > keys.length)
+        {
+            resize(keys.length * 2);
+        }
+    }
+
+    // Helper function which removes the entry at a slot from the insertion order list
+    private void unlink(int slot)
+    {
+        int previous = before[slot];
+        int next = after[slot];
+
+        if(previous == NONE)
+        {
+            head = next;
+        }
+        else
+        {
+            after[previous] = next;
+        }
+
+        if(next == NONE)
+        {
+            tail = previous;
+        }
+        else
+        {
+            before[next] = previous;
+        }
+    }
+
+    // Helper function implementing backward shift deletion for linear probing
+    private void closeGap(int gap)
+    {
+        int mask = keys.length - 1;
+        int slot = gap;
+        while(true)
+        {
+            slot = (slot + 1) & mask;
+            if(values[slot] == null)
+            {
+                return;
+            }
+
+            // An entry can only be moved into the gap if its ideal slot does not lie cyclically in (gap, slot]
+            int ideal = indexFor(keys[slot]);
+            boolean canMove = gap <= slot ? (ideal <= gap || ideal > slot) : (ideal <= gap && ideal > slot);
+            if(canMove)
+            {
+                moveEntry(slot, gap);
+                gap = slot;
+            }
+        }
+    }
+
+    // Helper function which moves an entry to another slot, keeping the insertion order list intact
+    private void moveEntry(int from, int to)
+    {
+        keys[to] = keys[from];
+        values[to] = values[from];
+        before[to] = before[from];
+        after[to] = after[from];
+        values[from] = null;
+
+        if(before[to] == NONE)
+        {
+            head = to;
+        }
+        else
+        {
+            after[before[to]] = to;
+        }
+
+        if(after[to] == NONE)
+        {
+            tail = to;
+        }
+        else
+        {
+            before[after[to]] = to;
+        }
+    }
+
+    // Helper function which rehashes all entries into larger arrays, preserving insertion order
+    private void resize(int newCapacity)
+    {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldAfter = after;
+        int oldHead = head;
+
+        allocate(newCapacity);
+        head = NONE;
+        tail = NONE;
+        size = 0;
+
+        int mask = newCapacity - 1;
+        for(int slot = oldHead; slot != NONE; slot = oldAfter[slot])
+        {
+            int newSlot = indexFor(oldKeys[slot]);
+            while(values[newSlot] != null)
+            {
+                newSlot = (newSlot + 1) & mask;
+            }
+
+            keys[newSlot] = oldKeys[slot];
+            values[newSlot] = oldValues[slot];
+            before[newSlot] = tail;
+            after[newSlot] = NONE;
+            if(tail == NONE)
+            {
+                head = newSlot;
+            }
+            else
+            {
+                after[tail] = newSlot;
+            }
+            tail = newSlot;
+            size++;
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        before = new int[capacity];
+        after = new int[capacity];
+    }
+
+    // Helper function which spreads the bits of a key so that sequential ids do not cluster together
+    private int indexFor(int key)
+    {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (keys.length - 1);
+    }
+
+    // Helper function which returns the smallest power of two with enough room for the given number of entries
+    private static int capacityFor(int expectedSize)
+    {
+        int capacity = MIN_CAPACITY;
+        while(capacity < expectedSize * 2 && capacity < (1 << 30))
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,133 @@
+package mt.edu.uom.youstockit.util;
+
+// Helper functions for amounts of money stored as a whole number of cents in a long.
+// Unlike doubles, cents add up exactly, and unlike BigDecimal no objects are allocated. Every operation which could
+// overflow uses the Math.*Exact methods, so an amount that does not fit in a long throws an ArithmeticException
+// instead of silently wrapping around.
+public final class Money
+{
+    public static final int CENTS_PER_UNIT = 100;
+    // Number of digits after the decimal point
+    private static final int SCALE = 2;
+
+    private Money()
+    {
+    }
+
+    public static long add(long cents, long otherCents)
+    {
+        return Math.addExact(cents, otherCents);
+    }
+
+    public static long subtract(long cents, long otherCents)
+    {
+        return Math.subtractExact(cents, otherCents);
+    }
+
+    // Multiplies an amount by a quantity, e.g. the price of one item by the number of items sold
+    public static long multiply(long cents, long quantity)
+    {
+        return Math.multiplyExact(cents, quantity);
+    }
+
+    // Converts an amount given as a double to cents, rounding to the nearest cent
+    public static long fromDouble(double amount)
+    {
+        double cents = amount * CENTS_PER_UNIT;
+        if(Double.isNaN(cents) || cents >= Long.MAX_VALUE || cents <= Long.MIN_VALUE)
+        {
+            throw new ArithmeticException("Amount " + amount + " cannot be represented in cents");
+        }
+        return Math.round(cents);
+    }
+
+    // Converts an amount in cents to a double, e.g. for display or for callers which still work with doubles
+    // Note: the result is exact for amounts up to about 90 trillion
+    public static double toDouble(long cents)
+    {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    // Parses an amount such as "12", "12.5" or "-0.99" into cents
+    // Digits after the second decimal place are truncated, so "1.999" is 199 cents
+    public static long parse(String text)
+    {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if(i < length && (text.charAt(i) == '-' || text.charAt(i) == '+'))
+        {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long units = 0;
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        try
+        {
+            for(; i < length; i++)
+            {
+                char c = text.charAt(i);
+                if(c == '.' && !seenPoint)
+                {
+                    seenPoint = true;
+                }
+                else if(c >= '0' && c <= '9')
+                {
+                    seenDigit = true;
+                    if(!seenPoint)
+                    {
+                        units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                    }
+                    else if(fractionDigits < SCALE)
+                    {
+                        fraction = fraction * 10 + (c - '0');
+                        fractionDigits++;
+                    }
+                }
+                else
+                {
+                    throw new NumberFormatException("Invalid amount: \"" + text + "\"");
+                }
+            }
+            if(!seenDigit)
+            {
+                throw new NumberFormatException("Invalid amount: \"" + text + "\"");
+            }
+
+            // Pad the fraction to the full number of digits, e.g. "1.5" is 1 unit and 50 cents
+            for(; fractionDigits < SCALE; fractionDigits++)
+            {
+                fraction *= 10;
+            }
+            long cents = Math.addExact(Math.multiplyExact(units, CENTS_PER_UNIT), fraction);
+            return negative ? -cents : cents;
+        }
+        catch (ArithmeticException e)
+        {
+            throw new NumberFormatException("Amount is too large: \"" + text + "\"");
+        }
+    }
+
+    // Formats an amount in cents with exactly two decimal places, e.g. 1050 is "10.50"
+    public static String format(long cents)
+    {
+        StringBuilder builder = new StringBuilder();
+        long units = cents / CENTS_PER_UNIT;
+        long remainder = Math.abs(cents % CENTS_PER_UNIT);
+        // Amounts between -1 and 0 have no units to carry the sign
+        if(cents < 0 && units == 0)
+        {
+            builder.append('-');
+        }
+        builder.append(units).append('.');
+        if(remainder < 10)
+        {
+            builder.append('0');
+        }
+        return builder.append(remainder).toString();
+    }
+}
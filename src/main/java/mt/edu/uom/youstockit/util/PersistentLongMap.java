@@ -0,0 +1,295 @@
+package mt.edu.uom.youstockit.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Immutable map from non-negative long keys to values, where every change returns a new map.
+// The map is a trie in which each node has up to 32 children, picked by 5 bits of the key (starting with the most
+// significant bits). Nodes only store the children which exist, together with a bitmap of which ones they are.
+// A change copies the nodes on the path to the key and shares every other node with the old map, so it only allocates
+// a few small nodes, and a map which has been handed out never changes. Since children are ordered by their bits of the
+// key, iterating goes through the values in key order.
+// The trie is only as deep as needed for the largest key, so small keys (e.g. positions or ids) need only a few levels.
+// Note: null values are not supported since a missing child means that the key is not in the map.
+public final class PersistentLongMap<V> implements Iterable<V>
+{
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentLongMap<Object> EMPTY = new PersistentLongMap<>(null, 0, 0);
+
+    // Root node (null if the map is empty), and the number of bits the key is shifted by to pick a child of the root
+    private final Node root;
+    private final int shift;
+    private final int size;
+
+    private PersistentLongMap(Node root, int shift, int size)
+    {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLongMap<V> empty()
+    {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    // Returns the value mapped to a key, or null if the key is not in the map
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        if(root == null || key < 0 || !covers(shift, key))
+        {
+            return null;
+        }
+
+        Node node = root;
+        for(int level = shift; ; level -= BITS)
+        {
+            int bit = 1 << ((key >>> level) & MASK);
+            if((node.bitmap & bit) == 0)
+            {
+                return null;
+            }
+            Object child = node.children[node.indexOf(bit)];
+            if(level == 0)
+            {
+                return (V) child;
+            }
+            node = (Node) child;
+        }
+    }
+
+    // Returns a map in which the key is mapped to the value
+    public PersistentLongMap<V> put(long key, V value)
+    {
+        if(key < 0)
+        {
+            throw new IllegalArgumentException("PersistentLongMap does not support negative keys");
+        }
+        if(value == null)
+        {
+            throw new NullPointerException("PersistentLongMap does not support null values");
+        }
+
+        // Add levels above the root until the trie is deep enough for the key
+        Node newRoot = root;
+        int newShift = shift;
+        while(!covers(newShift, key))
+        {
+            if(newRoot != null)
+            {
+                // The old root becomes the first child of the new root
+                newRoot = new Node(1, new Object[] {newRoot});
+            }
+            newShift += BITS;
+        }
+
+        boolean replaced = newRoot != null && get(key) != null;
+        newRoot = put(newRoot, newShift, key, value);
+        return new PersistentLongMap<>(newRoot, newShift, replaced ? size : size + 1);
+    }
+
+    // Returns a map without the key (the same map if the key is not in it)
+    public PersistentLongMap<V> remove(long key)
+    {
+        if(get(key) == null)
+        {
+            return this;
+        }
+        Node newRoot = remove(root, shift, key);
+        return new PersistentLongMap<>(newRoot, newRoot == null ? 0 : shift, size - 1);
+    }
+
+    // Iterates over the values in key order
+    @Override
+    public Iterator<V> iterator()
+    {
+        return iteratorFrom(0);
+    }
+
+    // Iterates over the values whose keys are larger than or equal to the given key, in key order
+    public Iterator<V> iteratorFrom(long firstKey)
+    {
+        return new TrieIterator(Math.max(firstKey, 0));
+    }
+
+    // Helper function which checks if keys shifted by the given amount at the root fit in the trie
+    private static boolean covers(int shift, long key)
+    {
+        // Once the root uses the top bits, every non-negative key fits
+        return shift + BITS >= Long.SIZE - 1 || (key >>> (shift + BITS)) == 0;
+    }
+
+    // Helper function which returns a copy of a node (or a new node if it is null) with the key mapped to the value
+    private static Node put(Node node, int level, long key, Object value)
+    {
+        int bit = 1 << ((key >>> level) & MASK);
+        if(node == null)
+        {
+            Object child = level == 0 ? value : put(null, level - BITS, key, value);
+            return new Node(bit, new Object[] {child});
+        }
+
+        int index = node.indexOf(bit);
+        if((node.bitmap & bit) != 0)
+        {
+            // Replace the existing child
+            Object[] children = node.children.clone();
+            children[index] = level == 0 ? value : put((Node) children[index], level - BITS, key, value);
+            return new Node(node.bitmap, children);
+        }
+
+        // Insert a new child, keeping children ordered by their bit
+        Object[] children = new Object[node.children.length + 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        children[index] = level == 0 ? value : put(null, level - BITS, key, value);
+        System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+        return new Node(node.bitmap | bit, children);
+    }
+
+    // Helper function which returns a copy of a node without the key (which must be in it), or null if it is left empty
+    private static Node remove(Node node, int level, long key)
+    {
+        int bit = 1 << ((key >>> level) & MASK);
+        int index = node.indexOf(bit);
+
+        if(level > 0)
+        {
+            Node newChild = remove((Node) node.children[index], level - BITS, key);
+            if(newChild != null)
+            {
+                Object[] children = node.children.clone();
+                children[index] = newChild;
+                return new Node(node.bitmap, children);
+            }
+        }
+
+        // The child is removed altogether
+        if(node.children.length == 1)
+        {
+            return null;
+        }
+        Object[] children = new Object[node.children.length - 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        return new Node(node.bitmap & ~bit, children);
+    }
+
+    // Node of the trie, whose children are nodes (or values in the lowest level) ordered by their bit in the bitmap
+    private static final class Node
+    {
+        final int bitmap;
+        final Object[] children;
+
+        Node(int bitmap, Object[] children)
+        {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        // Returns the index of the child with the given bit (or where it would be inserted)
+        int indexOf(int bit)
+        {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    // Iterates over the trie depth first, keeping the path from the root to the current node in a stack
+    private final class TrieIterator implements Iterator<V>
+    {
+        private final Node[] nodes;
+        // Index of the next child to visit in each node of the path
+        private final int[] indices;
+        private int top;
+        private Object next;
+
+        TrieIterator(long firstKey)
+        {
+            int depth = shift / BITS + 1;
+            nodes = new Node[depth];
+            indices = new int[depth];
+            top = -1;
+
+            if(root != null && covers(shift, firstKey))
+            {
+                // Go down the path to the first key, skipping the children before it in each node
+                Node node = root;
+                for(int level = shift; ; level -= BITS)
+                {
+                    int bit = 1 << ((firstKey >>> level) & MASK);
+                    int index = node.indexOf(bit);
+                    top++;
+                    nodes[top] = node;
+                    if((node.bitmap & bit) == 0 || level == 0)
+                    {
+                        // Every child from here onwards has larger keys
+                        indices[top] = index;
+                        break;
+                    }
+                    // Continue with the child on the path, and then with the children after it
+                    indices[top] = index + 1;
+                    node = (Node) node.children[index];
+                }
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next()
+        {
+            if(next == null)
+            {
+                throw new NoSuchElementException();
+            }
+            Object value = next;
+            advance();
+            return (V) value;
+        }
+
+        // Helper function which finds the next value
+        private void advance()
+        {
+            next = null;
+            while(top >= 0)
+            {
+                Node node = nodes[top];
+                if(indices[top] >= node.children.length)
+                {
+                    top--;
+                    continue;
+                }
+
+                Object child = node.children[indices[top]++];
+                // Values are found in the lowest level, which is the last entry of a full path
+                if(top == nodes.length - 1)
+                {
+                    next = child;
+                    return;
+                }
+                top++;
+                nodes[top] = (Node) child;
+                indices[top] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package mt.edu.uom.youstockit.ordering;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class CategoryDictionaryTests
+{
+    CategoryDictionary dictionary = CategoryDictionary.getInstance();
+
+    @Test
+    public void testSameNameGetsSameId()
+    {
+        // Exercise
+        CategoryDictionary.Category category1 = dictionary.categoryOf(new String("Garden tools"));
+        CategoryDictionary.Category category2 = dictionary.categoryOf(new String("Garden tools"));
+        CategoryDictionary.Category otherCategory = dictionary.categoryOf("Kitchen tools");
+
+        // Verify
+        Assertions.assertSame(category1, category2);
+        Assertions.assertNotEquals(category1.getId(), otherCategory.getId());
+        Assertions.assertEquals("Garden tools", category1.getName());
+        Assertions.assertEquals(category1.getId(), dictionary.find("Garden tools"));
+    }
+
+    @Test
+    public void testNullCategory()
+    {
+        // Verify
+        Assertions.assertNull(dictionary.categoryOf(null));
+        Assertions.assertEquals(CategoryDictionary.NO_CATEGORY, dictionary.find(null));
+        Assertions.assertNull(new StockItem(1).getCategory());
+    }
+
+    @Test
+    public void testFindDoesNotAddCategories()
+    {
+        // Setup
+        int size = dictionary.size();
+
+        // Exercise
+        int result = dictionary.find("Category which is never used");
+
+        // Verify
+        Assertions.assertEquals(CategoryDictionary.UNKNOWN_CATEGORY, result);
+        Assertions.assertEquals(size, dictionary.size());
+    }
+
+    @Test
+    public void testItemsShareCategoryString()
+    {
+        // Setup
+        StockItem item1 = new StockItem(1);
+        StockItem item2 = new StockItem(2);
+
+        // Exercise
+        item1.setCategory(new String("Stationery"));
+        item2.setCategory(new String("Stationery"));
+
+        // Verify
+        // Both items should store the id of the category rather than their own copy of the name
+        Assertions.assertEquals(item1.getCategoryId(), item2.getCategoryId());
+        Assertions.assertSame(item1.getCategory(), item2.getCategory());
+        Assertions.assertEquals(CategoryDictionary.NO_CATEGORY, new StockItem(3).getCategoryId());
+    }
+
+    @Test
+    public void testConcurrentAdditionsGetDistinctIds() throws Exception
+    {
+        // Setup
+        int numThreads = 8;
+        int numNames = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<CategoryDictionary.Category[]>> futures = new ArrayList<>();
+
+        // Exercise
+        // Every thread adds the same names, in a different order, and holds on to the categories so that they stay
+        // in use
+        for(int t = 0; t < numThreads; t++)
+        {
+            int offset = t * 37;
+            futures.add(executor.submit(() -> {
+                CategoryDictionary.Category[] categories = new CategoryDictionary.Category[numNames];
+                for(int i = 0; i < numNames; i++)
+                {
+                    categories[i] = dictionary.categoryOf("Concurrent category " + (i + offset) % numNames);
+                }
+                return categories;
+            }));
+        }
+        List<CategoryDictionary.Category[]> results = new ArrayList<>();
+        for(Future<CategoryDictionary.Category[]> future : futures)
+        {
+            results.add(future.get());
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Verify
+        Set<Integer> ids = new HashSet<>();
+        for(int i = 0; i < numNames; i++)
+        {
+            String name = "Concurrent category " + i;
+            CategoryDictionary.Category category = dictionary.categoryOf(name);
+            Assertions.assertEquals(name, category.getName());
+            ids.add(category.getId());
+            // Every thread should have been given the same category for the name
+            for(int t = 0; t < numThreads; t++)
+            {
+                int offset = t * 37;
+                Assertions.assertSame(category, results.get(t)[(i - offset + numNames) % numNames]);
+            }
+        }
+        Assertions.assertEquals(numNames, ids.size());
+    }
+
+    @Test
+    public void testIdsOfUnusedCategoriesAreReused() throws Exception
+    {
+        // Setup
+        String oldName = "Category which stops being used";
+        StockItem item = new StockItem(1);
+        item.setCategory(oldName);
+        int oldId = item.getCategoryId();
+
+        // Exercise
+        // Once no item holds the category, it is forgotten after the next garbage collection
+        item.setCategory(null);
+        for(int i = 0; i < 100 && dictionary.find(oldName) != CategoryDictionary.UNKNOWN_CATEGORY; i++)
+        {
+            System.gc();
+            Thread.sleep(10);
+        }
+        // Ids given back by categories of other tests may be given out first, and the new categories are held so that
+        // their own ids are not given back
+        Set<Integer> newIds = new HashSet<>();
+        List<CategoryDictionary.Category> newCategories = new ArrayList<>();
+        for(int i = 0; i < 10000 && !newIds.contains(oldId); i++)
+        {
+            CategoryDictionary.Category category = dictionary.categoryOf("New category " + i);
+            newCategories.add(category);
+            newIds.add(category.getId());
+        }
+
+        // Verify
+        Assertions.assertEquals(CategoryDictionary.UNKNOWN_CATEGORY, dictionary.find(oldName));
+        Assertions.assertTrue(newIds.contains(oldId));
+    }
+}
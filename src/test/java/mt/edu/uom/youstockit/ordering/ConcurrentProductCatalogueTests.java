@@ -0,0 +1,126 @@
+package mt.edu.uom.youstockit.ordering;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Runs all product catalogue tests against the concurrent catalogue, together with tests using several threads
+public class ConcurrentProductCatalogueTests extends ProductCatalogueTests
+{
+    @BeforeEach
+    @Override
+    public void setup()
+    {
+        // Create a new concurrent product catalogue before each test
+        productCatalogue = new ConcurrentProductCatalogue();
+    }
+
+    @Test
+    public void testConcurrentAddAndRemove() throws InterruptedException
+    {
+        // Setup
+        // Every thread adds its own items, and then removes half of them
+        int numThreads = 8;
+        int itemsPerThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+        // Exercise
+        for(int t = 0; t < numThreads; t++)
+        {
+            int firstId = t * itemsPerThread;
+            executor.execute(() -> {
+                for(int id = firstId; id < firstId + itemsPerThread; id++)
+                {
+                    StockItem item = new StockItem(id);
+                    item.setCategory(id % 2 == 0 ? "Even" : "Odd");
+                    productCatalogue.add(item);
+                }
+                for(int id = firstId; id < firstId + itemsPerThread; id += 2)
+                {
+                    productCatalogue.remove(id);
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Verify
+        // Only the items with odd ids should be left
+        List<StockItem> items = productCatalogue.getAll();
+        Assertions.assertEquals(numThreads * itemsPerThread / 2, items.size());
+        Assertions.assertEquals(0, productCatalogue.countByCategory("Even"));
+        Assertions.assertEquals(numThreads * itemsPerThread / 2, productCatalogue.countByCategory("Odd"));
+        for(StockItem item : items)
+        {
+            Assertions.assertEquals(1, item.getId() % 2);
+        }
+    }
+
+    @Test
+    public void testConcurrentAddOfSameIdOnlyAddsOneItem() throws InterruptedException
+    {
+        // Setup
+        int numThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+        // Exercise
+        // All threads try to add a different item with the same id
+        for(int t = 0; t < numThreads; t++)
+        {
+            executor.execute(() -> productCatalogue.add(new StockItem(1)));
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Verify
+        Assertions.assertEquals(1, productCatalogue.getAll().size());
+    }
+
+    @Test
+    public void testSnapshotsAreConsistentDuringWrites() throws InterruptedException
+    {
+        // Setup
+        // Writers move every item from one category to another, so a snapshot which saw part of a move would list the
+        // item under both categories or neither
+        int numThreads = 4;
+        int numItems = 1000;
+        for(int id = 0; id < numItems; id++)
+        {
+            StockItem item = new StockItem(id);
+            item.setCategory("Category1");
+            productCatalogue.add(item);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+        // Exercise
+        for(int t = 0; t < numThreads; t++)
+        {
+            int firstId = t * (numItems / numThreads);
+            executor.execute(() -> {
+                for(int id = firstId; id < firstId + numItems / numThreads; id++)
+                {
+                    productCatalogue.getById(id).setCategory("Category2");
+                }
+            });
+        }
+        executor.shutdown();
+
+        // Verify
+        // Every snapshot should have all items, each listed under exactly one category
+        while(!executor.isTerminated())
+        {
+            CatalogueSnapshot snapshot = productCatalogue.snapshot();
+            Assertions.assertEquals(numItems, snapshot.size());
+            Assertions.assertEquals(numItems, snapshot.countByCategory("Category1")
+                    + snapshot.countByCategory("Category2"));
+        }
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(numItems, productCatalogue.countByCategory("Category2"));
+        Assertions.assertEquals(0, productCatalogue.countByCategory("Category1"));
+    }
+}
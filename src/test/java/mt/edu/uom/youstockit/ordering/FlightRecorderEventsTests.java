@@ -0,0 +1,166 @@
+package mt.edu.uom.youstockit.ordering;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import mt.edu.uom.youstockit.services.ServiceLocator;
+import mt.edu.uom.youstockit.services.email.EmailSender;
+import mt.edu.uom.youstockit.supplier.Supplier;
+import mt.edu.uom.youstockit.supplier.SupplierErrorCode;
+import mt.edu.uom.youstockit.supplier.SupplierServerMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class FlightRecorderEventsTests
+{
+    @TempDir
+    Path directory;
+    StockOrderer orderer;
+
+    @BeforeEach
+    public void setup()
+    {
+        ServiceLocator.getInstance().registerService("EmailSender", Mockito.mock(EmailSender.class));
+        // Create a stock orderer which tries twice, waiting 10 milliseconds between attempts
+        orderer = new StockOrderer(Executors.newSingleThreadScheduledExecutor(), 2, 10);
+    }
+
+    @AfterEach
+    public void teardown()
+    {
+        orderer.shutdown();
+        orderer = null;
+        ServiceLocator.getInstance().clear();
+    }
+
+    @Test
+    public void testRestockPipelineIsRecorded() throws Exception
+    {
+        // Setup
+        // The supplier cannot be reached at first, and then runs out of stock (which emails the manager)
+        SupplierServerMock serverMock = new SupplierServerMock();
+        serverMock.addResponse(0, SupplierErrorCode.COMMUNICATION_ERROR);
+        serverMock.addResponse(10, SupplierErrorCode.OUT_OF_STOCK);
+        Supplier supplier = new Supplier();
+        supplier.id = 7;
+        supplier.supplierServer = serverMock;
+        StockItem stockItem = new StockItem(1);
+        stockItem.setQuantity(10);
+        stockItem.setMinimumOrderQuantity(20);
+        stockItem.setOrderAmount(30);
+        stockItem.setSupplier(supplier);
+
+        List<RecordedEvent> events;
+        try(Recording recording = new Recording())
+        {
+            recording.enable("youstockit.Order");
+            recording.enable("youstockit.RestockAttempt");
+            recording.enable("youstockit.Email");
+            recording.start();
+
+            // Exercise
+            orderer.processOrder(stockItem, 5);
+            orderer.processOrder(stockItem, 50);
+            // Wait for the restock started by the first order
+            orderer.orderMore(stockItem).get(30, TimeUnit.SECONDS);
+
+            recording.stop();
+            Path file = directory.resolve("recording.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        // Verify
+        List<RecordedEvent> orders = eventsNamed(events, "youstockit.Order");
+        Assertions.assertEquals(2, orders.size());
+        Assertions.assertEquals(1, orders.get(0).getInt("itemId"));
+        Assertions.assertEquals(7, orders.get(0).getInt("supplierId"));
+        Assertions.assertTrue(orders.get(0).getBoolean("succeeded"));
+        Assertions.assertTrue(orders.get(0).getBoolean("restockStarted"));
+        Assertions.assertFalse(orders.get(1).getBoolean("succeeded"));
+
+        List<RecordedEvent> attempts = eventsNamed(events, "youstockit.RestockAttempt");
+        Assertions.assertEquals(2, attempts.size());
+        Assertions.assertEquals(1, attempts.get(0).getInt("attempt"));
+        Assertions.assertEquals("COMMUNICATION_ERROR", attempts.get(0).getString("errorCode"));
+        Assertions.assertEquals(2, attempts.get(1).getInt("attempt"));
+        Assertions.assertEquals("OUT_OF_STOCK", attempts.get(1).getString("errorCode"));
+        Assertions.assertEquals(7, attempts.get(1).getInt("supplierId"));
+
+        List<RecordedEvent> emails = eventsNamed(events, "youstockit.Email");
+        Assertions.assertEquals(1, emails.size());
+        Assertions.assertEquals("manager", emails.get(0).getString("recipient"));
+        Assertions.assertEquals(1, emails.get(0).getInt("itemId"));
+    }
+
+    @Test
+    public void testEveryItemInBatchOfOrdersIsRecorded() throws Exception
+    {
+        // Setup
+        StockItem item1 = new StockItem(1);
+        item1.setQuantity(10);
+        StockItem item2 = new StockItem(2);
+        item2.setQuantity(10);
+
+        List<RecordedEvent> events;
+        try(Recording recording = new Recording())
+        {
+            recording.enable("youstockit.Order");
+            recording.start();
+
+            // Exercise
+            // The first batch is processed, and the second is rejected since item 2 does not have enough stock
+            orderer.processOrders(new StockItem[] {item1, item2}, new int[] {3, 4});
+            orderer.processOrders(new StockItem[] {item1, item2}, new int[] {1, 50});
+
+            recording.stop();
+            Path file = directory.resolve("recording.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        // Verify
+        List<RecordedEvent> orders = eventsNamed(events, "youstockit.Order");
+        Assertions.assertEquals(4, orders.size());
+        int[] succeeded = new int[3];
+        long totalQuantity = 0;
+        for(RecordedEvent order : orders)
+        {
+            Assertions.assertEquals(2, order.getInt("itemsInBatch"));
+            if(order.getBoolean("succeeded"))
+            {
+                succeeded[order.getInt("itemId")]++;
+                totalQuantity += order.getInt("quantity");
+            }
+        }
+        // Only the orders of the first batch succeeded, once for each item
+        Assertions.assertEquals(1, succeeded[1]);
+        Assertions.assertEquals(1, succeeded[2]);
+        Assertions.assertEquals(7, totalQuantity);
+    }
+
+    // Helper function which returns the events of a type, in the order they started
+    private static List<RecordedEvent> eventsNamed(List<RecordedEvent> events, String name)
+    {
+        List<RecordedEvent> result = new ArrayList<>();
+        for(RecordedEvent event : events)
+        {
+            if(event.getEventType().getName().equals(name))
+            {
+                result.add(event);
+            }
+        }
+        result.sort((event1, event2) -> event1.getStartTime().compareTo(event2.getStartTime()));
+        return result;
+    }
+}
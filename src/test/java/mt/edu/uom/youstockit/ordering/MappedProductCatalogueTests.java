@@ -0,0 +1,337 @@
+package mt.edu.uom.youstockit.ordering;
+
+import mt.edu.uom.youstockit.persistence.ColumnarCatalogueFile;
+import mt.edu.uom.youstockit.supplier.Supplier;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Runs all product catalogue tests against a catalogue opened from an empty file, together with tests reading items
+// from a file
+public class MappedProductCatalogueTests extends ProductCatalogueTests
+{
+    @TempDir
+    Path directory;
+    Supplier supplier;
+
+    @BeforeEach
+    @Override
+    public void setup()
+    {
+        supplier = new Supplier();
+        supplier.id = 3;
+
+        // Open a new catalogue from an empty file before each test
+        try
+        {
+            productCatalogue = openCatalogue(Collections.<StockItem>emptyList());
+        }
+        catch (IOException e)
+        {
+            Assertions.fail(e);
+        }
+    }
+
+    @Test
+    public void testItemsAreReadFromFile() throws IOException
+    {
+        // Setup
+        StockItem item = createItem(1, "Chocolate bar", "Sweets");
+        item.setDescription("Milk chocolate");
+        item.restoreSales(15, 675);
+
+        // Exercise
+        ProductCatalogue catalogue = openCatalogue(Collections.singletonList(item));
+        StockItem result = catalogue.getById(1);
+
+        // Verify
+        Assertions.assertNotSame(item, result);
+        Assertions.assertEquals("Chocolate bar", result.getName());
+        Assertions.assertEquals("Sweets", result.getCategory());
+        Assertions.assertEquals("Milk chocolate", result.getDescription());
+        Assertions.assertEquals(50, result.getQuantity());
+        Assertions.assertEquals(5, result.getMinimumOrderQuantity());
+        Assertions.assertEquals(10, result.getOrderAmount());
+        Assertions.assertEquals(80, result.getBuyingPriceCents());
+        Assertions.assertEquals(125, result.getSellingPriceCents());
+        Assertions.assertEquals(15, result.getNumTimesSold());
+        Assertions.assertEquals(675, result.getProfitCents());
+        Assertions.assertSame(supplier, result.getSupplier());
+        // The same item should be returned every time, so that changes made to it are kept
+        Assertions.assertSame(result, catalogue.getById(1));
+    }
+
+    @Test
+    public void testItemsWithoutValuesAreReadFromFile() throws IOException
+    {
+        // Setup
+        StockItem item = new StockItem(1);
+
+        // Exercise
+        StockItem result = openCatalogue(Collections.singletonList(item)).getById(1);
+
+        // Verify
+        Assertions.assertNull(result.getName());
+        Assertions.assertNull(result.getCategory());
+        Assertions.assertNull(result.getDescription());
+        Assertions.assertEquals(-1, result.getQuantity());
+        Assertions.assertEquals(-1, result.getOrderAmount());
+        Assertions.assertNull(result.getSupplier());
+    }
+
+    @Test
+    public void testFindItemsAmongManyItemsInFile() throws IOException
+    {
+        // Setup
+        List<StockItem> items = new ArrayList<>();
+        for(int i = 0; i < 1000; i++)
+        {
+            items.add(createItem(i * 7, "Item number " + i, "Category " + (i % 10)));
+        }
+
+        // Exercise
+        ProductCatalogue catalogue = openCatalogue(items);
+
+        // Verify
+        Assertions.assertEquals(1000, catalogue.getAll().size());
+        Assertions.assertEquals("Item number 123", catalogue.getById(123 * 7).getName());
+        Assertions.assertNull(catalogue.getById(5));
+        Assertions.assertEquals(100, catalogue.countByCategory("Category 3"));
+        Assertions.assertEquals(0, catalogue.countByCategory("Category 10"));
+    }
+
+    @Test
+    public void testCategoryQueriesCombineFileAndNewItems() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = openCatalogue(Arrays.asList(createItem(1, "Chocolate bar", "Sweets"),
+                createItem(2, "Orange juice", "Drinks"), createItem(3, "Jelly beans", "Sweets")));
+        StockItem newItem = createItem(4, "Toffee apple", "Sweets");
+
+        // Exercise
+        catalogue.add(newItem);
+        // Move an item from the file to another category after it has been read
+        catalogue.getById(3).setCategory("Drinks");
+        List<StockItem> result = catalogue.getByCategory("Sweets");
+
+        // Verify
+        Assertions.assertEquals(2, result.size());
+        Assertions.assertEquals(1, result.get(0).getId());
+        Assertions.assertSame(newItem, result.get(1));
+        Assertions.assertEquals(2, catalogue.countByCategory("Drinks"));
+    }
+
+    @Test
+    public void testItemsInFileMovedBetweenCategoriesAreFound() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = openCatalogue(Arrays.asList(createItem(1, "Chocolate bar", "Sweets"),
+                createItem(2, "Orange juice", "Drinks"), createItem(3, "Jelly beans", null),
+                createItem(4, "Toffee apple", "Sweets")));
+
+        // Exercise
+        // Move items from the file into categories which the file does not list them under, and one back again
+        catalogue.getById(1).setCategory("Drinks");
+        catalogue.getById(3).setCategory("Sweets");
+        catalogue.getById(4).setCategory(null);
+        catalogue.getById(4).setCategory("Sweets");
+        List<StockItem> drinks = catalogue.getByCategory("Drinks");
+
+        // Verify
+        Assertions.assertEquals(2, drinks.size());
+        Assertions.assertEquals(2, drinks.get(0).getId());
+        Assertions.assertEquals(1, drinks.get(1).getId());
+        Assertions.assertEquals(2, catalogue.countByCategory("Sweets"));
+        Assertions.assertEquals(0, catalogue.countByCategory(null));
+        Assertions.assertEquals(0, catalogue.countByCategory("Fruit"));
+    }
+
+    @Test
+    public void testWritingDuplicateIdsKeepsExistingFile() throws IOException
+    {
+        // Setup
+        Path file = directory.resolve("catalogue.col");
+        ColumnarCatalogueFile.write(file, Collections.singletonList(createItem(1, "Chocolate bar", "Sweets")));
+        List<StockItem> duplicates = Arrays.asList(createItem(2, "Orange juice", "Drinks"),
+                createItem(2, "Jelly beans", "Sweets"));
+
+        // Exercise
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ColumnarCatalogueFile.write(file, duplicates));
+
+        // Verify
+        MappedProductCatalogue catalogue = MappedProductCatalogue.open(file, id -> supplier);
+        Assertions.assertEquals(1, catalogue.size());
+        Assertions.assertEquals("Chocolate bar", catalogue.getById(1).getName());
+        Assertions.assertFalse(Files.exists(directory.resolve("catalogue.col.tmp")));
+        catalogue.close();
+    }
+
+    @Test
+    public void testRemoveItemInFile() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = openCatalogue(Arrays.asList(createItem(1, "Chocolate bar", "Sweets"),
+                createItem(2, "Orange juice", "Drinks")));
+
+        // Exercise
+        boolean removed = catalogue.remove(1);
+        boolean removedAgain = catalogue.remove(1);
+
+        // Verify
+        Assertions.assertTrue(removed);
+        Assertions.assertFalse(removedAgain);
+        Assertions.assertNull(catalogue.getById(1));
+        Assertions.assertEquals(0, catalogue.countByCategory("Sweets"));
+        Assertions.assertEquals(1, catalogue.getAll().size());
+        // The id of a removed item can be used again
+        Assertions.assertTrue(catalogue.add(createItem(1, "Toffee apple", "Sweets")));
+        Assertions.assertEquals("Toffee apple", catalogue.getById(1).getName());
+    }
+
+    @Test
+    public void testAddItemWithIdInFile() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = openCatalogue(Collections.singletonList(createItem(1, "Chocolate bar", "Sweets")));
+
+        // Exercise
+        boolean result = catalogue.add(createItem(1, "Toffee apple", "Sweets"));
+
+        // Verify
+        Assertions.assertFalse(result);
+        Assertions.assertEquals("Chocolate bar", catalogue.getById(1).getName());
+    }
+
+    @Test
+    public void testGetPagesOfFileAndNewItems() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = openCatalogue(Arrays.asList(createItem(1, "Chocolate bar", "Sweets"),
+                createItem(2, "Orange juice", "Drinks"), createItem(3, "Jelly beans", "Sweets")));
+        catalogue.add(createItem(4, "Toffee apple", "Sweets"));
+        catalogue.remove(2);
+
+        // Exercise
+        CataloguePage page1 = catalogue.getPage(CatalogueCursor.START, 2);
+        CataloguePage page2 = catalogue.getPage(page1.next, 2);
+
+        // Verify
+        // Items in the file should come first, followed by the items added later
+        Assertions.assertEquals(1, page1.items.get(0).getId());
+        Assertions.assertEquals(3, page1.items.get(1).getId());
+        Assertions.assertEquals(1, page2.items.size());
+        Assertions.assertEquals(4, page2.items.get(0).getId());
+        Assertions.assertFalse(page2.hasNext());
+    }
+
+    @Test
+    public void testSalesOfItemsInFileAreReported() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = openCatalogue(Collections.singletonList(createItem(1, "Chocolate bar", "Sweets")));
+        CatalogueListener listener = Mockito.mock(CatalogueListener.class);
+        catalogue.setListener(listener);
+        StockItem item = catalogue.getById(1);
+
+        // Exercise
+        new ProfitAccumulator().recordSale(item, 4);
+
+        // Verify
+        // Reading the item from the file should not report it as a new item, but its sales should be reported
+        Mockito.verify(listener, Mockito.never()).itemAdded(item);
+        Mockito.verify(listener).itemSold(item, 4, 180L);
+        Assertions.assertEquals(180, item.getProfitCents());
+    }
+
+    @Test
+    public void testTotalProfitCombinesFileAndNewItems() throws IOException
+    {
+        // Setup
+        StockItem item1 = createItem(1, "Chocolate bar", "Sweets");
+        item1.restoreSales(15, 675);
+        StockItem item2 = createItem(2, "Lollipop", "Sweets");
+        item2.restoreSales(2, 100);
+        StockItem item3 = createItem(3, "Orange juice", "Drinks");
+        item3.restoreSales(1, 300);
+        ProductCatalogue catalogue = openCatalogue(Arrays.asList(item1, item2, item3));
+        StockItem newItem = createItem(4, "Apple juice", "Drinks");
+        newItem.restoreSales(1, 50);
+
+        // Exercise
+        // Change the profit of an item built from the file, remove another one and add a new item
+        catalogue.getById(1).restoreSales(1, 45);
+        catalogue.remove(2);
+        catalogue.add(newItem);
+        long totalProfit = catalogue.getTotalProfitCents();
+
+        // Verify
+        Assertions.assertEquals(675 + 45 + 300 + 50, totalProfit);
+    }
+
+    @Test
+    public void testItemsInFileAreBuiltOnceWhenReservedConcurrently() throws IOException, InterruptedException
+    {
+        // Setup
+        StockItem item = createItem(1, "Chocolate bar", "Sweets");
+        item.setQuantity(10000);
+        ProductCatalogue catalogue = openCatalogue(Collections.singletonList(item));
+        int numThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+        // Exercise
+        // Every thread looks the item up before it has been built, and reserves items until none are left
+        for(int t = 0; t < numThreads; t++)
+        {
+            executor.execute(() -> {
+                StockItem result = catalogue.getById(1);
+                while(result.reserveQuantity(3) >= 0)
+                {
+                    result.incrementNumTimesSold(3);
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Verify
+        // If the item had been built more than once, its stock would have been sold once per item
+        StockItem result = catalogue.getById(1);
+        Assertions.assertEquals(10000 % 3, result.getQuantity());
+        Assertions.assertEquals(10000 - 10000 % 3, result.getNumTimesSold());
+    }
+
+    // Helper function which writes items to a file and opens a catalogue serving them
+    private ProductCatalogue openCatalogue(List<StockItem> items) throws IOException
+    {
+        Path file = directory.resolve("catalogue.col");
+        ColumnarCatalogueFile.write(file, items);
+        return MappedProductCatalogue.open(file, id -> id == supplier.id ? supplier : null);
+    }
+
+    // Helper function which creates an item with every value set
+    private StockItem createItem(int id, String name, String category)
+    {
+        StockItem item = new StockItem(id);
+        item.setName(name);
+        item.setCategory(category);
+        item.setQuantity(50);
+        item.setMinimumOrderQuantity(5);
+        item.setOrderAmount(10);
+        item.setBuySellPricesCents(80, 125);
+        item.setSupplier(supplier);
+        return item;
+    }
+}
@@ -2,11 +2,21 @@ package mt.edu.uom.youstockit.ordering;
 
 import mt.edu.uom.youstockit.services.email.EmailSender;
 import mt.edu.uom.youstockit.services.ServiceLocator;
+import mt.edu.uom.youstockit.services.metrics.MetricsRegistry;
+import mt.edu.uom.youstockit.services.metrics.MetricsSnapshot;
+import mt.edu.uom.youstockit.supplier.FixedDelayRetryPolicy;
+import mt.edu.uom.youstockit.supplier.Supplier;
+import mt.edu.uom.youstockit.supplier.SupplierErrorCode;
+import mt.edu.uom.youstockit.supplier.SupplierServerMock;
 import org.junit.jupiter.api.*;
 import org.mockito.Mockito;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -21,6 +31,7 @@ public class OrderingFacadeTests
     StockOrderer stockOrderer;
     ProductCatalogue availableItems;
     ProductCatalogue discontinuedItems;
+    ProfitAccumulator profitAccumulator;
     OrderingFacade orderingFacade;
 
     @BeforeAll
@@ -41,6 +52,9 @@ public class OrderingFacadeTests
         stockOrderer = Mockito.mock(StockOrderer.class);
         availableItems = Mockito.mock(ProductCatalogue.class);
         discontinuedItems = Mockito.mock(ProductCatalogue.class);
+        // Use a real profit accumulator for the mocked stock orderer, so that tests can record sales
+        profitAccumulator = new ProfitAccumulator();
+        when(stockOrderer.getProfitAccumulator()).thenReturn(profitAccumulator);
         // Then create new instance of the SUT
         orderingFacade = new OrderingFacade(stockOrderer, availableItems, discontinuedItems);
     }
@@ -52,6 +66,7 @@ public class OrderingFacadeTests
         emailSender = null;
         stockOrderer = null;
         availableItems = null;
+        profitAccumulator = null;
         orderingFacade = null;
 
         // Clear service locator state after each test
@@ -72,7 +87,7 @@ public class OrderingFacadeTests
         // Order should fail since stock item with id is not found
         Assertions.assertFalse(response.succeeded);
         String expectedMessage = "Stock item with ID 1 does not exist.";
-        Assertions.assertEquals(response.message, expectedMessage);
+        Assertions.assertEquals(response.getMessage(), expectedMessage);
     }
 
     @Test
@@ -92,7 +107,7 @@ public class OrderingFacadeTests
         // Verify
         Assertions.assertFalse(response.succeeded);
         String expectedMessage = "Requested quantity is invalid. Must be between 1 and 20 (inclusive).";
-        Assertions.assertEquals(response.message, expectedMessage);
+        Assertions.assertEquals(response.getMessage(), expectedMessage);
     }
 
     @Test
@@ -112,7 +127,7 @@ public class OrderingFacadeTests
         // Verify
         Assertions.assertFalse(response.succeeded);
         String expectedMessage = "Requested quantity is invalid. Item is out of stock.";
-        Assertions.assertEquals(response.message, expectedMessage);
+        Assertions.assertEquals(response.getMessage(), expectedMessage);
     }
 
     @Test
@@ -131,7 +146,42 @@ public class OrderingFacadeTests
         // Verify
         Assertions.assertTrue(response.succeeded);
         String expectedMessage = "Order placed successfully.";
-        Assertions.assertEquals(response.message, expectedMessage);
+        Assertions.assertEquals(response.getMessage(), expectedMessage);
+    }
+
+    @Test
+    public void testPlaceOrderReusesSharedResponses()
+    {
+        // Setup
+        StockItem stockItem = new StockItem(1);
+        when(availableItems.getById(anyInt())).thenReturn(stockItem);
+        when(stockOrderer.processOrder(eq(stockItem), anyInt())).thenReturn(true);
+
+        // Exercise
+        FacadeResponse response1 = orderingFacade.placeOrder(1, 20);
+        FacadeResponse response2 = orderingFacade.placeOrder(1, 20);
+
+        // Verify
+        // Successful orders should not create a new response each time
+        Assertions.assertSame(FacadeResponse.ORDER_PLACED, response1);
+        Assertions.assertSame(response1, response2);
+        Assertions.assertEquals(ResponseStatus.ORDER_PLACED, response1.status);
+    }
+
+    @Test
+    public void testResponseStatusOfUnknownItem()
+    {
+        // Setup
+        when(availableItems.getById(anyInt())).thenReturn(null);
+
+        // Exercise
+        FacadeResponse response = orderingFacade.placeOrder(42, 20);
+
+        // Verify
+        // The status and item id should be available without building the message
+        Assertions.assertFalse(response.succeeded);
+        Assertions.assertEquals(ResponseStatus.ITEM_NOT_FOUND, response.status);
+        Assertions.assertEquals(42, response.getItemId());
     }
 
     @Test
@@ -156,7 +206,7 @@ public class OrderingFacadeTests
         // Verify
         Assertions.assertTrue(response.succeeded);
         String expectedMessage = "Order placed successfully.\nItem has gone out of stock, removing from catalogue...";
-        Assertions.assertEquals(response.message, expectedMessage);
+        Assertions.assertEquals(response.getMessage(), expectedMessage);
         // Since all items in stock are bought, the system should try to delete the item
         verify(availableItems, times(1)).remove(eq(1));
         // It should also try to add it to the catalogue of discontinued items
@@ -176,7 +226,7 @@ public class OrderingFacadeTests
         // Verify
         Assertions.assertFalse(response.succeeded);
         String expectedMessage = "Stock item with ID 1 does not exist.";
-        Assertions.assertEquals(response.message, expectedMessage);
+        Assertions.assertEquals(response.getMessage(), expectedMessage);
     }
 
     @Test
@@ -194,9 +244,9 @@ public class OrderingFacadeTests
         FacadeResponse response = orderingFacade.deleteItem(1);
 
         // Verify
-        Assertions.assertFalse(response.succeeded);
+        Assertions.assertTrue(response.succeeded);
         String expectedMessage = "Deleted item from catalogue and notified manager via email.";
-        Assertions.assertEquals(response.message, expectedMessage);
+        Assertions.assertEquals(response.getMessage(), expectedMessage);
         // Check that the method tried to notify the manager via email
         verify(emailSender, times(1)).sendEmailToManager(anyString());
     }
@@ -216,41 +266,207 @@ public class OrderingFacadeTests
         FacadeResponse response = orderingFacade.deleteItem(1);
 
         // Verify
-        Assertions.assertFalse(response.succeeded);
+        Assertions.assertTrue(response.succeeded);
         String expectedMessage = "Deleted item from catalogue";
-        Assertions.assertEquals(response.message, expectedMessage);
+        Assertions.assertEquals(response.getMessage(), expectedMessage);
         // Check that the method did not try to notify the manager via email
         verify(emailSender, times(0)).sendEmailToManager(anyString());
     }
 
     @Test
-    public void testCalculateProfitWithEmptyProductCatalogues()
+    public void testPlaceOrdersAddsUpAmountsForSameItem()
     {
         // Setup
-        // Set product catalogue to return an empty list
-        List<StockItem> items = new ArrayList<>();
-        when(availableItems.getAll()).thenReturn(items);
+        StockItem item1 = new StockItem(1);
+        item1.setQuantity(20);
+        StockItem item2 = new StockItem(2);
+        item2.setQuantity(20);
+        when(availableItems.getById(eq(1))).thenReturn(item1);
+        when(availableItems.getById(eq(2))).thenReturn(item2);
+        // Record the orders passed to the stock orderer
+        List<StockItem> orderedItems = new ArrayList<>();
+        List<Integer> orderedAmounts = new ArrayList<>();
+        doAnswer(invocationOnMock -> {
+            StockItem[] items = invocationOnMock.getArgumentAt(0, StockItem[].class);
+            int[] amounts = invocationOnMock.getArgumentAt(1, int[].class);
+            for(int i = 0; i < items.length; i++)
+            {
+                orderedItems.add(items[i]);
+                orderedAmounts.add(amounts[i]);
+            }
+            return -1;
+        }).when(stockOrderer).processOrders(any(StockItem[].class), any(int[].class));
+
+        // Exercise
+        FacadeResponse response = orderingFacade.placeOrders(new int[] {1, 2, 1}, new int[] {3, 4, 5});
+
+        // Verify
+        Assertions.assertTrue(response.succeeded);
+        Assertions.assertEquals("Order placed successfully.", response.getMessage());
+        // Each item should be looked up and ordered once, in the order in which it first appeared
+        verify(availableItems, times(1)).getById(1);
+        verify(availableItems, times(1)).getById(2);
+        Assertions.assertEquals(2, orderedItems.size());
+        Assertions.assertSame(item1, orderedItems.get(0));
+        Assertions.assertSame(item2, orderedItems.get(1));
+        Assertions.assertEquals(8, (int) orderedAmounts.get(0));
+        Assertions.assertEquals(4, (int) orderedAmounts.get(1));
+    }
+
+    @Test
+    public void testPlaceOrdersWhenItemDoesNotExist()
+    {
+        // Setup
+        StockItem item1 = new StockItem(1);
+        item1.setQuantity(20);
+        when(availableItems.getById(eq(1))).thenReturn(item1);
+        when(availableItems.getById(eq(2))).thenReturn(null);
+
+        // Exercise
+        FacadeResponse response = orderingFacade.placeOrders(new int[] {1, 2}, new int[] {3, 4});
+
+        // Verify
+        // No order should be placed, since one of the items does not exist
+        Assertions.assertFalse(response.succeeded);
+        Assertions.assertEquals("Stock item with ID 2 does not exist.", response.getMessage());
+        verify(stockOrderer, times(0)).processOrders(any(StockItem[].class), any(int[].class));
+    }
+
+    @Test
+    public void testPlaceOrdersWhenAmountIsNotPositive()
+    {
+        // Setup
+        StockItem item1 = new StockItem(1);
+        item1.setQuantity(20);
+        when(availableItems.getById(eq(1))).thenReturn(item1);
+
+        // Exercise
+        // The negative amount should not be allowed to cancel out part of the first amount
+        FacadeResponse response = orderingFacade.placeOrders(new int[] {1, 1}, new int[] {30, -15});
+
+        // Verify
+        Assertions.assertFalse(response.succeeded);
+        Assertions.assertEquals("Requested quantity of item with ID 1 is invalid.", response.getMessage());
+        verify(stockOrderer, times(0)).processOrders(any(StockItem[].class), any(int[].class));
+    }
+
+    @Test
+    public void testPlaceOrdersWhenThereIsNotEnoughStock()
+    {
+        // Setup
+        StockItem item1 = new StockItem(1);
+        item1.setQuantity(20);
+        StockItem item2 = new StockItem(2);
+        item2.setQuantity(5);
+        when(availableItems.getById(eq(1))).thenReturn(item1);
+        when(availableItems.getById(eq(2))).thenReturn(item2);
+        // Set stock orderer to reject the order for the second item
+        when(stockOrderer.processOrders(any(StockItem[].class), any(int[].class))).thenReturn(1);
 
+        // Exercise
+        FacadeResponse response = orderingFacade.placeOrders(new int[] {1, 2}, new int[] {3, 6});
+
+        // Verify
+        Assertions.assertFalse(response.succeeded);
+        String expectedMessage = "Requested quantity of item with ID 2 is invalid. Must be between 1 and 5 (inclusive).";
+        Assertions.assertEquals(expectedMessage, response.getMessage());
+    }
+
+    @Test
+    public void testPlaceOrdersMovesSoldOutItemsToDiscontinuedCatalogue()
+    {
+        // Setup
+        // The first item should not be restocked, the second one should
+        StockItem item1 = new StockItem(1);
+        item1.setQuantity(10);
+        item1.setMinimumOrderQuantity(0);
+        StockItem item2 = new StockItem(2);
+        item2.setQuantity(10);
+        item2.setMinimumOrderQuantity(5);
+        when(availableItems.getById(eq(1))).thenReturn(item1);
+        when(availableItems.getById(eq(2))).thenReturn(item2);
+        // Set stock orderer to sell all items in stock
+        doAnswer(invocationOnMock -> {
+            for(StockItem item : invocationOnMock.getArgumentAt(0, StockItem[].class))
+            {
+                item.setQuantity(0);
+            }
+            return -1;
+        }).when(stockOrderer).processOrders(any(StockItem[].class), any(int[].class));
+
+        // Exercise
+        FacadeResponse response = orderingFacade.placeOrders(new int[] {1, 2}, new int[] {10, 10});
+
+        // Verify
+        Assertions.assertTrue(response.succeeded);
+        String expectedMessage = "Order placed successfully.\n1 item(s) went out of stock, removing from catalogue...";
+        Assertions.assertEquals(expectedMessage, response.getMessage());
+        verify(availableItems, times(1)).remove(1);
+        verify(discontinuedItems, times(1)).add(item1);
+        verify(availableItems, times(0)).remove(2);
+    }
+
+    @Test
+    public void testItemIsDiscontinuedWhenSupplierNoLongerSellsIt() throws Exception
+    {
+        // Setup
+        // Use a real stock orderer, whose calls to the supplier can be waited for by shutting down its executor
+        ExecutorService supplierCallExecutor = Executors.newSingleThreadExecutor();
+        StockOrderer realStockOrderer = new StockOrderer(Executors.newSingleThreadScheduledExecutor(),
+                supplierCallExecutor, new FixedDelayRetryPolicy(1, 0, 10000), 10, 50);
+        ProductCatalogue realAvailableItems = new ProductCatalogue();
+        ProductCatalogue realDiscontinuedItems = new ProductCatalogue();
+        OrderingFacade facade = new OrderingFacade(realStockOrderer, realAvailableItems, realDiscontinuedItems);
+        // The supplier replies that it does not sell the item any more
+        SupplierServerMock serverMock = new SupplierServerMock();
+        serverMock.addResponse(0, SupplierErrorCode.ITEM_NOT_FOUND);
+        Supplier supplier = new Supplier();
+        supplier.supplierServer = serverMock;
+        StockItem stockItem = new StockItem(1);
+        stockItem.setQuantity(10);
+        stockItem.setMinimumOrderQuantity(5);
+        stockItem.setOrderAmount(20);
+        stockItem.setSupplier(supplier);
+        facade.addItem(stockItem);
+
+        // Exercise
+        // Sell every item, which starts a restock
+        FacadeResponse orderResponse = facade.placeOrder(1, 10);
+        CompletableFuture<SupplierErrorCode> restock = realStockOrderer.getRestockInProgress(stockItem);
+        Assertions.assertNotNull(restock);
+        Assertions.assertEquals(SupplierErrorCode.ITEM_NOT_FOUND, restock.get(10, TimeUnit.SECONDS));
+        supplierCallExecutor.shutdown();
+        Assertions.assertTrue(supplierCallExecutor.awaitTermination(10, TimeUnit.SECONDS));
+        FacadeResponse nextOrderResponse = facade.placeOrder(1, 1);
+
+        // Verify
+        // The order is placed before the supplier replies, and the item is discontinued once it does
+        Assertions.assertSame(FacadeResponse.ORDER_PLACED, orderResponse);
+        Assertions.assertEquals(ResponseStatus.ITEM_NOT_FOUND, nextOrderResponse.status);
+        Assertions.assertNull(realAvailableItems.getById(1));
+        Assertions.assertSame(stockItem, realDiscontinuedItems.getById(1));
+        realStockOrderer.shutdown();
+    }
+
+    @Test
+    public void testCalculateProfitWithNoSales()
+    {
         // Exercise
         double profits = orderingFacade.calculateProfit();
 
         // Verify
-        // Profits should be zero, since there are no stock items
+        // Profits should be zero, since nothing has been sold
         Assertions.assertEquals(0,profits);
     }
 
     @Test
-    public void testCalculateProfitWithOneAvailableItem()
+    public void testCalculateProfitWithOneItemSold()
     {
         // Setup
         // This stock item should have a profit of (0.5-0.25) * 20 = 5
         StockItem item = new StockItem(1);
         item.setBuySellPrices(0.25,0.5);
-        item.incrementNumTimesSold(20);
-        // Set product catalogue of available items to return a list with one item
-        List<StockItem> items = new ArrayList<>();
-        items.add(item);
-        when(availableItems.getAll()).thenReturn(items);
+        profitAccumulator.recordSale(item, 20);
 
         // Exercise
         double profits = orderingFacade.calculateProfit();
@@ -260,22 +476,17 @@ public class OrderingFacadeTests
     }
 
     @Test
-    public void testCalculateProfitWithTwoAvailableItems()
+    public void testCalculateProfitWithTwoItemsSold()
     {
         // Setup
         // This stock item should have a profit of (0.5-0.25) * 20 = 5
         StockItem item1 = new StockItem(1);
         item1.setBuySellPrices(0.25,0.5);
-        item1.incrementNumTimesSold(20);
+        profitAccumulator.recordSale(item1, 20);
         // This stock item should have a profit of (19.99 - 9.99) * 5 = 50
         StockItem item2 = new StockItem(2);
         item2.setBuySellPrices(9.99, 19.99);
-        item2.incrementNumTimesSold(5);
-        // Set product catalogue of available items to return a list with two items
-        List<StockItem> items = new ArrayList<>();
-        items.add(item1);
-        items.add(item2);
-        when(availableItems.getAll()).thenReturn(items);
+        profitAccumulator.recordSale(item2, 5);
 
         // Exercise
         double profits = orderingFacade.calculateProfit();
@@ -286,53 +497,110 @@ public class OrderingFacadeTests
     }
 
     @Test
-    public void testCalculateProfitWithOneDiscontinuedItem()
+    public void testCalculateProfitAfterItemIsDiscontinued()
     {
         // Setup
+        // Set catalogue to return an item which should not be restocked (0 minimum order quantity)
         // This stock item should have a profit of (1.5-0.8) * 15 = 10.5
-        StockItem item = new StockItem(1);
-        item.setBuySellPrices(0.80,1.50);
-        item.incrementNumTimesSold(15);
-        // Set product catalogue of discontinued items to return a list with one item
-        List<StockItem> items = new ArrayList<>();
-        items.add(item);
-        when(discontinuedItems.getAll()).thenReturn(items);
+        StockItem stockItem = new StockItem(1);
+        stockItem.setQuantity(15);
+        stockItem.setMinimumOrderQuantity(0);
+        stockItem.setBuySellPrices(0.80,1.50);
+        when(availableItems.getById(anyInt())).thenReturn(stockItem);
+        // Set stock orderer to sell all items in stock
+        doAnswer(invocationOnMock -> {
+            StockItem item = invocationOnMock.getArgumentAt(0, StockItem.class);
+            item.setQuantity(0);
+            profitAccumulator.recordSale(item, 15);
+            return true;
+        }).when(stockOrderer).processOrder(eq(stockItem), anyInt());
 
         // Exercise
+        // Buy all items in stock, which moves the item to the catalogue of discontinued items
+        orderingFacade.placeOrder(1, 15);
         double profits = orderingFacade.calculateProfit();
 
         // Verify
+        // The profit made from the discontinued item should still be counted
+        verify(discontinuedItems, times(1)).add(stockItem);
         Assertions.assertEquals(10.5, profits, 0.001);
     }
 
     @Test
-    public void testCalculateProfitWithOneAvailableAndOneDiscontinuedItem()
+    public void testCalculateProfitAfterItemIsDeleted()
     {
         // Setup
         // This stock item should have a profit of (0.5-0.25) * 20 = 5
         StockItem item1 = new StockItem(1);
         item1.setBuySellPrices(0.25,0.5);
-        item1.incrementNumTimesSold(20);
+        item1.setQuantity(0);
+        profitAccumulator.recordSale(item1, 20);
         // This stock item should have a profit of (1.5-0.8) * 15 = 10.5
-        StockItem item2 = new StockItem(1);
+        StockItem item2 = new StockItem(2);
         item2.setBuySellPrices(0.80,1.50);
-        item2.incrementNumTimesSold(15);
+        profitAccumulator.recordSale(item2, 15);
+        when(availableItems.getById(eq(1))).thenReturn(item1);
+        when(availableItems.remove(eq(1))).thenReturn(true);
 
-        // Set product catalogue of available items to return a list with one item
-        List<StockItem> items = new ArrayList<>();
-        items.add(item1);
-        when(availableItems.getAll()).thenReturn(items);
-        // Set product catalogue of discontinued items to return a list with one item
-        items = new ArrayList<>();
-        items.add(item2);
-        when(discontinuedItems.getAll()).thenReturn(items);
+        // Exercise
+        orderingFacade.deleteItem(1);
+        double profits = orderingFacade.calculateProfit();
+
+        // Verify
+        // Only the profit made from the item which was not deleted should be counted
+        Assertions.assertEquals(10.5, profits, 0.001);
+    }
+
+    @Test
+    public void testCalculateProfitUsesPricesAtTimeOfSale()
+    {
+        // Setup
+        // This stock item should have a profit of (0.5-0.25) * 20 = 5
+        StockItem item = new StockItem(1);
+        item.setBuySellPrices(0.25,0.5);
+        profitAccumulator.recordSale(item, 20);
 
         // Exercise
+        // Changing the prices afterwards should not change the profit already made
+        item.setBuySellPrices(1.00, 3.00);
         double profits = orderingFacade.calculateProfit();
 
         // Verify
-        // Total profits should be 5 + 10.5 = 15.5
-        Assertions.assertEquals(15.5, profits, 0.001);
+        Assertions.assertEquals(5, profits, 0.001);
+    }
+
+    @Test
+    public void testCalculateProfitIsExactAfterManySales()
+    {
+        // Setup
+        // Each sale makes a profit of 0.10, which cannot be represented exactly as a double
+        StockItem item = new StockItem(1);
+        item.setBuySellPrices(0.20, 0.30);
+        for(int i = 0; i < 100000; i++)
+        {
+            profitAccumulator.recordSale(item, 1);
+        }
+
+        // Exercise
+        long profits = orderingFacade.calculateProfitCents();
+
+        // Verify
+        Assertions.assertEquals(1000000, profits);
+        Assertions.assertEquals(1000000, item.getProfitCents());
+        Assertions.assertEquals(10000.0, orderingFacade.calculateProfit());
+    }
+
+    @Test
+    public void testCalculateProfitWhenProfitOverflows()
+    {
+        // Setup
+        StockItem item = new StockItem(1);
+        item.setBuySellPricesCents(1, Long.MAX_VALUE / 2);
+
+        // Exercise and verify
+        // The profit of 3 items does not fit in a long, so the sale should fail instead of wrapping around
+        Assertions.assertThrows(ArithmeticException.class, () -> profitAccumulator.recordSale(item, 3));
+        Assertions.assertEquals(0, orderingFacade.calculateProfitCents());
     }
 
     /* The following tests are added for coverage purposes */
@@ -369,6 +637,21 @@ public class OrderingFacadeTests
         Assertions.assertEquals(items, returnedItems);
     }
 
+    @Test
+    public void getAvailableItemsPage()
+    {
+        // Setup
+        CataloguePage page = new CataloguePage(new ArrayList<>(), null);
+        when(availableItems.getPage(CatalogueCursor.START, 50)).thenReturn(page);
+
+        // Exercise
+        CataloguePage returnedPage = orderingFacade.getAvailableItems(CatalogueCursor.START, 50);
+
+        // Verify
+        // The facade should return the page from the catalogue of available items
+        Assertions.assertSame(page, returnedPage);
+    }
+
     @Test
     public void getAvailableItemsByCategory()
     {
@@ -386,4 +669,35 @@ public class OrderingFacadeTests
         // The facade should return the list of items created while setting up the test
         Assertions.assertEquals(items, returnedItems);
     }
+
+    @Test
+    public void testOrdersAreRecordedInMetrics()
+    {
+        // Setup
+        // Register a metrics registry and create a facade which uses it
+        MetricsRegistry metrics = new MetricsRegistry();
+        serviceLocator.registerService("MetricsRegistry", metrics);
+        orderingFacade = new OrderingFacade(stockOrderer, availableItems, discontinuedItems);
+        StockItem stockItem = new StockItem(1);
+        stockItem.setQuantity(100);
+        stockItem.setMinimumOrderQuantity(10);
+        when(availableItems.getById(1)).thenReturn(stockItem);
+        when(availableItems.size()).thenReturn(1);
+        when(stockOrderer.processOrder(stockItem, 20)).thenReturn(true);
+
+        // Exercise
+        orderingFacade.placeOrder(1, 20);
+        orderingFacade.placeOrder(1, 20);
+        orderingFacade.placeOrder(2, 20);
+        MetricsSnapshot snapshot = metrics.snapshot();
+
+        // Verify
+        Assertions.assertEquals(2,
+                snapshot.getCounter("youstockit_facade_responses_total{status=\"ORDER_PLACED\"}"));
+        Assertions.assertEquals(1,
+                snapshot.getCounter("youstockit_facade_responses_total{status=\"ITEM_NOT_FOUND\"}"));
+        Assertions.assertEquals(3, snapshot.getHistogram("youstockit_order_latency_nanoseconds").getCount());
+        Assertions.assertEquals(1,
+                (long) snapshot.getGauges().get("youstockit_catalogue_items{catalogue=\"available\"}"));
+    }
 }
@@ -0,0 +1,301 @@
+package mt.edu.uom.youstockit.ordering;
+
+import mt.edu.uom.youstockit.supplier.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Items in this catalogue are copied into slots when they are added, so these tests compare values rather than
+// objects (unlike ProductCatalogueTests)
+public class PrimitiveProductCatalogueTests
+{
+    PrimitiveProductCatalogue productCatalogue;
+
+    @BeforeEach
+    public void setup()
+    {
+        // Create a new catalogue before each test
+        productCatalogue = new PrimitiveProductCatalogue();
+    }
+
+    @AfterEach
+    public void teardown()
+    {
+        productCatalogue = null;
+    }
+
+    @Test
+    public void testAddedItemValuesAreCopied()
+    {
+        // Setup
+        Supplier supplier = new Supplier();
+        StockItem item = createItem(1, "Sweets");
+        item.setDescription("Milk chocolate");
+        item.setSupplier(supplier);
+        item.restoreSales(15, 675);
+
+        // Exercise
+        boolean added = productCatalogue.add(item);
+        StockItem result = productCatalogue.getById(1);
+
+        // Verify
+        Assertions.assertTrue(added);
+        Assertions.assertEquals(1, result.getId());
+        Assertions.assertEquals("Chocolate bar", result.getName());
+        Assertions.assertEquals("Sweets", result.getCategory());
+        Assertions.assertEquals("Milk chocolate", result.getDescription());
+        Assertions.assertEquals(50, result.getQuantity());
+        Assertions.assertEquals(5, result.getMinimumOrderQuantity());
+        Assertions.assertEquals(10, result.getOrderAmount());
+        Assertions.assertSame(supplier, result.getSupplier());
+        Assertions.assertEquals(80, result.getBuyingPriceCents());
+        Assertions.assertEquals(125, result.getSellingPriceCents());
+        Assertions.assertEquals(1.25, result.getSellingPrice());
+        Assertions.assertEquals(15, result.getNumTimesSold());
+        Assertions.assertEquals(675, result.getProfitCents());
+    }
+
+    @Test
+    public void testChangesAreStoredInCatalogue()
+    {
+        // Setup
+        productCatalogue.add(createItem(1, "Sweets"));
+        StockItem item = productCatalogue.getById(1);
+
+        // Exercise
+        item.setName("Dark chocolate bar");
+        item.setQuantity(20);
+        Assertions.assertEquals(15, item.reserveQuantity(5));
+        item.addQuantity(3);
+        item.setBuySellPricesCents(90, 150);
+        item.incrementNumTimesSold(5);
+        // Invalid values should be rejected just like for other items
+        Assertions.assertFalse(item.setQuantity(-1));
+        Assertions.assertFalse(item.setBuySellPricesCents(150, 90));
+        Assertions.assertEquals(-1, item.reserveQuantity(100));
+
+        // Verify
+        // Another view of the same item should see the changes
+        StockItem result = productCatalogue.getById(1);
+        Assertions.assertEquals(item, result);
+        Assertions.assertEquals("Dark chocolate bar", result.getName());
+        Assertions.assertEquals(18, result.getQuantity());
+        Assertions.assertEquals(90, result.getBuyingPriceCents());
+        Assertions.assertEquals(150, result.getSellingPriceCents());
+        Assertions.assertEquals(5, result.getNumTimesSold());
+    }
+
+    @Test
+    public void testAddItemWithDuplicateId()
+    {
+        // Setup
+        productCatalogue.add(createItem(1, "Sweets"));
+
+        // Exercise
+        boolean result = productCatalogue.add(createItem(1, "Drinks"));
+
+        // Verify
+        Assertions.assertFalse(result);
+        Assertions.assertEquals(1, productCatalogue.getAll().size());
+        Assertions.assertEquals("Sweets", productCatalogue.getById(1).getCategory());
+    }
+
+    @Test
+    public void testGetAllKeepsInsertionOrderAfterRemovingItems()
+    {
+        // Setup
+        // Add enough items to fill several pages
+        for(int id = 10000; id > 0; id--)
+        {
+            productCatalogue.add(new StockItem(id));
+        }
+        // Remove every third item
+        for(int id = 3; id <= 10000; id += 3)
+        {
+            Assertions.assertTrue(productCatalogue.remove(id));
+        }
+
+        // Exercise
+        List<StockItem> result = productCatalogue.getAll();
+
+        // Verify
+        Assertions.assertEquals(6667, result.size());
+        int expectedId = 10000;
+        for(StockItem item : result)
+        {
+            if(expectedId % 3 == 0)
+            {
+                expectedId--;
+            }
+            Assertions.assertEquals(expectedId--, item.getId());
+        }
+        Assertions.assertNull(productCatalogue.getById(3));
+        Assertions.assertFalse(productCatalogue.remove(3));
+        Assertions.assertEquals(4, productCatalogue.getById(4).getId());
+    }
+
+    @Test
+    public void testGetPagesAcrossPages()
+    {
+        // Setup
+        // Add enough items to fill more than one page of slots, then remove the last item of the first page
+        for(int id = 1; id <= 5000; id++)
+        {
+            productCatalogue.add(new StockItem(id));
+        }
+        CataloguePage page1 = productCatalogue.getPage(CatalogueCursor.START, 4096);
+        productCatalogue.remove(4096);
+
+        // Exercise
+        CataloguePage page2 = productCatalogue.getPage(page1.next, 4096);
+
+        // Verify
+        Assertions.assertEquals(4096, page1.items.get(4095).getId());
+        Assertions.assertEquals(904, page2.items.size());
+        Assertions.assertEquals(4097, page2.items.get(0).getId());
+        Assertions.assertFalse(page2.hasNext());
+        Assertions.assertEquals(4999, productCatalogue.stream().count());
+    }
+
+    @Test
+    public void testGetCategoryAfterItemCategoryChanges()
+    {
+        // Setup
+        productCatalogue.add(createItem(1, "Sweets"));
+        productCatalogue.add(createItem(2, "Sweets"));
+        productCatalogue.add(createItem(3, "Drinks"));
+
+        // Exercise
+        productCatalogue.getById(2).setCategory("Drinks");
+        productCatalogue.remove(3);
+        List<StockItem> sweets = productCatalogue.getByCategory("Sweets");
+
+        // Verify
+        Assertions.assertEquals(1, sweets.size());
+        Assertions.assertEquals(1, sweets.get(0).getId());
+        Assertions.assertEquals(1, productCatalogue.countByCategory("Drinks"));
+        Assertions.assertEquals(2, productCatalogue.getByCategory("Drinks").get(0).getId());
+        Assertions.assertEquals(0, productCatalogue.countByCategory("Toys"));
+    }
+
+    @Test
+    public void testLookupsReturnEqualViews()
+    {
+        // Setup
+        productCatalogue.add(createItem(1, "Sweets"));
+        productCatalogue.add(createItem(2, "Drinks"));
+
+        // Exercise
+        StockItem item = productCatalogue.getById(1);
+
+        // Verify
+        // Views are created when they are looked up, but views of the same slot are equal
+        Assertions.assertEquals(item, productCatalogue.getById(1));
+        Assertions.assertEquals(item.hashCode(), productCatalogue.getById(1).hashCode());
+        Assertions.assertEquals(item, productCatalogue.getAll().get(0));
+        Assertions.assertEquals(item, productCatalogue.getByCategory("Sweets").get(0));
+        Assertions.assertEquals(item, productCatalogue.iterator().next());
+        Assertions.assertNotEquals(item, productCatalogue.getById(2));
+    }
+
+    @Test
+    public void testChangesAreReportedToListener()
+    {
+        // Setup
+        CatalogueListener listener = Mockito.mock(CatalogueListener.class);
+        productCatalogue.setListener(listener);
+        productCatalogue.add(createItem(1, "Sweets"));
+        StockItem item = productCatalogue.getById(1);
+
+        // Exercise
+        item.setQuantity(40);
+        item.addQuantity(2);
+        new ProfitAccumulator().recordSale(item, 4);
+
+        // Verify
+        Mockito.verify(listener).itemAdded(item);
+        Mockito.verify(listener).quantitySet(item, 50, 40);
+        Mockito.verify(listener).quantityAdded(item, 2);
+        Mockito.verify(listener).itemSold(item, 4, 180L);
+        Assertions.assertEquals(180, item.getProfitCents());
+    }
+
+    @Test
+    public void testRemovedItemKeepsWorkingWithoutReportingChanges()
+    {
+        // Setup
+        CatalogueListener listener = Mockito.mock(CatalogueListener.class);
+        productCatalogue.setListener(listener);
+        productCatalogue.add(createItem(1, "Sweets"));
+        StockItem item = productCatalogue.getById(1);
+        ProductCatalogue discontinued = new ProductCatalogue();
+
+        // Exercise
+        productCatalogue.remove(1);
+        discontinued.add(item);
+        productCatalogue.add(createItem(2, "Drinks"));
+        item.setCategory("Old sweets");
+        item.setQuantity(0);
+
+        // Verify
+        // The removed item should keep its own values, and only the catalogue it was moved to should see it
+        Mockito.verify(listener).itemRemoved(item);
+        Mockito.verify(listener, Mockito.never()).quantitySet(Mockito.eq(item), Mockito.anyInt(), Mockito.anyInt());
+        Assertions.assertEquals(0, item.getQuantity());
+        Assertions.assertEquals("Chocolate bar", item.getName());
+        Assertions.assertEquals(1, discontinued.countByCategory("Old sweets"));
+        Assertions.assertEquals(0, productCatalogue.countByCategory("Old sweets"));
+        Assertions.assertEquals(50, productCatalogue.getById(2).getQuantity());
+    }
+
+    @Test
+    public void testConcurrentReservations() throws InterruptedException
+    {
+        // Setup
+        StockItem item = createItem(1, "Sweets");
+        item.setQuantity(10000);
+        productCatalogue.add(item);
+        int numThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+        // Exercise
+        // Every thread reserves items through its own view until none are left
+        for(int t = 0; t < numThreads; t++)
+        {
+            executor.execute(() -> {
+                StockItem view = productCatalogue.getById(1);
+                while(view.reserveQuantity(3) >= 0)
+                {
+                    view.incrementNumTimesSold(3);
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Verify
+        StockItem result = productCatalogue.getById(1);
+        Assertions.assertEquals(10000 % 3, result.getQuantity());
+        Assertions.assertEquals(10000 - 10000 % 3, result.getNumTimesSold());
+    }
+
+    // Helper function which creates an item with every value set
+    private StockItem createItem(int id, String category)
+    {
+        StockItem item = new StockItem(id);
+        item.setName("Chocolate bar");
+        item.setCategory(category);
+        item.setQuantity(50);
+        item.setMinimumOrderQuantity(5);
+        item.setOrderAmount(10);
+        item.setBuySellPricesCents(80, 125);
+        return item;
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.mockito.Matchers.eq;
 
@@ -184,4 +185,271 @@ public class ProductCatalogueTests
         // The catalogue should return "item2"
         Assertions.assertEquals(item2, result);
     }
+
+    @Test
+    public void testGetAllKeepsInsertionOrderAfterRemovingItems()
+    {
+        // Setup
+        // Add enough items for the catalogue to grow its index several times
+        for(int id = 1000; id > 0; id--)
+        {
+            productCatalogue.add(new StockItem(id));
+        }
+        // Remove every third item
+        for(int id = 3; id <= 1000; id += 3)
+        {
+            productCatalogue.remove(id);
+        }
+
+        // Exercise
+        List<StockItem> result = productCatalogue.getAll();
+
+        // Verify
+        // Only the items which were not removed should be returned, in the order they were added
+        Assertions.assertEquals(667, result.size());
+        int expectedId = 1000;
+        for(StockItem item : result)
+        {
+            if(expectedId % 3 == 0)
+            {
+                expectedId--;
+            }
+            Assertions.assertEquals(expectedId--, item.getId());
+        }
+    }
+
+    @Test
+    public void testGetIdAfterRemovingItems()
+    {
+        // Setup
+        for(int id = 1; id <= 1000; id++)
+        {
+            productCatalogue.add(new StockItem(id));
+        }
+        for(int id = 2; id <= 1000; id += 2)
+        {
+            productCatalogue.remove(id);
+        }
+
+        // Verify
+        // Removed items should no longer be found, and all other items should still be found
+        for(int id = 1; id <= 1000; id++)
+        {
+            StockItem result = productCatalogue.getById(id);
+            if(id % 2 == 0)
+            {
+                Assertions.assertNull(result);
+            }
+            else
+            {
+                Assertions.assertEquals(id, result.getId());
+            }
+        }
+    }
+
+    @Test
+    public void testGetCategoryAfterItemCategoryChanges()
+    {
+        // Setup
+        StockItem item1 = new StockItem(1);
+        item1.setCategory("Category1");
+        StockItem item2 = new StockItem(2);
+        item2.setCategory("Category1");
+        productCatalogue.add(item1);
+        productCatalogue.add(item2);
+
+        // Exercise
+        item1.setCategory("Category2");
+
+        // Verify
+        // The item should only be returned for its new category
+        Assertions.assertEquals(1, productCatalogue.getByCategory("Category1").size());
+        Assertions.assertEquals(item2, productCatalogue.getByCategory("Category1").get(0));
+        Assertions.assertEquals(1, productCatalogue.getByCategory("Category2").size());
+        Assertions.assertEquals(item1, productCatalogue.getByCategory("Category2").get(0));
+    }
+
+    @Test
+    public void testGetCategoryAfterRemovingItem()
+    {
+        // Setup
+        StockItem item = new StockItem(1);
+        item.setCategory("Category1");
+        productCatalogue.add(item);
+
+        // Exercise
+        productCatalogue.remove(1);
+        // Changing the category of an item which is no longer in the catalogue should not affect the catalogue
+        item.setCategory("Category2");
+
+        // Verify
+        Assertions.assertEquals(0, productCatalogue.getByCategory("Category1").size());
+        Assertions.assertEquals(0, productCatalogue.getByCategory("Category2").size());
+    }
+
+    @Test
+    public void testCountByCategory()
+    {
+        // Setup
+        StockItem item1 = new StockItem(1);
+        item1.setCategory("Category1");
+        StockItem item2 = new StockItem(2);
+        item2.setCategory("Category1");
+        StockItem item3 = new StockItem(3);
+        item3.setCategory("Category2");
+        productCatalogue.add(item1);
+        productCatalogue.add(item2);
+        productCatalogue.add(item3);
+
+        // Verify
+        Assertions.assertEquals(2, productCatalogue.countByCategory("Category1"));
+        Assertions.assertEquals(1, productCatalogue.countByCategory("Category2"));
+        Assertions.assertEquals(0, productCatalogue.countByCategory("Category3"));
+    }
+
+    @Test
+    public void testGetPagesOfItems()
+    {
+        // Setup
+        for(int id = 1; id <= 120; id++)
+        {
+            productCatalogue.add(new StockItem(id));
+        }
+
+        // Exercise
+        CataloguePage page1 = productCatalogue.getPage(CatalogueCursor.START, 50);
+        CataloguePage page2 = productCatalogue.getPage(page1.next, 50);
+        CataloguePage page3 = productCatalogue.getPage(page2.next, 50);
+
+        // Verify
+        // The pages should hold 50, 50 and 20 items, in the order they were added
+        Assertions.assertEquals(50, page1.items.size());
+        Assertions.assertEquals(1, page1.items.get(0).getId());
+        Assertions.assertEquals(51, page2.items.get(0).getId());
+        Assertions.assertEquals(100, page2.items.get(49).getId());
+        Assertions.assertEquals(20, page3.items.size());
+        Assertions.assertEquals(120, page3.items.get(19).getId());
+        Assertions.assertTrue(page2.hasNext());
+        Assertions.assertFalse(page3.hasNext());
+    }
+
+    @Test
+    public void testGetPageAfterCatalogueChanges()
+    {
+        // Setup
+        for(int id = 1; id <= 30; id++)
+        {
+            productCatalogue.add(new StockItem(id));
+        }
+        CataloguePage page1 = productCatalogue.getPage(CatalogueCursor.START, 10);
+        CataloguePage page2 = productCatalogue.getPage(page1.next, 10);
+
+        // Exercise
+        // Removing the last item of a page should not skip the first item of the next page
+        productCatalogue.remove(10);
+        CataloguePage page2Again = productCatalogue.getPage(page1.next, 10);
+        // Removing an item before the cursor should not move the next page
+        productCatalogue.remove(5);
+        CataloguePage page3 = productCatalogue.getPage(page2.next, 10);
+
+        // Verify
+        Assertions.assertEquals(11, page2Again.items.get(0).getId());
+        Assertions.assertEquals(21, page3.items.get(0).getId());
+        Assertions.assertEquals(30, page3.items.get(9).getId());
+        Assertions.assertFalse(page3.hasNext());
+    }
+
+    @Test
+    public void testGetPageOfEmptyCatalogue()
+    {
+        // Exercise
+        CataloguePage page = productCatalogue.getPage(CatalogueCursor.START, 50);
+
+        // Verify
+        Assertions.assertTrue(page.items.isEmpty());
+        Assertions.assertFalse(page.hasNext());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> productCatalogue.getPage(CatalogueCursor.START, 0));
+    }
+
+    @Test
+    public void testStreamItems()
+    {
+        // Setup
+        for(int id = 1; id <= 100; id++)
+        {
+            StockItem item = new StockItem(id);
+            item.setCategory(id % 4 == 0 ? "Category1" : "Category2");
+            productCatalogue.add(item);
+        }
+        productCatalogue.remove(4);
+
+        // Exercise
+        List<Integer> ids = productCatalogue.stream()
+                .filter(item -> "Category1".equals(item.getCategory()))
+                .map(StockItem::getId)
+                .collect(Collectors.toList());
+
+        // Verify
+        // Items should be streamed in the order they were added
+        Assertions.assertEquals(24, ids.size());
+        Assertions.assertEquals(8, (int) ids.get(0));
+        Assertions.assertEquals(100, (int) ids.get(23));
+    }
+
+    @Test
+    public void testSnapshotDoesNotChange()
+    {
+        // Setup
+        for(int id = 1; id <= 100; id++)
+        {
+            StockItem item = new StockItem(id);
+            item.setCategory(id % 2 == 0 ? "Even" : "Odd");
+            productCatalogue.add(item);
+        }
+
+        // Exercise
+        CatalogueSnapshot snapshot = productCatalogue.snapshot();
+        productCatalogue.remove(1);
+        productCatalogue.add(new StockItem(101));
+        productCatalogue.getById(2).setCategory("Odd");
+        productCatalogue.getById(3).setQuantity(10);
+
+        // Verify
+        // The snapshot should still have the items, order and categories from when it was taken
+        Assertions.assertEquals(100, snapshot.size());
+        Assertions.assertEquals(1, snapshot.getAll().get(0).getId());
+        Assertions.assertNull(snapshot.getById(101));
+        Assertions.assertEquals(50, snapshot.countByCategory("Even"));
+        Assertions.assertEquals(2, snapshot.getByCategory("Even").get(0).getId());
+        // The values of the items themselves are shared with the catalogue
+        Assertions.assertEquals(10, snapshot.getById(3).getQuantity());
+        // The catalogue should have the changes
+        Assertions.assertEquals(49, productCatalogue.countByCategory("Even"));
+        Assertions.assertEquals(101, productCatalogue.snapshot().getById(101).getId());
+        Assertions.assertEquals(2, productCatalogue.snapshot().getAll().get(0).getId());
+    }
+
+    @Test
+    public void testGetPagesOfSnapshot()
+    {
+        // Setup
+        for(int id = 1; id <= 25; id++)
+        {
+            productCatalogue.add(new StockItem(id));
+        }
+        CatalogueSnapshot snapshot = productCatalogue.snapshot();
+
+        // Exercise
+        CataloguePage page1 = snapshot.getPage(CatalogueCursor.START, 10);
+        productCatalogue.remove(11);
+        CataloguePage page2 = snapshot.getPage(page1.next, 10);
+        CataloguePage page3 = snapshot.getPage(page2.next, 10);
+
+        // Verify
+        // Pages of a snapshot should not be affected by changes to the catalogue
+        Assertions.assertEquals(11, page2.items.get(0).getId());
+        Assertions.assertEquals(5, page3.items.size());
+        Assertions.assertEquals(25, page3.items.get(4).getId());
+        Assertions.assertFalse(page3.hasNext());
+    }
 }
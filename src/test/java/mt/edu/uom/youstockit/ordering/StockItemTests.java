@@ -268,4 +268,100 @@ public class StockItemTests
         Assertions.assertEquals(0.00, stockItem.getBuyingPrice());
         Assertions.assertEquals(0.00, stockItem.getSellingPrice());
     }
+
+    @Test
+    public void testSetBuySellPricesInCents()
+    {
+        // Exercise
+        boolean valid = stockItem.setBuySellPricesCents(125, 150);
+
+        // Verify (these parameters should be valid)
+        Assertions.assertTrue(valid);
+        Assertions.assertEquals(125, stockItem.getBuyingPriceCents());
+        Assertions.assertEquals(150, stockItem.getSellingPriceCents());
+        Assertions.assertEquals(1.25, stockItem.getBuyingPrice());
+        Assertions.assertEquals(1.50, stockItem.getSellingPrice());
+    }
+
+    @Test
+    public void testSetBuySellPricesWithWholeEuros()
+    {
+        // Exercise
+        // Whole numbers are still prices in euros, not in cents
+        boolean valid = stockItem.setBuySellPrices(5, 10);
+
+        // Verify
+        Assertions.assertTrue(valid);
+        Assertions.assertEquals(500, stockItem.getBuyingPriceCents());
+        Assertions.assertEquals(1000, stockItem.getSellingPriceCents());
+    }
+
+    @Test
+    public void testSetBuySellPricesRoundsToNearestCent()
+    {
+        // Exercise
+        // 0.29 cannot be represented exactly as a double, and 0.29 * 100 is slightly less than 29
+        boolean valid = stockItem.setBuySellPrices(0.29, 0.57);
+
+        // Verify
+        Assertions.assertTrue(valid);
+        Assertions.assertEquals(29, stockItem.getBuyingPriceCents());
+        Assertions.assertEquals(57, stockItem.getSellingPriceCents());
+    }
+
+    @Test
+    public void testReserveQuantityWhenEnoughItemsAreInStock()
+    {
+        // Setup
+        stockItem.setQuantity(10);
+
+        // Exercise
+        int remaining = stockItem.reserveQuantity(4);
+
+        // Verify (the items should be taken out of stock)
+        Assertions.assertEquals(6, remaining);
+        Assertions.assertEquals(6, stockItem.getQuantity());
+    }
+
+    @Test
+    public void testReserveQuantityWhenNotEnoughItemsAreInStock()
+    {
+        // Setup
+        stockItem.setQuantity(10);
+
+        // Exercise
+        int remaining = stockItem.reserveQuantity(11);
+
+        // Verify (the reservation should fail and the quantity should not change)
+        Assertions.assertEquals(-1, remaining);
+        Assertions.assertEquals(10, stockItem.getQuantity());
+    }
+
+    @Test
+    public void testReserveQuantityWhenAmountIsZero()
+    {
+        // Setup
+        stockItem.setQuantity(10);
+
+        // Exercise
+        int remaining = stockItem.reserveQuantity(0);
+
+        // Verify (the reservation should fail and the quantity should not change)
+        Assertions.assertEquals(-1, remaining);
+        Assertions.assertEquals(10, stockItem.getQuantity());
+    }
+
+    @Test
+    public void testAddQuantity()
+    {
+        // Setup
+        stockItem.setQuantity(10);
+
+        // Exercise
+        int newQuantity = stockItem.addQuantity(5);
+
+        // Verify
+        Assertions.assertEquals(15, newQuantity);
+        Assertions.assertEquals(15, stockItem.getQuantity());
+    }
 }
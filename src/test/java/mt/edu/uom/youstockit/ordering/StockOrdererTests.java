@@ -2,11 +2,22 @@ package mt.edu.uom.youstockit.ordering;
 
 import mt.edu.uom.youstockit.services.email.EmailSender;
 import mt.edu.uom.youstockit.services.ServiceLocator;
+import mt.edu.uom.youstockit.services.metrics.MetricsRegistry;
+import mt.edu.uom.youstockit.services.metrics.MetricsSnapshot;
 import mt.edu.uom.youstockit.supplier.*;
 import org.junit.jupiter.api.*;
 import org.mockito.Mockito;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.Mockito.*;
 
@@ -16,6 +27,8 @@ public class StockOrdererTests
     EmailSender emailServer;
     StockOrderer orderer;
     StockItem stockItem;
+    // Completed by the stock orderer once a restock is over
+    CompletableFuture<SupplierErrorCode> restockResult;
 
     @BeforeAll
     public static void setupBeforeAll()
@@ -34,11 +47,18 @@ public class StockOrdererTests
         // Create a new automated stock orderer and stock item
         orderer = new StockOrderer();
         stockItem = new StockItem(1);
+
+        // Listen for restocks, so that tests can wait for restocks running in the background to finish
+        restockResult = new CompletableFuture<>();
+        orderer.addRestockListener((item, result) -> restockResult.complete(result));
     }
 
     @AfterEach
     public void teardown()
     {
+        // Stop any restocks still running in the background
+        orderer.shutdown();
+
         // Remove references to old object after each test
         emailServer = null;
         orderer = null;
@@ -54,6 +74,7 @@ public class StockOrdererTests
         // Setup
         stockItem.setQuantity(50);
         stockItem.setMinimumOrderQuantity(20);
+        stockItem.setBuySellPrices(0.25, 0.5);
 
         // Exercise
         boolean result = orderer.processOrder(stockItem, 30);
@@ -65,6 +86,8 @@ public class StockOrdererTests
         Assertions.assertEquals(20, stockItem.getQuantity());
         // Check that the number of times sold increases
         Assertions.assertEquals(30, stockItem.getNumTimesSold());
+        // Check that the profit made is recorded: (0.5 - 0.25) * 30 = 7.5
+        Assertions.assertEquals(7.5, orderer.getProfitAccumulator().getTotalProfit(), 0.001);
     }
 
     @Test
@@ -84,6 +107,8 @@ public class StockOrdererTests
         Assertions.assertEquals(50, stockItem.getQuantity());
         // Check that the number of times sold stays the same
         Assertions.assertEquals(0, stockItem.getNumTimesSold());
+        // Check that no profit is recorded
+        Assertions.assertEquals(0, orderer.getProfitAccumulator().getTotalProfit());
     }
 
     @Test
@@ -103,6 +128,78 @@ public class StockOrdererTests
         Assertions.assertEquals(50, stockItem.getQuantity());
     }
 
+    @Test
+    public void testProcessOrdersWithSufficientQuantity()
+    {
+        // Setup
+        stockItem.setQuantity(50);
+        stockItem.setMinimumOrderQuantity(20);
+        stockItem.setBuySellPrices(0.25, 0.5);
+        StockItem otherItem = new StockItem(2);
+        otherItem.setQuantity(10);
+        otherItem.setMinimumOrderQuantity(0);
+        otherItem.setBuySellPrices(1.0, 2.0);
+
+        // Exercise
+        int failed = orderer.processOrders(new StockItem[] {stockItem, otherItem}, new int[] {30, 10});
+
+        // Verify
+        // Both orders should be accepted
+        Assertions.assertEquals(-1, failed);
+        Assertions.assertEquals(20, stockItem.getQuantity());
+        Assertions.assertEquals(0, otherItem.getQuantity());
+        Assertions.assertEquals(30, stockItem.getNumTimesSold());
+        Assertions.assertEquals(10, otherItem.getNumTimesSold());
+        // Profit should be (0.5 - 0.25) * 30 + (2 - 1) * 10 = 17.5
+        Assertions.assertEquals(1750, orderer.getProfitAccumulator().getTotalProfitCents());
+    }
+
+    @Test
+    public void testProcessOrdersIsAllOrNothing()
+    {
+        // Setup
+        stockItem.setQuantity(50);
+        stockItem.setMinimumOrderQuantity(20);
+        stockItem.setBuySellPrices(0.25, 0.5);
+        StockItem otherItem = new StockItem(2);
+        otherItem.setQuantity(10);
+        otherItem.setMinimumOrderQuantity(0);
+
+        // Exercise
+        // There are not enough of the second item, so neither item should be sold
+        int failed = orderer.processOrders(new StockItem[] {stockItem, otherItem}, new int[] {30, 11});
+
+        // Verify
+        Assertions.assertEquals(1, failed);
+        Assertions.assertEquals(50, stockItem.getQuantity());
+        Assertions.assertEquals(10, otherItem.getQuantity());
+        Assertions.assertEquals(0, stockItem.getNumTimesSold());
+        Assertions.assertEquals(0, orderer.getProfitAccumulator().getTotalProfitCents());
+    }
+
+    @Test
+    public void testProcessOrdersRestocksItemsBelowMinimumOrderQuantity() throws Exception
+    {
+        // Setup
+        stockItem.setQuantity(50);
+        stockItem.setMinimumOrderQuantity(20);
+        stockItem.setOrderAmount(30);
+        SupplierServerMock serverMock = new SupplierServerMock();
+        serverMock.alwaysReturnSuccessfulResponse();
+        Supplier supplier = new Supplier();
+        supplier.supplierServer = serverMock;
+        stockItem.setSupplier(supplier);
+
+        // Exercise
+        int failed = orderer.processOrders(new StockItem[] {stockItem}, new int[] {40});
+        waitForRestock();
+
+        // Verify
+        Assertions.assertEquals(-1, failed);
+        Assertions.assertEquals(1, serverMock.getNumTimesOrderItems());
+        Assertions.assertEquals(40, stockItem.getQuantity());
+    }
+
     @Test
     public void testProcessOrderWhenQuantityGoesBelowMinimumOrderQuantity()
     {
@@ -119,6 +216,8 @@ public class StockOrdererTests
 
         // Exercise
         boolean result = orderer.processOrder(stockItem, 31);
+        // Wait for the restock to finish in the background
+        waitForRestock();
 
         // Verify
         Assertions.assertTrue(result);
@@ -145,6 +244,8 @@ public class StockOrdererTests
 
         // Exercise
         boolean result = orderer.processOrder(stockItem, 31);
+        // Wait for the restock to finish in the background
+        waitForRestock();
 
         // Verify
         Assertions.assertTrue(result);
@@ -175,6 +276,8 @@ public class StockOrdererTests
 
         // Exercise
         boolean result = orderer.processOrder(stockItem, 31);
+        // Wait for the restock to finish in the background
+        waitForRestock();
 
         // Verify
         Assertions.assertTrue(result);
@@ -205,6 +308,8 @@ public class StockOrdererTests
 
         // Exercise
         boolean result = orderer.processOrder(stockItem, 31);
+        // Wait for the restock to finish in the background
+        waitForRestock();
 
         // Verify
         Assertions.assertTrue(result);
@@ -234,6 +339,8 @@ public class StockOrdererTests
 
         // Exercise
         boolean result = orderer.processOrder(stockItem, 31);
+        // Wait for the restock to finish in the background
+        waitForRestock();
 
         // Verify
         Assertions.assertTrue(result);
@@ -285,6 +392,8 @@ public class StockOrdererTests
 
         // Exercise
         boolean result = orderer.processOrder(stockItem, 31);
+        // Wait for the restock to finish in the background
+        waitForRestock();
 
         // Verify
         Assertions.assertTrue(result);
@@ -296,6 +405,469 @@ public class StockOrdererTests
         Assertions.assertEquals(29, stockItem.getQuantity());
     }
 
+    @Test
+    public void testConcurrentOrdersDoNotSellMoreThanQuantity() throws InterruptedException
+    {
+        // Setup
+        stockItem.setQuantity(1000);
+        stockItem.setMinimumOrderQuantity(0);
+        stockItem.setBuySellPrices(1.0, 3.0);
+        int numThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        AtomicInteger numAcceptedOrders = new AtomicInteger();
+
+        // Exercise
+        // Every thread tries to buy 3 items at a time until the orders start getting rejected
+        for(int t = 0; t < numThreads; t++)
+        {
+            executor.execute(() -> {
+                while(orderer.processOrder(stockItem, 3))
+                {
+                    numAcceptedOrders.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Verify
+        // 333 orders of 3 items can be fulfilled, leaving a single item in stock
+        Assertions.assertEquals(333, numAcceptedOrders.get());
+        Assertions.assertEquals(999, stockItem.getNumTimesSold());
+        Assertions.assertEquals(1, stockItem.getQuantity());
+        // The profit made from every accepted order should be counted: (3 - 1) * 999 = 1998
+        Assertions.assertEquals(1998, orderer.getProfitAccumulator().getTotalProfit(), 0.001);
+    }
+
+    @Test
+    public void testProcessOrderDoesNotWaitForRestock() throws Exception
+    {
+        // Setup
+        stockItem.setQuantity(50);
+        stockItem.setMinimumOrderQuantity(20);
+        stockItem.setOrderAmount(30);
+        // Create a supplier server which does not respond until the test allows it to
+        CountDownLatch supplierLatch = new CountDownLatch(1);
+        Supplier supplier = new Supplier();
+        supplier.supplierServer = orders -> {
+            try
+            {
+                supplierLatch.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return new SupplierResponse[] {new SupplierResponse(30, 30, SupplierErrorCode.SUCCESS)};
+        };
+        stockItem.setSupplier(supplier);
+
+        // Exercise
+        boolean result = orderer.processOrder(stockItem, 31);
+
+        // Verify
+        // The order should be accepted before the supplier responds
+        Assertions.assertTrue(result);
+        Assertions.assertFalse(restockResult.isDone());
+        Assertions.assertEquals(19, stockItem.getQuantity());
+        // Once the supplier responds, the item should be restocked
+        supplierLatch.countDown();
+        Assertions.assertEquals(SupplierErrorCode.SUCCESS, waitForRestock());
+        Assertions.assertEquals(49, stockItem.getQuantity());
+    }
+
+    @Test
+    public void testOrderMoreWithConfiguredRetries() throws Exception
+    {
+        // Setup
+        // Create a stock orderer which only tries twice, waiting 100 milliseconds between attempts
+        orderer.shutdown();
+        orderer = new StockOrderer(Executors.newSingleThreadScheduledExecutor(), 2, 100);
+        stockItem.setQuantity(10);
+        stockItem.setOrderAmount(30);
+        // Mock supplier server to always return a communication error
+        SupplierServerMock serverMock = new SupplierServerMock();
+        serverMock.addResponse(0, SupplierErrorCode.COMMUNICATION_ERROR);
+        Supplier supplier = new Supplier();
+        supplier.supplierServer = serverMock;
+        stockItem.setSupplier(supplier);
+
+        // Exercise
+        SupplierErrorCode result = orderer.orderMore(stockItem).get(30, TimeUnit.SECONDS);
+
+        // Verify
+        Assertions.assertEquals(SupplierErrorCode.COMMUNICATION_ERROR, result);
+        // Check that the method tried to connect the supplier twice, waiting 100 milliseconds in between
+        Assertions.assertEquals(2, serverMock.getNumTimesOrderItems());
+        assertAllLargerOrEqualTo(serverMock.getTimesBetweenCalls(), 100);
+        // It should notify the supplier about the connection failure
+        verify(emailServer, times(1)).sendEmailToSupplier(eq(supplier), anyString());
+        Assertions.assertEquals(10, stockItem.getQuantity());
+    }
+
+    @Test
+    public void testRestockIsRecordedInMetrics() throws Exception
+    {
+        // Setup
+        // Register a metrics registry and create a stock orderer which uses it, trying twice
+        MetricsRegistry metrics = new MetricsRegistry();
+        serviceLocator.registerService("MetricsRegistry", metrics);
+        orderer.shutdown();
+        orderer = new StockOrderer(Executors.newSingleThreadScheduledExecutor(), 2, 10);
+        stockItem.setQuantity(10);
+        stockItem.setOrderAmount(30);
+        SupplierServerMock serverMock = new SupplierServerMock();
+        serverMock.addResponse(0, SupplierErrorCode.COMMUNICATION_ERROR);
+        Supplier supplier = new Supplier();
+        supplier.id = 7;
+        supplier.supplierServer = serverMock;
+        stockItem.setSupplier(supplier);
+
+        // Exercise
+        orderer.orderMore(stockItem).get(30, TimeUnit.SECONDS);
+        MetricsSnapshot snapshot = metrics.snapshot();
+
+        // Verify
+        // Both calls to the supplier should be timed and counted as failures, with one retry in between
+        Assertions.assertEquals(1, snapshot.getCounter("youstockit_restocks_started_total"));
+        Assertions.assertEquals(2, snapshot.getCounter("youstockit_supplier_calls_total{supplier=\"7\"}"));
+        Assertions.assertEquals(2, snapshot.getCounter("youstockit_supplier_call_failures_total{supplier=\"7\"}"));
+        Assertions.assertEquals(1, snapshot.getCounter("youstockit_supplier_retries_total"));
+        Assertions.assertEquals(2,
+                snapshot.getHistogram("youstockit_supplier_call_latency_nanoseconds{supplier=\"7\"}").getCount());
+    }
+
+    @Test
+    public void testRestocksForSameSupplierAreBatched() throws Exception
+    {
+        // Setup
+        // Create a stock orderer which waits up to 200 milliseconds to batch restocks together
+        orderer.shutdown();
+        orderer = new StockOrderer(Executors.newSingleThreadScheduledExecutor(), 4, 100, 10, 200);
+        SupplierServerMock serverMock = new SupplierServerMock();
+        serverMock.alwaysReturnSuccessfulResponse();
+        Supplier supplier = new Supplier();
+        supplier.supplierServer = serverMock;
+        // Create five items which are all restocked from the same supplier
+        List<StockItem> items = new ArrayList<>();
+        for(int id = 1; id <= 5; id++)
+        {
+            StockItem item = new StockItem(id);
+            item.setQuantity(0);
+            item.setOrderAmount(id * 10);
+            item.setSupplier(supplier);
+            items.add(item);
+        }
+
+        // Exercise
+        List<CompletableFuture<SupplierErrorCode>> results = new ArrayList<>();
+        for(StockItem item : items)
+        {
+            results.add(orderer.orderMore(item));
+        }
+        for(CompletableFuture<SupplierErrorCode> result : results)
+        {
+            Assertions.assertEquals(SupplierErrorCode.SUCCESS, result.get(30, TimeUnit.SECONDS));
+        }
+
+        // Verify
+        // All items should be ordered using a single call to the supplier's server
+        Assertions.assertEquals(1, serverMock.getNumTimesOrderItems());
+        // Each item should be restocked with its own order amount
+        for(StockItem item : items)
+        {
+            Assertions.assertEquals(item.getId() * 10, item.getQuantity());
+        }
+    }
+
+    @Test
+    public void testBatchedRestocksAreSplitByMaximumBatchSize() throws Exception
+    {
+        // Setup
+        // Create a stock orderer which sends at most two items per order
+        orderer.shutdown();
+        orderer = new StockOrderer(Executors.newSingleThreadScheduledExecutor(), 4, 100, 2, 200);
+        SupplierServerMock serverMock = new SupplierServerMock();
+        serverMock.alwaysReturnSuccessfulResponse();
+        Supplier supplier = new Supplier();
+        supplier.supplierServer = serverMock;
+
+        // Exercise
+        List<CompletableFuture<SupplierErrorCode>> results = new ArrayList<>();
+        for(int id = 1; id <= 5; id++)
+        {
+            StockItem item = new StockItem(id);
+            item.setQuantity(0);
+            item.setOrderAmount(10);
+            item.setSupplier(supplier);
+            results.add(orderer.orderMore(item));
+        }
+        for(CompletableFuture<SupplierErrorCode> result : results)
+        {
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        // Verify
+        // Five items should be sent in three orders (2 + 2 + 1)
+        Assertions.assertEquals(3, serverMock.getNumTimesOrderItems());
+    }
+
+    @Test
+    public void testBatchedResponsesAreRoutedToTheirItems() throws Exception
+    {
+        // Setup
+        orderer.shutdown();
+        orderer = new StockOrderer(Executors.newSingleThreadScheduledExecutor(), 4, 100, 10, 200);
+        // Create a supplier server which does not stock the item with id 2
+        Supplier supplier = new Supplier();
+        supplier.supplierServer = orders -> {
+            SupplierResponse[] responses = new SupplierResponse[orders.length];
+            for(int i = 0; i < orders.length; i++)
+            {
+                responses[i] = orders[i].id == 2 ?
+                        new SupplierResponse(orders[i].quantity, 0, SupplierErrorCode.ITEM_NOT_FOUND) :
+                        new SupplierResponse(orders[i].quantity, orders[i].quantity, SupplierErrorCode.SUCCESS);
+            }
+            return responses;
+        };
+        StockItem item1 = new StockItem(1);
+        StockItem item2 = new StockItem(2);
+        for(StockItem item : new StockItem[] {item1, item2})
+        {
+            item.setQuantity(5);
+            item.setMinimumOrderQuantity(10);
+            item.setOrderAmount(20);
+            item.setSupplier(supplier);
+        }
+
+        // Exercise
+        CompletableFuture<SupplierErrorCode> result1 = orderer.orderMore(item1);
+        CompletableFuture<SupplierErrorCode> result2 = orderer.orderMore(item2);
+
+        // Verify
+        // The first item should be restocked
+        Assertions.assertEquals(SupplierErrorCode.SUCCESS, result1.get(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(25, item1.getQuantity());
+        // The second item should not be restocked, and should no longer have a minimum order quantity
+        Assertions.assertEquals(SupplierErrorCode.ITEM_NOT_FOUND, result2.get(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(5, item2.getQuantity());
+        Assertions.assertEquals(0, item2.getMinimumOrderQuantity());
+    }
+
+    @Test
+    public void testRepeatedShortfallsJoinRestockInProgress() throws Exception
+    {
+        // Setup
+        stockItem.setQuantity(50);
+        stockItem.setMinimumOrderQuantity(20);
+        stockItem.setOrderAmount(30);
+        // Create a supplier server which counts its calls and does not respond until the test allows it to
+        CountDownLatch supplierLatch = new CountDownLatch(1);
+        AtomicInteger numSupplierCalls = new AtomicInteger();
+        Supplier supplier = new Supplier();
+        supplier.supplierServer = orders -> {
+            numSupplierCalls.incrementAndGet();
+            try
+            {
+                supplierLatch.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return new SupplierResponse[] {new SupplierResponse(30, 30, SupplierErrorCode.SUCCESS)};
+        };
+        stockItem.setSupplier(supplier);
+
+        // Exercise
+        // Place ten orders which each leave the item below its minimum order quantity
+        orderer.processOrder(stockItem, 31);
+        for(int i = 0; i < 9; i++)
+        {
+            orderer.processOrder(stockItem, 1);
+        }
+        CompletableFuture<SupplierErrorCode> joinedRestock = orderer.orderMore(stockItem);
+        supplierLatch.countDown();
+
+        // Verify
+        // Only one restock should be made, and later shortfalls should join it
+        Assertions.assertEquals(SupplierErrorCode.SUCCESS, joinedRestock.get(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, numSupplierCalls.get());
+        Assertions.assertEquals(10 + 30, stockItem.getQuantity());
+
+        // Once the restock is over, a new shortfall should start a new restock
+        Assertions.assertEquals(SupplierErrorCode.SUCCESS, orderer.orderMore(stockItem).get(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, numSupplierCalls.get());
+    }
+
+    @Test
+    public void testOpenCircuitBreakerHoldsBackRestocks() throws Exception
+    {
+        // Setup
+        // Create a stock orderer which only tries once, and opens a supplier's circuit breaker after a single failure
+        orderer.shutdown();
+        orderer = new StockOrderer(Executors.newSingleThreadScheduledExecutor(), 1, 0, 10, 0);
+        orderer.setCircuitBreakerSettings(1, 60000);
+        // Mock supplier server to always return a communication error
+        SupplierServerMock serverMock = new SupplierServerMock();
+        serverMock.addResponse(0, SupplierErrorCode.COMMUNICATION_ERROR);
+        Supplier supplier = new Supplier();
+        supplier.id = 7;
+        supplier.supplierServer = serverMock;
+        StockItem item1 = new StockItem(1);
+        StockItem item2 = new StockItem(2);
+        for(StockItem item : new StockItem[] {item1, item2})
+        {
+            item.setQuantity(0);
+            item.setOrderAmount(10);
+            item.setSupplier(supplier);
+        }
+
+        // Exercise
+        SupplierErrorCode result1 = orderer.orderMore(item1).get(30, TimeUnit.SECONDS);
+        CompletableFuture<SupplierErrorCode> result2 = orderer.orderMore(item2);
+        Thread.sleep(200);
+
+        // Verify
+        // The first failure should open the supplier's circuit breaker
+        Assertions.assertEquals(SupplierErrorCode.COMMUNICATION_ERROR, result1);
+        Assertions.assertEquals(CircuitBreakerState.OPEN, orderer.getCircuitBreakerState(7));
+        // The second restock should be held back without contacting the supplier
+        Assertions.assertFalse(result2.isDone());
+        Assertions.assertEquals(1, serverMock.getNumTimesOrderItems());
+        // Other suppliers should not be affected
+        Assertions.assertEquals(CircuitBreakerState.CLOSED, orderer.getCircuitBreakerState(8));
+    }
+
+    @Test
+    public void testSlowSupplierCallIsAbandonedAfterTimeout() throws Exception
+    {
+        // Setup
+        // Create a stock orderer which tries twice, and gives the supplier 100 milliseconds to respond to each call
+        orderer.shutdown();
+        orderer = new StockOrderer(Executors.newSingleThreadScheduledExecutor(),
+                new FixedDelayRetryPolicy(2, 10, 100), 10, 0);
+        stockItem.setQuantity(10);
+        stockItem.setOrderAmount(30);
+        // Create a supplier server which takes far longer than the timeout to respond
+        AtomicInteger numSupplierCalls = new AtomicInteger();
+        CountDownLatch callsInterrupted = new CountDownLatch(2);
+        Supplier supplier = new Supplier();
+        supplier.supplierServer = orders -> {
+            numSupplierCalls.incrementAndGet();
+            try
+            {
+                Thread.sleep(10000);
+            }
+            catch (InterruptedException e)
+            {
+                callsInterrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return new SupplierResponse[] {new SupplierResponse(30, 30, SupplierErrorCode.SUCCESS)};
+        };
+        stockItem.setSupplier(supplier);
+
+        // Exercise
+        long start = System.currentTimeMillis();
+        SupplierErrorCode result = orderer.orderMore(stockItem).get(30, TimeUnit.SECONDS);
+
+        // Verify
+        // Both attempts should time out, and the supplier should be notified as if it could not be reached
+        Assertions.assertEquals(SupplierErrorCode.COMMUNICATION_ERROR, result);
+        Assertions.assertTrue(System.currentTimeMillis() - start < 5000);
+        Assertions.assertEquals(2, numSupplierCalls.get());
+        verify(emailServer, times(1)).sendEmailToSupplier(eq(supplier), anyString());
+        Assertions.assertEquals(10, stockItem.getQuantity());
+        // The abandoned calls should be interrupted, so that they do not keep holding threads
+        Assertions.assertTrue(callsInterrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testOrderMoreWithExponentialBackoff() throws Exception
+    {
+        // Setup
+        orderer.shutdown();
+        orderer = new StockOrderer(Executors.newSingleThreadScheduledExecutor(),
+                new ExponentialBackoffRetryPolicy(4, 10, 100, 10000, 1000), 10, 0);
+        stockItem.setQuantity(10);
+        stockItem.setOrderAmount(30);
+        // Mock supplier server to return a communication error three times, and then return a successful response
+        SupplierServerMock serverMock = new SupplierServerMock();
+        serverMock.addResponse(0, SupplierErrorCode.COMMUNICATION_ERROR);
+        serverMock.addResponse(0, SupplierErrorCode.COMMUNICATION_ERROR);
+        serverMock.addResponse(0, SupplierErrorCode.COMMUNICATION_ERROR);
+        serverMock.addResponse(30, SupplierErrorCode.SUCCESS);
+        Supplier supplier = new Supplier();
+        supplier.supplierServer = serverMock;
+        stockItem.setSupplier(supplier);
+
+        // Exercise
+        SupplierErrorCode result = orderer.orderMore(stockItem).get(30, TimeUnit.SECONDS);
+
+        // Verify
+        Assertions.assertEquals(SupplierErrorCode.SUCCESS, result);
+        Assertions.assertEquals(4, serverMock.getNumTimesOrderItems());
+        Assertions.assertEquals(40, stockItem.getQuantity());
+    }
+
+    @Test
+    public void testManyAsynchronousSupplierCallsInProgressAtOnce() throws Exception
+    {
+        // Setup
+        // Create a stock orderer with a single thread for synchronous calls, which asynchronous servers do not use
+        orderer.shutdown();
+        orderer = new StockOrderer(Executors.newSingleThreadScheduledExecutor(),
+                SupplierServerAsyncAdapter.newBoundedExecutor(1, 1), new FixedDelayRetryPolicy(1, 0, 30000), 10, 0);
+        // Create an asynchronous supplier server which keeps track of its orders without responding to them
+        List<CompletableFuture<SupplierResponse[]>> pendingCalls = new CopyOnWriteArrayList<>();
+        AsyncSupplierServer asyncServer = orders -> {
+            CompletableFuture<SupplierResponse[]> call = new CompletableFuture<>();
+            pendingCalls.add(call);
+            return call;
+        };
+        // Create 20 items from 20 different suppliers, so that every item is ordered using a separate call
+        List<CompletableFuture<SupplierErrorCode>> results = new ArrayList<>();
+        for(int id = 1; id <= 20; id++)
+        {
+            Supplier supplier = new Supplier();
+            supplier.id = id;
+            supplier.supplierServer = asyncServer;
+            StockItem item = new StockItem(id);
+            item.setQuantity(0);
+            item.setOrderAmount(10);
+            item.setSupplier(supplier);
+            results.add(orderer.orderMore(item));
+        }
+
+        // Exercise
+        // Wait for all calls to be made
+        long deadline = System.currentTimeMillis() + 10000;
+        while(pendingCalls.size() < 20 && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        // Then let the supplier respond to all of them
+        for(CompletableFuture<SupplierResponse[]> call : pendingCalls)
+        {
+            call.complete(new SupplierResponse[] {new SupplierResponse(10, 10, SupplierErrorCode.SUCCESS)});
+        }
+
+        // Verify
+        // All 20 calls should have been in progress at the same time, even though only one thread is available
+        Assertions.assertEquals(20, pendingCalls.size());
+        for(CompletableFuture<SupplierErrorCode> result : results)
+        {
+            Assertions.assertEquals(SupplierErrorCode.SUCCESS, result.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    // Helper function which waits for the restock started by a test to finish, returning its result
+    private SupplierErrorCode waitForRestock()
+    {
+        return Assertions.assertTimeoutPreemptively(Duration.ofSeconds(30), () -> restockResult.get());
+    }
+
     // Helper function used to assert if all values in a list are larger or equal to a minimum value
     private void assertAllLargerOrEqualTo(List<Long> values, long minimum)
     {
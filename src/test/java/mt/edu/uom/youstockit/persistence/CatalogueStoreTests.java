@@ -0,0 +1,357 @@
+package mt.edu.uom.youstockit.persistence;
+
+import mt.edu.uom.youstockit.ordering.CatalogueListener;
+import mt.edu.uom.youstockit.ordering.ConcurrentProductCatalogue;
+import mt.edu.uom.youstockit.ordering.OrderingFacade;
+import mt.edu.uom.youstockit.ordering.ProductCatalogue;
+import mt.edu.uom.youstockit.ordering.StockItem;
+import mt.edu.uom.youstockit.ordering.StockOrderer;
+import mt.edu.uom.youstockit.services.ServiceLocator;
+import mt.edu.uom.youstockit.services.email.EmailSender;
+import mt.edu.uom.youstockit.supplier.Supplier;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntFunction;
+
+public class CatalogueStoreTests
+{
+    static ServiceLocator serviceLocator;
+    @TempDir
+    Path directory;
+    Supplier supplier;
+    IntFunction<Supplier> suppliers;
+    StockOrderer orderer;
+
+    @BeforeAll
+    public static void setupBeforeAll()
+    {
+        serviceLocator = ServiceLocator.getInstance();
+    }
+
+    @BeforeEach
+    public void setup()
+    {
+        serviceLocator.registerService("EmailSender", Mockito.mock(EmailSender.class));
+        orderer = new StockOrderer();
+
+        // The only supplier known to the tests
+        supplier = new Supplier();
+        supplier.id = 3;
+        suppliers = id -> id == supplier.id ? supplier : null;
+    }
+
+    @AfterEach
+    public void teardown()
+    {
+        orderer.shutdown();
+        orderer = null;
+        serviceLocator.clear();
+    }
+
+    @Test
+    public void testReopeningRestoresItemsStockAndSales() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = new ConcurrentProductCatalogue();
+        CatalogueStore store = CatalogueStore.open(directory, catalogue, suppliers, true, 0);
+        StockItem item1 = createItem(1, "Chocolate bar", 50);
+        StockItem item2 = createItem(2, "Orange juice", 20);
+        catalogue.add(item1);
+        catalogue.add(item2);
+
+        // Exercise
+        // Sell some items, restock one, change an attribute and remove the other item
+        orderer.processOrder(item1, 10);
+        orderer.processOrder(item1, 5);
+        item1.addQuantity(7);
+        item1.setDescription("Milk chocolate");
+        orderer.processOrder(item2, 3);
+        catalogue.remove(2);
+        store.close();
+
+        ProductCatalogue reloaded = new ConcurrentProductCatalogue();
+        CatalogueStore.open(directory, reloaded, suppliers, true, 0).close();
+
+        // Verify
+        Assertions.assertEquals(1, reloaded.getAll().size());
+        StockItem restored = reloaded.getById(1);
+        Assertions.assertEquals("Chocolate bar", restored.getName());
+        Assertions.assertEquals("Sweets", restored.getCategory());
+        Assertions.assertEquals("Milk chocolate", restored.getDescription());
+        Assertions.assertEquals(42, restored.getQuantity());
+        Assertions.assertEquals(15, restored.getNumTimesSold());
+        Assertions.assertEquals(item1.getProfitCents(), restored.getProfitCents());
+        Assertions.assertEquals(125, restored.getSellingPriceCents());
+        Assertions.assertSame(supplier, restored.getSupplier());
+        Assertions.assertNull(reloaded.getById(2));
+    }
+
+    @Test
+    public void testEveryChangedAttributeIsRestored() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = new ProductCatalogue();
+        CatalogueStore store = CatalogueStore.open(directory, catalogue, suppliers, true, 0);
+        StockItem item = createItem(1, "Chocolate bar", 50);
+        catalogue.add(item);
+
+        // Exercise
+        // Strings are written without going through String.getBytes, so include characters of every UTF-8 length
+        item.setName("\u010aokolata \u20ac \ud83c\udf6b");
+        item.setCategory("\u0126elu");
+        item.setDescription("Dark \u00e9clat");
+        item.setMinimumOrderQuantity(4);
+        item.setOrderAmount(25);
+        item.setSupplier(null);
+        item.setBuySellPricesCents(90, 150);
+        store.close();
+        ProductCatalogue reloaded = new ProductCatalogue();
+        CatalogueStore.open(directory, reloaded, suppliers, true, 0).close();
+
+        // Verify
+        StockItem restored = reloaded.getById(1);
+        Assertions.assertEquals("\u010aokolata \u20ac \ud83c\udf6b", restored.getName());
+        Assertions.assertEquals("\u0126elu", restored.getCategory());
+        Assertions.assertEquals("Dark \u00e9clat", restored.getDescription());
+        Assertions.assertEquals(4, restored.getMinimumOrderQuantity());
+        Assertions.assertEquals(25, restored.getOrderAmount());
+        Assertions.assertNull(restored.getSupplier());
+        Assertions.assertEquals(90, restored.getBuyingPriceCents());
+        Assertions.assertEquals(150, restored.getSellingPriceCents());
+        Assertions.assertEquals(50, restored.getQuantity());
+    }
+
+    @Test
+    public void testDeletingRestoredItemAfterRestartKeepsProfitConsistent() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = new ConcurrentProductCatalogue();
+        CatalogueStore store = CatalogueStore.open(directory, catalogue, suppliers, true, 0);
+        OrderingFacade facade = new OrderingFacade(orderer, catalogue, new ProductCatalogue());
+        facade.addItem(createItem(1, "Chocolate bar", 50));
+        facade.addItem(createItem(2, "Orange juice", 20));
+        facade.placeOrder(1, 10);
+        facade.placeOrder(2, 4);
+        long profitBeforeRestart = facade.calculateProfitCents();
+        store.close();
+
+        // Exercise
+        // Restart with a new stock orderer, and delete one of the restored items
+        orderer.shutdown();
+        orderer = new StockOrderer();
+        ProductCatalogue reloaded = new ConcurrentProductCatalogue();
+        CatalogueStore.open(directory, reloaded, suppliers, true, 0).close();
+        OrderingFacade reloadedFacade = new OrderingFacade(orderer, reloaded, new ProductCatalogue());
+        long profitAfterRestart = reloadedFacade.calculateProfitCents();
+        long deletedItemProfit = reloaded.getById(1).getProfitCents();
+        reloadedFacade.deleteItem(1);
+
+        // Verify
+        // The restored profit is counted, so deleting an item only takes away the profit made from it
+        Assertions.assertTrue(profitBeforeRestart > 0);
+        Assertions.assertEquals(profitBeforeRestart, profitAfterRestart);
+        Assertions.assertEquals(profitBeforeRestart - deletedItemProfit, reloadedFacade.calculateProfitCents());
+        Assertions.assertEquals(reloaded.getById(2).getProfitCents(), reloadedFacade.calculateProfitCents());
+    }
+
+    @Test
+    public void testCheckpointCompactsLogIntoSnapshot() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = new ConcurrentProductCatalogue();
+        CatalogueStore store = CatalogueStore.open(directory, catalogue, suppliers, true, 0);
+        StockItem item = createItem(1, "Chocolate bar", 50);
+        catalogue.add(item);
+        orderer.processOrder(item, 10);
+
+        // Exercise
+        store.checkpoint();
+        // Changes made after the checkpoint should be replayed on top of the snapshot
+        orderer.processOrder(item, 5);
+        item.setQuantity(100);
+        orderer.processOrder(item, 1);
+        store.close();
+
+        ProductCatalogue reloaded = new ProductCatalogue();
+        CatalogueStore.open(directory, reloaded, suppliers, true, 0).close();
+
+        // Verify
+        Assertions.assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        // Only the segment written after the checkpoint (and the one opened when reloading) should be left
+        Assertions.assertEquals(2, WriteAheadLog.listSegments(directory).size());
+        StockItem restored = reloaded.getById(1);
+        Assertions.assertEquals(99, restored.getQuantity());
+        Assertions.assertEquals(16, restored.getNumTimesSold());
+        Assertions.assertEquals(item.getProfitCents(), restored.getProfitCents());
+    }
+
+    @Test
+    public void testCheckpointKeepsSupplierIds() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = new ProductCatalogue();
+        CatalogueStore store = CatalogueStore.open(directory, catalogue, suppliers, true, 0);
+        catalogue.add(createItem(1, "Chocolate bar", 50));
+
+        // Exercise
+        store.checkpoint();
+        store.close();
+        ProductCatalogue reloaded = new ProductCatalogue();
+        CatalogueStore.open(directory, reloaded, suppliers, true, 0).close();
+
+        // Verify
+        // The snapshot is built without the real suppliers, but should still find them when it is loaded
+        Assertions.assertSame(supplier, reloaded.getById(1).getSupplier());
+    }
+
+    @Test
+    public void testDamagedEndOfLogIsIgnored() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = new ProductCatalogue();
+        CatalogueStore store = CatalogueStore.open(directory, catalogue, suppliers, true, 0);
+        StockItem item = createItem(1, "Chocolate bar", 50);
+        catalogue.add(item);
+        orderer.processOrder(item, 10);
+        store.close();
+
+        // Exercise
+        // Simulate a crash in the middle of writing a record
+        List<Long> segments = WriteAheadLog.listSegments(directory);
+        Path lastSegment = WriteAheadLog.segmentPath(directory, segments.get(segments.size() - 1));
+        Files.write(lastSegment, new byte[] {0, 0, 0, 17, 6, 0, 0}, StandardOpenOption.APPEND);
+        ProductCatalogue reloaded = new ProductCatalogue();
+        CatalogueStore.open(directory, reloaded, suppliers, true, 0).close();
+
+        // Verify
+        Assertions.assertEquals(40, reloaded.getById(1).getQuantity());
+    }
+
+    @Test
+    public void testConcurrentSalesAreAllRecorded() throws Exception
+    {
+        // Setup
+        ProductCatalogue catalogue = new ConcurrentProductCatalogue();
+        CatalogueStore store = CatalogueStore.open(directory, catalogue, suppliers, true, 0);
+        StockItem item = createItem(1, "Chocolate bar", 10000);
+        catalogue.add(item);
+        int numThreads = 8;
+        int ordersPerThread = 250;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < numThreads; i++)
+        {
+            Thread thread = new Thread(() -> {
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                for(int j = 0; j < ordersPerThread; j++)
+                {
+                    orderer.processOrder(item, 2);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // Exercise
+        start.countDown();
+        for(Thread thread : threads)
+        {
+            thread.join();
+        }
+        store.close();
+        ProductCatalogue reloaded = new ProductCatalogue();
+        CatalogueStore.open(directory, reloaded, suppliers, true, 0).close();
+
+        // Verify
+        StockItem restored = reloaded.getById(1);
+        Assertions.assertEquals(10000 - numThreads * ordersPerThread * 2, restored.getQuantity());
+        Assertions.assertEquals(numThreads * ordersPerThread * 2, restored.getNumTimesSold());
+        Assertions.assertEquals(item.getProfitCents(), restored.getProfitCents());
+    }
+
+    @Test
+    public void testSaleMadeWhileQuantityIsSetIsRestored() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = new ProductCatalogue();
+        CatalogueStore store = CatalogueStore.open(directory, catalogue, suppliers, true, 0);
+        StockItem item = createItem(1, "Chocolate bar", 50);
+        // Another catalogue containing the item sells some of it as soon as its quantity is set, which is before the
+        // store is told about the new quantity
+        ProductCatalogue otherCatalogue = new ProductCatalogue();
+        CatalogueListener seller = Mockito.mock(CatalogueListener.class);
+        Mockito.doAnswer(invocation -> orderer.processOrder(item, 3)).when(seller).quantitySet(Mockito.eq(item),
+                Mockito.anyInt(), Mockito.anyInt());
+        otherCatalogue.setListener(seller);
+        otherCatalogue.add(item);
+        catalogue.add(item);
+
+        // Exercise
+        item.setQuantity(20);
+        store.close();
+        ProductCatalogue reloaded = new ProductCatalogue();
+        CatalogueStore.open(directory, reloaded, suppliers, true, 0).close();
+
+        // Verify
+        Assertions.assertEquals(17, item.getQuantity());
+        Assertions.assertEquals(17, reloaded.getById(1).getQuantity());
+        Assertions.assertEquals(3, reloaded.getById(1).getNumTimesSold());
+    }
+
+    @Test
+    public void testSalesAreOnDiskAfterSync() throws IOException
+    {
+        // Setup
+        ProductCatalogue catalogue = new ProductCatalogue();
+        CatalogueStore store = CatalogueStore.open(directory, catalogue, suppliers, true, 0);
+        StockItem item = createItem(1, "Chocolate bar", 50);
+        catalogue.add(item);
+
+        // Exercise
+        // Sales do not wait for the disk, so wait for them explicitly, and copy the files while the store is still open
+        orderer.processOrder(item, 10);
+        store.sync();
+        Path copy = Files.createDirectory(directory.resolve("copy"));
+        for(long segment : WriteAheadLog.listSegments(directory))
+        {
+            Files.copy(WriteAheadLog.segmentPath(directory, segment), WriteAheadLog.segmentPath(copy, segment));
+        }
+        ProductCatalogue reloaded = new ProductCatalogue();
+        CatalogueStore.open(copy, reloaded, suppliers, true, 0).close();
+        store.close();
+
+        // Verify
+        Assertions.assertEquals(40, reloaded.getById(1).getQuantity());
+        Assertions.assertEquals(10, reloaded.getById(1).getNumTimesSold());
+    }
+
+    // Helper function which creates an item which is never restocked
+    private StockItem createItem(int id, String name, int quantity)
+    {
+        StockItem item = new StockItem(id);
+        item.setName(name);
+        item.setCategory("Sweets");
+        item.setQuantity(quantity);
+        item.setMinimumOrderQuantity(0);
+        item.setOrderAmount(10);
+        item.setBuySellPricesCents(80, 125);
+        item.setSupplier(supplier);
+        return item;
+    }
+}
@@ -0,0 +1,331 @@
+package mt.edu.uom.youstockit.services.email;
+
+import mt.edu.uom.youstockit.supplier.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncEmailSenderTests
+{
+    AsyncEmailSender asyncEmailSender;
+
+    @AfterEach
+    public void teardown() throws InterruptedException
+    {
+        if(asyncEmailSender != null)
+        {
+            asyncEmailSender.shutdown();
+            asyncEmailSender.awaitTermination(10, TimeUnit.SECONDS);
+            asyncEmailSender = null;
+        }
+    }
+
+    @Test
+    public void testInvalidSettings()
+    {
+        // Exercise and Verify
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                new AsyncEmailSender(new RecordingEmailSender(), 0, 10, 10, OverflowPolicy.BLOCK));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                new AsyncEmailSender(new RecordingEmailSender(), 10, -1, 10, OverflowPolicy.BLOCK));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                new AsyncEmailSender(new RecordingEmailSender(), 10, 10, 0, OverflowPolicy.BLOCK));
+    }
+
+    @Test
+    public void testCallerDoesNotWaitForSlowEmailSender() throws InterruptedException
+    {
+        // Setup
+        RecordingEmailSender emailSender = new RecordingEmailSender();
+        emailSender.block();
+        asyncEmailSender = new AsyncEmailSender(emailSender, 10, 0, 1, OverflowPolicy.BLOCK);
+
+        // Exercise
+        asyncEmailSender.sendEmailToManager("Item 1 is out of stock");
+        asyncEmailSender.sendEmailToManager("Item 2 is out of stock");
+
+        // Verify
+        // The emails were queued even though the email sender is stuck
+        Assertions.assertEquals(2, asyncEmailSender.getNumQueued());
+        emailSender.unblock();
+        asyncEmailSender.shutdown();
+        Assertions.assertTrue(asyncEmailSender.awaitTermination(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, emailSender.emails.size());
+        Assertions.assertEquals("Item 1 is out of stock", emailSender.emails.get(0).message);
+        Assertions.assertNotEquals(Thread.currentThread(), emailSender.emails.get(0).thread);
+    }
+
+    @Test
+    public void testEmailsToSameRecipientAreCoalesced() throws InterruptedException
+    {
+        // Setup
+        RecordingEmailSender emailSender = new RecordingEmailSender();
+        Supplier supplier1 = new Supplier();
+        supplier1.id = 1;
+        Supplier supplier2 = new Supplier();
+        supplier2.id = 2;
+        asyncEmailSender = new AsyncEmailSender(emailSender, 100, 10000, 100, OverflowPolicy.BLOCK);
+
+        // Exercise
+        asyncEmailSender.sendEmailToManager("Item 1 is out of stock");
+        asyncEmailSender.sendEmailToSupplier(supplier1, "Please restock item 1");
+        asyncEmailSender.sendEmailToManager("Item 2 is out of stock");
+        asyncEmailSender.sendEmailToSupplier(supplier2, "Please restock item 2");
+        asyncEmailSender.sendEmailToSupplier(supplier1, "Please restock item 3");
+        asyncEmailSender.shutdown();
+
+        // Verify
+        Assertions.assertTrue(asyncEmailSender.awaitTermination(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(3, emailSender.emails.size());
+        Assertions.assertEquals(3, asyncEmailSender.getNumSent());
+        Assertions.assertNull(emailSender.emails.get(0).supplier);
+        Assertions.assertEquals("YouStockIt has 2 notifications for you:\n\n- Item 1 is out of stock\n"
+                + "- Item 2 is out of stock", emailSender.emails.get(0).message);
+        Assertions.assertEquals(supplier1, emailSender.emails.get(1).supplier);
+        Assertions.assertEquals("YouStockIt has 2 notifications for you:\n\n- Please restock item 1\n"
+                + "- Please restock item 3", emailSender.emails.get(1).message);
+        Assertions.assertEquals(supplier2, emailSender.emails.get(2).supplier);
+        Assertions.assertEquals("Please restock item 2", emailSender.emails.get(2).message);
+    }
+
+    @Test
+    public void testDigestsAreLimitedInSize() throws InterruptedException
+    {
+        // Setup
+        RecordingEmailSender emailSender = new RecordingEmailSender();
+        emailSender.block();
+        asyncEmailSender = new AsyncEmailSender(emailSender, 100, 10000, 3, OverflowPolicy.BLOCK);
+
+        // Exercise
+        for(int i = 1; i <= 7; i++)
+        {
+            asyncEmailSender.sendEmailToManager("Item " + i + " is out of stock");
+        }
+        emailSender.unblock();
+        asyncEmailSender.shutdown();
+
+        // Verify
+        Assertions.assertTrue(asyncEmailSender.awaitTermination(10, TimeUnit.SECONDS));
+        int numMessages = 0;
+        for(RecordedEmail email : emailSender.emails)
+        {
+            int size = email.message.startsWith("YouStockIt has ") ? email.message.split("\n- ").length - 1 : 1;
+            Assertions.assertTrue(size <= 3);
+            numMessages += size;
+        }
+        Assertions.assertEquals(7, numMessages);
+    }
+
+    @Test
+    public void testDropNewestWhenQueueIsFull() throws InterruptedException
+    {
+        // Setup
+        RecordingEmailSender emailSender = new RecordingEmailSender();
+        asyncEmailSender = new AsyncEmailSender(emailSender, 2, 0, 1, OverflowPolicy.DROP_NEWEST);
+        fillQueue(emailSender);
+
+        // Exercise
+        asyncEmailSender.sendEmailToManager("Email 3");
+
+        // Verify
+        Assertions.assertEquals(1, asyncEmailSender.getNumDropped());
+        Assertions.assertEquals("[Email 1, Email 2]", finish(emailSender).toString());
+    }
+
+    @Test
+    public void testDropOldestWhenQueueIsFull() throws InterruptedException
+    {
+        // Setup
+        RecordingEmailSender emailSender = new RecordingEmailSender();
+        asyncEmailSender = new AsyncEmailSender(emailSender, 2, 0, 1, OverflowPolicy.DROP_OLDEST);
+        fillQueue(emailSender);
+
+        // Exercise
+        asyncEmailSender.sendEmailToManager("Email 3");
+
+        // Verify
+        Assertions.assertEquals(1, asyncEmailSender.getNumDropped());
+        Assertions.assertEquals("[Email 2, Email 3]", finish(emailSender).toString());
+    }
+
+    @Test
+    public void testSendOnCallerWhenQueueIsFull() throws InterruptedException
+    {
+        // Setup
+        RecordingEmailSender emailSender = new RecordingEmailSender();
+        asyncEmailSender = new AsyncEmailSender(emailSender, 2, 0, 1, OverflowPolicy.SEND_ON_CALLER);
+        fillQueue(emailSender);
+
+        // Exercise
+        asyncEmailSender.sendEmailToManager("Email 3");
+
+        // Verify
+        Assertions.assertEquals(0, asyncEmailSender.getNumDropped());
+        Assertions.assertEquals(1, emailSender.emails.size());
+        Assertions.assertEquals("Email 3", emailSender.emails.get(0).message);
+        Assertions.assertEquals(Thread.currentThread(), emailSender.emails.get(0).thread);
+        Assertions.assertEquals("[Email 3, Email 1, Email 2]", finish(emailSender).toString());
+    }
+
+    @Test
+    public void testBlockWaitsForRoomInQueue() throws InterruptedException
+    {
+        // Setup
+        RecordingEmailSender emailSender = new RecordingEmailSender();
+        asyncEmailSender = new AsyncEmailSender(emailSender, 2, 0, 1, OverflowPolicy.BLOCK);
+        fillQueue(emailSender);
+        Thread caller = new Thread(() -> asyncEmailSender.sendEmailToManager("Email 3"));
+
+        // Exercise
+        caller.start();
+        caller.join(200);
+
+        // Verify
+        // The caller waits while the queue is full, and carries on once there is room
+        Assertions.assertTrue(caller.isAlive());
+        emailSender.unblock();
+        caller.join(10000);
+        Assertions.assertFalse(caller.isAlive());
+        Assertions.assertEquals(0, asyncEmailSender.getNumDropped());
+        Assertions.assertEquals("[Email 1, Email 2, Email 3]", finish(emailSender).toString());
+    }
+
+    @Test
+    public void testFailedEmailsAreCounted() throws InterruptedException
+    {
+        // Setup
+        RecordingEmailSender emailSender = new RecordingEmailSender();
+        emailSender.failing = true;
+        asyncEmailSender = new AsyncEmailSender(emailSender, 10, 0, 1, OverflowPolicy.BLOCK);
+
+        // Exercise
+        asyncEmailSender.sendEmailToManager("Email 1");
+        asyncEmailSender.sendEmailToManager("Email 2");
+        asyncEmailSender.shutdown();
+
+        // Verify
+        Assertions.assertTrue(asyncEmailSender.awaitTermination(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, asyncEmailSender.getNumFailed());
+        Assertions.assertEquals(0, asyncEmailSender.getNumSent());
+    }
+
+    @Test
+    public void testEmailsAfterShutdownAreSentOnCaller() throws InterruptedException
+    {
+        // Setup
+        RecordingEmailSender emailSender = new RecordingEmailSender();
+        asyncEmailSender = new AsyncEmailSender(emailSender);
+        asyncEmailSender.shutdown();
+        Assertions.assertTrue(asyncEmailSender.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Exercise
+        asyncEmailSender.sendEmailToManager("Email 1");
+
+        // Verify
+        Assertions.assertEquals(1, emailSender.emails.size());
+        Assertions.assertEquals(Thread.currentThread(), emailSender.emails.get(0).thread);
+    }
+
+    // Helper function which blocks the background thread in the email sender, and then fills the queue (of size 2)
+    private void fillQueue(RecordingEmailSender emailSender) throws InterruptedException
+    {
+        emailSender.block();
+        asyncEmailSender.sendEmailToManager("Blocking email");
+        Assertions.assertTrue(emailSender.blocked.await(10, TimeUnit.SECONDS));
+        asyncEmailSender.sendEmailToManager("Email 1");
+        asyncEmailSender.sendEmailToManager("Email 2");
+    }
+
+    // Helper function which lets the email sender carry on, and returns the messages it sent after the blocked one
+    private List<String> finish(RecordingEmailSender emailSender) throws InterruptedException
+    {
+        emailSender.unblock();
+        asyncEmailSender.shutdown();
+        Assertions.assertTrue(asyncEmailSender.awaitTermination(10, TimeUnit.SECONDS));
+        List<String> messages = new ArrayList<>();
+        for(RecordedEmail email : emailSender.emails)
+        {
+            if(!email.message.equals("Blocking email"))
+            {
+                messages.add(email.message);
+            }
+        }
+        return messages;
+    }
+
+    // Email sent through the recording email sender
+    private static class RecordedEmail
+    {
+        final Supplier supplier;
+        final String message;
+        final Thread thread;
+
+        RecordedEmail(Supplier supplier, String message)
+        {
+            this.supplier = supplier;
+            this.message = message;
+            this.thread = Thread.currentThread();
+        }
+    }
+
+    // Email sender which records the emails sent, and can be made to block (like a slow mail server) or fail
+    private static class RecordingEmailSender implements EmailSender
+    {
+        final List<RecordedEmail> emails = new CopyOnWriteArrayList<>();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        volatile CountDownLatch unblocked = new CountDownLatch(0);
+        volatile Thread blockedThread;
+        volatile boolean failing;
+
+        // Blocks the next thread which sends an email (and then only that thread) until unblock is called
+        void block()
+        {
+            unblocked = new CountDownLatch(1);
+        }
+
+        void unblock()
+        {
+            unblocked.countDown();
+        }
+
+        @Override
+        public void sendEmailToSupplier(Supplier supplier, String message)
+        {
+            send(supplier, message);
+        }
+
+        @Override
+        public void sendEmailToManager(String message)
+        {
+            send(null, message);
+        }
+
+        private void send(Supplier supplier, String message)
+        {
+            if(unblocked.getCount() > 0 && (blockedThread == null || blockedThread == Thread.currentThread()))
+            {
+                blockedThread = Thread.currentThread();
+                blocked.countDown();
+                try
+                {
+                    unblocked.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if(failing)
+            {
+                throw new IllegalStateException("Mail server is down");
+            }
+            emails.add(new RecordedEmail(supplier, message));
+        }
+    }
+}
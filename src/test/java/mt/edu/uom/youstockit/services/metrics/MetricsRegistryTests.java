@@ -0,0 +1,199 @@
+package mt.edu.uom.youstockit.services.metrics;
+
+import mt.edu.uom.youstockit.services.ServiceLocator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsRegistryTests
+{
+    MetricsRegistry metrics;
+
+    @BeforeEach
+    public void setup()
+    {
+        metrics = new MetricsRegistry();
+    }
+
+    @AfterEach
+    public void teardown()
+    {
+        metrics = null;
+        ServiceLocator.getInstance().clear();
+    }
+
+    @Test
+    public void testCountersAreSharedByName()
+    {
+        // Exercise
+        metrics.counter("orders_total").increment();
+        metrics.counter("orders_total").add(4);
+        metrics.counter("calls_total", "supplier", "1").increment();
+
+        // Verify
+        MetricsSnapshot snapshot = metrics.snapshot();
+        Assertions.assertEquals(5, snapshot.getCounter("orders_total"));
+        Assertions.assertEquals(1, snapshot.getCounter("calls_total{supplier=\"1\"}"));
+        Assertions.assertEquals(0, snapshot.getCounter("unknown_total"));
+    }
+
+    @Test
+    public void testFindReturnsRegisteredRegistry()
+    {
+        // Setup
+        ServiceLocator.getInstance().registerService("MetricsRegistry", metrics);
+
+        // Exercise
+        MetricsRegistry result = MetricsRegistry.find();
+
+        // Verify
+        Assertions.assertSame(metrics, result);
+    }
+
+    @Test
+    public void testFindSharesOneRegistryWhenNoneIsRegistered()
+    {
+        // Exercise
+        MetricsRegistry first = MetricsRegistry.find();
+        MetricsRegistry second = MetricsRegistry.find();
+
+        // Verify
+        // Metrics recorded by different classes should all end up in the same registry
+        Assertions.assertSame(first, second);
+    }
+
+    @Test
+    public void testGaugesAreReadWhenSnapshotIsTaken()
+    {
+        // Setup
+        long[] value = {1};
+        metrics.gauge("items", () -> value[0]);
+
+        // Exercise
+        MetricsSnapshot before = metrics.snapshot();
+        value[0] = 7;
+        MetricsSnapshot after = metrics.snapshot();
+
+        // Verify
+        Assertions.assertEquals(1, (long) before.getGauges().get("items"));
+        Assertions.assertEquals(7, (long) after.getGauges().get("items"));
+    }
+
+    @Test
+    public void testHistogramPercentilesAreWithinBucketError()
+    {
+        // Setup
+        // Record latencies between 1 microsecond and 1 second
+        Histogram histogram = metrics.histogram("latency_nanoseconds");
+        Random random = new Random(1);
+        long[] values = new long[100000];
+        for(int i = 0; i < values.length; i++)
+        {
+            values[i] = 1000 + (long) (Math.exp(random.nextDouble() * Math.log(1000000)) * 1000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        // Exercise
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        // Verify
+        Assertions.assertEquals(values.length, snapshot.getCount());
+        Assertions.assertEquals(values[values.length - 1], snapshot.getMax());
+        for(double fraction : new double[] {0.5, 0.9, 0.99, 0.999})
+        {
+            long exact = values[(int) Math.ceil(fraction * values.length) - 1];
+            long estimate = snapshot.getPercentile(fraction);
+            Assertions.assertTrue(estimate >= exact && estimate <= exact * 1.125,
+                    "p" + fraction + " was " + estimate + " instead of " + exact);
+        }
+        Assertions.assertEquals(snapshot.getMax(), snapshot.getPercentile(1));
+    }
+
+    @Test
+    public void testHistogramBucketsCoverAllValues()
+    {
+        // Verify
+        // Small values have a bucket each, and every bucket holds the values it is given
+        for(long value = 0; value < 16; value++)
+        {
+            Assertions.assertEquals(value, Histogram.bucketOf(value));
+        }
+        long[] values = {16, 17, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for(long value : values)
+        {
+            int bucket = Histogram.bucketOf(value);
+            Assertions.assertTrue(bucket < Histogram.NUM_BUCKETS);
+            Assertions.assertTrue(Histogram.highestValueIn(bucket) >= value);
+            Assertions.assertTrue(Histogram.highestValueIn(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    public void testEmptyHistogram()
+    {
+        // Exercise
+        HistogramSnapshot snapshot = metrics.histogram("latency_nanoseconds").snapshot();
+
+        // Verify
+        Assertions.assertEquals(0, snapshot.getCount());
+        Assertions.assertEquals(0, snapshot.getPercentile(0.99));
+        Assertions.assertEquals(0, snapshot.getMean());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException
+    {
+        // Setup
+        int numThreads = 8;
+        int valuesPerThread = 100000;
+        Counter counter = metrics.counter("orders_total");
+        Histogram histogram = metrics.histogram("latency_nanoseconds");
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+        // Exercise
+        for(int t = 0; t < numThreads; t++)
+        {
+            executor.execute(() -> {
+                for(int i = 1; i <= valuesPerThread; i++)
+                {
+                    counter.increment();
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Verify
+        MetricsSnapshot snapshot = metrics.snapshot();
+        Assertions.assertEquals(numThreads * valuesPerThread, snapshot.getCounter("orders_total"));
+        HistogramSnapshot histogramSnapshot = snapshot.getHistogram("latency_nanoseconds");
+        Assertions.assertEquals(numThreads * valuesPerThread, histogramSnapshot.getCount());
+        Assertions.assertEquals(valuesPerThread, histogramSnapshot.getMax());
+    }
+
+    @Test
+    public void testFindUsesRegisteredRegistry()
+    {
+        // Setup
+        ServiceLocator.getInstance().registerService("MetricsRegistry", metrics);
+
+        // Exercise
+        MetricsRegistry found = MetricsRegistry.find();
+        ServiceLocator.getInstance().clear();
+        MetricsRegistry fallback = MetricsRegistry.find();
+
+        // Verify
+        Assertions.assertSame(metrics, found);
+        Assertions.assertNotNull(fallback);
+        Assertions.assertNotSame(metrics, fallback);
+    }
+}
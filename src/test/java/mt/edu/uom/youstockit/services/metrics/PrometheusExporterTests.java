@@ -0,0 +1,64 @@
+package mt.edu.uom.youstockit.services.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class PrometheusExporterTests
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testMetricsAreWrittenInPrometheusFormat()
+    {
+        // Setup
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("calls_total", "supplier", "1").add(3);
+        metrics.counter("calls_total", "supplier", "2").add(5);
+        metrics.gauge("items", () -> 42);
+        Histogram histogram = metrics.histogram("latency_nanoseconds", "supplier", "1");
+        histogram.record(10);
+        histogram.record(12);
+
+        // Exercise
+        String text = PrometheusExporter.toText(metrics.snapshot());
+
+        // Verify
+        // Each name has a single type line, even when it has several labels
+        Assertions.assertEquals(text.indexOf("# TYPE calls_total counter\n"),
+                text.lastIndexOf("# TYPE calls_total counter\n"));
+        Assertions.assertTrue(text.contains("calls_total{supplier=\"1\"} 3\n"));
+        Assertions.assertTrue(text.contains("calls_total{supplier=\"2\"} 5\n"));
+        Assertions.assertTrue(text.contains("# TYPE items gauge\nitems 42\n"));
+        Assertions.assertTrue(text.contains("# TYPE latency_nanoseconds summary\n"));
+        Assertions.assertTrue(text.contains("latency_nanoseconds{supplier=\"1\",quantile=\"0.5\"} 10\n"));
+        Assertions.assertTrue(text.contains("latency_nanoseconds{supplier=\"1\",quantile=\"0.999\"} 12\n"));
+        Assertions.assertTrue(text.contains("latency_nanoseconds_sum{supplier=\"1\"} 22\n"));
+        Assertions.assertTrue(text.contains("latency_nanoseconds_count{supplier=\"1\"} 2\n"));
+    }
+
+    @Test
+    public void testMetricsAreWrittenToFile() throws IOException
+    {
+        // Setup
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("orders_total").increment();
+        Path file = directory.resolve("youstockit.prom");
+
+        // Exercise
+        PrometheusExporter.writeToFile(metrics, file);
+        metrics.counter("orders_total").increment();
+        PrometheusExporter.writeToFile(metrics, file);
+
+        // Verify
+        String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Assertions.assertEquals("# TYPE orders_total counter\norders_total 2\n", text);
+        Assertions.assertFalse(Files.exists(directory.resolve("youstockit.prom.tmp")));
+    }
+}
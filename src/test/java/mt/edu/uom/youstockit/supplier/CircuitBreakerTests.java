@@ -0,0 +1,149 @@
+package mt.edu.uom.youstockit.supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerTests
+{
+    // Fake time in milliseconds, moved forward by the tests
+    long now;
+    CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    public void setup()
+    {
+        // Create a circuit breaker which opens after 3 failures in a row, and stays open for 1 second
+        now = 0;
+        circuitBreaker = new CircuitBreaker(3, 1000, () -> now);
+    }
+
+    @AfterEach
+    public void teardown()
+    {
+        circuitBreaker = null;
+    }
+
+    @Test
+    public void testBreakerStaysClosedBelowFailureThreshold()
+    {
+        // Exercise
+        failCalls(2);
+
+        // Verify
+        Assertions.assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+        Assertions.assertNotEquals(CircuitBreaker.NOT_ALLOWED, circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testSuccessResetsConsecutiveFailures()
+    {
+        // Exercise
+        failCalls(2);
+        circuitBreaker.recordSuccess(circuitBreaker.allowRequest());
+        failCalls(2);
+
+        // Verify
+        // The failures are not consecutive, so the breaker should stay closed
+        Assertions.assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testBreakerOpensAtFailureThreshold()
+    {
+        // Exercise
+        failCalls(3);
+
+        // Verify
+        // No calls should be allowed until the open period is over
+        Assertions.assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+        Assertions.assertEquals(CircuitBreaker.NOT_ALLOWED, circuitBreaker.allowRequest());
+        Assertions.assertEquals(1000, circuitBreaker.getRetryDelayMillis());
+    }
+
+    @Test
+    public void testBreakerAllowsSingleTrialCallAfterOpenPeriod()
+    {
+        // Setup
+        failCalls(3);
+
+        // Exercise
+        now = 1000;
+
+        // Verify
+        // Only a single trial call should be allowed
+        Assertions.assertNotEquals(CircuitBreaker.NOT_ALLOWED, circuitBreaker.allowRequest());
+        Assertions.assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreaker.getState());
+        Assertions.assertEquals(CircuitBreaker.NOT_ALLOWED, circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testSuccessfulTrialCallClosesBreaker()
+    {
+        // Setup
+        failCalls(3);
+        now = 1000;
+        long trialCall = circuitBreaker.allowRequest();
+
+        // Exercise
+        circuitBreaker.recordSuccess(trialCall);
+
+        // Verify
+        Assertions.assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+        Assertions.assertNotEquals(CircuitBreaker.NOT_ALLOWED, circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testFailedTrialCallOpensBreakerAgain()
+    {
+        // Setup
+        failCalls(3);
+        now = 1000;
+        long trialCall = circuitBreaker.allowRequest();
+
+        // Exercise
+        circuitBreaker.recordFailure(trialCall);
+
+        // Verify
+        // The breaker should be open for another full period
+        Assertions.assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+        now = 1999;
+        Assertions.assertEquals(CircuitBreaker.NOT_ALLOWED, circuitBreaker.allowRequest());
+        now = 2000;
+        Assertions.assertNotEquals(CircuitBreaker.NOT_ALLOWED, circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testCallsAllowedBeforeBreakerOpenedAreIgnored()
+    {
+        // Setup
+        // A slow call is allowed, and the breaker opens while it is still in progress
+        long slowCall = circuitBreaker.allowRequest();
+        failCalls(3);
+        now = 1000;
+        long trialCall = circuitBreaker.allowRequest();
+
+        // Exercise
+        // The slow call finishes during the trial call
+        circuitBreaker.recordSuccess(slowCall);
+
+        // Verify
+        // The slow call should neither close the breaker nor let a second trial call through
+        Assertions.assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreaker.getState());
+        Assertions.assertEquals(CircuitBreaker.NOT_ALLOWED, circuitBreaker.allowRequest());
+        circuitBreaker.recordFailure(slowCall);
+        Assertions.assertEquals(CircuitBreaker.NOT_ALLOWED, circuitBreaker.allowRequest());
+        circuitBreaker.recordSuccess(trialCall);
+        Assertions.assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+    }
+
+    // Helper function which makes a number of calls one after another, each of which fails
+    private void failCalls(int numCalls)
+    {
+        for(int i = 0; i < numCalls; i++)
+        {
+            circuitBreaker.recordFailure(circuitBreaker.allowRequest());
+        }
+    }
+}
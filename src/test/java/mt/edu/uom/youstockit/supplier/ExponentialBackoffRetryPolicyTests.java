@@ -0,0 +1,83 @@
+package mt.edu.uom.youstockit.supplier;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class ExponentialBackoffRetryPolicyTests
+{
+    @Test
+    public void testDelaysStayWithinDoublingCap()
+    {
+        // Setup
+        // Base delay of 100ms, capped at 1 second, with plenty of time for all attempts
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy(10, 100, 1000, 60000, 5000, new Random(42));
+
+        // Verify
+        // The delay after the n-th failed attempt should be between 0 and min(1000, 100 * 2^(n-1))
+        for(int attempt = 1; attempt < 10; attempt++)
+        {
+            long cap = Math.min(1000, 100L << (attempt - 1));
+            for(int i = 0; i < 100; i++)
+            {
+                long delay = policy.nextDelayMillis(attempt, 0);
+                Assertions.assertTrue(delay >= 0 && delay <= cap);
+            }
+        }
+    }
+
+    @Test
+    public void testDelaysAreJittered()
+    {
+        // Setup
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy(10, 1000, 1000, 60000, 5000, new Random(42));
+
+        // Exercise
+        long firstDelay = policy.nextDelayMillis(1, 0);
+        boolean allSame = true;
+        for(int i = 0; i < 20; i++)
+        {
+            allSame &= policy.nextDelayMillis(1, 0) == firstDelay;
+        }
+
+        // Verify
+        // Restocks retrying at the same time should not all wait for the same amount of time
+        Assertions.assertFalse(allSame);
+    }
+
+    @Test
+    public void testNoMoreAttemptsAfterMaximumAttempts()
+    {
+        // Setup
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy(3, 100, 1000, 60000, 5000);
+
+        // Verify
+        Assertions.assertTrue(policy.nextDelayMillis(2, 0) >= 0);
+        Assertions.assertEquals(-1, policy.nextDelayMillis(3, 0));
+    }
+
+    @Test
+    public void testNoMoreAttemptsAfterMaximumElapsedTime()
+    {
+        // Setup
+        RetryPolicy policy = new ExponentialBackoffRetryPolicy(10, 100, 100, 5000, 5000);
+
+        // Verify
+        // Any delay would go past the 5 seconds allowed for all attempts
+        Assertions.assertEquals(-1, policy.nextDelayMillis(2, 5000));
+    }
+
+    @Test
+    public void testFixedDelayRetryPolicy()
+    {
+        // Setup
+        RetryPolicy policy = new FixedDelayRetryPolicy(4, 5000, 30000);
+
+        // Verify
+        Assertions.assertEquals(5000, policy.nextDelayMillis(1, 0));
+        Assertions.assertEquals(5000, policy.nextDelayMillis(3, 0));
+        Assertions.assertEquals(-1, policy.nextDelayMillis(4, 0));
+        Assertions.assertEquals(30000, policy.getCallTimeoutMillis());
+    }
+}
@@ -0,0 +1,123 @@
+package mt.edu.uom.youstockit.supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class SupplierServerAsyncAdapterTests
+{
+    ExecutorService executor;
+
+    @BeforeEach
+    public void setup()
+    {
+        // Create an executor which can only make one call at a time, with room for one more waiting call
+        executor = SupplierServerAsyncAdapter.newBoundedExecutor(1, 1);
+    }
+
+    @AfterEach
+    public void teardown()
+    {
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    @Test
+    public void testOrderItemsAsyncReturnsServerResponse() throws Exception
+    {
+        // Setup
+        SupplierServerMock serverMock = new SupplierServerMock();
+        serverMock.alwaysReturnSuccessfulResponse();
+        AsyncSupplierServer server = new SupplierServerAsyncAdapter(serverMock, executor);
+
+        // Exercise
+        SupplierResponse[] response = server.orderItemsAsync(new ItemOrder[] {new ItemOrder(1, 20)})
+                .get(30, TimeUnit.SECONDS);
+
+        // Verify
+        Assertions.assertEquals(1, serverMock.getNumTimesOrderItems());
+        Assertions.assertEquals(SupplierErrorCode.SUCCESS, response[0].errorCode);
+        Assertions.assertEquals(20, response[0].actualQuantity);
+    }
+
+    @Test
+    public void testOrderItemsAsyncFailsWhenExecutorIsFull() throws Exception
+    {
+        // Setup
+        // Create a server which blocks until the test allows it to respond
+        CountDownLatch serverLatch = new CountDownLatch(1);
+        SupplierServer blockingServer = orders -> {
+            try
+            {
+                serverLatch.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return new SupplierResponse[] {new SupplierResponse(1, 1, SupplierErrorCode.SUCCESS)};
+        };
+        AsyncSupplierServer server = new SupplierServerAsyncAdapter(blockingServer, executor);
+        ItemOrder[] orders = new ItemOrder[] {new ItemOrder(1, 1)};
+
+        // Exercise
+        // The first call takes the only thread and the second call waits in the queue
+        CompletableFuture<SupplierResponse[]> first = server.orderItemsAsync(orders);
+        CompletableFuture<SupplierResponse[]> second = server.orderItemsAsync(orders);
+        CompletableFuture<SupplierResponse[]> third = server.orderItemsAsync(orders);
+
+        // Verify
+        // The third call should be rejected straight away
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class, third::get);
+        Assertions.assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        // The other calls should complete once the server responds
+        serverLatch.countDown();
+        Assertions.assertNotNull(first.get(30, TimeUnit.SECONDS));
+        Assertions.assertNotNull(second.get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCancellingOrderInterruptsCall() throws Exception
+    {
+        // Setup
+        // Create a server which hangs until it is interrupted
+        CountDownLatch callStarted = new CountDownLatch(1);
+        CountDownLatch callInterrupted = new CountDownLatch(1);
+        SupplierServer hungServer = orders -> {
+            callStarted.countDown();
+            try
+            {
+                new CountDownLatch(1).await();
+            }
+            catch (InterruptedException e)
+            {
+                callInterrupted.countDown();
+            }
+            return null;
+        };
+        SupplierServerMock serverMock = new SupplierServerMock();
+        serverMock.alwaysReturnSuccessfulResponse();
+        ItemOrder[] orders = new ItemOrder[] {new ItemOrder(1, 1)};
+
+        // Exercise
+        CompletableFuture<SupplierResponse[]> hungCall = new SupplierServerAsyncAdapter(hungServer, executor)
+                .orderItemsAsync(orders);
+        Assertions.assertTrue(callStarted.await(30, TimeUnit.SECONDS));
+        hungCall.cancel(true);
+
+        // Verify
+        // The hung call should be interrupted, giving its thread back to the executor for the next call
+        Assertions.assertTrue(callInterrupted.await(30, TimeUnit.SECONDS));
+        SupplierResponse[] response = new SupplierServerAsyncAdapter(serverMock, executor).orderItemsAsync(orders)
+                .get(30, TimeUnit.SECONDS);
+        Assertions.assertEquals(SupplierErrorCode.SUCCESS, response[0].errorCode);
+    }
+}
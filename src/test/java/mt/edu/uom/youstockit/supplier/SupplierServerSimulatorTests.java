@@ -0,0 +1,163 @@
+package mt.edu.uom.youstockit.supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class SupplierServerSimulatorTests
+{
+    ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    public void setup()
+    {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    public void teardown()
+    {
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    @Test
+    public void testItemsAreFilledInFullByDefault()
+    {
+        // Setup
+        SupplierServerSimulator simulator = new SupplierServerSimulator(scheduler, 1);
+
+        // Exercise
+        SupplierResponse[] response = simulator.orderItems(new ItemOrder[] {new ItemOrder(1, 20), new ItemOrder(2, 5)});
+
+        // Verify
+        Assertions.assertEquals(SupplierErrorCode.SUCCESS, response[0].errorCode);
+        Assertions.assertEquals(20, response[0].actualQuantity);
+        Assertions.assertEquals(5, response[1].actualQuantity);
+        Assertions.assertEquals(1, simulator.getNumCalls());
+        Assertions.assertEquals(2, simulator.getNumItemsOrdered());
+        Assertions.assertEquals(25, simulator.getQuantityDelivered());
+    }
+
+    @Test
+    public void testFailedCallsReturnCommunicationErrors()
+    {
+        // Setup
+        SupplierServerSimulator simulator = new SupplierServerSimulator(scheduler, 1);
+        simulator.setFailureRate(1);
+
+        // Exercise
+        SupplierResponse[] response = simulator.orderItems(new ItemOrder[] {new ItemOrder(1, 20), new ItemOrder(2, 5)});
+
+        // Verify
+        Assertions.assertEquals(SupplierErrorCode.COMMUNICATION_ERROR, response[0].errorCode);
+        Assertions.assertEquals(SupplierErrorCode.COMMUNICATION_ERROR, response[1].errorCode);
+        Assertions.assertEquals(0, response[0].actualQuantity);
+        Assertions.assertEquals(1, simulator.getNumFailedCalls());
+    }
+
+    @Test
+    public void testPartialFillsDeliverLessThanRequested()
+    {
+        // Setup
+        SupplierServerSimulator simulator = new SupplierServerSimulator(scheduler, 1);
+        simulator.setItemOutcomeRates(0, 0, 1);
+
+        // Exercise
+        SupplierResponse[] response = simulator.orderItems(new ItemOrder[] {new ItemOrder(1, 20)});
+
+        // Verify
+        Assertions.assertEquals(SupplierErrorCode.OUT_OF_STOCK, response[0].errorCode);
+        Assertions.assertEquals(20, response[0].requestedQuantity);
+        Assertions.assertTrue(response[0].actualQuantity > 0 && response[0].actualQuantity < 20);
+    }
+
+    @Test
+    public void testOutcomeRatesAreFollowed()
+    {
+        // Setup
+        SupplierServerSimulator simulator = new SupplierServerSimulator(scheduler, 1);
+        simulator.setItemOutcomeRates(0.1, 0.2, 0);
+        ItemOrder[] orders = new ItemOrder[10000];
+        for(int i = 0; i < orders.length; i++)
+        {
+            orders[i] = new ItemOrder(i, 10);
+        }
+
+        // Exercise
+        SupplierResponse[] response = simulator.orderItems(orders);
+
+        // Verify
+        int numNotFound = 0;
+        int numOutOfStock = 0;
+        for(SupplierResponse itemResponse : response)
+        {
+            if(itemResponse.errorCode == SupplierErrorCode.ITEM_NOT_FOUND)
+            {
+                numNotFound++;
+            }
+            else if(itemResponse.errorCode == SupplierErrorCode.OUT_OF_STOCK)
+            {
+                numOutOfStock++;
+            }
+        }
+        Assertions.assertEquals(1000, numNotFound, 150);
+        Assertions.assertEquals(2000, numOutOfStock, 200);
+    }
+
+    @Test
+    public void testSameSeedGivesSameResponses()
+    {
+        // Setup
+        SupplierServerSimulator simulator1 = new SupplierServerSimulator(scheduler, 42);
+        SupplierServerSimulator simulator2 = new SupplierServerSimulator(scheduler, 42);
+        simulator1.setItemOutcomeRates(0.2, 0.2, 0.2);
+        simulator2.setItemOutcomeRates(0.2, 0.2, 0.2);
+
+        for(int call = 0; call < 100; call++)
+        {
+            // Exercise
+            SupplierResponse[] response1 = simulator1.orderItems(new ItemOrder[] {new ItemOrder(call, 50)});
+            SupplierResponse[] response2 = simulator2.orderItems(new ItemOrder[] {new ItemOrder(call, 50)});
+
+            // Verify
+            Assertions.assertEquals(response1[0].errorCode, response2[0].errorCode);
+            Assertions.assertEquals(response1[0].actualQuantity, response2[0].actualQuantity);
+        }
+    }
+
+    @Test
+    public void testResponsesAreDelayedByLatency() throws Exception
+    {
+        // Setup
+        SupplierServerSimulator simulator = new SupplierServerSimulator(scheduler, 1);
+        simulator.setLatency(100, 0);
+
+        // Exercise
+        long start = System.nanoTime();
+        SupplierResponse[] response = simulator.orderItemsAsync(new ItemOrder[] {new ItemOrder(1, 20)})
+                .get(30, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Verify
+        Assertions.assertEquals(SupplierErrorCode.SUCCESS, response[0].errorCode);
+        Assertions.assertTrue(elapsedMillis >= 100);
+    }
+
+    @Test
+    public void testInvalidSettingsAreRejected()
+    {
+        // Setup
+        SupplierServerSimulator simulator = new SupplierServerSimulator(scheduler, 1);
+
+        // Verify
+        Assertions.assertThrows(IllegalArgumentException.class, () -> simulator.setFailureRate(1.5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> simulator.setItemOutcomeRates(0.5, 0.5, 0.5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> simulator.setLatency(-1, 0));
+    }
+}
@@ -0,0 +1,91 @@
+package mt.edu.uom.youstockit.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MoneyTests
+{
+    @Test
+    public void testParseWholeAmount()
+    {
+        // Exercise
+        long cents = Money.parse("12");
+
+        // Verify
+        Assertions.assertEquals(1200, cents);
+    }
+
+    @Test
+    public void testParseAmountWithOneDecimalPlace()
+    {
+        // Exercise
+        long cents = Money.parse("12.5");
+
+        // Verify
+        Assertions.assertEquals(1250, cents);
+    }
+
+    @Test
+    public void testParseTruncatesExtraDecimalPlaces()
+    {
+        // Exercise
+        long cents = Money.parse("1.999");
+
+        // Verify
+        Assertions.assertEquals(199, cents);
+    }
+
+    @Test
+    public void testParseNegativeAmount()
+    {
+        // Exercise
+        long cents = Money.parse("-0.05");
+
+        // Verify
+        Assertions.assertEquals(-5, cents);
+    }
+
+    @Test
+    public void testParseInvalidAmount()
+    {
+        // Exercise and verify
+        Assertions.assertThrows(NumberFormatException.class, () -> Money.parse("1.2.3"));
+        Assertions.assertThrows(NumberFormatException.class, () -> Money.parse("abc"));
+        Assertions.assertThrows(NumberFormatException.class, () -> Money.parse("."));
+        Assertions.assertThrows(NumberFormatException.class, () -> Money.parse(""));
+    }
+
+    @Test
+    public void testParseAmountWhichIsTooLarge()
+    {
+        // Exercise and verify
+        Assertions.assertThrows(NumberFormatException.class, () -> Money.parse("92233720368547758.08"));
+    }
+
+    @Test
+    public void testFormat()
+    {
+        // Exercise and verify
+        Assertions.assertEquals("10.50", Money.format(1050));
+        Assertions.assertEquals("0.05", Money.format(5));
+        Assertions.assertEquals("-0.05", Money.format(-5));
+        Assertions.assertEquals("-12.30", Money.format(-1230));
+    }
+
+    @Test
+    public void testFromDoubleRoundsToNearestCent()
+    {
+        // Exercise and verify
+        Assertions.assertEquals(29, Money.fromDouble(0.29));
+        Assertions.assertEquals(1999, Money.fromDouble(19.99));
+    }
+
+    @Test
+    public void testArithmeticOverflow()
+    {
+        // Exercise and verify
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.multiply(Long.MAX_VALUE / 2, 3));
+        Assertions.assertThrows(ArithmeticException.class, () -> Money.fromDouble(Double.NaN));
+    }
+}